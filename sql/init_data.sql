@@ -29,11 +29,8 @@ INSERT INTO roles (role_code, role_name, description) VALUES
 ('AUDITOR', '审计员', '负责审计和日志查看'),
 ('GUEST', '访客', '只有查看权限');
 
--- 为ADMIN角色分配所有权限
-INSERT INTO role_permissions (role_id, permission_id)
-SELECT r.id, p.id
-FROM roles r, permissions p
-WHERE r.role_code = 'ADMIN';
+-- 角色继承关系由迁移 V5 建立：ADMIN 继承 USER_MANAGER 和 AUDITOR，AUDITOR 继承 GUEST。
+-- 每个角色只分配自己独有的权限，继承来的权限不再重复分配。
 
 -- 为USER_MANAGER角色分配用户管理权限
 INSERT INTO role_permissions (role_id, permission_id)
@@ -42,12 +39,12 @@ FROM roles r, permissions p
 WHERE r.role_code = 'USER_MANAGER'
 AND p.permission_code IN ('USER:CREATE', 'USER:DELETE', 'USER:UPDATE', 'USER:LIST', 'USER:FREEZE', 'USER:UNFREEZE', 'ROLE:LIST', 'ROLE:ASSIGN');
 
--- 为AUDITOR角色分配审计权限
+-- 为AUDITOR角色分配审计权限（查看权限继承自GUEST）
 INSERT INTO role_permissions (role_id, permission_id)
 SELECT r.id, p.id
 FROM roles r, permissions p
 WHERE r.role_code = 'AUDITOR'
-AND p.permission_code IN ('AUDIT:VIEW', 'AUDIT:ANALYZE', 'USER:LIST', 'ROLE:LIST', 'PERMISSION:LIST');
+AND p.permission_code IN ('AUDIT:VIEW', 'AUDIT:ANALYZE');
 
 -- 为GUEST角色分配查看权限
 INSERT INTO role_permissions (role_id, permission_id)
@@ -56,6 +53,16 @@ FROM roles r, permissions p
 WHERE r.role_code = 'GUEST'
 AND p.permission_code IN ('USER:LIST', 'ROLE:LIST', 'PERMISSION:LIST');
 
+-- 为ADMIN角色分配其余所有权限（其他权限继承自USER_MANAGER、AUDITOR、GUEST）
+INSERT INTO role_permissions (role_id, permission_id)
+SELECT r.id, p.id
+FROM roles r, permissions p
+WHERE r.role_code = 'ADMIN'
+AND NOT EXISTS (
+    SELECT 1 FROM role_permissions rp JOIN roles pr ON pr.id = rp.role_id
+    WHERE rp.permission_id = p.id AND pr.role_code IN ('USER_MANAGER', 'AUDITOR', 'GUEST')
+);
+
 -- =====================================================
 -- 创建默认管理员账户
 -- =====================================================
@@ -0,0 +1,8 @@
+-- V1: 删除与唯一键重复的索引
+-- username / role_code / permission_code 列上已有 UNIQUE 约束自带的唯一索引，
+-- 再建一个同列的普通索引只会增加写入开销和缓冲池占用，查询计划不会因此改变。
+-- 索引不存在时（例如已手动删除）迁移工具会跳过对应语句。
+
+ALTER TABLE users DROP INDEX idx_users_username;
+ALTER TABLE roles DROP INDEX idx_roles_code;
+ALTER TABLE permissions DROP INDEX idx_permissions_code;
@@ -0,0 +1,17 @@
+-- V2: 关联表反向索引与用户状态分页索引
+-- 正向查询（用户 -> 角色 -> 权限）由唯一键 uk_user_role (user_id, role_id) 和
+-- uk_role_permission (role_id, permission_id) 覆盖，关联表本身不需要回表。
+-- 反向查询（角色下的用户、拥有某权限的角色）此前只能全表扫描或依赖外键的单列索引，
+-- 这里补上两列的覆盖索引，并按索引顺序支持键集分页。
+-- MySQL 为外键自动创建的单列索引在有了可用的复合索引后会被自动删除。
+
+-- 角色下的用户：WHERE role_id = ? AND user_id > ? ORDER BY role_id, user_id
+CREATE INDEX idx_user_roles_role_user ON user_roles(role_id, user_id);
+
+-- 拥有某权限的角色：WHERE permission_id = ?（以及删除权限时的级联删除）
+CREATE INDEX idx_role_permissions_perm_role ON role_permissions(permission_id, role_id);
+
+-- 按状态分页：WHERE status = ? AND id > ? ORDER BY status, id
+-- 旧索引只有 status 一列，需要先删除再按 (status, id) 重建
+ALTER TABLE users DROP INDEX idx_users_status;
+CREATE INDEX idx_users_status ON users(status, id);
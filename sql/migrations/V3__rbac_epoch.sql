@@ -0,0 +1,13 @@
+-- V3: 授权数据版本号（RBAC epoch）
+-- 单行表，每次通过服务装饰器修改用户、角色、权限或授权关系后加1。
+-- 各进程缓存查询结果时记下当时的版本号，之后只需读这一行（主键查询）即可判断缓存是否仍然有效，
+-- 不必逐个键维护失效关系。见 com.rbac.cache.RbacEpoch。
+
+CREATE TABLE IF NOT EXISTS rbac_epoch (
+    id TINYINT PRIMARY KEY COMMENT '固定为1',
+    epoch BIGINT NOT NULL DEFAULT 0 COMMENT '授权数据版本号',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最近一次变更时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='授权数据版本号';
+
+INSERT INTO rbac_epoch (id, epoch)
+SELECT 1, 0 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM rbac_epoch WHERE id = 1);
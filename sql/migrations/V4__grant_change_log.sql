@@ -0,0 +1,14 @@
+-- V4: 授权变更日志（跨节点缓存失效）
+-- 服务层修改用户角色、角色权限，或删除用户、角色、权限时，在同一事务中追加一行。
+-- 每个节点的 ChangeFeedPoller 按 seq 顺序读取其他节点写入的行，使本节点对应的缓存失效。
+-- changed_at_ms 为写入节点的时钟（毫秒），用于统计传播延迟；过期的行由各节点定期删除。
+
+CREATE TABLE IF NOT EXISTS grant_change_log (
+    seq BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '变更序号',
+    change_type VARCHAR(20) NOT NULL COMMENT '变更类型: USER=用户的角色, ROLE=角色的权限, PERMISSION=权限被删除',
+    target_id INT NOT NULL COMMENT '用户ID、角色ID或权限ID',
+    node_id VARCHAR(100) NOT NULL COMMENT '执行变更的节点',
+    changed_at_ms BIGINT NOT NULL COMMENT '变更时间（写入节点的毫秒时间戳）'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='授权变更日志';
+
+CREATE INDEX idx_grant_change_log_time ON grant_change_log(changed_at_ms);
@@ -0,0 +1,47 @@
+-- V5: 角色继承（父角色/子角色）及其传递闭包
+-- role_hierarchy 保存直接继承关系：子角色拥有父角色的全部权限（父角色又继承的权限同样传递下来）。
+-- role_closure 是继承关系的传递闭包：每对（祖先, 后代）一行，不含角色自身；path_count 为两者之间的继承路径数
+-- （允许多继承，同一对角色之间可能有多条路径）。增删一条继承关系时按路径数增减受影响的行，
+-- 路径数减到0的行删除，不需要重新计算整个闭包。见 com.rbac.dao.RoleHierarchyDao。
+-- 用户的有效权限 = 直接拥有的角色及其所有祖先角色的权限之并。
+
+CREATE TABLE IF NOT EXISTS role_hierarchy (
+    parent_role_id INT NOT NULL COMMENT '父角色ID（被继承的角色）',
+    child_role_id INT NOT NULL COMMENT '子角色ID（继承父角色的全部权限）',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (child_role_id, parent_role_id),
+    FOREIGN KEY (parent_role_id) REFERENCES roles(id) ON DELETE CASCADE,
+    FOREIGN KEY (child_role_id) REFERENCES roles(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='角色继承关系表';
+
+CREATE TABLE IF NOT EXISTS role_closure (
+    ancestor_id INT NOT NULL COMMENT '祖先角色ID',
+    descendant_id INT NOT NULL COMMENT '后代角色ID',
+    path_count BIGINT NOT NULL COMMENT '两者之间的继承路径数',
+    PRIMARY KEY (descendant_id, ancestor_id),
+    FOREIGN KEY (ancestor_id) REFERENCES roles(id) ON DELETE CASCADE,
+    FOREIGN KEY (descendant_id) REFERENCES roles(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='角色继承闭包表';
+
+-- 子角色：WHERE parent_role_id = ?
+CREATE INDEX idx_role_hierarchy_parent ON role_hierarchy(parent_role_id, child_role_id);
+
+-- 后代角色：WHERE ancestor_id = ?
+CREATE INDEX idx_role_closure_ancestor ON role_closure(ancestor_id, descendant_id);
+
+-- 内置角色的继承关系：ADMIN 继承 USER_MANAGER 和 AUDITOR，AUDITOR 继承 GUEST。
+-- 已有库中这些角色仍保留原来直接分配的权限，有效权限不变；新库的 init_data.sql 只给它们分配各自独有的权限。
+INSERT INTO role_hierarchy (parent_role_id, child_role_id)
+SELECT p.id, c.id FROM roles p, roles c
+WHERE (p.role_code = 'USER_MANAGER' AND c.role_code = 'ADMIN')
+   OR (p.role_code = 'AUDITOR' AND c.role_code = 'ADMIN')
+   OR (p.role_code = 'GUEST' AND c.role_code = 'AUDITOR');
+
+-- 以上继承关系最多两层：闭包为直接关系加上两层的路径
+INSERT INTO role_closure (ancestor_id, descendant_id, path_count)
+SELECT parent_role_id, child_role_id, 1 FROM role_hierarchy;
+
+INSERT INTO role_closure (ancestor_id, descendant_id, path_count)
+SELECT h1.parent_role_id, h2.child_role_id, COUNT(*)
+FROM role_hierarchy h1 JOIN role_hierarchy h2 ON h2.parent_role_id = h1.child_role_id
+GROUP BY h1.parent_role_id, h2.child_role_id;
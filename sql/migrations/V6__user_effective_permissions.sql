@@ -0,0 +1,25 @@
+-- V6: 用户有效权限物化表（auth.effectivePermissions.enabled=true 时使用）
+-- 每个（用户, 有效权限）一行：经由直接分配的角色或其在 role_closure 中的祖先角色获得的权限，去重后保存。
+-- 启用后服务层在修改用户角色、角色权限、角色继承关系的同一事务中维护本表，权限校验变为一次主键查找；
+-- 删除用户或权限时由外键级联删除对应的行。见 com.rbac.dao.EffectivePermissionDao。
+-- 未启用期间本表不再维护，重新启用前需运行 EffectivePermissionTool rebuild。
+
+CREATE TABLE IF NOT EXISTS user_effective_permissions (
+    user_id INT NOT NULL COMMENT '用户ID',
+    permission_id INT NOT NULL COMMENT '权限ID',
+    PRIMARY KEY (user_id, permission_id),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (permission_id) REFERENCES permissions(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户有效权限物化表';
+
+-- 拥有某权限的用户：WHERE permission_id IN (...) AND user_id = ?
+CREATE INDEX idx_user_effective_permissions_perm_user ON user_effective_permissions(permission_id, user_id);
+
+-- 按现有授权填充
+INSERT INTO user_effective_permissions (user_id, permission_id)
+SELECT ur.user_id, rp.permission_id
+FROM user_roles ur JOIN role_permissions rp ON rp.role_id = ur.role_id
+UNION
+SELECT ur.user_id, rp.permission_id
+FROM user_roles ur JOIN role_closure rc ON rc.descendant_id = ur.role_id
+JOIN role_permissions rp ON rp.role_id = rc.ancestor_id;
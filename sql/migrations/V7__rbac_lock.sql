@@ -0,0 +1,12 @@
+-- V7: 授权修改锁
+-- 单行表，只用于行锁：修改角色继承关系（以及启用物化表时的所有授权修改）前在事务中
+-- SELECT ... FOR UPDATE 锁定这一行，使这些修改串行执行。见 com.rbac.dao.RoleHierarchyDao#lock()。
+-- 此前借用 rbac_epoch 的行锁，而每个修改操作提交前都要更新 rbac_epoch：一次耗时较长的授权修改
+-- 会让所有进程的其他修改阻塞在递增版本号上。单独的锁行只与同样需要串行的修改互相等待。
+
+CREATE TABLE IF NOT EXISTS rbac_lock (
+    id TINYINT PRIMARY KEY COMMENT '固定为1'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='授权修改锁';
+
+INSERT INTO rbac_lock (id)
+SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM rbac_lock WHERE id = 1);
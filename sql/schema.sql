@@ -66,7 +66,7 @@ CREATE TABLE IF NOT EXISTS audit_logs (
     ip_address VARCHAR(50) COMMENT 'IP地址'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审计日志表';
 
--- 创建索引
+-- 创建索引（基线版本；之后的索引调整见 sql/migrations，由 MigrationRunner 按版本执行）
 CREATE INDEX idx_users_username ON users(username);
 CREATE INDEX idx_users_status ON users(status);
 CREATE INDEX idx_roles_code ON roles(role_code);
@@ -1,13 +1,16 @@
 package com.rbac;
 
 import com.rbac.audit.AuditAnalyzer;
+import com.rbac.audit.AuditLogger;
 import com.rbac.cli.MenuHandler;
 import com.rbac.decorator.AuthPermissionServiceDecorator;
 import com.rbac.decorator.AuthRoleServiceDecorator;
 import com.rbac.decorator.AuthUserServiceDecorator;
+import com.rbac.engine.AuthorizationEngine;
 import com.rbac.model.User;
 import com.rbac.service.*;
 import com.rbac.service.impl.*;
+import com.rbac.util.ConfigUtil;
 import com.rbac.util.SessionContext;
 
 import java.util.Scanner;
@@ -27,16 +30,17 @@ public class MainApp {
     public MainApp() {
         this.scanner = new Scanner(System.in);
         
-        // 初始化基础服务
-        this.authService = new AuthServiceImpl();
+        // 初始化基础服务（auth.engine=compiled 时权限校验和反向查询使用内存中的编译授权模型）
+        boolean compiled = "compiled".equalsIgnoreCase(ConfigUtil.getString("auth.engine", "sql"));
+        this.authService = compiled ? new CompiledAuthServiceImpl() : new AuthServiceImpl();
         UserService baseUserService = new UserServiceImpl();
-        RoleService baseRoleService = new RoleServiceImpl();
+        RoleService baseRoleService = new RoleServiceImpl(compiled ? AuthorizationEngine.shared() : null);
         PermissionService basePermissionService = new PermissionServiceImpl();
         
         // 使用装饰器包装服务，增加权限控制
         this.userService = new AuthUserServiceDecorator(baseUserService, authService);
-        this.roleService = new AuthRoleServiceDecorator(baseRoleService, authService, baseUserService);
-        this.permissionService = new AuthPermissionServiceDecorator(basePermissionService, authService, baseRoleService);
+        this.roleService = new AuthRoleServiceDecorator(baseRoleService, authService);
+        this.permissionService = new AuthPermissionServiceDecorator(basePermissionService, authService);
         
         // 初始化审计分析器
         AuditAnalyzer auditAnalyzer = new AuditAnalyzer();
@@ -90,6 +94,9 @@ public class MainApp {
                     case "5":
                         menuHandler.handleAuditAnalysis();
                         break;
+                    case "6":
+                        menuHandler.handleDatabaseStatus();
+                        break;
                     case "0":
                         System.out.println("感谢使用，再见！");
                         running = false;
@@ -100,7 +107,8 @@ public class MainApp {
             }
         }
         
-        // 清理资源
+        // 清理资源（写出尚未汇总的重复审计事件）
+        AuditLogger.flush();
         SessionContext.clear();
         scanner.close();
     }
@@ -133,6 +141,7 @@ public class MainApp {
             System.out.println("3. 角色管理");
             System.out.println("4. 权限管理");
             System.out.println("5. 智能审计分析");
+            System.out.println("6. 数据库运行状态");
             System.out.println("0. 退出系统");
         }
         
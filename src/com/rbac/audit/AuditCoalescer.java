@@ -0,0 +1,220 @@
+package com.rbac.audit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 审计事件聚合器 - 把短时间内大量重复的同一事件合并为周期性的汇总记录
+ *
+ * <p>同一操作者、操作、对象和消息视为同一事件。事件第一次出现时立即原样写出（与逐条记录完全相同），
+ * 之后的重复只在内存中计数；每个聚合窗口结束时（{@link #flush()}），对窗口内有重复的事件写出一条汇总记录，
+ * 包含次数以及首次、末次重复的时间。一个完整窗口内没有再出现的事件不再跟踪，之后再出现时重新原样写出。
+ *
+ * <p>因此每个持续重复的事件每个窗口最多产生一条记录，审计文件的写入量与重试的频率无关；
+ * 不同的事件（如不同的权限编码、不同的用户）互不影响，各自都有原样记录的第一条。
+ *
+ * <p>同时跟踪的事件数达到上限后，新的事件不再聚合、逐条原样写出，不会丢失记录。
+ *
+ * <p>线程安全：计数在事件条目上加锁；窗口结束时不再跟踪的条目先标记为已移除，并发的重复会重新创建条目。
+ *
+ * @author RBAC Team
+ * @see AuditLogger#logFailCoalesced(String, String, String)
+ */
+public final class AuditCoalescer {
+
+    /**
+     * 聚合结果的写出方
+     */
+    public interface Sink {
+
+        /**
+         * 原样写出事件（第一次出现，或未参与聚合）
+         */
+        void verbatim(String operator, String action, String target, String message);
+
+        /**
+         * 写出一个窗口内的重复汇总
+         *
+         * @param count 窗口内被合并（未原样写出）的次数
+         * @param firstMillis 窗口内第一次重复的时间（毫秒时间戳）
+         * @param lastMillis 窗口内最后一次重复的时间（毫秒时间戳）
+         */
+        void summary(String operator, String action, String target, String message,
+                     long count, long firstMillis, long lastMillis);
+    }
+
+    private final Sink sink;
+    private final boolean enabled;
+    private final int maxKeys;
+    private final long windowMillis;
+
+    private final ConcurrentMap<String, Event> events = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong verbatim = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong summaries = new AtomicLong();
+    private final AtomicLong overflow = new AtomicLong();
+
+    /**
+     * @param sink 写出方
+     * @param enabled 是否聚合；未启用时每次都原样写出
+     * @param windowMillis 聚合窗口（毫秒），{@link #start()} 后按此间隔汇总
+     * @param maxKeys 最多同时跟踪的事件数
+     */
+    public AuditCoalescer(Sink sink, boolean enabled, long windowMillis, int maxKeys) {
+        if (windowMillis < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("聚合窗口和事件数上限必须大于0: windowMillis=" + windowMillis
+                    + ", maxKeys=" + maxKeys);
+        }
+        this.sink = sink;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 启动后台线程，每个窗口结束时汇总一次
+     */
+    public synchronized void start() {
+        if (!enabled || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rbac-audit-coalescer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次事件：第一次出现时原样写出，窗口内的重复只计数
+     */
+    public void record(String operator, String action, String target, String message) {
+        if (!enabled) {
+            writeVerbatim(operator, action, target, message);
+            return;
+        }
+        String key = operator + '\u0000' + action + '\u0000' + target + '\u0000' + message;
+        while (true) {
+            Event event = events.get(key);
+            if (event == null) {
+                if (events.size() >= maxKeys) {
+                    overflow.incrementAndGet();
+                    writeVerbatim(operator, action, target, message);
+                    return;
+                }
+                if (events.putIfAbsent(key, new Event(operator, action, target, message)) == null) {
+                    writeVerbatim(operator, action, target, message);
+                    return;
+                }
+                continue;
+            }
+            if (event.repeat(System.currentTimeMillis())) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            // 条目刚在汇总时被移除：重新创建
+        }
+    }
+
+    /**
+     * 写出所有事件在当前窗口内的重复汇总；窗口内没有重复的事件不再跟踪
+     *
+     * <p>由后台线程定期调用，进程退出前也应调用一次，避免最后一个窗口的计数丢失
+     */
+    public void flush() {
+        for (Map.Entry<String, Event> e : events.entrySet()) {
+            Event event = e.getValue();
+            long count;
+            long first;
+            long last;
+            synchronized (event) {
+                count = event.count;
+                first = event.firstMillis;
+                last = event.lastMillis;
+                if (count == 0) {
+                    event.removed = true;
+                } else {
+                    event.count = 0;
+                }
+            }
+            if (count == 0) {
+                events.remove(e.getKey(), event);
+            } else {
+                summaries.incrementAndGet();
+                sink.summary(event.operator, event.action, event.target, event.message, count, first, last);
+            }
+        }
+    }
+
+    private void writeVerbatim(String operator, String action, String target, String message) {
+        verbatim.incrementAndGet();
+        sink.verbatim(operator, action, target, message);
+    }
+
+    /**
+     * 原样写出的次数
+     */
+    public long getVerbatimCount() {
+        return verbatim.get();
+    }
+
+    /**
+     * 合并（计入汇总、未单独写出）的次数
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[audit-coalescer] %s 窗口=%dms 跟踪事件=%d/%d | 原样=%d 合并=%d 汇总记录=%d 超出上限=%d",
+                enabled ? "启用" : "未启用", windowMillis, events.size(), maxKeys,
+                verbatim.get(), coalesced.get(), summaries.get(), overflow.get());
+    }
+
+    /**
+     * 一个被跟踪的事件及其在当前窗口内的重复计数（字段在本对象锁内访问）
+     */
+    private static final class Event {
+        private final String operator;
+        private final String action;
+        private final String target;
+        private final String message;
+
+        private long count;
+        private long firstMillis;
+        private long lastMillis;
+        private boolean removed;
+
+        private Event(String operator, String action, String target, String message) {
+            this.operator = operator;
+            this.action = action;
+            this.target = target;
+            this.message = message;
+        }
+
+        /**
+         * 计入一次重复，条目已被移除时返回 false
+         */
+        private synchronized boolean repeat(long now) {
+            if (removed) {
+                return false;
+            }
+            if (count == 0) {
+                firstMillis = now;
+            }
+            count++;
+            lastMillis = now;
+            return true;
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.rbac.audit;
 
 import com.rbac.model.User;
+import com.rbac.util.ConfigUtil;
 import com.rbac.util.SessionContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 /**
  * 审计日志记录器 - 统一记录系统审计事件
+ * 
+ * <p>可能被大量重复触发的失败事件（如被拒绝的操作反复重试时的权限校验失败）通过
+ * {@link #logFailCoalesced(String, String, String)} 记录：第一次原样写出，之后的重复由 {@link AuditCoalescer}
+ * 合并为每个窗口一条 {@code AUDIT_SUMMARY} 汇总记录（{@code audit.coalesce.*} 配置）
  */
 public class AuditLogger {
     
@@ -22,6 +29,34 @@ public class AuditLogger {
     private static final Marker AUDIT_SUCCESS = MarkerManager.getMarker("AUDIT_SUCCESS");
     private static final Marker AUDIT_FAIL = MarkerManager.getMarker("AUDIT_FAIL");
     private static final Marker AUDIT_CRITICAL = MarkerManager.getMarker("AUDIT_CRITICAL");
+    private static final Marker AUDIT_SUMMARY = MarkerManager.getMarker("AUDIT_SUMMARY");
+    
+    /**
+     * 重复失败事件的聚合器（首次使用时按配置创建并启动）
+     */
+    private static final class CoalescerHolder {
+        private static final AuditCoalescer INSTANCE = create();
+        
+        private static AuditCoalescer create() {
+            AuditCoalescer coalescer = new AuditCoalescer(new AuditCoalescer.Sink() {
+                @Override
+                public void verbatim(String operator, String action, String target, String message) {
+                    logger.info(AUDIT_FAIL, buildLogMessage(operator, action, target, message, "FAIL"));
+                }
+                
+                @Override
+                public void summary(String operator, String action, String target, String message,
+                                    long count, long firstMillis, long lastMillis) {
+                    logger.info(AUDIT_SUMMARY, buildSummaryMessage(operator, action, target, message,
+                            count, firstMillis, lastMillis));
+                }
+            }, ConfigUtil.getBoolean("audit.coalesce.enabled", true),
+                    ConfigUtil.getLong("audit.coalesce.windowSeconds", 60) * 1000,
+                    ConfigUtil.getInt("audit.coalesce.maxKeys", 10000));
+            coalescer.start();
+            return coalescer;
+        }
+    }
     
     /**
      * 记录成功的审计事件
@@ -41,6 +76,30 @@ public class AuditLogger {
         logger.info(AUDIT_FAIL, logMessage);
     }
     
+    /**
+     * 记录可能大量重复的失败事件（如权限校验失败）
+     * 
+     * <p>同一操作者、操作、对象和消息的事件在聚合窗口内只原样记录第一次，
+     * 其余次数在窗口结束时合并为一条汇总记录（{@code [AUDIT_SUMMARY] ... count=N first=... last=...}）
+     */
+    public static void logFailCoalesced(String action, String target, String message) {
+        CoalescerHolder.INSTANCE.record(getCurrentOperator(), action, target, message);
+    }
+    
+    /**
+     * 立即写出尚未汇总的重复事件（进程退出前调用）
+     */
+    public static void flush() {
+        CoalescerHolder.INSTANCE.flush();
+    }
+    
+    /**
+     * 重复失败事件的聚合统计
+     */
+    public static String coalescerStats() {
+        return CoalescerHolder.INSTANCE.toString();
+    }
+    
     /**
      * 记录关键的审计事件（如权限变更、用户删除等）
      */
@@ -90,4 +149,19 @@ public class AuditLogger {
         return String.format("user=%s action=%s target=%s msg=%s result=%s",
                 operator, action, target != null ? target : "", message, result);
     }
+    
+    /**
+     * 构建重复事件的汇总消息
+     * 格式: user=xxx action=xxx target=xxx count=N first=时间 last=时间 msg=xxx result=FAIL
+     */
+    private static String buildSummaryMessage(String operator, String action, String target, String message,
+                                              long count, long firstMillis, long lastMillis) {
+        return String.format("user=%s action=%s target=%s count=%d first=%s last=%s msg=%s result=FAIL",
+                operator, action, target != null ? target : "", count,
+                format(firstMillis), format(lastMillis), message);
+    }
+    
+    private static String format(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()).format(formatter);
+    }
 }
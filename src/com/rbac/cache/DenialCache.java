@@ -0,0 +1,253 @@
+package com.rbac.cache;
+
+import com.rbac.event.ChangeFeedPoller;
+import com.rbac.event.GrantChangeListener;
+import com.rbac.event.GrantEvents;
+import com.rbac.model.UserGrants;
+import com.rbac.util.ConfigUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 拒绝结果缓存 - 短时间记住"某用户没有某权限"，被拒绝的操作反复重试时不必每次重新读取授权
+ *
+ * <p>与 {@link PermissionCache} 互补：权限缓存按用户缓存整个授权快照，未启用、条目过期或被淘汰时每次校验都要关联查询；
+ * 本缓存只记录被拒绝的（用户, 权限编码），条目很小、有效期很短（{@code auth.denialCache.ttlSeconds}）。
+ *
+ * <p><b>失效：</b>与权限缓存相同，注册为 {@link GrantChangeListener}，授权变更提交后移除可能变为"允许"的条目：
+ * <ul>
+ *   <li>分配/移除角色、删除用户 → 该用户的条目</li>
+ *   <li>角色的权限或继承关系变化 → 拒绝时拥有该角色（含继承的角色）的用户的条目</li>
+ *   <li>删除权限 → 不需要失效：删除权限只会使更多校验被拒绝</li>
+ * </ul>
+ * 加载与失效的竞态同样用失效计数处理：拒绝结果基于失效计数变化前读到的授权时不放入缓存。
+ *
+ * <p><b>容量：</b>条目数达到 {@code auth.denialCache.maxSize} 时先清除过期条目，仍然已满则不再放入新条目
+ * （只是退回到不缓存拒绝结果，不影响正确性）。
+ *
+ * @author RBAC Team
+ * @see com.rbac.service.impl.AuthServiceImpl
+ */
+public class DenialCache implements GrantChangeListener {
+
+    private static final Logger logger = LogManager.getLogger(DenialCache.class);
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /** 失效计数，每次失效先递增再移除条目 */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param enabled 是否启用；未启用时 {@link #isDenied(int, String)} 总是返回 false
+     * @param maxSize 最大条目数
+     * @param ttlSeconds 条目有效期（秒）
+     */
+    public DenialCache(boolean enabled, int maxSize, long ttlSeconds) {
+        if (maxSize < 1 || ttlSeconds < 1) {
+            throw new IllegalArgumentException("缓存容量和有效期必须大于0: maxSize=" + maxSize + ", ttlSeconds=" + ttlSeconds);
+        }
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * 进程内共享的缓存（按配置创建，并注册到 {@link GrantEvents}）
+     */
+    public static DenialCache shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final DenialCache INSTANCE = fromConfig();
+
+        private static DenialCache fromConfig() {
+            DenialCache cache = new DenialCache(
+                    ConfigUtil.getBoolean("auth.denialCache.enabled", true),
+                    ConfigUtil.getInt("auth.denialCache.maxSize", 10000),
+                    ConfigUtil.getLong("auth.denialCache.ttlSeconds", 30));
+            GrantEvents.register(cache);
+            ChangeFeedPoller.shared();
+            logger.info("拒绝结果缓存已创建: {}", cache);
+            return cache;
+        }
+    }
+
+    /**
+     * 用户对该权限编码的校验是否在有效期内被拒绝过
+     */
+    public boolean isDenied(int userId, String permissionCode) {
+        if (!enabled) {
+            return false;
+        }
+        Key key = new Key(userId, permissionCode);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (System.nanoTime() - entry.deniedAt >= ttlNanos) {
+            entries.remove(key, entry);
+            return false;
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 当前失效计数，在读取授权之前取得，之后传给 {@link #put(int, String, UserGrants, long)}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 记录一次拒绝
+     *
+     * @param userId 用户ID
+     * @param permissionCode 被拒绝的权限编码
+     * @param grants 作出拒绝时依据的授权快照（按其中的角色判断之后的角色变更是否影响该条目）
+     * @param observedGeneration 读取授权之前的失效计数；其间发生过失效时不放入缓存
+     */
+    public void put(int userId, String permissionCode, UserGrants grants, long observedGeneration) {
+        if (!enabled || generation.get() != observedGeneration) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> now - entry.deniedAt >= ttlNanos);
+            if (entries.size() >= maxSize) {
+                rejected.incrementAndGet();
+                return;
+            }
+        }
+        Key key = new Key(userId, permissionCode);
+        Entry entry = new Entry(grants, System.nanoTime());
+        entries.put(key, entry);
+        puts.incrementAndGet();
+        // 放入与失效之间仍有窗口：失效先递增计数再移除，这里放入后再检查一次
+        if (generation.get() != observedGeneration) {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        int size = entries.size();
+        entries.clear();
+        invalidations.addAndGet(size);
+    }
+
+    @Override
+    public void onAllGrantsChanged() {
+        invalidateAll();
+    }
+
+    @Override
+    public void onUserRolesChanged(int userId) {
+        invalidateIf((key, entry) -> key.userId == userId);
+    }
+
+    @Override
+    public void onRoleChanged(int roleId) {
+        invalidateIf((key, entry) -> entry.grants.hasRole(roleId));
+    }
+
+    @Override
+    public void onPermissionDeleted(int permissionId) {
+        // 删除权限不会使任何被拒绝的校验变为允许
+    }
+
+    /**
+     * 移除满足条件的条目（授权变更是低频的管理操作，遍历全部条目即可）
+     */
+    private void invalidateIf(EntryPredicate affected) {
+        generation.incrementAndGet();
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            if (affected.test(e.getKey(), e.getValue()) && entries.remove(e.getKey(), e.getValue())) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "[denial-cache] 未启用";
+        }
+        return String.format("[denial-cache] 条目=%d/%d 有效期=%ds | 命中=%d 放入=%d 失效=%d 已满未放入=%d",
+                entries.size(), maxSize, TimeUnit.NANOSECONDS.toSeconds(ttlNanos), hits.get(), puts.get(),
+                invalidations.get(), rejected.get());
+    }
+
+    @FunctionalInterface
+    private interface EntryPredicate {
+        boolean test(Key key, Entry entry);
+    }
+
+    /**
+     * 缓存键：用户ID与权限编码
+     */
+    private static final class Key {
+        private final int userId;
+        private final String permissionCode;
+
+        private Key(int userId, String permissionCode) {
+            this.userId = userId;
+            this.permissionCode = permissionCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId == other.userId && Objects.equals(permissionCode, other.permissionCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * userId + Objects.hashCode(permissionCode);
+        }
+    }
+
+    /**
+     * 缓存条目：作出拒绝时的授权快照和拒绝时间（nanoTime）
+     */
+    private static final class Entry {
+        private final UserGrants grants;
+        private final long deniedAt;
+
+        private Entry(UserGrants grants, long deniedAt) {
+            this.grants = grants;
+            this.deniedAt = deniedAt;
+        }
+    }
+}
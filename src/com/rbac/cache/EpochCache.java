@@ -0,0 +1,149 @@
+package com.rbac.cache;
+
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.ReplicaRouter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 以 {@link RbacEpoch} 为有效期的查询结果缓存
+ *
+ * <p>所有条目属于同一个版本：每次读取先校验版本号，与条目记录的版本号不同时整体丢弃，
+ * 不需要知道哪一次修改影响了哪些键。适合修改少、读取多、结果之间相互关联的数据，例如角色和权限列表。
+ *
+ * <p>先读版本号、后加载数据。版本号可能已由本进程（或其他线程）的修改直接推进，
+ * 从库未必已经复制到该版本，因此要放入缓存的值在 {@link ReplicaRouter#readFromPrimary} 范围内加载：
+ * 从主库读到的数据不会比记录的版本号更旧。每个键在每个版本内只在未命中时读一次主库。
+ * 版本号无法读取时（例如数据库暂时不可用）不使用缓存，直接按常规路由加载。
+ * 条目数达到上限后不再放入，直到版本号变化。
+ *
+ * <p>缓存的值会被多个调用方共享，必须是只读的。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ * @author RBAC Team
+ * @see RbacEpoch
+ */
+public class EpochCache<K, V> {
+
+    private static final Logger logger = LogManager.getLogger(EpochCache.class);
+
+    private final String name;
+    private final RbacEpoch epoch;
+    private final int maxSize;
+    private final boolean enabled;
+
+    private volatile Generation<K, V> generation = new Generation<>(-1, -1);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    /**
+     * @param name 名称（用于日志和统计输出）
+     * @param epoch 版本号
+     * @param maxSize 同一版本内最多缓存的条目数
+     * @param enabled 是否启用；未启用时每次都调用加载函数
+     */
+    public EpochCache(String name, RbacEpoch epoch, int maxSize, boolean enabled) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("缓存容量必须大于0: " + maxSize);
+        }
+        this.name = name;
+        this.epoch = epoch;
+        this.maxSize = maxSize;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 按配置（{@code auth.listCache.*}）创建，使用进程内共享的 {@link RbacEpoch}
+     *
+     * @param name 名称
+     */
+    public static <K, V> EpochCache<K, V> fromConfig(String name) {
+        return new EpochCache<>(name, RbacEpoch.shared(),
+                ConfigUtil.getInt("auth.listCache.maxSize", 256),
+                ConfigUtil.getBoolean("auth.listCache.enabled", true));
+    }
+
+    /**
+     * 获取键对应的值，当前版本内没有缓存时调用 loader 加载
+     *
+     * @param key 键
+     * @param loader 加载函数，返回值不能为 null
+     */
+    public V get(K key, Supplier<V> loader) {
+        if (!enabled) {
+            misses.incrementAndGet();
+            return loader.get();
+        }
+        Generation<K, V> current;
+        try {
+            current = currentGeneration();
+        } catch (RuntimeException e) {
+            logger.warn("{}: 无法读取授权数据版本号，本次不使用缓存: {}", name, e.getMessage());
+            misses.incrementAndGet();
+            return loader.get();
+        }
+
+        V value = current.values.get(key);
+        if (value != null) {
+            hits.incrementAndGet();
+            return value;
+        }
+        misses.incrementAndGet();
+        value = ReplicaRouter.readFromPrimary(loader);
+        if (current.values.size() < maxSize) {
+            current.values.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 丢弃所有条目
+     */
+    public void invalidateAll() {
+        generation = new Generation<>(-1, -1);
+    }
+
+    private Generation<K, V> currentGeneration() {
+        long resets = epoch.resets();
+        long version = epoch.validate();
+        Generation<K, V> current = generation;
+        if (version < current.version && resets == current.resets) {
+            // 其他线程已经读到了更新的版本号：本次结果不放入共享的缓存
+            return new Generation<>(version, resets);
+        }
+        if (current.version != version || current.resets != resets) {
+            if (current.version >= 0) {
+                discards.incrementAndGet();
+            }
+            current = new Generation<>(version, resets);
+            generation = current;
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        Generation<K, V> current = generation;
+        return String.format("[%s] 版本=%d 条目=%d/%d | 命中=%d 未命中=%d 版本变化丢弃=%d",
+                name, current.version, current.values.size(), maxSize, hits.get(), misses.get(), discards.get());
+    }
+
+    private static final class Generation<K, V> {
+        private final long version;
+        private final long resets;
+        private final ConcurrentMap<K, V> values = new ConcurrentHashMap<>();
+
+        private Generation(long version, long resets) {
+            this.version = version;
+            this.resets = resets;
+        }
+    }
+}
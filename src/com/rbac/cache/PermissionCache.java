@@ -0,0 +1,278 @@
+package com.rbac.cache;
+
+import com.rbac.dao.PermissionDao;
+import com.rbac.event.ChangeFeedPoller;
+import com.rbac.event.GrantChangeListener;
+import com.rbac.event.GrantEvents;
+import com.rbac.model.UserGrants;
+import com.rbac.util.ConfigUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * 有效权限缓存 - 按用户ID缓存 {@link UserGrants}，权限校验不必每次执行三表关联查询
+ *
+ * <p><b>失效：</b>缓存注册为 {@link GrantChangeListener}，在授权变更提交后精确移除受影响的条目：
+ * <ul>
+ *   <li>分配/移除角色、删除用户 → 该用户的条目</li>
+ *   <li>分配/移除权限、删除角色 → 拥有该角色的用户的条目</li>
+ *   <li>删除权限 → 拥有该权限的用户的条目</li>
+ * </ul>
+ * 其他节点经服务层的修改通过变更日志传播（{@link ChangeFeedPoller}，延迟不超过 {@code auth.changeFeed.maxStalenessMs}）；
+ * 直接修改数据库的变更不会通知，由 {@code auth.permissionCache.ttlSeconds} 限定最长的不一致时间。
+ *
+ * <p><b>加载与失效的竞态：</b>加载期间如果发生了任何失效，加载结果只返回给调用方而不放入缓存，
+ * 避免变更提交前读到的旧授权在失效之后才写入缓存、一直留到过期。
+ *
+ * <p><b>容量：</b>条目数达到 {@code auth.permissionCache.maxSize} 后，一次性淘汰最久未访问的约 1/10 条目
+ * （近似 LRU：命中时只记录访问时间、不加锁，淘汰时遍历一遍全部条目，摊到每次放入只有常数开销）。
+ *
+ * @author RBAC Team
+ * @see com.rbac.service.impl.AuthServiceImpl
+ * @see GrantEvents
+ */
+public class PermissionCache implements GrantChangeListener {
+
+    private static final Logger logger = LogManager.getLogger(PermissionCache.class);
+
+    /** 每次淘汰的条目比例（分母） */
+    private static final int EVICTION_FRACTION = 10;
+
+    private final IntFunction<UserGrants> loader;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    /** 失效计数，每次失效先递增再移除条目，加载前后比较以发现并发失效 */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param loader 缓存未命中时加载用户授权
+     * @param enabled 是否启用；未启用时每次都调用 loader
+     * @param maxSize 最大条目数
+     * @param ttlSeconds 条目有效期（秒）
+     */
+    public PermissionCache(IntFunction<UserGrants> loader, boolean enabled, int maxSize, long ttlSeconds) {
+        if (maxSize < 1 || ttlSeconds < 1) {
+            throw new IllegalArgumentException("缓存容量和有效期必须大于0: maxSize=" + maxSize + ", ttlSeconds=" + ttlSeconds);
+        }
+        this.loader = loader;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * 进程内共享的缓存（按配置创建，并注册到 {@link GrantEvents}）
+     */
+    public static PermissionCache shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final PermissionCache INSTANCE = fromConfig();
+
+        private static PermissionCache fromConfig() {
+            PermissionCache cache = new PermissionCache(new PermissionDao()::findGrantsByUserId,
+                    ConfigUtil.getBoolean("auth.permissionCache.enabled", true),
+                    ConfigUtil.getInt("auth.permissionCache.maxSize", 10000),
+                    ConfigUtil.getLong("auth.permissionCache.ttlSeconds", 300));
+            GrantEvents.register(cache);
+            ChangeFeedPoller.shared();
+            logger.info("权限缓存已创建: {}", cache);
+            return cache;
+        }
+    }
+
+    /**
+     * 获取用户的授权快照，未命中或已过期时加载
+     *
+     * @param userId 用户ID
+     * @return 授权快照
+     */
+    public UserGrants get(int userId) {
+        if (!enabled) {
+            misses.incrementAndGet();
+            return loader.apply(userId);
+        }
+
+        long now = System.nanoTime();
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            if (now - entry.loadedAt < ttlNanos) {
+                entry.lastAccess = now;
+                hits.incrementAndGet();
+                return entry.grants;
+            }
+            if (entries.remove(userId, entry)) {
+                expirations.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        long observed = generation.get();
+        UserGrants grants = loader.apply(userId);
+        if (generation.get() == observed) {
+            if (entries.size() >= maxSize) {
+                evict();
+            }
+            Entry loaded = new Entry(grants, System.nanoTime());
+            entries.put(userId, loaded);
+            // 放入与失效之间仍有窗口：失效先递增计数再移除，这里放入后再检查一次
+            if (generation.get() != observed) {
+                entries.remove(userId, loaded);
+            }
+        }
+        return grants;
+    }
+
+    /**
+     * 清空缓存（例如批量导入授权之后）
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        int size = entries.size();
+        entries.clear();
+        invalidations.addAndGet(size);
+    }
+
+    @Override
+    public void onAllGrantsChanged() {
+        invalidateAll();
+    }
+
+    @Override
+    public void onUserRolesChanged(int userId) {
+        generation.incrementAndGet();
+        if (entries.remove(userId) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onRoleChanged(int roleId) {
+        invalidateIf(grants -> grants.hasRole(roleId));
+    }
+
+    @Override
+    public void onPermissionDeleted(int permissionId) {
+        invalidateIf(grants -> grants.hasPermission(permissionId));
+    }
+
+    /**
+     * 移除满足条件的条目。角色和权限变更都是低频的管理操作，遍历全部条目比维护反向索引简单可靠
+     */
+    private void invalidateIf(Predicate<UserGrants> affected) {
+        generation.incrementAndGet();
+        for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+            if (affected.test(e.getValue().grants) && entries.remove(e.getKey(), e.getValue())) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 淘汰最久未访问的约 1/{@value #EVICTION_FRACTION} 条目；其他线程正在淘汰时直接返回
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long[] accessTimes = new long[entries.size()];
+            int n = 0;
+            for (Entry entry : entries.values()) {
+                if (n == accessTimes.length) {
+                    break;
+                }
+                accessTimes[n++] = entry.lastAccess;
+            }
+            if (n == 0) {
+                return;
+            }
+            Arrays.sort(accessTimes, 0, n);
+            long threshold = accessTimes[Math.max(0, n / EVICTION_FRACTION - 1)];
+            for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+                if (e.getValue().lastAccess <= threshold && entries.remove(e.getKey(), e.getValue())) {
+                    evictions.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * 命中率（0 到 1），没有访问时为0
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return String.format("[permission-cache] 未启用 | 加载=%d", misses.get());
+        }
+        return String.format("[permission-cache] 条目=%d/%d 有效期=%ds | 命中=%d 未命中=%d 命中率=%.1f%% | 失效=%d 过期=%d 淘汰=%d",
+                entries.size(), maxSize, TimeUnit.NANOSECONDS.toSeconds(ttlNanos), hits.get(), misses.get(),
+                getHitRate() * 100, invalidations.get(), expirations.get(), evictions.get());
+    }
+
+    /**
+     * 缓存条目：授权快照、加载时间和最近访问时间（均为 nanoTime）
+     */
+    private static final class Entry {
+        private final UserGrants grants;
+        private final long loadedAt;
+        private volatile long lastAccess;
+
+        private Entry(UserGrants grants, long loadedAt) {
+            this.grants = grants;
+            this.loadedAt = loadedAt;
+            this.lastAccess = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.rbac.cache;
+
+import com.rbac.dao.EpochDao;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.TransactionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 授权数据版本号（RBAC epoch）- 一个单调递增的全局版本号，任何用户、角色、权限或授权关系的修改都使其加1
+ *
+ * <p>缓存查询结果时记下当时的版本号，之后版本号不变即说明结果仍然有效，不需要逐个键维护失效关系
+ * （见 {@link EpochCache}）。版本号保存在数据库 {@code rbac_epoch} 表中，其他进程的修改同样可见。
+ *
+ * <p><b>递增：</b>服务装饰器（{@code Auth*ServiceDecorator}）把每个修改操作和 {@link #bump()} 放在同一事务中，
+ * 数据与新版本号一起提交：提交之后所有进程都能看到新版本号，不存在数据已提交而版本号未递增的窗口。
+ * 读取方先读版本号、后从主库读数据，因此缓存的结果不会比它记录的版本号更旧（见 {@link EpochCache}）。
+ *
+ * <p><b>校验：</b>{@link #validate()} 在距上次读取数据库不到 {@code auth.epoch.checkIntervalMs} 时
+ * 直接返回进程内的版本号（零次数据库访问；本进程的修改已经同步更新了它），否则读取一次数据库（主键查询）。
+ * 因此本进程的修改立即可见，其他进程的修改最多延迟一个检查间隔；间隔为0时每次校验都读数据库。
+ *
+ * <p>在事务中递增失败时异常向外抛出，整个事务回滚，数据修改也不会生效。
+ * 不在事务中调用（数据已经单独提交）时递增失败只记录错误并递增 {@link #resets()}，
+ * 使本进程所有缓存作废；其他进程要到下一次成功递增后才能发现这次修改。
+ *
+ * @author RBAC Team
+ * @see EpochCache
+ */
+public class RbacEpoch {
+
+    private static final Logger logger = LogManager.getLogger(RbacEpoch.class);
+
+    private final LongSupplier reader;
+    private final LongSupplier incrementer;
+    private final long checkIntervalNanos;
+
+    /** 已知的最新版本号，-1 表示尚未读取 */
+    private final AtomicLong epoch = new AtomicLong(-1);
+    private volatile long lastCheckNanos;
+
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong bumps = new AtomicLong();
+    private final AtomicLong databaseReads = new AtomicLong();
+    private final AtomicLong localValidations = new AtomicLong();
+
+    /**
+     * @param reader 读取数据库中的版本号
+     * @param incrementer 数据库中的版本号加1并返回新值
+     * @param checkIntervalMillis 两次读取数据库之间的最短间隔（毫秒），0 表示每次校验都读取
+     */
+    public RbacEpoch(LongSupplier reader, LongSupplier incrementer, long checkIntervalMillis) {
+        if (checkIntervalMillis < 0) {
+            throw new IllegalArgumentException("检查间隔不能为负数: " + checkIntervalMillis);
+        }
+        this.reader = reader;
+        this.incrementer = incrementer;
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+    }
+
+    /**
+     * 进程内共享的版本号（按配置创建）
+     */
+    public static RbacEpoch shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final RbacEpoch INSTANCE = fromConfig();
+
+        private static RbacEpoch fromConfig() {
+            EpochDao epochDao = new EpochDao();
+            return new RbacEpoch(epochDao::read, epochDao::increment,
+                    ConfigUtil.getLong("auth.epoch.checkIntervalMs", 1000));
+        }
+    }
+
+    /**
+     * 版本号加1（与修改在同一事务中调用）
+     *
+     * <p>在事务中调用时随事务提交，提交后才更新进程内的版本号；递增失败时抛出异常，由事务回滚修改
+     *
+     * @return 新的版本号；不在事务中且递增失败时返回当前已知的版本号
+     * @throws RuntimeException 在事务中递增失败时
+     */
+    public long bump() {
+        if (TransactionManager.isActive()) {
+            long value = incrementer.getAsLong();
+            TransactionManager.afterCommit(() -> advance(value));
+            bumps.incrementAndGet();
+            return value;
+        }
+        try {
+            long value = TransactionManager.execute(incrementer::getAsLong);
+            TransactionManager.afterCommit(() -> advance(value));
+            bumps.incrementAndGet();
+            return value;
+        } catch (RuntimeException e) {
+            resets.incrementAndGet();
+            logger.error("授权数据版本号递增失败，本进程的缓存全部作废，其他进程暂时无法发现本次修改", e);
+            return epoch.get();
+        }
+    }
+
+    /**
+     * 当前有效的版本号：检查间隔内直接返回进程内的值，否则读取数据库
+     *
+     * @throws RuntimeException 读取数据库失败时
+     */
+    public long validate() {
+        long known = epoch.get();
+        if (known >= 0 && System.nanoTime() - lastCheckNanos < checkIntervalNanos) {
+            localValidations.incrementAndGet();
+            return known;
+        }
+        return refresh();
+    }
+
+    /**
+     * 读取数据库中的版本号
+     *
+     * @throws RuntimeException 读取数据库失败时
+     */
+    public long refresh() {
+        long start = System.nanoTime();
+        long value = reader.getAsLong();
+        lastCheckNanos = start;
+        databaseReads.incrementAndGet();
+        return advance(value);
+    }
+
+    /**
+     * 进程内已知的版本号（不访问数据库），尚未读取时为 -1
+     */
+    public long current() {
+        return epoch.get();
+    }
+
+    /**
+     * 递增失败的次数。缓存除了比较版本号，还要比较该值：它变化时说明有未能记入版本号的修改
+     */
+    public long resets() {
+        return resets.get();
+    }
+
+    private long advance(long value) {
+        return epoch.accumulateAndGet(value, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[rbac-epoch] 版本=%d 检查间隔=%dms | 递增=%d 数据库读取=%d 本地校验=%d 递增失败=%d",
+                epoch.get(), TimeUnit.NANOSECONDS.toMillis(checkIntervalNanos), bumps.get(), databaseReads.get(),
+                localValidations.get(), resets.get());
+    }
+}
@@ -1,7 +1,11 @@
 package com.rbac.cli;
 
 import com.rbac.audit.AuditAnalyzer;
+import com.rbac.cache.PermissionCache;
+import com.rbac.cache.RbacEpoch;
 import com.rbac.common.PermissionConsts;
+import com.rbac.dao.Page;
+import com.rbac.event.ChangeFeedPoller;
 import com.rbac.exception.AuthenticationException;
 import com.rbac.exception.BusinessException;
 import com.rbac.exception.PermissionDeniedException;
@@ -12,10 +16,16 @@ import com.rbac.service.AuthService;
 import com.rbac.service.PermissionService;
 import com.rbac.service.RoleService;
 import com.rbac.service.UserService;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+import com.rbac.util.PoolStats;
+import com.rbac.util.QueryMetrics;
 
 import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 /**
  * 菜单处理器 - 处理各个菜单的交互逻辑
@@ -28,6 +38,7 @@ public class MenuHandler {
     private final RoleService roleService;
     private final PermissionService permissionService;
     private final AuditAnalyzer auditAnalyzer;
+    private final int pageSize;
     
     public MenuHandler(Scanner scanner, AuthService authService, UserService userService,
                       RoleService roleService, PermissionService permissionService,
@@ -38,6 +49,7 @@ public class MenuHandler {
         this.roleService = roleService;
         this.permissionService = permissionService;
         this.auditAnalyzer = auditAnalyzer;
+        this.pageSize = Math.max(1, Math.min(Page.MAX_LIMIT, ConfigUtil.getInt("cli.page.size", 20)));
     }
     
     /**
@@ -64,6 +76,31 @@ public class MenuHandler {
         return input;
     }
 
+    /**
+     * 分页显示列表：每次查询一页并逐行打印，还有下一页时询问是否继续
+     * @param fetcher 按游标查询一页（参数为上一页的 nextAfterId，第一页为0）
+     * @param printer 打印一行
+     * @return 已显示的记录数
+     */
+    private <T> int printPages(IntFunction<Page<T>> fetcher, Consumer<T> printer) {
+        int afterId = 0;
+        int shown = 0;
+        while (true) {
+            Page<T> page = fetcher.apply(afterId);
+            page.getItems().forEach(printer);
+            shown += page.size();
+            if (!page.hasNext()) {
+                return shown;
+            }
+            System.out.print("-- 已显示 " + shown + " 条，按回车显示下一页，输入 'q' 结束: ");
+            String input = scanner.nextLine().trim();
+            if (input.equals("0") || input.equalsIgnoreCase("q")) {
+                return shown;
+            }
+            afterId = page.getNextAfterId();
+        }
+    }
+
     
     /**
      * 处理登录
@@ -116,6 +153,7 @@ public class MenuHandler {
             System.out.println("3. 冻结用户");
             System.out.println("4. 解冻用户");
             System.out.println("5. 查看所有用户");
+            System.out.println("6. 按状态查看用户");
             System.out.println("0. 返回上级菜单");
             System.out.println("----------------------");
             System.out.print("请输入操作编号: ");
@@ -138,6 +176,9 @@ public class MenuHandler {
                 case "5":
                     handleListUsers();
                     break;
+                case "6":
+                    handleListUsersByStatus();
+                    break;
                 case "0":
                     return;
                 default:
@@ -258,24 +299,59 @@ public class MenuHandler {
         }
         
         try {
-            List<User> users = userService.listUsers();
             System.out.println("\n用户列表:");
-            System.out.println("------------------------------------------------");
-            System.out.printf("%-5s %-20s %-10s %-20s%n", "ID", "用户名", "状态", "创建时间");
-            System.out.println("------------------------------------------------");
-            for (User user : users) {
-                System.out.printf("%-5d %-20s %-10s %-20s%n",
-                        user.getId(),
-                        user.getUsername(),
-                        user.isFrozen() ? "冻结" : "正常",
-                        user.getCreatedAt());
-            }
-            System.out.println("------------------------------------------------");
+            printUsers(afterId -> userService.listUsers(afterId, pageSize));
+        } catch (BusinessException e) {
+            System.out.println("✗ 查询用户列表失败: " + e.getMessage());
+        }
+    }
+    
+    private void handleListUsersByStatus() {
+        // 提前检查权限
+        try {
+            authService.checkPermission(PermissionConsts.USER_LIST);
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+            return;
+        }
+        
+        String input = cancelableInput("请输入用户状态（1=正常，2=冻结）");
+        if (input == null) return;  // 用户取消
+        
+        int status;
+        if (input.equals("1")) {
+            status = 0;
+        } else if (input.equals("2")) {
+            status = 1;
+        } else {
+            System.out.println("✗ 无效的状态");
+            return;
+        }
+        
+        try {
+            System.out.println("\n" + (status == 0 ? "正常" : "冻结") + "用户列表:");
+            printUsers(afterId -> userService.listUsersByStatus(status, afterId, pageSize));
         } catch (BusinessException e) {
             System.out.println("✗ 查询用户列表失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 分页打印用户表格
+     */
+    private void printUsers(IntFunction<Page<User>> fetcher) {
+        System.out.println("------------------------------------------------");
+        System.out.printf("%-5s %-20s %-10s %-20s%n", "ID", "用户名", "状态", "创建时间");
+        System.out.println("------------------------------------------------");
+        int shown = printPages(fetcher, user -> System.out.printf("%-5d %-20s %-10s %-20s%n",
+                user.getId(),
+                user.getUsername(),
+                user.isFrozen() ? "冻结" : "正常",
+                user.getCreatedAt()));
+        System.out.println("------------------------------------------------");
+        System.out.println("共显示 " + shown + " 个用户");
+    }
+    
     /**
      * 角色管理菜单
      */
@@ -288,6 +364,10 @@ public class MenuHandler {
             System.out.println("4. 为用户分配角色");
             System.out.println("5. 取消用户角色");
             System.out.println("6. 查看用户的角色");
+            System.out.println("7. 查看角色下的用户");
+            System.out.println("8. 设置角色继承");
+            System.out.println("9. 取消角色继承");
+            System.out.println("10. 查看角色的继承关系");
             System.out.println("0. 返回上级菜单");
             System.out.println("----------------------");
             System.out.print("请输入操作编号: ");
@@ -313,6 +393,18 @@ public class MenuHandler {
                 case "6":
                     handleViewUserRoles();
                     break;
+                case "7":
+                    handleViewRoleUsers();
+                    break;
+                case "8":
+                    handleAddParentRole();
+                    break;
+                case "9":
+                    handleRemoveParentRole();
+                    break;
+                case "10":
+                    handleViewRoleHierarchy();
+                    break;
                 case "0":
                     return;
                 default:
@@ -388,18 +480,16 @@ public class MenuHandler {
         }
         
         try {
-            List<Role> roles = roleService.listRoles();
             System.out.println("\n角色列表:");
             System.out.println("------------------------------------------------------------");
             System.out.printf("%-5s %-15s %-20s %-30s%n", "ID", "角色编码", "角色名称", "描述");
             System.out.println("------------------------------------------------------------");
-            for (Role role : roles) {
-                System.out.printf("%-5d %-15s %-20s %-30s%n",
-                        role.getId(),
-                        role.getRoleCode(),
-                        role.getRoleName(),
-                        role.getDescription());
-            }
+            printPages(afterId -> roleService.listRoles(afterId, pageSize),
+                    role -> System.out.printf("%-5d %-15s %-20s %-30s%n",
+                            role.getId(),
+                            role.getRoleCode(),
+                            role.getRoleName(),
+                            role.getDescription()));
             System.out.println("------------------------------------------------------------");
         } catch (BusinessException e) {
             System.out.println("✗ 查询角色列表失败: " + e.getMessage());
@@ -510,6 +600,133 @@ public class MenuHandler {
         }
     }
     
+    private void handleViewRoleUsers() {
+        // 提前检查权限
+        try {
+            authService.checkPermission(PermissionConsts.ROLE_LIST);
+            authService.checkPermission(PermissionConsts.USER_LIST);
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+            return;
+        }
+        
+        handleListRoles();
+        String input = cancelableInput("请输入角色ID");
+        if (input == null) return;  // 用户取消
+        
+        try {
+            int roleId = Integer.parseInt(input);
+            System.out.println("\n角色用户列表:");
+            printUsers(afterId -> roleService.listRoleUsers(roleId, afterId, pageSize));
+        } catch (NumberFormatException e) {
+            System.out.println("✗ 无效的角色ID");
+        } catch (BusinessException e) {
+            System.out.println("✗ 查询角色用户失败: " + e.getMessage());
+        }
+    }
+    
+    private void handleAddParentRole() {
+        // 提前检查权限
+        try {
+            authService.checkPermission(PermissionConsts.PERM_ASSIGN);
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+            return;
+        }
+        
+        handleListRoles();
+        String roleIdStr = cancelableInput("请输入子角色ID（继承方）");
+        if (roleIdStr == null) return;  // 用户取消
+        
+        try {
+            int roleId = Integer.parseInt(roleIdStr);
+            
+            String parentIdStr = cancelableInput("请输入父角色ID（被继承方）");
+            if (parentIdStr == null) return;  // 用户取消
+            
+            int parentRoleId = Integer.parseInt(parentIdStr);
+            
+            roleService.addParentRole(roleId, parentRoleId);
+            System.out.println("✓ 设置角色继承成功");
+        } catch (NumberFormatException e) {
+            System.out.println("✗ 无效的ID");
+        } catch (BusinessException e) {
+            System.out.println("✗ 设置角色继承失败: " + e.getMessage());
+        }
+    }
+    
+    private void handleRemoveParentRole() {
+        // 提前检查权限
+        try {
+            authService.checkPermission(PermissionConsts.PERM_REVOKE);
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+            return;
+        }
+        
+        handleListRoles();
+        String roleIdStr = cancelableInput("请输入子角色ID");
+        if (roleIdStr == null) return;  // 用户取消
+        
+        try {
+            int roleId = Integer.parseInt(roleIdStr);
+            
+            List<Role> parents = roleService.getParentRoles(roleId);
+            System.out.println("\n父角色:");
+            for (Role role : parents) {
+                System.out.printf("ID: %d, 编码: %s, 名称: %s%n",
+                        role.getId(), role.getRoleCode(), role.getRoleName());
+            }
+            
+            String parentIdStr = cancelableInput("请输入要取消继承的父角色ID");
+            if (parentIdStr == null) return;  // 用户取消
+            
+            int parentRoleId = Integer.parseInt(parentIdStr);
+            
+            roleService.removeParentRole(roleId, parentRoleId);
+            System.out.println("✓ 取消角色继承成功");
+        } catch (NumberFormatException e) {
+            System.out.println("✗ 无效的ID");
+        } catch (BusinessException e) {
+            System.out.println("✗ 取消角色继承失败: " + e.getMessage());
+        }
+    }
+    
+    private void handleViewRoleHierarchy() {
+        // 提前检查权限
+        try {
+            authService.checkPermission(PermissionConsts.ROLE_LIST);
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+            return;
+        }
+        
+        handleListRoles();
+        String input = cancelableInput("请输入角色ID");
+        if (input == null) return;  // 用户取消
+        
+        try {
+            int roleId = Integer.parseInt(input);
+            List<Role> parents = roleService.getParentRoles(roleId);
+            List<Role> ancestors = roleService.getAncestorRoles(roleId);
+            
+            System.out.println("\n直接继承的父角色:");
+            for (Role role : parents) {
+                System.out.printf("ID: %d, 编码: %s, 名称: %s%n",
+                        role.getId(), role.getRoleCode(), role.getRoleName());
+            }
+            System.out.println("\n全部祖先角色（直接或间接继承）:");
+            for (Role role : ancestors) {
+                System.out.printf("ID: %d, 编码: %s, 名称: %s%n",
+                        role.getId(), role.getRoleCode(), role.getRoleName());
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("✗ 无效的角色ID");
+        } catch (BusinessException e) {
+            System.out.println("✗ 查询角色继承关系失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 权限管理菜单
      */
@@ -523,6 +740,7 @@ public class MenuHandler {
             System.out.println("5. 取消角色权限");
             System.out.println("6. 查看角色的权限");
             System.out.println("7. 查看我的权限");
+            System.out.println("8. 查看拥有权限的用户");
             System.out.println("0. 返回上级菜单");
             System.out.println("----------------------");
             System.out.print("请输入操作编号: ");
@@ -551,6 +769,9 @@ public class MenuHandler {
                 case "7":
                     handleViewMyPermissions();
                     break;
+                case "8":
+                    handleViewPermissionUsers();
+                    break;
                 case "0":
                     return;
                 default:
@@ -570,7 +791,7 @@ public class MenuHandler {
         
         // 允许重试
         while (true) {
-            String permissionCode = cancelableInput("请输入权限编码");
+            String permissionCode = cancelableInput("请输入权限编码（如 USER:CREATE，USER:* 表示 USER 下的全部权限）");
             if (permissionCode == null) return;  // 用户取消
             
             String description = cancelableInput("请输入权限描述");
@@ -623,18 +844,8 @@ public class MenuHandler {
         }
         
         try {
-            List<Permission> permissions = permissionService.listPermissions();
             System.out.println("\n权限列表:");
-            System.out.println("------------------------------------------------------------");
-            System.out.printf("%-5s %-30s %-40s%n", "ID", "权限编码", "描述");
-            System.out.println("------------------------------------------------------------");
-            for (Permission permission : permissions) {
-                System.out.printf("%-5d %-30s %-40s%n",
-                        permission.getId(),
-                        permission.getPermissionCode(),
-                        permission.getDescription());
-            }
-            System.out.println("------------------------------------------------------------");
+            printPermissions(afterId -> permissionService.listPermissions(afterId, pageSize));
         } catch (BusinessException e) {
             System.out.println("✗ 查询权限列表失败: " + e.getMessage());
         }
@@ -723,19 +934,8 @@ public class MenuHandler {
         
         try {
             int roleId = Integer.parseInt(input);
-            List<Permission> permissions = permissionService.getRolePermissions(roleId);
-            
             System.out.println("\n角色权限列表:");
-            System.out.println("------------------------------------------------------------");
-            System.out.printf("%-5s %-30s %-40s%n", "ID", "权限编码", "描述");
-            System.out.println("------------------------------------------------------------");
-            for (Permission permission : permissions) {
-                System.out.printf("%-5d %-30s %-40s%n",
-                        permission.getId(),
-                        permission.getPermissionCode(),
-                        permission.getDescription());
-            }
-            System.out.println("------------------------------------------------------------");
+            printPermissions(afterId -> permissionService.getRolePermissions(roleId, afterId, pageSize));
         } catch (NumberFormatException e) {
             System.out.println("✗ 无效的角色ID");
         } catch (BusinessException e) {
@@ -743,6 +943,41 @@ public class MenuHandler {
         }
     }
     
+    private void handleViewPermissionUsers() {
+        // 提前检查权限
+        try {
+            authService.checkPermission(PermissionConsts.PERM_LIST);
+            authService.checkPermission(PermissionConsts.USER_LIST);
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+            return;
+        }
+        
+        String permissionCode = cancelableInput("请输入权限编码");
+        if (permissionCode == null) return;  // 用户取消
+        
+        try {
+            System.out.println("\n拥有权限 " + permissionCode + " 的用户:");
+            printUsers(afterId -> authService.findUsersWithPermission(permissionCode, afterId, pageSize));
+        } catch (BusinessException e) {
+            System.out.println("✗ 查询拥有权限的用户失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 分页打印权限表格
+     */
+    private void printPermissions(IntFunction<Page<Permission>> fetcher) {
+        System.out.println("------------------------------------------------------------");
+        System.out.printf("%-5s %-30s %-40s%n", "ID", "权限编码", "描述");
+        System.out.println("------------------------------------------------------------");
+        printPages(fetcher, permission -> System.out.printf("%-5d %-30s %-40s%n",
+                permission.getId(),
+                permission.getPermissionCode(),
+                permission.getDescription()));
+        System.out.println("------------------------------------------------------------");
+    }
+    
     private void handleViewMyPermissions() {
         try {
             User currentUser = authService.getCurrentUser();
@@ -794,4 +1029,32 @@ public class MenuHandler {
             System.out.println("✗ 审计分析失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 数据库运行状态：连接池、读写分离和SQL执行统计
+     */
+    public void handleDatabaseStatus() {
+        try {
+            authService.checkPermission("AUDIT:VIEW");
+            System.out.println("\n========== 数据库运行状态 ==========");
+            System.out.println("后端类型: " + DBUtil.getBackendType());
+            System.out.println("主库连接池: " + DBUtil.getPoolStats());
+            for (PoolStats stats : DBUtil.getReplicaRouter().getReplicaPoolStats()) {
+                System.out.println("从库连接池: " + stats);
+            }
+            System.out.println("读写分离: " + DBUtil.getReplicaRouter().describe());
+            System.out.println("权限缓存: " + PermissionCache.shared());
+            System.out.println("授权数据版本: " + RbacEpoch.shared());
+            System.out.println("变更日志: " + ChangeFeedPoller.shared());
+            System.out.println("----------------------------------");
+            if (!QueryMetrics.isEnabled()) {
+                System.out.println("SQL执行统计未启用（db.metrics.enabled=false）");
+                return;
+            }
+            System.out.println("SQL执行统计（按累计耗时排序）:");
+            System.out.print(QueryMetrics.report(pageSize));
+        } catch (PermissionDeniedException e) {
+            System.out.println("✗ 权限不足: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,214 @@
+package com.rbac.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 权限编码匹配器 - 按段组织的前缀树（trie），支持末段为通配符的授权
+ *
+ * <p><b>编码约定：</b>权限编码以 {@code :} 分段（{@code 资源:操作}，见 {@link PermissionConsts}，可以有更多层级）。
+ * 授权的最后一段可以是 {@code *}，表示该前缀下的任意权限：{@code USER:*} 匹配 {@code USER:CREATE}、
+ * {@code USER:EXPORT:CSV}，不匹配 {@code USER} 本身；单独的 {@code *} 匹配所有权限。
+ * 通配符只能作为完整的最后一段（{@link #isValid(String)}），因此一次匹配只沿一条路径向下，不需要回溯。
+ *
+ * <p><b>结构与代价：</b>每个节点对应一个编码前缀，记录恰好等于该前缀的授权和以该前缀加 {@code :*} 结尾的授权。
+ * 匹配时逐段向下走：经过的每个节点上的通配授权都覆盖该编码，走完所有段后节点上的精确授权与之相等。
+ * 代价与编码的段数成正比，与授权的数量无关。
+ *
+ * <p>构建后不可变，可以在线程之间共享。每个授权带一个整数标识（如权限下标），匹配时回传给调用方。
+ *
+ * @author RBAC Team
+ */
+public final class PermissionMatcher {
+
+    /** 段分隔符 */
+    public static final char SEPARATOR = ':';
+
+    /** 通配段 */
+    public static final String WILDCARD = "*";
+
+    private final Node root;
+    private final int size;
+
+    private PermissionMatcher(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * 由授权编码构建（标识均为0）
+     */
+    public static PermissionMatcher of(Collection<String> grants) {
+        Builder builder = new Builder();
+        for (String grant : grants) {
+            builder.add(grant, 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 是否为通配授权：最后一段为 {@code *}，且其他位置没有 {@code *}
+     */
+    public static boolean isWildcard(String code) {
+        int length = code == null ? 0 : code.length();
+        return length > 0 && code.indexOf('*') == length - 1
+                && (length == 1 || code.charAt(length - 2) == SEPARATOR);
+    }
+
+    /**
+     * 编码是否合法：{@code *} 只能作为完整的最后一段出现
+     */
+    public static boolean isValid(String code) {
+        return code.indexOf('*') < 0 || isWildcard(code);
+    }
+
+    /**
+     * 能覆盖指定编码的所有通配授权，由短到长：{@code A:B:C} → {@code *}、{@code A:*}、{@code A:B:*}
+     */
+    public static List<String> coveringWildcards(String code) {
+        List<String> result = new ArrayList<>();
+        result.add(WILDCARD);
+        for (int i = code.indexOf(SEPARATOR); i >= 0; i = code.indexOf(SEPARATOR, i + 1)) {
+            result.add(code.substring(0, i + 1) + WILDCARD);
+        }
+        return result;
+    }
+
+    /**
+     * 是否有授权与编码相等或覆盖该编码
+     */
+    public boolean matches(String code) {
+        return anyMatch(code, id -> true);
+    }
+
+    /**
+     * 是否有满足条件的授权与编码相等或覆盖该编码（按路径顺序：先短的通配授权，最后精确授权）
+     *
+     * @param code 要检查的权限编码
+     * @param accept 对匹配的授权标识判断是否采用
+     */
+    public boolean anyMatch(String code, IntPredicate accept) {
+        if (code == null) {
+            return false;
+        }
+        Node node = root;
+        int start = 0;
+        while (true) {
+            // 通配授权要求后面至少还有一段：此处还有待匹配的段
+            if (node.wildcardId >= 0 && accept.test(node.wildcardId)) {
+                return true;
+            }
+            int end = code.indexOf(SEPARATOR, start);
+            node = node.child(end < 0 ? code.substring(start) : code.substring(start, end));
+            if (node == null) {
+                return false;
+            }
+            if (end < 0) {
+                return node.exactId >= 0 && accept.test(node.exactId);
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * 依次回传所有与编码相等或覆盖该编码的授权标识
+     */
+    public void forEachMatch(String code, IntConsumer action) {
+        anyMatch(code, id -> {
+            action.accept(id);
+            return false;
+        });
+    }
+
+    /**
+     * 授权数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "PermissionMatcher{size=" + size + "}";
+    }
+
+    /**
+     * 逐个加入授权构建匹配器（非线程安全，构建后不再使用）
+     */
+    public static final class Builder {
+        private final Node root = new Node();
+        private int size;
+
+        /**
+         * 加入授权；同一编码重复加入时保留后加入的标识
+         *
+         * @param grant 授权编码（可以以 {@code :*} 结尾）
+         * @param id 标识，非负
+         * @throws IllegalArgumentException 当编码不合法或标识为负数时
+         */
+        public Builder add(String grant, int id) {
+            if (grant == null || !isValid(grant) || id < 0) {
+                throw new IllegalArgumentException("权限编码不合法: " + grant);
+            }
+            boolean wildcard = isWildcard(grant);
+            String path = wildcard ? grant.substring(0, Math.max(0, grant.length() - 2)) : grant;
+            Node node = root;
+            if (!wildcard || !path.isEmpty()) {
+                int start = 0;
+                while (true) {
+                    int end = path.indexOf(SEPARATOR, start);
+                    node = node.childOrCreate(end < 0 ? path.substring(start) : path.substring(start, end));
+                    if (end < 0) {
+                        break;
+                    }
+                    start = end + 1;
+                }
+            }
+            boolean added = wildcard ? node.wildcardId < 0 : node.exactId < 0;
+            if (wildcard) {
+                node.wildcardId = id;
+            } else {
+                node.exactId = id;
+            }
+            if (added) {
+                size++;
+            }
+            return this;
+        }
+
+        public PermissionMatcher build() {
+            return new PermissionMatcher(root, size);
+        }
+    }
+
+    /**
+     * 前缀树节点：一个编码前缀
+     */
+    private static final class Node {
+        private Map<String, Node> children;
+        /** 恰好等于该前缀的授权标识，-1 表示没有 */
+        private int exactId = -1;
+        /** 该前缀加 {@code :*} 的授权标识，-1 表示没有 */
+        private int wildcardId = -1;
+
+        private Node child(String segment) {
+            return children == null ? null : children.get(segment);
+        }
+
+        private Node childOrCreate(String segment) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+    }
+}
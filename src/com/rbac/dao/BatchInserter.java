@@ -0,0 +1,225 @@
+package com.rbac.dao;
+
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+import com.rbac.util.TransactionManager;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 批量插入执行器 - 各 DAO 批量方法的公共实现
+ *
+ * <p>输入按 {@code db.batch.chunkSize} 分块，每块在一个事务中处理（调用方已开启事务时加入调用方的事务）：
+ * <ol>
+ *   <li>用一条 IN 查询找出库中已存在的键，连同本批内重复的键一起标记为 DUPLICATE</li>
+ *   <li>其余行 addBatch 后一次 executeBatch（MySQL 开启 rewriteBatchedStatements 时会改写为多行 INSERT）</li>
+ *   <li>若 executeBatch 仍然失败（并发插入了相同的键、外键不存在等），回滚到块开始前的保存点，
+ *       再逐行插入，每行单独设保存点，得到每一行准确的结果</li>
+ * </ol>
+ *
+ * @param <T> 行类型
+ * @param <K> 唯一键类型
+ */
+final class BatchInserter<T, K> {
+
+    /**
+     * 为一行绑定 INSERT 参数
+     */
+    interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T row) throws SQLException;
+    }
+
+    /**
+     * 查询给定键中已存在于库中的部分
+     */
+    interface ExistingKeyQuery<K> {
+        Set<K> find(Connection conn, List<K> keys) throws SQLException;
+    }
+
+    private final String insertSql;
+    private final boolean returnKeys;
+    private final Function<T, K> keyOf;
+    private final ExistingKeyQuery<K> existingKeys;
+    private final RowBinder<T> binder;
+    private final int chunkSize;
+
+    BatchInserter(String insertSql, boolean returnKeys, Function<T, K> keyOf,
+                  ExistingKeyQuery<K> existingKeys, RowBinder<T> binder) {
+        this.insertSql = insertSql;
+        this.returnKeys = returnKeys;
+        this.keyOf = keyOf;
+        this.existingKeys = existingKeys;
+        this.binder = binder;
+        this.chunkSize = Math.max(1, ConfigUtil.getInt("db.batch.chunkSize", 500));
+    }
+
+    /**
+     * 批量插入
+     *
+     * @param rows 待插入的行
+     * @return 每一行的处理结果，下标与 rows 一致
+     */
+    BatchResult insert(List<T> rows) {
+        BatchResult result = new BatchResult(rows.size());
+        Set<K> seen = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(rows.size(), from + chunkSize);
+            TransactionManager.run(() -> {
+                try (Connection conn = DBUtil.getConnection()) {
+                    insertChunk(conn, rows, start, end, seen, result);
+                } catch (SQLException e) {
+                    throw new RuntimeException("批量插入失败", e);
+                }
+            });
+        }
+        return result;
+    }
+
+    private void insertChunk(Connection conn, List<T> rows, int start, int end,
+                             Set<K> seen, BatchResult result) throws SQLException {
+        List<K> keys = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            keys.add(keyOf.apply(rows.get(i)));
+        }
+        Set<K> existing = existingKeys.find(conn, keys);
+
+        List<Integer> pending = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            K key = keys.get(i - start);
+            if (existing.contains(key) || !seen.add(key)) {
+                result.markDuplicate(i);
+            } else {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Savepoint savepoint = conn.setSavepoint();
+        try (PreparedStatement pstmt = prepare(conn)) {
+            try {
+                for (int index : pending) {
+                    binder.bind(pstmt, rows.get(index));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                collectBatchKeys(pstmt, pending, result);
+            } catch (BatchUpdateException e) {
+                pstmt.clearBatch();
+                conn.rollback(savepoint);
+                insertOneByOne(conn, pstmt, rows, pending, result);
+            }
+        }
+    }
+
+    private void insertOneByOne(Connection conn, PreparedStatement pstmt, List<T> rows,
+                                List<Integer> pending, BatchResult result) throws SQLException {
+        for (int index : pending) {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                binder.bind(pstmt, rows.get(index));
+                pstmt.executeUpdate();
+                result.markInserted(index, returnKeys ? readKey(pstmt) : -1);
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                if (DBUtil.isDuplicateKey(e)) {
+                    result.markDuplicate(index);
+                } else {
+                    result.markFailed(index, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private PreparedStatement prepare(Connection conn) throws SQLException {
+        return returnKeys
+                ? conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(insertSql);
+    }
+
+    private void collectBatchKeys(PreparedStatement pstmt, List<Integer> pending,
+                                  BatchResult result) throws SQLException {
+        if (!returnKeys) {
+            for (int index : pending) {
+                result.markInserted(index, -1);
+            }
+            return;
+        }
+        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+            for (int index : pending) {
+                result.markInserted(index, rs.next() ? rs.getInt(1) : -1);
+            }
+        }
+    }
+
+    private static int readKey(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+
+    /**
+     * 执行 "前缀 + IN (...)" 形式的查询，返回第一列的值集合，供 {@link ExistingKeyQuery} 使用
+     *
+     * @param conn 数据库连接
+     * @param sqlPrefix IN 之前的 SQL，例如 {@code SELECT user_id FROM user_roles WHERE role_id = ? AND user_id}
+     * @param keys IN 列表中的键
+     * @param leadingParams IN 之前的参数
+     */
+    @SuppressWarnings("unchecked")
+    static <K> Set<K> findExisting(Connection conn, String sqlPrefix, List<K> keys,
+                                   Object... leadingParams) throws SQLException {
+        String sql = sqlPrefix + " IN (" + placeholders(keys.size()) + ")";
+        Set<K> existing = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Object param : leadingParams) {
+                pstmt.setObject(index++, param);
+            }
+            for (K key : keys) {
+                pstmt.setObject(index++, key);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add((K) rs.getObject(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * 将 int 数组转为列表，供 ID 批量方法使用
+     */
+    static List<Integer> boxed(int[] ids) {
+        List<Integer> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    /**
+     * 生成 IN 子句的占位符，例如 n=3 时返回 "?, ?, ?"
+     */
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 3);
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.rbac.dao;
+
+import java.util.Arrays;
+
+/**
+ * 批量写入结果 - 记录每一行的处理结果
+ *
+ * <p>批量方法不会因为个别行重复或失败而中断整批，调用方按下标查看每一行的结果：
+ * <ul>
+ *   <li>{@link Outcome#INSERTED} - 插入成功（带自增主键的表可通过 {@link #getGeneratedId(int)} 取得新ID）</li>
+ *   <li>{@link Outcome#DUPLICATE} - 记录已存在（或与同一批中前面的行重复），未插入</li>
+ *   <li>{@link Outcome#FAILED} - 其他数据库错误（例如外键不存在），错误信息见 {@link #getError(int)}</li>
+ * </ul>
+ *
+ * @author RBAC Team
+ */
+public class BatchResult {
+
+    /**
+     * 单行处理结果
+     */
+    public enum Outcome {
+        INSERTED, DUPLICATE, FAILED
+    }
+
+    private final Outcome[] outcomes;
+    private final int[] generatedIds;
+    private final String[] errors;
+
+    BatchResult(int size) {
+        this.outcomes = new Outcome[size];
+        this.generatedIds = new int[size];
+        this.errors = new String[size];
+        Arrays.fill(generatedIds, -1);
+    }
+
+    void markInserted(int index, int generatedId) {
+        outcomes[index] = Outcome.INSERTED;
+        generatedIds[index] = generatedId;
+    }
+
+    void markDuplicate(int index) {
+        outcomes[index] = Outcome.DUPLICATE;
+    }
+
+    void markFailed(int index, String error) {
+        outcomes[index] = Outcome.FAILED;
+        errors[index] = error;
+    }
+
+    /**
+     * 批次总行数
+     */
+    public int size() {
+        return outcomes.length;
+    }
+
+    /**
+     * 获取第 index 行的处理结果
+     */
+    public Outcome getOutcome(int index) {
+        return outcomes[index];
+    }
+
+    /**
+     * 获取第 index 行插入后生成的主键，未插入或表没有自增主键时返回-1
+     */
+    public int getGeneratedId(int index) {
+        return generatedIds[index];
+    }
+
+    /**
+     * 获取第 index 行的错误信息，仅 FAILED 行有值
+     */
+    public String getError(int index) {
+        return errors[index];
+    }
+
+    public int getInsertedCount() {
+        return count(Outcome.INSERTED);
+    }
+
+    public int getDuplicateCount() {
+        return count(Outcome.DUPLICATE);
+    }
+
+    public int getFailedCount() {
+        return count(Outcome.FAILED);
+    }
+
+    private int count(Outcome outcome) {
+        int count = 0;
+        for (Outcome o : outcomes) {
+            if (o == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("共%d行: 插入=%d 重复=%d 失败=%d",
+                size(), getInsertedCount(), getDuplicateCount(), getFailedCount());
+    }
+}
@@ -0,0 +1,151 @@
+package com.rbac.dao;
+
+import com.rbac.model.GrantChange;
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 授权变更日志数据访问对象（grant_change_log 表）
+ *
+ * <p>写入使用 {@link DBUtil#getConnection()}：在事务中调用时与授权修改在同一事务中提交或回滚。
+ * 读取使用 {@link DBUtil#getPrimaryReadConnection()} 走主库，从库的复制延迟会推迟其他节点发现变更的时间。
+ */
+public class ChangeLogDao {
+
+    private static final String COLUMNS = "seq, change_type, target_id, node_id, changed_at_ms";
+
+    /**
+     * 追加一条变更
+     */
+    public void append(GrantChange.Type type, int targetId, String nodeId, long changedAtMillis) {
+        appendBatch(type, new int[]{targetId}, nodeId, changedAtMillis);
+    }
+
+    /**
+     * 追加同一类型的多条变更（一次批量执行）
+     */
+    public void appendBatch(GrantChange.Type type, int[] targetIds, String nodeId, long changedAtMillis) {
+        if (targetIds.length == 0) {
+            return;
+        }
+        String sql = "INSERT INTO grant_change_log (change_type, target_id, node_id, changed_at_ms) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (int targetId : targetIds) {
+                pstmt.setString(1, type.name());
+                pstmt.setInt(2, targetId);
+                pstmt.setString(3, nodeId);
+                pstmt.setLong(4, changedAtMillis);
+                if (targetIds.length == 1) {
+                    pstmt.executeUpdate();
+                    return;
+                }
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("写入授权变更日志失败", e);
+        }
+    }
+
+    /**
+     * 查询序号大于 afterSeq 的变更（按序号升序）
+     *
+     * @param afterSeq 已处理的最大序号
+     * @param limit 最多返回的条数
+     */
+    public List<GrantChange> findAfter(long afterSeq, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM grant_change_log WHERE seq > ? ORDER BY seq LIMIT ?";
+
+        try (Connection conn = DBUtil.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, afterSeq);
+            pstmt.setInt(2, limit);
+            return readAll(pstmt);
+        } catch (SQLException e) {
+            throw new RuntimeException("查询授权变更日志失败", e);
+        }
+    }
+
+    /**
+     * 按序号查询变更（用于补读此前尚未提交的序号），不存在的序号不返回
+     */
+    public List<GrantChange> findBySeqs(Collection<Long> seqs) {
+        if (seqs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM grant_change_log WHERE seq IN (");
+        for (int i = 0; i < seqs.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY seq");
+
+        try (Connection conn = DBUtil.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            for (long seq : seqs) {
+                pstmt.setLong(index++, seq);
+            }
+            return readAll(pstmt);
+        } catch (SQLException e) {
+            throw new RuntimeException("查询授权变更日志失败", e);
+        }
+    }
+
+    /**
+     * 当前最大序号，没有任何记录时返回0
+     */
+    public long maxSeq() {
+        String sql = "SELECT MAX(seq) FROM grant_change_log";
+
+        try (Connection conn = DBUtil.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询授权变更日志失败", e);
+        }
+    }
+
+    /**
+     * 删除早于指定时间的变更
+     *
+     * @return 删除的行数
+     */
+    public int deleteBefore(long changedAtMillis) {
+        String sql = "DELETE FROM grant_change_log WHERE changed_at_ms < ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, changedAtMillis);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("清理授权变更日志失败", e);
+        }
+    }
+
+    private List<GrantChange> readAll(PreparedStatement pstmt) throws SQLException {
+        List<GrantChange> changes = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                changes.add(new GrantChange(rs.getLong("seq"), GrantChange.Type.valueOf(rs.getString("change_type")),
+                        rs.getInt("target_id"), rs.getString("node_id"), rs.getLong("changed_at_ms")));
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,41 @@
+package com.rbac.dao;
+
+/**
+ * 约束冲突异常 - 写操作违反了唯一键或外键约束
+ *
+ * <p>DAO 的单条写入直接依靠数据库约束保证一致性，不再事先查询；违反约束时抛出本异常，
+ * 由服务层根据 {@link #getKind()} 翻译为对应的业务错误（例如“用户名已存在”、“角色不存在”）。
+ *
+ * @author RBAC Team
+ */
+public class ConstraintViolationException extends RuntimeException {
+
+    /**
+     * 违反的约束类型
+     */
+    public enum Kind {
+        /** 唯一键冲突：记录已存在 */
+        DUPLICATE_KEY,
+        /** 外键约束：引用的记录不存在 */
+        FOREIGN_KEY
+    }
+
+    private final Kind kind;
+
+    public ConstraintViolationException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isDuplicateKey() {
+        return kind == Kind.DUPLICATE_KEY;
+    }
+
+    public boolean isForeignKey() {
+        return kind == Kind.FOREIGN_KEY;
+    }
+}
@@ -0,0 +1,337 @@
+package com.rbac.dao;
+
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 用户有效权限物化表的数据访问对象 - 维护和读取 user_effective_permissions（迁移 V6）
+ *
+ * <p>表中每个（用户, 有效权限）一行，内容与 {@link PermissionDao} 中按 user_roles、role_closure、role_permissions
+ * 关联得到的结果相同。{@code auth.effectivePermissions.enabled=true} 时：
+ * <ul>
+ *   <li>读取：{@link PermissionDao} 的用户权限查询改为按主键读取本表，单个权限校验见 {@link #hasAny(int, List)}</li>
+ *   <li>维护：服务层在修改授权的同一事务中调用本类，随修改一起提交或回滚：
+ *     <ul>
+ *       <li>分配/移除用户的角色 → {@link #refreshUsers(int...)} 重新计算该用户的行</li>
+ *       <li>给角色分配权限 → {@link #grant(int, int...)} 给角色及其后代角色的用户补上该权限</li>
+ *       <li>移除角色的权限 → {@link #revoke(int, int)} 删除不再经由其他角色拥有该权限的行</li>
+ *       <li>继承关系变化、删除角色 → 重新计算受影响角色的全部用户</li>
+ *       <li>删除用户、删除权限 → 外键级联删除，不需要维护</li>
+ *     </ul>
+ *   </li>
+ * </ul>
+ * 未启用时维护方法不做任何事，表不再更新；重新启用前需运行 {@code EffectivePermissionTool rebuild}。
+ *
+ * <p><b>并发：</b>维护语句读取的是其他事务已提交的授权，两个并发的修改（如给角色分配权限的同时给用户分配该角色）
+ * 可能互相看不到对方，漏掉一行。因此修改授权前必须在事务中先调用 {@link #lock()}，所有维护串行执行。
+ * 该锁与 {@link RoleHierarchyDao#lock()} 是同一把锁（rbac_lock 的行锁），已持有继承关系锁时不需要再次锁定。
+ *
+ * @author RBAC Team
+ * @see com.rbac.util.EffectivePermissionTool
+ */
+public class EffectivePermissionDao {
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("auth.effectivePermissions.enabled", false);
+
+    /** IN 列表每批的ID数 */
+    private static final int IN_CHUNK = 500;
+
+    private final boolean enabled;
+    private final RoleHierarchyDao hierarchyDao = new RoleHierarchyDao();
+
+    /**
+     * 按配置决定是否维护物化表
+     */
+    public EffectivePermissionDao() {
+        this(ENABLED);
+    }
+
+    /**
+     * @param enabled 是否维护物化表（重建工具不论配置总是维护）
+     */
+    public EffectivePermissionDao(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 配置中是否启用物化表
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 指定用户的有效权限（user_id, permission_id），两部分各含一个用户条件：直接分配的角色的权限，
+     * 以及经由继承闭包得到的祖先角色的权限
+     */
+    private static String derived(String userCondition) {
+        return "SELECT ur.user_id, rp.permission_id FROM user_roles ur " +
+                "JOIN role_permissions rp ON rp.role_id = ur.role_id WHERE " + userCondition +
+                " UNION SELECT ur.user_id, rp.permission_id FROM user_roles ur " +
+                "JOIN role_closure rc ON rc.descendant_id = ur.role_id " +
+                "JOIN role_permissions rp ON rp.role_id = rc.ancestor_id WHERE " + userCondition;
+    }
+
+    /**
+     * 拥有角色或其任一后代角色的用户（两个参数，均为角色ID）
+     */
+    private static final String SUBTREE_USERS = "SELECT ur.user_id FROM user_roles ur WHERE ur.role_id = ? " +
+            "UNION SELECT ur.user_id FROM role_closure rc JOIN user_roles ur ON ur.role_id = rc.descendant_id " +
+            "WHERE rc.ancestor_id = ?";
+
+    /**
+     * 锁定授权的修改（事务内有效，未启用时不锁定）
+     */
+    public void lock() {
+        if (enabled) {
+            hierarchyDao.lock();
+        }
+    }
+
+    /**
+     * 重新计算指定用户的全部行
+     *
+     * @param userIds 用户ID（已删除的用户没有任何行）
+     */
+    public void refreshUsers(int... userIds) {
+        if (!enabled || userIds.length == 0) {
+            return;
+        }
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < userIds.length; from += IN_CHUNK) {
+                int[] chunk = Arrays.copyOfRange(userIds, from, Math.min(userIds.length, from + IN_CHUNK));
+                String in = "IN (" + BatchInserter.placeholders(chunk.length) + ")";
+                try (PreparedStatement delete = conn.prepareStatement(
+                        "DELETE FROM user_effective_permissions WHERE user_id " + in)) {
+                    bind(delete, 1, chunk);
+                    delete.executeUpdate();
+                }
+                try (PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO user_effective_permissions (user_id, permission_id) " +
+                                derived("ur.user_id " + in))) {
+                    bind(insert, 1, chunk);
+                    bind(insert, chunk.length + 1, chunk);
+                    insert.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("更新用户有效权限失败，用户ID: " + Arrays.toString(userIds), e);
+        }
+    }
+
+    /**
+     * 重新计算拥有该角色或其任一后代角色的全部用户（继承关系变化后调用）
+     */
+    public void refreshRoleUsers(int roleId) {
+        refreshUsers(findRoleUserIds(roleId));
+    }
+
+    /**
+     * 拥有该角色或其任一后代角色的用户ID（升序，未启用时为空）
+     *
+     * <p>删除角色前调用：删除后这些用户的角色关联已被级联删除，之后再对返回的用户调用 {@link #refreshUsers(int...)}
+     */
+    public int[] findRoleUserIds(int roleId) {
+        if (!enabled) {
+            return new int[0];
+        }
+        String sql = "SELECT s.user_id FROM (" + SUBTREE_USERS + ") s ORDER BY s.user_id";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, roleId);
+            pstmt.setInt(2, roleId);
+
+            int[] ids = new int[16];
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        } catch (SQLException e) {
+            throw new RuntimeException("查询角色的用户失败，角色ID: " + roleId, e);
+        }
+    }
+
+    /**
+     * 角色获得权限：拥有该角色或其任一后代角色、尚无该权限的用户各插入一行
+     *
+     * @param roleId 角色ID
+     * @param permissionIds 新分配给角色的权限ID
+     */
+    public void grant(int roleId, int... permissionIds) {
+        if (!enabled || permissionIds.length == 0) {
+            return;
+        }
+        String sql = "INSERT INTO user_effective_permissions (user_id, permission_id) " +
+                "SELECT s.user_id, ? FROM (" + SUBTREE_USERS + ") s " +
+                "WHERE NOT EXISTS (SELECT 1 FROM user_effective_permissions e " +
+                "WHERE e.user_id = s.user_id AND e.permission_id = ?)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (int permissionId : permissionIds) {
+                pstmt.setInt(1, permissionId);
+                pstmt.setInt(2, roleId);
+                pstmt.setInt(3, roleId);
+                pstmt.setInt(4, permissionId);
+                pstmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("更新用户有效权限失败，角色ID: " + roleId, e);
+        }
+    }
+
+    /**
+     * 角色失去权限（role_permissions 中的行已删除）：拥有该角色或其任一后代角色的用户中，
+     * 不再经由其他角色拥有该权限的，删除对应的行
+     */
+    public void revoke(int roleId, int permissionId) {
+        if (!enabled) {
+            return;
+        }
+        int[] userIds = findRoleUserIds(roleId);
+        try (Connection conn = DBUtil.getConnection()) {
+            for (int from = 0; from < userIds.length; from += IN_CHUNK) {
+                int[] chunk = Arrays.copyOfRange(userIds, from, Math.min(userIds.length, from + IN_CHUNK));
+                try (PreparedStatement delete = conn.prepareStatement(
+                        "DELETE FROM user_effective_permissions WHERE permission_id = ? " +
+                                "AND user_id IN (" + BatchInserter.placeholders(chunk.length) + ") " +
+                                "AND NOT EXISTS (SELECT 1 FROM user_roles ur " +
+                                "JOIN role_permissions rp ON rp.role_id = ur.role_id " +
+                                "WHERE ur.user_id = user_effective_permissions.user_id AND rp.permission_id = ?) " +
+                                "AND NOT EXISTS (SELECT 1 FROM user_roles ur " +
+                                "JOIN role_closure rc ON rc.descendant_id = ur.role_id " +
+                                "JOIN role_permissions rp ON rp.role_id = rc.ancestor_id " +
+                                "WHERE ur.user_id = user_effective_permissions.user_id AND rp.permission_id = ?)")) {
+                    delete.setInt(1, permissionId);
+                    bind(delete, 2, chunk);
+                    delete.setInt(chunk.length + 2, permissionId);
+                    delete.setInt(chunk.length + 3, permissionId);
+                    delete.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("更新用户有效权限失败，角色ID: " + roleId + ", 权限ID: " + permissionId, e);
+        }
+    }
+
+    /**
+     * 用户是否拥有任一指定权限：permissions 的唯一索引取得权限ID后按主键查找
+     *
+     * <p>始终查询主库：结果直接决定是否放行，从库的复制延迟会让已撤销的权限在延迟期间继续生效
+     * （与 {@link PermissionDao#findGrantsByUserId(int)} 相同）
+     *
+     * @param userId 用户ID
+     * @param permissionCodes 权限编码（一个编码及覆盖它的通配授权），不能为空
+     */
+    public boolean hasAny(int userId, List<String> permissionCodes) {
+        String sql = "SELECT 1 FROM permissions p JOIN user_effective_permissions e " +
+                "ON e.user_id = ? AND e.permission_id = p.id " +
+                "WHERE p.permission_code IN (" + BatchInserter.placeholders(permissionCodes.size()) + ") LIMIT 1";
+
+        try (Connection conn = DBUtil.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            for (int i = 0; i < permissionCodes.size(); i++) {
+                pstmt.setString(i + 2, permissionCodes.get(i));
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户权限失败，用户ID: " + userId, e);
+        }
+    }
+
+    // ==================== 重建与校验 ====================
+
+    /**
+     * 最大的用户ID（没有用户时为0），重建和校验按用户ID分段进行
+     */
+    public int findMaxUserId() {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT MAX(id) FROM users");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询最大用户ID失败", e);
+        }
+    }
+
+    /**
+     * 按关联查询计算用户ID在 [fromId, toId) 范围内的有效权限，按（用户ID, 权限ID）升序
+     *
+     * @return 每个元素为 {@link #pairKey(int, int)}
+     */
+    public long[] findDerivedRange(int fromId, int toId) {
+        return findPairs("SELECT d.user_id, d.permission_id FROM (" + derived("ur.user_id BETWEEN ? AND ?") + ") d " +
+                "ORDER BY d.user_id, d.permission_id", fromId, toId, true);
+    }
+
+    /**
+     * 物化表中用户ID在 [fromId, toId) 范围内的行，按（用户ID, 权限ID）升序
+     *
+     * @return 每个元素为 {@link #pairKey(int, int)}
+     */
+    public long[] findMaterializedRange(int fromId, int toId) {
+        return findPairs("SELECT user_id, permission_id FROM user_effective_permissions " +
+                "WHERE user_id BETWEEN ? AND ? ORDER BY user_id, permission_id", fromId, toId, false);
+    }
+
+    private long[] findPairs(String sql, int fromId, int toId, boolean twice) {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, fromId);
+            pstmt.setInt(2, toId - 1);
+            if (twice) {
+                pstmt.setInt(3, fromId);
+                pstmt.setInt(4, toId - 1);
+            }
+
+            long[] pairs = new long[64];
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, count * 2);
+                    }
+                    pairs[count++] = pairKey(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            return Arrays.copyOf(pairs, count);
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户有效权限失败，用户ID范围: [" + fromId + ", " + toId + ")", e);
+        }
+    }
+
+    /**
+     * （用户ID, 权限ID）编码为一个 long，高32位为用户ID，按数值排序即按（用户ID, 权限ID）排序
+     */
+    public static long pairKey(int userId, int permissionId) {
+        return ((long) userId << 32) | (permissionId & 0xFFFFFFFFL);
+    }
+
+    private static void bind(PreparedStatement pstmt, int firstIndex, int[] ids) throws SQLException {
+        for (int i = 0; i < ids.length; i++) {
+            pstmt.setInt(firstIndex + i, ids[i]);
+        }
+    }
+}
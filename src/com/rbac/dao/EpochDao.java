@@ -0,0 +1,61 @@
+package com.rbac.dao;
+
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 授权数据版本号数据访问对象（rbac_epoch 单行表）
+ *
+ * <p>读写都在主库执行：版本号用于判断缓存是否过期，从库的复制延迟会让过期的缓存被当作有效。
+ * 读取使用 {@link DBUtil#getPrimaryReadConnection()}，不会让调用线程之后的读操作都粘在主库
+ */
+public class EpochDao {
+
+    /**
+     * 读取当前版本号
+     */
+    public long read() {
+        String sql = "SELECT epoch FROM rbac_epoch WHERE id = 1";
+
+        try (Connection conn = DBUtil.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            throw new IllegalStateException("rbac_epoch 表缺少版本号记录（迁移 V3 未执行？）");
+        } catch (SQLException e) {
+            throw new RuntimeException("读取授权数据版本号失败", e);
+        }
+    }
+
+    /**
+     * 版本号加1并返回新值
+     *
+     * <p>更新和读取在同一事务中：更新持有该行的行锁直到提交，读到的一定是本次更新后的值
+     */
+    public long increment() {
+        String update = "UPDATE rbac_epoch SET epoch = epoch + 1 WHERE id = 1";
+        String select = "SELECT epoch FROM rbac_epoch WHERE id = 1";
+
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+                if (pstmt.executeUpdate() == 0) {
+                    throw new IllegalStateException("rbac_epoch 表缺少版本号记录（迁移 V3 未执行？）");
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(select);
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("更新授权数据版本号失败", e);
+        }
+    }
+}
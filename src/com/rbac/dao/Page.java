@@ -0,0 +1,74 @@
+package com.rbac.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分页结果 - 键集分页（keyset pagination）的一页数据
+ *
+ * <p>分页查询以上一页最后一条记录的ID作为游标（{@code afterId}），查询条件为 {@code id > afterId}，
+ * 借助主键或索引直接定位到起始位置，因此无论翻到第几页，每页的查询代价都相同；
+ * 而 {@code LIMIT n OFFSET m} 需要先扫描并丢弃前 m 行，越往后越慢。
+ *
+ * <p>用法：第一页传入 {@code afterId = 0}，之后每次传入上一页的 {@link #getNextAfterId()}，
+ * 直到 {@link #hasNext()} 返回 false。
+ *
+ * @param <T> 记录类型
+ * @author RBAC Team
+ */
+public class Page<T> {
+
+    /** 每页最大条数 */
+    public static final int MAX_LIMIT = 1000;
+
+    private final List<T> items;
+    private final int nextAfterId;
+    private final boolean hasNext;
+
+    Page(List<T> items, int nextAfterId, boolean hasNext) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextAfterId = nextAfterId;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * 本页记录（只读）
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * 下一页的游标：本页最后一条记录的ID，本页为空时返回传入的 afterId
+     */
+    public int getNextAfterId() {
+        return nextAfterId;
+    }
+
+    /**
+     * 是否还有下一页
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * 本页记录数
+     */
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "size=" + items.size() +
+                ", nextAfterId=" + nextAfterId +
+                ", hasNext=" + hasNext +
+                '}';
+    }
+}
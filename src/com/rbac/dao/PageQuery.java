@@ -0,0 +1,71 @@
+package com.rbac.dao;
+
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * 键集分页查询 - 执行 {@code ... AND id > ? ORDER BY id LIMIT ?} 形式的分页语句
+ *
+ * <p>SQL 必须以 {@code id > ? ORDER BY ... id LIMIT ?}（或带表别名的等价写法）结尾，
+ * 最后两个参数由本类绑定为 afterId 和 limit + 1：多取的一行只用来判断是否还有下一页，不会返回。
+ * 带等值过滤条件时，ORDER BY 应写出与索引一致的完整列（例如 {@code status, id}），
+ * 保证数据库按索引顺序读取，而不是先取出全部匹配行再排序。
+ */
+final class PageQuery {
+
+    private PageQuery() {
+    }
+
+    /**
+     * 执行分页查询
+     *
+     * @param sql 分页语句
+     * @param mapper 行映射
+     * @param idOf 取记录ID（作为下一页游标）
+     * @param afterId 游标，返回ID大于此值的记录；第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @param errorMessage 失败时的异常信息
+     * @param leadingParams 排在 afterId 之前的 int 参数（例如状态、角色ID）
+     * @return 一页数据
+     */
+    static <T> Page<T> fetch(String sql, StreamingQuery.RowMapper<T> mapper, ToIntFunction<T> idOf,
+                             int afterId, int limit, String errorMessage, int... leadingParams) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new IllegalArgumentException("每页条数必须在1到" + Page.MAX_LIMIT + "之间: " + limit);
+        }
+
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (int param : leadingParams) {
+                pstmt.setInt(index++, param);
+            }
+            pstmt.setInt(index++, afterId);
+            pstmt.setInt(index, limit + 1);
+
+            List<T> items = new ArrayList<>(limit + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapper.map(rs));
+                }
+            }
+
+            boolean hasNext = items.size() > limit;
+            if (hasNext) {
+                items.remove(limit);
+            }
+            int nextAfterId = items.isEmpty() ? afterId : idOf.applyAsInt(items.get(items.size() - 1));
+            return new Page<>(items, nextAfterId, hasNext);
+        } catch (SQLException e) {
+            throw new RuntimeException(errorMessage, e);
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.rbac.dao;
 
 import com.rbac.model.Permission;
+import com.rbac.model.UserGrants;
 import com.rbac.util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 权限数据访问对象 - 负责权限表的CRUD操作
@@ -29,8 +36,11 @@ import java.util.List;
  * <p><b>RBAC权限查询：</b>
  * <ul>
  *   <li>{@link #findByUserId(int)} - 通过双重JOIN查询用户的所有权限（user_roles + role_permissions）</li>
+ *   <li>用户的有效角色包括直接分配的角色及其在 role_closure 中的所有祖先角色（角色继承，迁移 V5）</li>
  *   <li>{@link #findByRoleId(int)} - 查询角色的所有权限</li>
  *   <li>使用DISTINCT避免重复权限（用户可能通过多个角色获得同一权限）</li>
+ *   <li>启用物化表（{@code auth.effectivePermissions.enabled}）时，用户的权限改为按主键读取
+ *       user_effective_permissions，不再关联查询，见 {@link EffectivePermissionDao}</li>
  * </ul>
  * 
  * @author RBAC Team
@@ -38,11 +48,48 @@ import java.util.List;
  */
 public class PermissionDao {
     
+    /** 完整实体的查询列，顺序与 {@link #mapResultSetToPermission(ResultSet)} 使用的列下标一致 */
+    private static final String COLUMNS = "id, permission_code, description, created_at";
+    
+    /** 同 {@link #COLUMNS}，带 permissions 表别名 p（用于关联查询） */
+    private static final String COLUMNS_P = "p.id, p.permission_code, p.description, p.created_at";
+    
+    /**
+     * 用户的有效角色（派生表 er，列 role_id）：直接分配的角色，加上经由继承闭包得到的祖先角色；
+     * 占用两个参数，均为用户ID
+     */
+    private static final String EFFECTIVE_ROLES = "(SELECT ur.role_id FROM user_roles ur WHERE ur.user_id = ? " +
+            "UNION SELECT rc.ancestor_id FROM user_roles ur JOIN role_closure rc ON rc.descendant_id = ur.role_id " +
+            "WHERE ur.user_id = ?) er";
+    
+    private static final int COL_ID = 1;
+    private static final int COL_PERMISSION_CODE = 2;
+    private static final int COL_DESCRIPTION = 3;
+    private static final int COL_CREATED_AT = 4;
+    
+    /** 用户的权限是否读取物化表 */
+    private final boolean materialized;
+    
+    /**
+     * 按配置决定用户的权限是否读取物化表
+     */
+    public PermissionDao() {
+        this(EffectivePermissionDao.isEnabled());
+    }
+    
+    /**
+     * @param materialized 用户的权限是否读取物化表 user_effective_permissions（基准测试对比两种方式时指定）
+     */
+    public PermissionDao(boolean materialized) {
+        this.materialized = materialized;
+    }
+    
     /**
      * 插入新权限记录
      * 
      * @param permission 要插入的权限对象（必须包含permissionCode、description）
      * @return 新插入权限的ID（主键），如果插入失败返回-1
+     * @throws ConstraintViolationException 当权限编码已存在时（DUPLICATE_KEY）
      * @throws RuntimeException 当数据库操作失败时
      */
     public int insert(Permission permission) {
@@ -63,10 +110,36 @@ public class PermissionDao {
             }
             return -1;
         } catch (SQLException e) {
+            if (DBUtil.isDuplicateKey(e)) {
+                throw new ConstraintViolationException(ConstraintViolationException.Kind.DUPLICATE_KEY,
+                        "权限编码已存在: " + permission.getPermissionCode(), e);
+            }
             throw new RuntimeException("插入权限失败: " + permission.getPermissionCode(), e);
         }
     }
     
+    /**
+     * 批量插入权限
+     * 
+     * <p>权限编码已存在（或在本批中重复）的行标记为 DUPLICATE，详见 {@link BatchResult}。
+     * 
+     * @param permissions 要插入的权限列表（每个权限必须包含permissionCode）
+     * @return 每个权限的插入结果，INSERTED 行可取得新权限ID
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public BatchResult insertBatch(List<Permission> permissions) {
+        return new BatchInserter<Permission, String>(
+                "INSERT INTO permissions (permission_code, description) VALUES (?, ?)",
+                true,
+                Permission::getPermissionCode,
+                (conn, codes) -> BatchInserter.findExisting(conn,
+                        "SELECT permission_code FROM permissions WHERE permission_code", codes),
+                (pstmt, permission) -> {
+                    pstmt.setString(1, permission.getPermissionCode());
+                    pstmt.setString(2, permission.getDescription());
+                }).insert(permissions);
+    }
+    
     /**
      * 根据ID删除权限
      * 
@@ -97,9 +170,9 @@ public class PermissionDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public Permission findById(int id) {
-        String sql = "SELECT * FROM permissions WHERE id = ?";
+        String sql = "SELECT " + COLUMNS + " FROM permissions WHERE id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, id);
@@ -125,9 +198,9 @@ public class PermissionDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public Permission findByCode(String code) {
-        String sql = "SELECT * FROM permissions WHERE permission_code = ?";
+        String sql = "SELECT " + COLUMNS + " FROM permissions WHERE permission_code = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, code);
@@ -150,10 +223,10 @@ public class PermissionDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public List<Permission> findAll() {
-        String sql = "SELECT * FROM permissions ORDER BY id";
+        String sql = "SELECT " + COLUMNS + " FROM permissions ORDER BY id";
         List<Permission> permissions = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
@@ -166,28 +239,69 @@ public class PermissionDao {
         }
     }
     
+    /**
+     * 流式查询所有权限（按ID排序）
+     * 
+     * <p>与 {@link #findAll()} 不同，结果逐行从数据库读取，内存占用与表大小无关，第一行数据也能立即返回。
+     * 返回的 Stream 持有数据库连接，<b>必须</b>用 try-with-resources 关闭。
+     * 
+     * @return 权限流
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Stream<Permission> streamAll() {
+        return StreamingQuery.open("SELECT " + COLUMNS + " FROM permissions ORDER BY id",
+                this::mapResultSetToPermission, "流式查询权限列表失败");
+    }
+    
+    /**
+     * 逐行遍历所有权限（按ID排序），遍历结束后自动释放连接
+     * 
+     * @param action 对每个权限执行的操作
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public void forEach(Consumer<Permission> action) {
+        try (Stream<Permission> permissions = streamAll()) {
+            permissions.forEach(action);
+        }
+    }
+    
+    /**
+     * 分页查询权限（键集分页，按ID排序）
+     * 
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页权限
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<Permission> findPage(int afterId, int limit) {
+        return PageQuery.fetch("SELECT " + COLUMNS + " FROM permissions WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapResultSetToPermission, Permission::getId, afterId, limit, "分页查询权限失败");
+    }
+    
     /**
      * 查询用户拥有的所有权限（通过角色间接获得）
      * 
-     * <p>SQL执行双重JOIN：permissions &lt;-&gt; role_permissions &lt;-&gt; user_roles
+     * <p>SQL执行双重JOIN：permissions &lt;-&gt; role_permissions &lt;-&gt; 有效角色（user_roles 及其祖先角色）
      * <p>使用DISTINCT去重，因为用户可能通过多个角色获得同一权限
-     * <p>这是RBAC模型的核心查询，实现用户-角色-权限的权限继承
+     * <p>这是RBAC模型的核心查询，实现用户-角色-权限的权限继承；启用物化表时按主键读取物化表
      * 
      * @param userId 用户ID
      * @return 用户的权限列表（去重后，可能为空列表）
      * @throws RuntimeException 当数据库操作失败时
      */
     public List<Permission> findByUserId(int userId) {
-        String sql = "SELECT DISTINCT p.* FROM permissions p " +
-                "JOIN role_permissions rp ON p.id = rp.permission_id " +
-                "JOIN user_roles ur ON rp.role_id = ur.role_id " +
-                "WHERE ur.user_id = ?";
+        String sql = materialized
+                ? "SELECT " + COLUMNS_P + " FROM user_effective_permissions e " +
+                        "JOIN permissions p ON p.id = e.permission_id WHERE e.user_id = ?"
+                : "SELECT DISTINCT " + COLUMNS_P + " FROM permissions p " +
+                        "JOIN role_permissions rp ON p.id = rp.permission_id " +
+                        "JOIN " + EFFECTIVE_ROLES + " ON er.role_id = rp.role_id";
         List<Permission> permissions = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setInt(1, userId);
+            bindUserId(pstmt, userId);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -200,6 +314,93 @@ public class PermissionDao {
         }
     }
     
+    /**
+     * 查询用户拥有的所有权限编码（通过角色间接获得）
+     * 
+     * <p>与 {@link #findByUserId(int)} 相同的关联查询，但只选择 permission_code 一列，
+     * 用于权限校验等只需要编码的热点路径
+     * 
+     * @param userId 用户ID
+     * @return 用户的权限编码集合（可能为空集合）
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Set<String> findCodesByUserId(int userId) {
+        String sql = materialized
+                ? "SELECT p.permission_code FROM user_effective_permissions e " +
+                        "JOIN permissions p ON p.id = e.permission_id WHERE e.user_id = ?"
+                : "SELECT DISTINCT p.permission_code FROM permissions p " +
+                        "JOIN role_permissions rp ON p.id = rp.permission_id " +
+                        "JOIN " + EFFECTIVE_ROLES + " ON er.role_id = rp.role_id";
+        Set<String> codes = new HashSet<>();
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            bindUserId(pstmt, userId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    codes.add(rs.getString(1));
+                }
+            }
+            return codes;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户权限失败，用户ID: " + userId, e);
+        }
+    }
+    
+    /**
+     * 查询用户的授权快照：拥有的角色（包括继承的祖先角色），以及经由这些角色获得的权限ID和编码
+     * 
+     * <p>一次关联查询同时得到角色和权限。role_permissions 使用 LEFT JOIN，
+     * 没有任何权限的角色也会出现在结果中（之后给该角色分配权限时，缓存据此判断受影响的用户）。
+     * 启用物化表时角色仍由关联查询得到，权限读取物化表，两部分以 UNION ALL 合并为一次查询。
+     * 
+     * <p>始终查询主库：结果会被 {@link com.rbac.cache.PermissionCache} 缓存到过期为止，
+     * 从库上尚未复制的授权变更一旦被缓存，就不会再被失效通知纠正
+     * 
+     * @param userId 用户ID
+     * @return 用户的授权快照（用户不存在或没有角色时为空快照）
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public UserGrants findGrantsByUserId(int userId) {
+        String sql = materialized
+                ? "SELECT er.role_id, NULL, NULL FROM " + EFFECTIVE_ROLES + " " +
+                        "UNION ALL SELECT NULL, p.id, p.permission_code FROM user_effective_permissions e " +
+                        "JOIN permissions p ON p.id = e.permission_id WHERE e.user_id = ?"
+                : "SELECT er.role_id, p.id, p.permission_code FROM " + EFFECTIVE_ROLES + " " +
+                        "LEFT JOIN role_permissions rp ON rp.role_id = er.role_id " +
+                        "LEFT JOIN permissions p ON p.id = rp.permission_id";
+        Set<Integer> roleIds = new HashSet<>();
+        Map<Integer, String> permissions = new HashMap<>();
+        
+        try (Connection conn = DBUtil.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, userId);
+            if (materialized) {
+                pstmt.setInt(3, userId);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int roleId = rs.getInt(1);
+                    if (!rs.wasNull()) {
+                        roleIds.add(roleId);
+                    }
+                    int permissionId = rs.getInt(2);
+                    if (!rs.wasNull()) {
+                        permissions.put(permissionId, rs.getString(3));
+                    }
+                }
+            }
+            return new UserGrants(roleIds, permissions);
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户授权失败，用户ID: " + userId, e);
+        }
+    }
+    
     /**
      * 查询角色拥有的所有权限
      * 
@@ -210,12 +411,12 @@ public class PermissionDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public List<Permission> findByRoleId(int roleId) {
-        String sql = "SELECT p.* FROM permissions p " +
+        String sql = "SELECT " + COLUMNS_P + " FROM permissions p " +
                 "JOIN role_permissions rp ON p.id = rp.permission_id " +
                 "WHERE rp.role_id = ?";
         List<Permission> permissions = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, roleId);
@@ -231,6 +432,25 @@ public class PermissionDao {
         }
     }
     
+    /**
+     * 分页查询角色拥有的权限（键集分页，按权限ID排序）
+     * 
+     * <p>走 uk_role_permission (role_id, permission_id) 唯一索引定位起始位置并按索引顺序读取
+     * 
+     * @param roleId 角色ID
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页权限
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<Permission> findPageByRoleId(int roleId, int afterId, int limit) {
+        String sql = "SELECT " + COLUMNS_P + " FROM role_permissions rp " +
+                "JOIN permissions p ON p.id = rp.permission_id " +
+                "WHERE rp.role_id = ? AND rp.permission_id > ? ORDER BY rp.role_id, rp.permission_id LIMIT ?";
+        return PageQuery.fetch(sql, this::mapResultSetToPermission, Permission::getId, afterId, limit,
+                "分页查询角色权限失败，角色ID: " + roleId, roleId);
+    }
+    
     /**
      * 为角色分配权限（插入role_permissions关联记录）
      * 
@@ -280,6 +500,34 @@ public class PermissionDao {
         }
     }
     
+    /**
+     * 检查权限ID是否存在
+     * 
+     * <p>只查询主键，不读取任何数据行的其他列
+     * 
+     * @param id 权限ID
+     * @return 如果权限存在返回true，否则返回false
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public boolean existsById(int id) {
+        String sql = "SELECT COUNT(*) FROM permissions WHERE id = ?";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, id);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1) > 0;
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new RuntimeException("检查权限失败，ID: " + id, e);
+        }
+    }
+    
     /**
      * 检查权限编码是否已存在
      * 
@@ -292,7 +540,7 @@ public class PermissionDao {
     public boolean existsByCode(String permissionCode) {
         String sql = "SELECT COUNT(*) FROM permissions WHERE permission_code = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, permissionCode);
@@ -308,21 +556,33 @@ public class PermissionDao {
         }
     }
 
+    /**
+     * 绑定用户权限查询的用户ID参数：物化表查询一个，关联查询（{@link #EFFECTIVE_ROLES}）两个
+     */
+    private void bindUserId(PreparedStatement pstmt, int userId) throws SQLException {
+        pstmt.setInt(1, userId);
+        if (!materialized) {
+            pstmt.setInt(2, userId);
+        }
+    }
+    
     /**
      * 将ResultSet映射为Permission对象
      * 
+     * <p>查询必须按 {@link #COLUMNS} 的顺序选择列，按下标读取
+     * 
      * @param rs 数据库查询结果集（当前指向某一行）
      * @return 映射后的Permission对象
      * @throws SQLException 当读取ResultSet失败时
      */
     private Permission mapResultSetToPermission(ResultSet rs) throws SQLException {
         Permission permission = new Permission();
-        permission.setId(rs.getInt("id"));
-        permission.setPermissionCode(rs.getString("permission_code"));
-        permission.setDescription(rs.getString("description"));
+        permission.setId(rs.getInt(COL_ID));
+        permission.setPermissionCode(rs.getString(COL_PERMISSION_CODE));
+        permission.setDescription(rs.getString(COL_DESCRIPTION));
         
         // 安全处理时间戳字段（可能为null）
-        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp createdAt = rs.getTimestamp(COL_CREATED_AT);
         if (createdAt != null) {
             permission.setCreatedAt(createdAt.toLocalDateTime());
         }
@@ -6,6 +6,8 @@ import com.rbac.util.DBUtil;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 角色数据访问对象 - 负责角色表的CRUD操作
@@ -32,11 +34,24 @@ import java.util.List;
  */
 public class RoleDao {
     
+    /** 完整实体的查询列，顺序与 {@link #mapResultSetToRole(ResultSet)} 使用的列下标一致 */
+    private static final String COLUMNS = "id, role_code, role_name, description, created_at";
+    
+    /** 同 {@link #COLUMNS}，带 roles 表别名 r（用于关联查询） */
+    private static final String COLUMNS_R = "r.id, r.role_code, r.role_name, r.description, r.created_at";
+    
+    private static final int COL_ID = 1;
+    private static final int COL_ROLE_CODE = 2;
+    private static final int COL_ROLE_NAME = 3;
+    private static final int COL_DESCRIPTION = 4;
+    private static final int COL_CREATED_AT = 5;
+    
     /**
      * 插入新角色记录
      * 
      * @param role 要插入的角色对象（必须包含roleCode、roleName、description）
      * @return 新插入角色的ID（主键），如果插入失败返回-1
+     * @throws ConstraintViolationException 当角色编码已存在时（DUPLICATE_KEY）
      * @throws RuntimeException 当数据库操作失败时
      */
     public int insert(Role role) {
@@ -58,10 +73,37 @@ public class RoleDao {
             }
             return -1;
         } catch (SQLException e) {
+            if (DBUtil.isDuplicateKey(e)) {
+                throw new ConstraintViolationException(ConstraintViolationException.Kind.DUPLICATE_KEY,
+                        "角色编码已存在: " + role.getRoleCode(), e);
+            }
             throw new RuntimeException("插入角色失败: " + role.getRoleCode(), e);
         }
     }
     
+    /**
+     * 批量插入角色
+     * 
+     * <p>角色编码已存在（或在本批中重复）的行标记为 DUPLICATE，详见 {@link BatchResult}。
+     * 
+     * @param roles 要插入的角色列表（每个角色必须包含roleCode、roleName）
+     * @return 每个角色的插入结果，INSERTED 行可取得新角色ID
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public BatchResult insertBatch(List<Role> roles) {
+        return new BatchInserter<Role, String>(
+                "INSERT INTO roles (role_code, role_name, description) VALUES (?, ?, ?)",
+                true,
+                Role::getRoleCode,
+                (conn, codes) -> BatchInserter.findExisting(conn,
+                        "SELECT role_code FROM roles WHERE role_code", codes),
+                (pstmt, role) -> {
+                    pstmt.setString(1, role.getRoleCode());
+                    pstmt.setString(2, role.getRoleName());
+                    pstmt.setString(3, role.getDescription());
+                }).insert(roles);
+    }
+    
     /**
      * 根据ID删除角色
      * 
@@ -92,9 +134,9 @@ public class RoleDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public Role findById(int id) {
-        String sql = "SELECT * FROM roles WHERE id = ?";
+        String sql = "SELECT " + COLUMNS + " FROM roles WHERE id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, id);
@@ -120,9 +162,9 @@ public class RoleDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public Role findByCode(String code) {
-        String sql = "SELECT * FROM roles WHERE role_code = ?";
+        String sql = "SELECT " + COLUMNS + " FROM roles WHERE role_code = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, code);
@@ -145,10 +187,10 @@ public class RoleDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public List<Role> findAll() {
-        String sql = "SELECT * FROM roles ORDER BY id";
+        String sql = "SELECT " + COLUMNS + " FROM roles ORDER BY id";
         List<Role> roles = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
@@ -161,6 +203,45 @@ public class RoleDao {
         }
     }
     
+    /**
+     * 流式查询所有角色（按ID排序）
+     * 
+     * <p>与 {@link #findAll()} 不同，结果逐行从数据库读取，内存占用与表大小无关，第一行数据也能立即返回。
+     * 返回的 Stream 持有数据库连接，<b>必须</b>用 try-with-resources 关闭。
+     * 
+     * @return 角色流
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Stream<Role> streamAll() {
+        return StreamingQuery.open("SELECT " + COLUMNS + " FROM roles ORDER BY id",
+                this::mapResultSetToRole, "流式查询角色列表失败");
+    }
+    
+    /**
+     * 逐行遍历所有角色（按ID排序），遍历结束后自动释放连接
+     * 
+     * @param action 对每个角色执行的操作
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public void forEach(Consumer<Role> action) {
+        try (Stream<Role> roles = streamAll()) {
+            roles.forEach(action);
+        }
+    }
+    
+    /**
+     * 分页查询角色（键集分页，按ID排序）
+     * 
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页角色
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<Role> findPage(int afterId, int limit) {
+        return PageQuery.fetch("SELECT " + COLUMNS + " FROM roles WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapResultSetToRole, Role::getId, afterId, limit, "分页查询角色失败");
+    }
+    
     /**
      * 查询用户拥有的所有角色
      * 
@@ -171,12 +252,12 @@ public class RoleDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public List<Role> findByUserId(int userId) {
-        String sql = "SELECT r.* FROM roles r " +
+        String sql = "SELECT " + COLUMNS_R + " FROM roles r " +
                 "JOIN user_roles ur ON r.id = ur.role_id " +
                 "WHERE ur.user_id = ?";
         List<Role> roles = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, userId);
@@ -192,6 +273,53 @@ public class RoleDao {
         }
     }
     
+    /**
+     * 查询角色直接继承的父角色
+     * 
+     * @param roleId 角色ID
+     * @return 父角色列表（按ID排序，可能为空列表）
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public List<Role> findParentsByRoleId(int roleId) {
+        return findRelated("SELECT " + COLUMNS_R + " FROM roles r " +
+                "JOIN role_hierarchy h ON r.id = h.parent_role_id " +
+                "WHERE h.child_role_id = ? ORDER BY r.id", roleId, "查询父角色失败，角色ID: ");
+    }
+    
+    /**
+     * 查询角色经由继承关系（直接或间接）继承的所有祖先角色
+     * 
+     * <p>直接读取继承闭包表 role_closure 的主键前缀，不需要逐层递归
+     * 
+     * @param roleId 角色ID
+     * @return 祖先角色列表（按ID排序，可能为空列表）
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public List<Role> findAncestorsByRoleId(int roleId) {
+        return findRelated("SELECT " + COLUMNS_R + " FROM roles r " +
+                "JOIN role_closure rc ON r.id = rc.ancestor_id " +
+                "WHERE rc.descendant_id = ? ORDER BY r.id", roleId, "查询祖先角色失败，角色ID: ");
+    }
+    
+    private List<Role> findRelated(String sql, int roleId, String errorMessage) {
+        List<Role> roles = new ArrayList<>();
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, roleId);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    roles.add(mapResultSetToRole(rs));
+                }
+            }
+            return roles;
+        } catch (SQLException e) {
+            throw new RuntimeException(errorMessage + roleId, e);
+        }
+    }
+    
     /**
      * 为用户分配角色（插入user_roles关联记录）
      * 
@@ -241,6 +369,34 @@ public class RoleDao {
         }
     }
     
+    /**
+     * 检查角色ID是否存在
+     * 
+     * <p>只查询主键，不读取任何数据行的其他列
+     * 
+     * @param id 角色ID
+     * @return 如果角色存在返回true，否则返回false
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public boolean existsById(int id) {
+        String sql = "SELECT COUNT(*) FROM roles WHERE id = ?";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, id);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1) > 0;
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new RuntimeException("检查角色失败，ID: " + id, e);
+        }
+    }
+    
     /**
      * 检查角色编码是否已存在
      * 
@@ -253,7 +409,7 @@ public class RoleDao {
     public boolean existsByCode(String roleCode) {
         String sql = "SELECT COUNT(*) FROM roles WHERE role_code = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, roleCode);
@@ -272,19 +428,21 @@ public class RoleDao {
     /**
      * 将ResultSet映射为Role对象
      * 
+     * <p>查询必须按 {@link #COLUMNS} 的顺序选择列，按下标读取
+     * 
      * @param rs 数据库查询结果集（当前指向某一行）
      * @return 映射后的Role对象
      * @throws SQLException 当读取ResultSet失败时
      */
     private Role mapResultSetToRole(ResultSet rs) throws SQLException {
         Role role = new Role();
-        role.setId(rs.getInt("id"));
-        role.setRoleCode(rs.getString("role_code"));
-        role.setRoleName(rs.getString("role_name"));
-        role.setDescription(rs.getString("description"));
+        role.setId(rs.getInt(COL_ID));
+        role.setRoleCode(rs.getString(COL_ROLE_CODE));
+        role.setRoleName(rs.getString(COL_ROLE_NAME));
+        role.setDescription(rs.getString(COL_DESCRIPTION));
         
         // 安全处理时间戳字段（可能为null）
-        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp createdAt = rs.getTimestamp(COL_CREATED_AT);
         if (createdAt != null) {
             role.setCreatedAt(createdAt.toLocalDateTime());
         }
@@ -0,0 +1,361 @@
+package com.rbac.dao;
+
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 角色继承数据访问对象 - 继承关系表 role_hierarchy 与其传递闭包 role_closure
+ *
+ * <p><b>闭包：</b>role_closure 中每对（祖先, 后代）一行（不含角色自身），path_count 为两者之间的继承路径数。
+ * 新增继承关系 父→子 时，新出现的路径是"父及其祖先"到"子及其后代"的笛卡尔积，
+ * 每对的路径数增加 两端路径数之积（{@link #addPaths(Map, Map)}）；删除时减去同样的数，减到0的行删除
+ * （{@link #removePaths(Map, Map)}）。只改动受影响的行，不重新计算整个闭包。
+ *
+ * <p><b>并发：</b>修改继承关系前必须在事务中调用 {@link #lock()}：闭包的增量维护和环检测都基于事务开始后读到的闭包，
+ * 两个并发的修改可能各自合法、合起来成环，因此所有继承关系的修改串行执行。
+ *
+ * @author RBAC Team
+ * @see com.rbac.service.impl.RoleServiceImpl#addParentRole(int, int)
+ */
+public class RoleHierarchyDao {
+
+    /** IN 列表每批的ID数 */
+    private static final int IN_CHUNK = 500;
+
+    /**
+     * 锁定继承关系（事务内有效，提交或回滚时释放）
+     *
+     * <p>锁定 rbac_lock 单行表（迁移 V7）的行锁作为全局锁：继承关系的修改很少，串行执行的代价可以忽略。
+     * 不使用 rbac_epoch 的行：每个修改操作提交前都要递增版本号，持有该行会阻塞所有其他修改
+     */
+    public void lock() {
+        String sql = "SELECT id FROM rbac_lock WHERE id = 1 FOR UPDATE";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            if (!rs.next()) {
+                throw new IllegalStateException("rbac_lock 表缺少锁记录（迁移 V7 未执行？）");
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("锁定角色继承关系失败", e);
+        }
+    }
+
+    /**
+     * 新增继承关系：子角色继承父角色
+     *
+     * <p>已存在时返回 false，角色不存在抛出 {@link ConstraintViolationException}（FOREIGN_KEY）
+     */
+    public boolean insertEdge(int parentRoleId, int childRoleId) {
+        String sql = "INSERT INTO role_hierarchy (parent_role_id, child_role_id) VALUES (?, ?)";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, parentRoleId);
+            pstmt.setInt(2, childRoleId);
+
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            if (DBUtil.isDuplicateKey(e)) {
+                return false;
+            }
+            if (DBUtil.isForeignKeyViolation(e)) {
+                throw new ConstraintViolationException(ConstraintViolationException.Kind.FOREIGN_KEY,
+                        "角色不存在，父角色ID: " + parentRoleId + ", 子角色ID: " + childRoleId, e);
+            }
+            throw new RuntimeException("新增角色继承关系失败", e);
+        }
+    }
+
+    /**
+     * 删除继承关系，不存在时返回 false
+     */
+    public boolean deleteEdge(int parentRoleId, int childRoleId) {
+        String sql = "DELETE FROM role_hierarchy WHERE child_role_id = ? AND parent_role_id = ?";
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, childRoleId);
+            pstmt.setInt(2, parentRoleId);
+
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("删除角色继承关系失败", e);
+        }
+    }
+
+    /**
+     * 直接父角色ID（升序）
+     */
+    public int[] findParentIds(int roleId) {
+        return findIds("SELECT parent_role_id FROM role_hierarchy WHERE child_role_id = ? ORDER BY parent_role_id",
+                roleId, "查询父角色失败，角色ID: ");
+    }
+
+    /**
+     * 直接子角色ID（升序）
+     */
+    public int[] findChildIds(int roleId) {
+        return findIds("SELECT child_role_id FROM role_hierarchy WHERE parent_role_id = ? ORDER BY child_role_id",
+                roleId, "查询子角色失败，角色ID: ");
+    }
+
+    /**
+     * 所有祖先角色（不含自身）：角色ID → 路径数
+     */
+    public Map<Integer, Long> findAncestors(int roleId) {
+        return findPathCounts("SELECT ancestor_id, path_count FROM role_closure WHERE descendant_id = ?",
+                roleId, "查询祖先角色失败，角色ID: ");
+    }
+
+    /**
+     * 所有后代角色（不含自身）：角色ID → 路径数
+     */
+    public Map<Integer, Long> findDescendants(int roleId) {
+        return findPathCounts("SELECT descendant_id, path_count FROM role_closure WHERE ancestor_id = ?",
+                roleId, "查询后代角色失败，角色ID: ");
+    }
+
+    /**
+     * 指定角色的直接父角色：子角色ID → 父角色ID（没有父角色的角色不出现在结果中）
+     */
+    public Map<Integer, int[]> findParentsOf(Collection<Integer> roleIds) {
+        Map<Integer, int[]> parents = new HashMap<>();
+        forEachChunk(roleIds, "SELECT child_role_id, parent_role_id FROM role_hierarchy WHERE child_role_id IN ",
+                (child, parent) -> parents.merge(child, new int[]{parent}, RoleHierarchyDao::concat),
+                "查询父角色失败");
+        return parents;
+    }
+
+    /**
+     * 指定角色的直接子角色：父角色ID → 子角色ID（没有子角色的角色不出现在结果中）
+     */
+    public Map<Integer, int[]> findChildrenOf(Collection<Integer> roleIds) {
+        Map<Integer, int[]> children = new HashMap<>();
+        forEachChunk(roleIds, "SELECT parent_role_id, child_role_id FROM role_hierarchy WHERE parent_role_id IN ",
+                (parent, child) -> children.merge(parent, new int[]{child}, RoleHierarchyDao::concat),
+                "查询子角色失败");
+        return children;
+    }
+
+    /**
+     * 角色及其所有后代角色各自的全部祖先（升序），用于在内存中重新计算这些角色的有效权限
+     *
+     * <p>结果总是包含 roleId 本身（没有祖先或角色已删除时为空数组）
+     */
+    public Map<Integer, int[]> findSubtreeAncestors(int roleId) {
+        // 两部分各走一个索引：角色自身的祖先（主键），后代（idx_role_closure_ancestor）再按主键取各自的祖先
+        String sql = "SELECT rc.descendant_id, rc.ancestor_id FROM role_closure rc WHERE rc.descendant_id = ? " +
+                "UNION ALL " +
+                "SELECT rc.descendant_id, rc.ancestor_id FROM role_closure d " +
+                "JOIN role_closure rc ON rc.descendant_id = d.descendant_id WHERE d.ancestor_id = ? " +
+                "ORDER BY 1, 2";
+        Map<Integer, int[]> ancestors = new HashMap<>();
+        ancestors.put(roleId, new int[0]);
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, roleId);
+            pstmt.setInt(2, roleId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ancestors.merge(rs.getInt(1), new int[]{rs.getInt(2)}, RoleHierarchyDao::concat);
+                }
+            }
+            return ancestors;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询角色继承闭包失败，角色ID: " + roleId, e);
+        }
+    }
+
+    /**
+     * 逐行遍历继承闭包（按后代角色ID、祖先角色ID排序），用于在内存中构建授权模型
+     *
+     * @param action 参数依次为后代角色ID、祖先角色ID
+     */
+    public void forEachClosure(BiConsumer<Integer, Integer> action) {
+        try (Stream<int[]> rows = StreamingQuery.open(
+                "SELECT descendant_id, ancestor_id FROM role_closure ORDER BY descendant_id, ancestor_id",
+                rs -> new int[]{rs.getInt(1), rs.getInt(2)}, "遍历角色继承闭包失败")) {
+            rows.forEach(row -> action.accept(row[0], row[1]));
+        }
+    }
+
+    /**
+     * 增加路径：ancestors 中每个角色到 descendants 中每个角色的路径数增加两者路径数之积
+     *
+     * @param ancestors 父角色（路径数1）及其祖先：角色ID → 到父角色的路径数
+     * @param descendants 子角色（路径数1）及其后代：角色ID → 从子角色出发的路径数
+     */
+    public void addPaths(Map<Integer, Long> ancestors, Map<Integer, Long> descendants) {
+        String update = "UPDATE role_closure SET path_count = path_count + ? WHERE descendant_id = ? AND ancestor_id = ?";
+        String insert = "INSERT INTO role_closure (ancestor_id, descendant_id, path_count) VALUES (?, ?, ?)";
+
+        try (Connection conn = DBUtil.getConnection()) {
+            Set<Long> existing = new HashSet<>();
+            forEachChunk(conn, descendants.keySet(),
+                    "SELECT descendant_id, ancestor_id FROM role_closure WHERE descendant_id IN ",
+                    (descendant, ancestor) -> existing.add(pairKey(descendant, ancestor)));
+
+            try (PreparedStatement updates = conn.prepareStatement(update);
+                 PreparedStatement inserts = conn.prepareStatement(insert)) {
+                for (Map.Entry<Integer, Long> d : descendants.entrySet()) {
+                    for (Map.Entry<Integer, Long> a : ancestors.entrySet()) {
+                        long paths = a.getValue() * d.getValue();
+                        if (existing.contains(pairKey(d.getKey(), a.getKey()))) {
+                            updates.setLong(1, paths);
+                            updates.setInt(2, d.getKey());
+                            updates.setInt(3, a.getKey());
+                            updates.addBatch();
+                        } else {
+                            inserts.setInt(1, a.getKey());
+                            inserts.setInt(2, d.getKey());
+                            inserts.setLong(3, paths);
+                            inserts.addBatch();
+                        }
+                    }
+                }
+                updates.executeBatch();
+                inserts.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("更新角色继承闭包失败", e);
+        }
+    }
+
+    /**
+     * 减少路径：与 {@link #addPaths(Map, Map)} 相反，路径数减到0的行删除
+     */
+    public void removePaths(Map<Integer, Long> ancestors, Map<Integer, Long> descendants) {
+        String update = "UPDATE role_closure SET path_count = path_count - ? WHERE descendant_id = ? AND ancestor_id = ?";
+
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement updates = conn.prepareStatement(update)) {
+                for (Map.Entry<Integer, Long> d : descendants.entrySet()) {
+                    for (Map.Entry<Integer, Long> a : ancestors.entrySet()) {
+                        updates.setLong(1, a.getValue() * d.getValue());
+                        updates.setInt(2, d.getKey());
+                        updates.setInt(3, a.getKey());
+                        updates.addBatch();
+                    }
+                }
+                updates.executeBatch();
+            }
+            List<Integer> ids = new ArrayList<>(descendants.keySet());
+            for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+                try (PreparedStatement delete = conn.prepareStatement("DELETE FROM role_closure WHERE path_count <= 0 " +
+                        "AND descendant_id IN (" + BatchInserter.placeholders(chunk.size()) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        delete.setInt(i + 1, chunk.get(i));
+                    }
+                    delete.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("更新角色继承闭包失败", e);
+        }
+    }
+
+    private int[] findIds(String sql, int roleId, String errorMessage) {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, roleId);
+
+            int[] ids = new int[4];
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        } catch (SQLException e) {
+            throw new RuntimeException(errorMessage + roleId, e);
+        }
+    }
+
+    private Map<Integer, Long> findPathCounts(String sql, int roleId, String errorMessage) {
+        Map<Integer, Long> counts = new HashMap<>();
+
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, roleId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getInt(1), rs.getLong(2));
+                }
+            }
+            return counts;
+        } catch (SQLException e) {
+            throw new RuntimeException(errorMessage + roleId, e);
+        }
+    }
+
+    private void forEachChunk(Collection<Integer> ids, String sqlPrefix, BiConsumer<Integer, Integer> action,
+                              String errorMessage) {
+        try (Connection conn = DBUtil.getConnection()) {
+            forEachChunk(conn, ids, sqlPrefix, action);
+        } catch (SQLException e) {
+            throw new RuntimeException(errorMessage, e);
+        }
+    }
+
+    /**
+     * 按批执行 {@code sqlPrefix (?, ?, ...)}，对每行的前两列调用 action
+     */
+    private static void forEachChunk(Connection conn, Collection<Integer> ids, String sqlPrefix,
+                                     BiConsumer<Integer, Integer> action) throws SQLException {
+        List<Integer> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += IN_CHUNK) {
+            List<Integer> chunk = list.subList(from, Math.min(list.size(), from + IN_CHUNK));
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    sqlPrefix + "(" + BatchInserter.placeholders(chunk.size()) + ")")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+    }
+
+    private static long pairKey(int descendantId, int ancestorId) {
+        return ((long) descendantId << 32) | (ancestorId & 0xFFFFFFFFL);
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
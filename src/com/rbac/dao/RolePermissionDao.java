@@ -6,6 +6,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 /**
  * 角色-权限关联数据访问对象
@@ -14,6 +16,9 @@ public class RolePermissionDao {
     
     /**
      * 为角色分配权限
+     * 
+     * <p>不事先检查角色、权限是否存在或是否已分配，由唯一键和外键约束判断：
+     * 已分配返回 false，角色或权限不存在抛出 {@link ConstraintViolationException}（FOREIGN_KEY）
      */
     public boolean assignPermission(int roleId, int permissionId) {
         String sql = "INSERT INTO role_permissions (role_id, permission_id) VALUES (?, ?)";
@@ -27,13 +32,35 @@ public class RolePermissionDao {
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
             // 如果是唯一键冲突，说明已经分配过了
-            if (e.getMessage().contains("Duplicate entry")) {
+            if (DBUtil.isDuplicateKey(e)) {
                 return false;
             }
+            if (DBUtil.isForeignKeyViolation(e)) {
+                throw new ConstraintViolationException(ConstraintViolationException.Kind.FOREIGN_KEY,
+                        "角色或权限不存在，角色ID: " + roleId + ", 权限ID: " + permissionId, e);
+            }
             throw new RuntimeException("分配权限失败", e);
         }
     }
     
+    /**
+     * 批量为角色分配权限
+     * 
+     * <p>角色已拥有的权限标记为 DUPLICATE，权限不存在的行标记为 FAILED，结果下标与 permissionIds 一致
+     */
+    public BatchResult assignPermissionsBatch(int roleId, int[] permissionIds) {
+        return new BatchInserter<Integer, Integer>(
+                "INSERT INTO role_permissions (role_id, permission_id) VALUES (?, ?)",
+                false,
+                permissionId -> permissionId,
+                (conn, ids) -> BatchInserter.findExisting(conn,
+                        "SELECT permission_id FROM role_permissions WHERE role_id = ? AND permission_id", ids, roleId),
+                (pstmt, permissionId) -> {
+                    pstmt.setInt(1, roleId);
+                    pstmt.setInt(2, permissionId);
+                }).insert(BatchInserter.boxed(permissionIds));
+    }
+    
     /**
      * 取消角色权限
      */
@@ -58,7 +85,7 @@ public class RolePermissionDao {
     public boolean hasPermission(int roleId, int permissionId) {
         String sql = "SELECT COUNT(*) FROM role_permissions WHERE role_id = ? AND permission_id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, roleId);
@@ -75,6 +102,21 @@ public class RolePermissionDao {
         }
     }
     
+    /**
+     * 逐行遍历所有角色-权限关联（按角色ID、权限ID排序），用于在内存中构建授权模型
+     * 
+     * <p>流式读取，内存占用与表大小无关；遍历结束后自动释放连接
+     * 
+     * @param action 对每条关联执行的操作，参数依次为角色ID、权限ID
+     */
+    public void forEachAssignment(BiConsumer<Integer, Integer> action) {
+        try (Stream<int[]> rows = StreamingQuery.open(
+                "SELECT role_id, permission_id FROM role_permissions ORDER BY role_id, permission_id",
+                rs -> new int[]{rs.getInt(1), rs.getInt(2)}, "遍历角色权限失败")) {
+            rows.forEach(row -> action.accept(row[0], row[1]));
+        }
+    }
+    
     /**
      * 删除角色的所有权限
      */
@@ -5,7 +5,13 @@ import com.rbac.util.DBUtil;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 用户数据访问对象 - 负责用户表的CRUD操作
@@ -28,6 +34,24 @@ import java.util.List;
  */
 public class UserDao {
     
+    /** 完整实体的查询列，顺序与 {@link #mapResultSetToUser(ResultSet)} 使用的列下标一致 */
+    private static final String COLUMNS = "id, username, password_hash, salt, status, created_at, updated_at";
+    
+    /** 同 {@link #COLUMNS}，带 users 表别名 u（用于关联查询） */
+    private static final String COLUMNS_U =
+            "u.id, u.username, u.password_hash, u.salt, u.status, u.created_at, u.updated_at";
+    
+    /** 身份信息（不含密码哈希、盐值和时间戳）的查询列，顺序与 {@link #mapResultSetToPrincipal(ResultSet)} 一致 */
+    private static final String PRINCIPAL_COLUMNS = "id, username, status";
+    
+    private static final int COL_ID = 1;
+    private static final int COL_USERNAME = 2;
+    private static final int COL_PASSWORD_HASH = 3;
+    private static final int COL_SALT = 4;
+    private static final int COL_STATUS = 5;
+    private static final int COL_CREATED_AT = 6;
+    private static final int COL_UPDATED_AT = 7;
+    
     /**
      * 插入新用户记录
      * 
@@ -35,6 +59,7 @@ public class UserDao {
      * 
      * @param user 要插入的用户对象（必须包含username、passwordHash、salt、status）
      * @return 新插入用户的ID（主键），如果插入失败返回-1
+     * @throws ConstraintViolationException 当用户名已存在时（DUPLICATE_KEY）
      * @throws RuntimeException 当数据库操作失败时
      */
     public int insert(User user) {
@@ -58,10 +83,39 @@ public class UserDao {
             }
             return -1;
         } catch (SQLException e) {
+            if (DBUtil.isDuplicateKey(e)) {
+                throw new ConstraintViolationException(ConstraintViolationException.Kind.DUPLICATE_KEY,
+                        "用户名已存在: " + user.getUsername(), e);
+            }
             throw new RuntimeException("插入用户失败: " + user.getUsername(), e);
         }
     }
     
+    /**
+     * 批量插入用户
+     * 
+     * <p>按 {@code db.batch.chunkSize} 分块执行 JDBC 批处理，用户名已存在（或在本批中重复）的行
+     * 标记为 DUPLICATE 而不会中断整批，详见 {@link BatchResult}。
+     * 
+     * @param users 要插入的用户列表（每个用户必须包含username、passwordHash、salt、status）
+     * @return 每个用户的插入结果，INSERTED 行可取得新用户ID
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public BatchResult insertBatch(List<User> users) {
+        return new BatchInserter<User, String>(
+                "INSERT INTO users (username, password_hash, salt, status) VALUES (?, ?, ?, ?)",
+                true,
+                User::getUsername,
+                (conn, usernames) -> BatchInserter.findExisting(conn,
+                        "SELECT username FROM users WHERE username", usernames),
+                (pstmt, user) -> {
+                    pstmt.setString(1, user.getUsername());
+                    pstmt.setString(2, user.getPasswordHash());
+                    pstmt.setString(3, user.getSalt());
+                    pstmt.setInt(4, user.getStatus());
+                }).insert(users);
+    }
+    
     /**
      * 根据ID删除用户
      * 
@@ -108,6 +162,32 @@ public class UserDao {
         }
     }
     
+    /**
+     * 仅当用户处于指定状态时更新状态（条件更新）
+     * 
+     * <p>状态检查和更新在一条 UPDATE 中完成，并发冻结/解冻同一用户时只有一个能成功
+     * 
+     * @param id 用户ID
+     * @param expectedStatus 期望的当前状态
+     * @param status 新状态（0=正常，1=冻结）
+     * @return 如果更新成功返回true；用户不存在或当前状态不是 expectedStatus 时返回false
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public boolean updateStatusIf(int id, int expectedStatus, int status) {
+        String sql = "UPDATE users SET status = ? WHERE id = ? AND status = ?";
+        
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, status);
+            pstmt.setInt(2, id);
+            pstmt.setInt(3, expectedStatus);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("更新用户状态失败，ID: " + id, e);
+        }
+    }
+    
     /**
      * 根据ID查询用户
      * 
@@ -116,9 +196,9 @@ public class UserDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public User findById(int id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
+        String sql = "SELECT " + COLUMNS + " FROM users WHERE id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, id);
@@ -144,9 +224,9 @@ public class UserDao {
      * @throws RuntimeException 当数据库操作失败时
      */
     public User findByUsername(String username) {
-        String sql = "SELECT * FROM users WHERE username = ?";
+        String sql = "SELECT " + COLUMNS + " FROM users WHERE username = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, username);
@@ -162,19 +242,101 @@ public class UserDao {
         }
     }
     
+    /**
+     * 根据ID查询用户身份信息（只含 id、username、status）
+     * 
+     * <p>不读取密码哈希和盐值，用于不需要凭据的场景（状态检查、审计日志中的用户名等）
+     * 
+     * @param id 用户ID
+     * @return 只填充了 id、username、status 的用户对象，如果不存在返回null
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public User findPrincipalById(int id) {
+        String sql = "SELECT " + PRINCIPAL_COLUMNS + " FROM users WHERE id = ?";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, id);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToPrincipal(rs);
+                }
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户失败，ID: " + id, e);
+        }
+    }
+    
+    /**
+     * 根据用户名查询用户身份信息（只含 id、username、status）
+     * 
+     * @param username 用户名
+     * @return 只填充了 id、username、status 的用户对象，如果不存在返回null
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public User findPrincipalByUsername(String username) {
+        String sql = "SELECT " + PRINCIPAL_COLUMNS + " FROM users WHERE username = ?";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setString(1, username);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapResultSetToPrincipal(rs);
+                }
+            }
+            return null;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户失败，用户名: " + username, e);
+        }
+    }
+    
+    /**
+     * 检查用户ID是否存在
+     * 
+     * <p>只查询主键，不读取任何数据行的其他列
+     * 
+     * @param id 用户ID
+     * @return 如果用户存在返回true，否则返回false
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public boolean existsById(int id) {
+        String sql = "SELECT COUNT(*) FROM users WHERE id = ?";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, id);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1) > 0;
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new RuntimeException("检查用户失败，ID: " + id, e);
+        }
+    }
+    
     /**
      * 查询所有用户
      * 
-     * <p>按ID升序排列，建议在用户数量较大时添加分页
+     * <p>按ID升序排列，用户数量较大时请使用 {@link #findPage(int, int)} 分页查询
      * 
      * @return 所有用户的列表（可能为空列表）
      * @throws RuntimeException 当数据库操作失败时
      */
     public List<User> findAll() {
-        String sql = "SELECT * FROM users ORDER BY id";
+        String sql = "SELECT " + COLUMNS + " FROM users ORDER BY id";
         List<User> users = new ArrayList<>();
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
@@ -187,6 +349,190 @@ public class UserDao {
         }
     }
     
+    /**
+     * 流式查询所有用户（按ID排序）
+     * 
+     * <p>与 {@link #findAll()} 不同，结果逐行从数据库读取，内存占用与表大小无关，第一行数据也能立即返回。
+     * 返回的 Stream 持有数据库连接，<b>必须</b>用 try-with-resources 关闭。
+     * 
+     * @return 用户流
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Stream<User> streamAll() {
+        return StreamingQuery.open("SELECT " + COLUMNS + " FROM users ORDER BY id",
+                this::mapResultSetToUser, "流式查询用户列表失败");
+    }
+    
+    /**
+     * 逐行遍历所有用户（按ID排序），遍历结束后自动释放连接
+     * 
+     * @param action 对每个用户执行的操作
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public void forEach(Consumer<User> action) {
+        try (Stream<User> users = streamAll()) {
+            users.forEach(action);
+        }
+    }
+    
+    /**
+     * 分页查询用户（键集分页，按ID排序）
+     * 
+     * <p>以主键定位起始位置，翻到任意深度每页的查询代价都相同，详见 {@link Page}
+     * 
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<User> findPage(int afterId, int limit) {
+        return PageQuery.fetch("SELECT " + COLUMNS + " FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                this::mapResultSetToUser, User::getId, afterId, limit, "分页查询用户失败");
+    }
+    
+    /**
+     * 按状态分页查询用户（键集分页，按ID排序）
+     * 
+     * <p>走 idx_users_status (status, id) 索引（迁移 V2）：条件 {@code status = ? AND id > ?} 直接定位到起始位置，
+     * ORDER BY 写成与索引列一致的 {@code status, id}（status 为定值，顺序与按 id 排序相同），
+     * 让 H2 等优化器也能按索引顺序读取，而不是取出该状态的全部行再排序
+     * 
+     * @param status 用户状态（0=正常，1=冻结）
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<User> findPageByStatus(int status, int afterId, int limit) {
+        return PageQuery.fetch("SELECT " + COLUMNS + " FROM users WHERE status = ? AND id > ? ORDER BY status, id LIMIT ?",
+                this::mapResultSetToUser, User::getId, afterId, limit,
+                "按状态分页查询用户失败，状态: " + status, status);
+    }
+    
+    /**
+     * 分页查询拥有指定角色的用户（键集分页，按用户ID排序）
+     * 
+     * <p>走 user_roles 的 idx_user_roles_role_user (role_id, user_id) 索引（迁移 V2）定位起始位置并按索引顺序读取
+     * 
+     * @param roleId 角色ID
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<User> findPageByRoleId(int roleId, int afterId, int limit) {
+        String sql = "SELECT " + COLUMNS_U + " FROM user_roles ur " +
+                "JOIN users u ON u.id = ur.user_id " +
+                "WHERE ur.role_id = ? AND ur.user_id > ? ORDER BY ur.role_id, ur.user_id LIMIT ?";
+        return PageQuery.fetch(sql, this::mapResultSetToUser, User::getId, afterId, limit,
+                "分页查询角色用户失败，角色ID: " + roleId, roleId);
+    }
+    
+    /**
+     * 分页查询拥有任一指定权限的用户（通过任一角色，键集分页，按用户ID排序）
+     * 
+     * <p>从授权一侧查找：idx_role_permissions_perm_role 找出拥有这些权限的角色，加上它们在 role_closure 中的后代角色，
+     * 再经 idx_user_roles_role_user 取出这些角色中ID大于游标的用户，去重排序后取一页ID，
+     * 最后用 {@link #findPageByIds(int[], int, int)} 读取用户。耗时随拥有这些权限的用户数增长，与用户总数无关；
+     * 内存中的反向索引见 {@link com.rbac.engine.AuthorizationModel#findUsersWithPermission(String, int, int)}。
+     * 启用物化表（{@link EffectivePermissionDao#isEnabled()}）时改为按 (permission_id, user_id) 索引读取
+     * user_effective_permissions
+     * 
+     * @param permissionIds 权限ID（一个权限编码及覆盖它的通配授权），不能为空
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<User> findPageByPermissionIds(int[] permissionIds, int afterId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new IllegalArgumentException("每页条数必须在1到" + Page.MAX_LIMIT + "之间: " + limit);
+        }
+        String in = "IN (" + BatchInserter.placeholders(permissionIds.length) + ")";
+        String sql;
+        int[] params;
+        if (EffectivePermissionDao.isEnabled()) {
+            sql = "SELECT DISTINCT e.user_id FROM user_effective_permissions e " +
+                    "WHERE e.permission_id " + in + " AND e.user_id > ? ORDER BY e.user_id LIMIT ?";
+            params = Arrays.copyOf(permissionIds, permissionIds.length + 2);
+        } else {
+            sql = "SELECT g.user_id FROM (" +
+                    "SELECT ur.user_id FROM role_permissions rp JOIN user_roles ur ON ur.role_id = rp.role_id " +
+                    "WHERE rp.permission_id " + in + " AND ur.user_id > ? " +
+                    "UNION SELECT ur.user_id FROM role_permissions rp " +
+                    "JOIN role_closure rc ON rc.ancestor_id = rp.role_id " +
+                    "JOIN user_roles ur ON ur.role_id = rc.descendant_id " +
+                    "WHERE rp.permission_id " + in + " AND ur.user_id > ?) g " +
+                    "ORDER BY g.user_id LIMIT ?";
+            params = new int[permissionIds.length * 2 + 3];
+            System.arraycopy(permissionIds, 0, params, 0, permissionIds.length);
+            params[permissionIds.length] = afterId;
+            System.arraycopy(permissionIds, 0, params, permissionIds.length + 1, permissionIds.length);
+        }
+        params[params.length - 2] = afterId;
+        params[params.length - 1] = limit + 1;
+        
+        int[] ids = new int[limit + 1];
+        int count = 0;
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setInt(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("分页查询拥有权限的用户失败，权限ID: " + Arrays.toString(permissionIds), e);
+        }
+        return findPageByIds(Arrays.copyOf(ids, count), afterId, limit);
+    }
+    
+    /**
+     * 按已知的用户ID取一页用户（ID由内存索引给出，按升序）
+     * 
+     * <p>{@code ids} 最多取前 limit 个查询，多出的一个只用来判断是否还有下一页；
+     * 已被删除的用户不出现在结果中，游标仍按传入的ID推进
+     * 
+     * @param ids 升序的用户ID，最多 limit + 1 个
+     * @param afterId 本页的游标（ids 为空时作为下一页游标返回）
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Page<User> findPageByIds(int[] ids, int afterId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new IllegalArgumentException("每页条数必须在1到" + Page.MAX_LIMIT + "之间: " + limit);
+        }
+        int count = Math.min(ids.length, limit);
+        if (count == 0) {
+            return new Page<>(new ArrayList<>(), afterId, false);
+        }
+        String sql = "SELECT " + COLUMNS + " FROM users WHERE id IN ("
+                + BatchInserter.placeholders(count) + ") ORDER BY id";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < count; i++) {
+                pstmt.setInt(i + 1, ids[i]);
+            }
+            
+            List<User> users = new ArrayList<>(count);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapResultSetToUser(rs));
+                }
+            }
+            return new Page<>(users, ids[count - 1], ids.length > limit);
+        } catch (SQLException e) {
+            throw new RuntimeException("按ID查询用户失败", e);
+        }
+    }
+    
     /**
      * 检查用户名是否已存在
      * 
@@ -199,7 +545,7 @@ public class UserDao {
     public boolean existsByUsername(String username) {
         String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, username);
@@ -215,35 +561,85 @@ public class UserDao {
         }
     }
     
+    /**
+     * 按用户名批量查询用户ID（一条 IN 查询）
+     * 
+     * <p>用于批量导入时把用户名解析为ID，不存在的用户名不会出现在结果中
+     * 
+     * @param usernames 用户名集合，不能为空集合
+     * @return 用户名到用户ID的映射
+     * @throws RuntimeException 当数据库操作失败时
+     */
+    public Map<String, Integer> findIdsByUsernames(Collection<String> usernames) {
+        List<String> keys = new ArrayList<>(usernames);
+        String sql = "SELECT id, username FROM users WHERE username IN ("
+                + BatchInserter.placeholders(keys.size()) + ")";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < keys.size(); i++) {
+                pstmt.setString(i + 1, keys.get(i));
+            }
+            
+            Map<String, Integer> ids = new HashMap<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString("username"), rs.getInt("id"));
+                }
+            }
+            return ids;
+        } catch (SQLException e) {
+            throw new RuntimeException("批量查询用户ID失败", e);
+        }
+    }
+    
     /**
      * 将ResultSet映射为User对象
      * 
      * <p>此方法处理数据库类型到Java类型的转换，特别是Timestamp到LocalDateTime的转换。
      * 需要单独处理Timestamp是因为直接调用getObject可能返回null导致NullPointerException。
      * 
+     * <p>查询必须按 {@link #COLUMNS} 的顺序选择列：按下标读取，省去每行每列按名称查找列的开销
+     * 
      * @param rs 数据库查询结果集（当前指向某一行）
      * @return 映射后的User对象
      * @throws SQLException 当读取ResultSet失败时
      */
     private User mapResultSetToUser(ResultSet rs) throws SQLException {
         User user = new User();
-        user.setId(rs.getInt("id"));
-        user.setUsername(rs.getString("username"));
-        user.setPasswordHash(rs.getString("password_hash"));
-        user.setSalt(rs.getString("salt"));
-        user.setStatus(rs.getInt("status"));
+        user.setId(rs.getInt(COL_ID));
+        user.setUsername(rs.getString(COL_USERNAME));
+        user.setPasswordHash(rs.getString(COL_PASSWORD_HASH));
+        user.setSalt(rs.getString(COL_SALT));
+        user.setStatus(rs.getInt(COL_STATUS));
         
         // 安全处理时间戳字段（可能为null）
-        Timestamp createdAt = rs.getTimestamp("created_at");
+        Timestamp createdAt = rs.getTimestamp(COL_CREATED_AT);
         if (createdAt != null) {
             user.setCreatedAt(createdAt.toLocalDateTime());
         }
         
-        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        Timestamp updatedAt = rs.getTimestamp(COL_UPDATED_AT);
         if (updatedAt != null) {
             user.setUpdatedAt(updatedAt.toLocalDateTime());
         }
         
         return user;
     }
+    
+    /**
+     * 将按 {@link #PRINCIPAL_COLUMNS} 查询的行映射为只含身份信息的User对象
+     * 
+     * @param rs 数据库查询结果集（当前指向某一行）
+     * @return 只填充了 id、username、status 的User对象
+     * @throws SQLException 当读取ResultSet失败时
+     */
+    private User mapResultSetToPrincipal(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt(1));
+        user.setUsername(rs.getString(2));
+        user.setStatus(rs.getInt(3));
+        return user;
+    }
 }
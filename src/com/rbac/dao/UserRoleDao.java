@@ -6,6 +6,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 /**
  * 用户-角色关联数据访问对象
@@ -14,6 +17,9 @@ public class UserRoleDao {
     
     /**
      * 为用户分配角色
+     * 
+     * <p>不事先检查用户、角色是否存在或是否已分配，由唯一键和外键约束判断：
+     * 已分配返回 false，用户或角色不存在抛出 {@link ConstraintViolationException}（FOREIGN_KEY）
      */
     public boolean assignRole(int userId, int roleId) {
         String sql = "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
@@ -27,13 +33,35 @@ public class UserRoleDao {
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
             // 如果是唯一键冲突，说明已经分配过了
-            if (e.getMessage().contains("Duplicate entry")) {
+            if (DBUtil.isDuplicateKey(e)) {
                 return false;
             }
+            if (DBUtil.isForeignKeyViolation(e)) {
+                throw new ConstraintViolationException(ConstraintViolationException.Kind.FOREIGN_KEY,
+                        "用户或角色不存在，用户ID: " + userId + ", 角色ID: " + roleId, e);
+            }
             throw new RuntimeException("分配角色失败", e);
         }
     }
     
+    /**
+     * 批量为用户分配同一个角色（例如把角色授予整个部门）
+     * 
+     * <p>已拥有该角色的用户标记为 DUPLICATE，用户不存在的行标记为 FAILED，结果下标与 userIds 一致
+     */
+    public BatchResult assignRolesBatch(int[] userIds, int roleId) {
+        return new BatchInserter<Integer, Integer>(
+                "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)",
+                false,
+                userId -> userId,
+                (conn, ids) -> BatchInserter.findExisting(conn,
+                        "SELECT user_id FROM user_roles WHERE role_id = ? AND user_id", ids, roleId),
+                (pstmt, userId) -> {
+                    pstmt.setInt(1, userId);
+                    pstmt.setInt(2, roleId);
+                }).insert(BatchInserter.boxed(userIds));
+    }
+    
     /**
      * 取消用户角色
      */
@@ -58,7 +86,7 @@ public class UserRoleDao {
     public boolean hasRole(int userId, int roleId) {
         String sql = "SELECT COUNT(*) FROM user_roles WHERE user_id = ? AND role_id = ?";
         
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, userId);
@@ -75,6 +103,50 @@ public class UserRoleDao {
         }
     }
     
+    /**
+     * 查询用户拥有的角色ID
+     * 
+     * @return 角色ID数组（升序，可能为空数组）
+     */
+    public int[] findRoleIdsByUserId(int userId) {
+        String sql = "SELECT role_id FROM user_roles WHERE user_id = ? ORDER BY role_id";
+        
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setInt(1, userId);
+            
+            int[] roleIds = new int[4];
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (count == roleIds.length) {
+                        roleIds = Arrays.copyOf(roleIds, count * 2);
+                    }
+                    roleIds[count++] = rs.getInt(1);
+                }
+            }
+            return Arrays.copyOf(roleIds, count);
+        } catch (SQLException e) {
+            throw new RuntimeException("查询用户角色失败，用户ID: " + userId, e);
+        }
+    }
+    
+    /**
+     * 逐行遍历所有用户-角色关联（按用户ID、角色ID排序），用于在内存中构建授权模型
+     * 
+     * <p>流式读取，内存占用与表大小无关；同一用户的所有角色连续出现。遍历结束后自动释放连接
+     * 
+     * @param action 对每条关联执行的操作，参数依次为用户ID、角色ID
+     */
+    public void forEachAssignment(BiConsumer<Integer, Integer> action) {
+        try (Stream<int[]> rows = StreamingQuery.open(
+                "SELECT user_id, role_id FROM user_roles ORDER BY user_id, role_id",
+                rs -> new int[]{rs.getInt(1), rs.getInt(2)}, "遍历用户角色失败")) {
+            rows.forEach(row -> action.accept(row[0], row[1]));
+        }
+    }
+    
     /**
      * 删除用户的所有角色
      */
@@ -1,35 +1,49 @@
 package com.rbac.decorator;
 
 import com.rbac.audit.AuditLogger;
+import com.rbac.cache.EpochCache;
+import com.rbac.cache.RbacEpoch;
 import com.rbac.common.PermissionConsts;
+import com.rbac.dao.Page;
 import com.rbac.model.Permission;
-import com.rbac.model.Role;
 import com.rbac.service.AuthService;
 import com.rbac.service.PermissionService;
-import com.rbac.service.RoleService;
+import com.rbac.util.TransactionManager;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 权限服务权限装饰器
+ * 
+ * <p>修改操作与 {@link RbacEpoch} 的递增在同一事务中提交；权限列表和角色的权限按版本号缓存（{@link EpochCache}）
+ * 
+ * <p>审计日志按ID记录操作对象，写入前不再额外查询角色和权限
  */
 public class AuthPermissionServiceDecorator implements PermissionService {
     
     private final PermissionService delegate;
     private final AuthService authService;
-    private final RoleService roleService;
     
-    public AuthPermissionServiceDecorator(PermissionService delegate, AuthService authService, RoleService roleService) {
+    private final RbacEpoch epoch = RbacEpoch.shared();
+    private final EpochCache<String, List<Permission>> allPermissions = EpochCache.fromConfig("permission-list-cache");
+    private final EpochCache<List<Integer>, Page<Permission>> permissionPages = EpochCache.fromConfig("permission-page-cache");
+    private final EpochCache<Integer, List<Permission>> rolePermissions = EpochCache.fromConfig("role-permission-cache");
+    
+    public AuthPermissionServiceDecorator(PermissionService delegate, AuthService authService) {
         this.delegate = delegate;
         this.authService = authService;
-        this.roleService = roleService;
     }
     
     @Override
     public void createPermission(String permissionCode, String description) {
         authService.checkPermission(PermissionConsts.PERM_CREATE);
         try {
-            delegate.createPermission(permissionCode, description);
+            TransactionManager.run(() -> {
+                delegate.createPermission(permissionCode, description);
+                epoch.bump();
+            });
             AuditLogger.logCritical("CREATE_PERMISSION", permissionCode, "创建权限成功");
         } catch (Exception e) {
             AuditLogger.logFail("CREATE_PERMISSION", permissionCode, "创建权限失败: " + e.getMessage());
@@ -41,9 +55,11 @@ public class AuthPermissionServiceDecorator implements PermissionService {
     public void deletePermission(int permissionId) {
         authService.checkPermission(PermissionConsts.PERM_DELETE);
         try {
-            Permission permission = delegate.getPermissionById(permissionId);
-            delegate.deletePermission(permissionId);
-            AuditLogger.logCritical("DELETE_PERMISSION", permission.getPermissionCode(), "删除权限成功");
+            TransactionManager.run(() -> {
+                delegate.deletePermission(permissionId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("DELETE_PERMISSION", String.valueOf(permissionId), "删除权限成功");
         } catch (Exception e) {
             AuditLogger.logFail("DELETE_PERMISSION", String.valueOf(permissionId), "删除权限失败: " + e.getMessage());
             throw e;
@@ -53,7 +69,13 @@ public class AuthPermissionServiceDecorator implements PermissionService {
     @Override
     public List<Permission> listPermissions() {
         authService.checkPermission(PermissionConsts.PERM_LIST);
-        return delegate.listPermissions();
+        return allPermissions.get("all", () -> Collections.unmodifiableList(delegate.listPermissions()));
+    }
+    
+    @Override
+    public Page<Permission> listPermissions(int afterId, int limit) {
+        authService.checkPermission(PermissionConsts.PERM_LIST);
+        return permissionPages.get(Arrays.asList(afterId, limit), () -> delegate.listPermissions(afterId, limit));
     }
     
     @Override
@@ -72,11 +94,12 @@ public class AuthPermissionServiceDecorator implements PermissionService {
     public void assignPermissionToRole(int roleId, int permissionId) {
         authService.checkPermission(PermissionConsts.PERM_ASSIGN);
         try {
-            Role role = roleService.getRoleById(roleId);
-            Permission permission = delegate.getPermissionById(permissionId);
-            delegate.assignPermissionToRole(roleId, permissionId);
-            AuditLogger.logCritical("ASSIGN_PERMISSION", role.getRoleCode(), 
-                    String.format("为角色分配权限 [%s] 成功", permission.getPermissionCode()));
+            TransactionManager.run(() -> {
+                delegate.assignPermissionToRole(roleId, permissionId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("ASSIGN_PERMISSION", String.valueOf(roleId), 
+                    String.format("为角色分配权限 [%d] 成功", permissionId));
         } catch (Exception e) {
             AuditLogger.logFail("ASSIGN_PERMISSION", String.valueOf(roleId), 
                     "分配权限失败: " + e.getMessage());
@@ -88,11 +111,12 @@ public class AuthPermissionServiceDecorator implements PermissionService {
     public void removePermissionFromRole(int roleId, int permissionId) {
         authService.checkPermission(PermissionConsts.PERM_REVOKE);
         try {
-            Role role = roleService.getRoleById(roleId);
-            Permission permission = delegate.getPermissionById(permissionId);
-            delegate.removePermissionFromRole(roleId, permissionId);
-            AuditLogger.logCritical("REMOVE_PERMISSION", role.getRoleCode(), 
-                    String.format("移除角色权限 [%s] 成功", permission.getPermissionCode()));
+            TransactionManager.run(() -> {
+                delegate.removePermissionFromRole(roleId, permissionId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("REMOVE_PERMISSION", String.valueOf(roleId), 
+                    String.format("移除角色权限 [%d] 成功", permissionId));
         } catch (Exception e) {
             AuditLogger.logFail("REMOVE_PERMISSION", String.valueOf(roleId), 
                     "移除权限失败: " + e.getMessage());
@@ -103,7 +127,13 @@ public class AuthPermissionServiceDecorator implements PermissionService {
     @Override
     public List<Permission> getRolePermissions(int roleId) {
         authService.checkPermission(PermissionConsts.PERM_LIST);
-        return delegate.getRolePermissions(roleId);
+        return rolePermissions.get(roleId, () -> Collections.unmodifiableList(delegate.getRolePermissions(roleId)));
+    }
+    
+    @Override
+    public Page<Permission> getRolePermissions(int roleId, int afterId, int limit) {
+        authService.checkPermission(PermissionConsts.PERM_LIST);
+        return delegate.getRolePermissions(roleId, afterId, limit);
     }
 }
 
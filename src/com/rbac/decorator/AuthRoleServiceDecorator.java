@@ -1,35 +1,50 @@
 package com.rbac.decorator;
 
 import com.rbac.audit.AuditLogger;
+import com.rbac.cache.EpochCache;
+import com.rbac.cache.RbacEpoch;
 import com.rbac.common.PermissionConsts;
+import com.rbac.dao.Page;
 import com.rbac.model.Role;
 import com.rbac.model.User;
 import com.rbac.service.AuthService;
 import com.rbac.service.RoleService;
-import com.rbac.service.UserService;
+import com.rbac.util.TransactionManager;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 角色服务权限装饰器
+ * 
+ * <p>修改操作与 {@link RbacEpoch} 的递增在同一事务中提交；角色列表和用户的角色按版本号缓存（{@link EpochCache}）
+ * 
+ * <p>审计日志按ID记录操作对象，写入前不再额外查询用户和角色，不存在等失败由被装饰的服务判定
  */
 public class AuthRoleServiceDecorator implements RoleService {
     
     private final RoleService delegate;
     private final AuthService authService;
-    private final UserService userService;
     
-    public AuthRoleServiceDecorator(RoleService delegate, AuthService authService, UserService userService) {
+    private final RbacEpoch epoch = RbacEpoch.shared();
+    private final EpochCache<String, List<Role>> allRoles = EpochCache.fromConfig("role-list-cache");
+    private final EpochCache<List<Integer>, Page<Role>> rolePages = EpochCache.fromConfig("role-page-cache");
+    private final EpochCache<Integer, List<Role>> userRoles = EpochCache.fromConfig("user-role-cache");
+    
+    public AuthRoleServiceDecorator(RoleService delegate, AuthService authService) {
         this.delegate = delegate;
         this.authService = authService;
-        this.userService = userService;
     }
     
     @Override
     public void createRole(String roleCode, String roleName, String description) {
         authService.checkPermission(PermissionConsts.ROLE_CREATE);
         try {
-            delegate.createRole(roleCode, roleName, description);
+            TransactionManager.run(() -> {
+                delegate.createRole(roleCode, roleName, description);
+                epoch.bump();
+            });
             AuditLogger.logCritical("CREATE_ROLE", roleCode, "创建角色成功");
         } catch (Exception e) {
             AuditLogger.logFail("CREATE_ROLE", roleCode, "创建角色失败: " + e.getMessage());
@@ -41,9 +56,11 @@ public class AuthRoleServiceDecorator implements RoleService {
     public void deleteRole(int roleId) {
         authService.checkPermission(PermissionConsts.ROLE_DELETE);
         try {
-            Role role = delegate.getRoleById(roleId);
-            delegate.deleteRole(roleId);
-            AuditLogger.logCritical("DELETE_ROLE", role.getRoleCode(), "删除角色成功");
+            TransactionManager.run(() -> {
+                delegate.deleteRole(roleId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("DELETE_ROLE", String.valueOf(roleId), "删除角色成功");
         } catch (Exception e) {
             AuditLogger.logFail("DELETE_ROLE", String.valueOf(roleId), "删除角色失败: " + e.getMessage());
             throw e;
@@ -53,7 +70,13 @@ public class AuthRoleServiceDecorator implements RoleService {
     @Override
     public List<Role> listRoles() {
         authService.checkPermission(PermissionConsts.ROLE_LIST);
-        return delegate.listRoles();
+        return allRoles.get("all", () -> Collections.unmodifiableList(delegate.listRoles()));
+    }
+    
+    @Override
+    public Page<Role> listRoles(int afterId, int limit) {
+        authService.checkPermission(PermissionConsts.ROLE_LIST);
+        return rolePages.get(Arrays.asList(afterId, limit), () -> delegate.listRoles(afterId, limit));
     }
     
     @Override
@@ -72,11 +95,12 @@ public class AuthRoleServiceDecorator implements RoleService {
     public void assignRoleToUser(int userId, int roleId) {
         authService.checkPermission(PermissionConsts.ROLE_ASSIGN);
         try {
-            User user = userService.getUserById(userId);
-            Role role = delegate.getRoleById(roleId);
-            delegate.assignRoleToUser(userId, roleId);
-            AuditLogger.logCritical("ASSIGN_ROLE", user.getUsername(), 
-                    String.format("为用户分配角色 [%s] 成功", role.getRoleCode()));
+            TransactionManager.run(() -> {
+                delegate.assignRoleToUser(userId, roleId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("ASSIGN_ROLE", String.valueOf(userId), 
+                    String.format("为用户分配角色 [%d] 成功", roleId));
         } catch (Exception e) {
             AuditLogger.logFail("ASSIGN_ROLE", String.valueOf(userId), 
                     "分配角色失败: " + e.getMessage());
@@ -88,11 +112,12 @@ public class AuthRoleServiceDecorator implements RoleService {
     public void removeRoleFromUser(int userId, int roleId) {
         authService.checkPermission(PermissionConsts.ROLE_REVOKE);
         try {
-            User user = userService.getUserById(userId);
-            Role role = delegate.getRoleById(roleId);
-            delegate.removeRoleFromUser(userId, roleId);
-            AuditLogger.logCritical("REMOVE_ROLE", user.getUsername(), 
-                    String.format("移除用户角色 [%s] 成功", role.getRoleCode()));
+            TransactionManager.run(() -> {
+                delegate.removeRoleFromUser(userId, roleId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("REMOVE_ROLE", String.valueOf(userId), 
+                    String.format("移除用户角色 [%d] 成功", roleId));
         } catch (Exception e) {
             AuditLogger.logFail("REMOVE_ROLE", String.valueOf(userId), 
                     "移除角色失败: " + e.getMessage());
@@ -103,6 +128,62 @@ public class AuthRoleServiceDecorator implements RoleService {
     @Override
     public List<Role> getUserRoles(int userId) {
         authService.checkPermission(PermissionConsts.ROLE_LIST);
-        return delegate.getUserRoles(userId);
+        return userRoles.get(userId, () -> Collections.unmodifiableList(delegate.getUserRoles(userId)));
+    }
+    
+    @Override
+    public Page<User> listRoleUsers(int roleId, int afterId, int limit) {
+        authService.checkPermission(PermissionConsts.ROLE_LIST);
+        authService.checkPermission(PermissionConsts.USER_LIST);
+        return delegate.listRoleUsers(roleId, afterId, limit);
+    }
+    
+    /**
+     * 继承父角色会改变角色的有效权限，与给角色分配权限使用同一权限
+     */
+    @Override
+    public void addParentRole(int roleId, int parentRoleId) {
+        authService.checkPermission(PermissionConsts.PERM_ASSIGN);
+        try {
+            TransactionManager.run(() -> {
+                delegate.addParentRole(roleId, parentRoleId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("ADD_PARENT_ROLE", String.valueOf(roleId),
+                    String.format("继承角色 [%d] 成功", parentRoleId));
+        } catch (Exception e) {
+            AuditLogger.logFail("ADD_PARENT_ROLE", String.valueOf(roleId),
+                    "继承角色失败: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    @Override
+    public void removeParentRole(int roleId, int parentRoleId) {
+        authService.checkPermission(PermissionConsts.PERM_REVOKE);
+        try {
+            TransactionManager.run(() -> {
+                delegate.removeParentRole(roleId, parentRoleId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("REMOVE_PARENT_ROLE", String.valueOf(roleId),
+                    String.format("取消继承角色 [%d] 成功", parentRoleId));
+        } catch (Exception e) {
+            AuditLogger.logFail("REMOVE_PARENT_ROLE", String.valueOf(roleId),
+                    "取消继承角色失败: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    @Override
+    public List<Role> getParentRoles(int roleId) {
+        authService.checkPermission(PermissionConsts.ROLE_LIST);
+        return delegate.getParentRoles(roleId);
+    }
+    
+    @Override
+    public List<Role> getAncestorRoles(int roleId) {
+        authService.checkPermission(PermissionConsts.ROLE_LIST);
+        return delegate.getAncestorRoles(roleId);
     }
 }
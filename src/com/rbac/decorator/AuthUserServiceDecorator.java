@@ -1,21 +1,31 @@
 package com.rbac.decorator;
 
 import com.rbac.audit.AuditLogger;
+import com.rbac.cache.RbacEpoch;
 import com.rbac.common.PermissionConsts;
+import com.rbac.dao.Page;
 import com.rbac.model.User;
 import com.rbac.service.AuthService;
 import com.rbac.service.UserService;
+import com.rbac.util.TransactionManager;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 用户服务权限装饰器
+ * 
+ * <p>修改操作与 {@link RbacEpoch} 的递增在同一事务中提交（删除用户会级联删除其角色，冻结影响登录）
+ * 
+ * <p>审计日志按用户ID记录，写入前不再额外查询用户
  */
 public class AuthUserServiceDecorator implements UserService {
     
     private final UserService delegate;
     private final AuthService authService;
     
+    private final RbacEpoch epoch = RbacEpoch.shared();
+    
     public AuthUserServiceDecorator(UserService delegate, AuthService authService) {
         this.delegate = delegate;
         this.authService = authService;
@@ -25,7 +35,10 @@ public class AuthUserServiceDecorator implements UserService {
     public void createUser(String username, String password) {
         authService.checkPermission(PermissionConsts.USER_CREATE);
         try {
-            delegate.createUser(username, password);
+            TransactionManager.run(() -> {
+                delegate.createUser(username, password);
+                epoch.bump();
+            });
             AuditLogger.logCritical("CREATE_USER", username, "创建用户成功");
         } catch (Exception e) {
             AuditLogger.logFail("CREATE_USER", username, "创建用户失败: " + e.getMessage());
@@ -37,9 +50,11 @@ public class AuthUserServiceDecorator implements UserService {
     public void deleteUser(int userId) {
         authService.checkPermission(PermissionConsts.USER_DELETE);
         try {
-            User user = delegate.getUserById(userId);
-            delegate.deleteUser(userId);
-            AuditLogger.logCritical("DELETE_USER", user.getUsername(), "删除用户成功");
+            TransactionManager.run(() -> {
+                delegate.deleteUser(userId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("DELETE_USER", String.valueOf(userId), "删除用户成功");
         } catch (Exception e) {
             AuditLogger.logFail("DELETE_USER", String.valueOf(userId), "删除用户失败: " + e.getMessage());
             throw e;
@@ -50,9 +65,11 @@ public class AuthUserServiceDecorator implements UserService {
     public void freezeUser(int userId) {
         authService.checkPermission(PermissionConsts.USER_FREEZE);
         try {
-            User user = delegate.getUserById(userId);
-            delegate.freezeUser(userId);
-            AuditLogger.logCritical("FREEZE_USER", user.getUsername(), "冻结用户成功");
+            TransactionManager.run(() -> {
+                delegate.freezeUser(userId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("FREEZE_USER", String.valueOf(userId), "冻结用户成功");
         } catch (Exception e) {
             AuditLogger.logFail("FREEZE_USER", String.valueOf(userId), "冻结用户失败: " + e.getMessage());
             throw e;
@@ -63,9 +80,11 @@ public class AuthUserServiceDecorator implements UserService {
     public void unfreezeUser(int userId) {
         authService.checkPermission(PermissionConsts.USER_UNFREEZE);
         try {
-            User user = delegate.getUserById(userId);
-            delegate.unfreezeUser(userId);
-            AuditLogger.logCritical("UNFREEZE_USER", user.getUsername(), "解冻用户成功");
+            TransactionManager.run(() -> {
+                delegate.unfreezeUser(userId);
+                epoch.bump();
+            });
+            AuditLogger.logCritical("UNFREEZE_USER", String.valueOf(userId), "解冻用户成功");
         } catch (Exception e) {
             AuditLogger.logFail("UNFREEZE_USER", String.valueOf(userId), "解冻用户失败: " + e.getMessage());
             throw e;
@@ -78,6 +97,24 @@ public class AuthUserServiceDecorator implements UserService {
         return delegate.listUsers();
     }
     
+    @Override
+    public Page<User> listUsers(int afterId, int limit) {
+        authService.checkPermission(PermissionConsts.USER_LIST);
+        return delegate.listUsers(afterId, limit);
+    }
+    
+    @Override
+    public Page<User> listUsersByStatus(int status, int afterId, int limit) {
+        authService.checkPermission(PermissionConsts.USER_LIST);
+        return delegate.listUsersByStatus(status, afterId, limit);
+    }
+    
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        authService.checkPermission(PermissionConsts.USER_LIST);
+        delegate.forEachUser(action);
+    }
+    
     @Override
     public User getUserById(int userId) {
         authService.checkPermission(PermissionConsts.USER_LIST);
@@ -0,0 +1,207 @@
+package com.rbac.engine;
+
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleHierarchyDao;
+import com.rbac.dao.UserRoleDao;
+import com.rbac.event.ChangeFeedPoller;
+import com.rbac.event.GrantChangeListener;
+import com.rbac.event.GrantEvents;
+import com.rbac.model.Permission;
+import com.rbac.util.TransactionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 授权引擎 - 以不可变快照的形式发布 {@link AuthorizationModel}，读取无锁、写入增量
+ *
+ * <p><b>读取：</b>{@link #model()} 只是一次 {@link AtomicReference} 读取（wait-free），之后的校验全部在该快照上完成，
+ * 不加锁、不访问数据库，也不会被正在进行的写入阻塞。
+ *
+ * <p><b>写入：</b>引擎注册为 {@link GrantChangeListener}，授权变更提交后在执行变更的线程上：
+ * 重新读取受影响的那一个用户的角色或那一个角色的权限（及该角色子树的继承关系），由 {@link ModelWriter} 在当前快照的基础上
+ * 生成只复制受影响部分的新快照，再一次性替换引用。写入之间串行执行（读取数据库也在锁内，
+ * 保证最后应用的读取晚于最后一次提交，不会用较早读到的数据覆盖较新的数据）；
+ * 返回时新快照已经发布，执行变更的线程随后的校验能看到自己的变更。
+ *
+ * <p>启动时（或调用 {@link #reload()}）全量编译一次；之后只有增量更新。
+ *
+ * @author RBAC Team
+ * @see AuthorizationModel
+ * @see com.rbac.service.impl.CompiledAuthServiceImpl
+ */
+public class AuthorizationEngine implements GrantChangeListener {
+
+    private static final Logger logger = LogManager.getLogger(AuthorizationEngine.class);
+
+    private final AtomicReference<AuthorizationModel> current = new AtomicReference<>();
+
+    /** 写入端，只在持有本对象锁时访问 */
+    private ModelWriter writer;
+
+    private final PermissionDao permissionDao = new PermissionDao();
+    private final UserRoleDao userRoleDao = new UserRoleDao();
+    private final RoleHierarchyDao hierarchyDao = new RoleHierarchyDao();
+
+    private final AtomicLong reloadCount = new AtomicLong();
+    private final AtomicLong deltaCount = new AtomicLong();
+    private volatile long lastReloadMillis;
+    private volatile long lastDeltaNanos;
+
+    /**
+     * 创建空引擎（没有任何授权），之后通过 {@link #reload()} 或增量方法填充
+     */
+    public AuthorizationEngine() {
+        this.writer = ModelWriter.empty();
+        current.set(writer.model());
+    }
+
+    /**
+     * 创建引擎并从数据库全量编译
+     */
+    public static AuthorizationEngine load() {
+        AuthorizationEngine engine = new AuthorizationEngine();
+        engine.reload();
+        return engine;
+    }
+
+    /**
+     * 进程内共享的引擎（首次使用时编译，并注册到 {@link GrantEvents}）
+     */
+    public static AuthorizationEngine shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final AuthorizationEngine INSTANCE = create();
+
+        private static AuthorizationEngine create() {
+            AuthorizationEngine engine = new AuthorizationEngine();
+            // 先注册再编译：编译期间提交的变更在编译完成后按增量补上
+            GrantEvents.register(engine);
+            ChangeFeedPoller.shared();
+            engine.reload();
+            return engine;
+        }
+    }
+
+    /**
+     * 当前快照
+     */
+    public AuthorizationModel model() {
+        return current.get();
+    }
+
+    /**
+     * 从数据库全量重新编译并发布
+     */
+    public synchronized void reload() {
+        long start = System.nanoTime();
+        writer = ModelWriter.load(writer.model().getVersion() + 1);
+        publish(writer.model());
+        lastReloadMillis = (System.nanoTime() - start) / 1_000_000;
+        reloadCount.incrementAndGet();
+        logger.info("授权模型已全量编译: 耗时={}ms {}", lastReloadMillis, current.get());
+    }
+
+    /**
+     * 设置用户的角色并发布新快照
+     *
+     * @param userId 用户ID
+     * @param roleIds 用户当前拥有的全部角色ID
+     * @return 新快照（没有变化时为当前快照）
+     */
+    public synchronized AuthorizationModel setUserRoles(int userId, int[] roleIds) {
+        long start = System.nanoTime();
+        return delta(writer.setUserRoles(userId, roleIds), start);
+    }
+
+    /**
+     * 设置角色的权限并发布新快照
+     *
+     * @param roleId 角色ID
+     * @param permissions 角色当前拥有的全部权限：权限ID → 权限编码（角色已删除时为空）
+     * @return 新快照（没有变化时为当前快照）
+     */
+    public synchronized AuthorizationModel setRolePermissions(int roleId, Map<Integer, String> permissions) {
+        long start = System.nanoTime();
+        return delta(writer.setRolePermissions(roleId, permissions), start);
+    }
+
+    /**
+     * 设置角色自身的权限及其子树的继承关系并发布新快照（继承关系变化后使用）
+     *
+     * @param roleId 角色ID
+     * @param permissions 角色自身的全部权限：权限ID → 权限编码（角色已删除时为空）
+     * @param subtreeAncestors 该角色及其所有后代各自的全部祖先ID
+     * @return 新快照（没有变化时为当前快照）
+     */
+    public synchronized AuthorizationModel setRole(int roleId, Map<Integer, String> permissions,
+                                                   Map<Integer, int[]> subtreeAncestors) {
+        long start = System.nanoTime();
+        return delta(writer.setRole(roleId, permissions, subtreeAncestors), start);
+    }
+
+    /**
+     * 删除权限并发布新快照
+     *
+     * @return 新快照（权限不在模型中时为当前快照）
+     */
+    public synchronized AuthorizationModel deletePermission(int permissionId) {
+        long start = System.nanoTime();
+        return delta(writer.deletePermission(permissionId), start);
+    }
+
+    @Override
+    public synchronized void onUserRolesChanged(int userId) {
+        setUserRoles(userId, TransactionManager.execute(() -> userRoleDao.findRoleIdsByUserId(userId)));
+    }
+
+    @Override
+    public synchronized void onRoleChanged(int roleId) {
+        // 角色的权限和子树的继承关系在同一事务中读取：角色变更既可能是权限变化，也可能是继承关系变化
+        Map<Integer, String> permissions = new HashMap<>();
+        Map<Integer, int[]> subtreeAncestors = TransactionManager.execute(() -> {
+            List<Permission> granted = permissionDao.findByRoleId(roleId);
+            for (Permission permission : granted) {
+                permissions.put(permission.getId(), permission.getPermissionCode());
+            }
+            return hierarchyDao.findSubtreeAncestors(roleId);
+        });
+        setRole(roleId, permissions, subtreeAncestors);
+    }
+
+    @Override
+    public void onPermissionDeleted(int permissionId) {
+        deletePermission(permissionId);
+    }
+
+    @Override
+    public void onAllGrantsChanged() {
+        reload();
+    }
+
+    private AuthorizationModel delta(AuthorizationModel model, long start) {
+        if (model != current.get()) {
+            publish(model);
+            deltaCount.incrementAndGet();
+            lastDeltaNanos = System.nanoTime() - start;
+        }
+        return model;
+    }
+
+    private void publish(AuthorizationModel model) {
+        current.set(model);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s | 增量更新=%d 最近增量=%.1fus 全量编译=%d 最近全量=%dms",
+                current.get(), deltaCount.get(), lastDeltaNanos / 1e3, reloadCount.get(), lastReloadMillis);
+    }
+}
@@ -0,0 +1,331 @@
+package com.rbac.engine;
+
+import com.rbac.common.PermissionMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 编译后的授权模型 - 把 用户→角色→权限 三张表压缩成基本类型数组，权限校验不需要SQL
+ *
+ * <p><b>结构：</b>
+ * <ul>
+ *   <li>权限编码按权限ID顺序编号为连续的整数下标（{@link #indexOf(String)}）</li>
+ *   <li>每个角色一个位图（{@code long[]}），第 i 位表示拥有下标为 i 的权限；按角色ID直接寻址。
+ *       位图是角色的有效权限：角色自身的权限加上继承的所有祖先角色的权限（由 {@link ModelWriter} 预先合并）</li>
+ *   <li>用户的有效权限是其所有角色位图的按位或。拥有相同角色组合的用户有效权限相同，
+ *       每种角色组合只保存一个位图，用户只记录组合编号（按用户ID直接寻址）</li>
+ * </ul>
+ * 校验 {@link #hasPermission(int, int)} 只有几次数组寻址和一次位运算。
+ *
+ * <p><b>通配授权：</b>编码以 {@code :*} 结尾的权限（如 {@code USER:*}）覆盖该前缀下的所有权限。
+ * 模型中的通配权限编译为一棵前缀树（{@link PermissionMatcher}，标识为权限下标），
+ * 位图中没有该位时沿编码的段向下查找覆盖它的通配权限，逐个检查位图；代价与编码的段数成正比，与权限数无关。
+ * 没有通配权限时前缀树为 null，不增加任何开销。
+ *
+ * <p><b>反向索引：</b>每个角色一个拥有该角色的用户ID集合（压缩位图 {@link IntBitmap}，按角色ID寻址）。
+ * "哪些用户拥有某权限"取拥有该权限的所有角色的用户集合的并集，按用户ID顺序分页读取
+ * （{@link #findUsersWithPermission(String, int, int)}、{@link #findUsersWithRole(int, int, int)}），
+ * 不需要逐个用户判断。
+ *
+ * <p><b>不可变版本：</b>模型创建后不再修改，可以在线程之间无锁共享。授权变更由 {@link ModelWriter}
+ * 生成新版本：各数组都是分块存储（{@link ChunkedIntArray}、{@link ChunkedArray}），
+ * 新版本只复制被修改的块，其余部分与旧版本共享，因此一次变更的内存开销与变更大小成正比，与用户总数无关。
+ * 读取方拿到一个版本后，整个校验过程看到的都是该版本，不会读到半新半旧的数据。
+ *
+ * <p><b>内存：</b>每个用户ID占4字节（ID不连续时空缺的位置同样占用），位图按不同的角色组合计算，
+ * 通常远少于用户数；反向索引每个（用户, 角色）关联约2字节，稠密时更少。{@link #toString()} 输出估算值及每百万用户的占用。
+ *
+ * @author RBAC Team
+ * @see AuthorizationEngine
+ */
+public final class AuthorizationModel {
+
+    static final long[] NO_BITS = new long[0];
+
+    private final long version;
+    private final Map<String, Integer> permissionIndex;
+    private final String[] permissionCodes;
+
+    /** 通配权限的前缀树（标识为权限下标），没有通配权限时为 null */
+    private final PermissionMatcher wildcards;
+
+    /** 按角色ID寻址的有效权限位图（含继承的权限），没有任何权限的角色为 null */
+    final ChunkedArray<long[]> roleBits;
+
+    /** 按角色组合编号寻址的有效权限位图，组合0为空组合 */
+    final ChunkedArray<long[]> comboBits;
+
+    /** 按用户ID寻址的角色组合编号，0 表示没有任何角色 */
+    final ChunkedIntArray userCombo;
+
+    /** 按角色ID寻址的用户集合，没有用户的角色为 null */
+    final ChunkedArray<IntBitmap> roleUsers;
+
+    private final int comboCount;
+    private final int userCount;
+
+    AuthorizationModel(long version, Map<String, Integer> permissionIndex, String[] permissionCodes,
+                       PermissionMatcher wildcards, ChunkedArray<long[]> roleBits, ChunkedArray<long[]> comboBits, int comboCount,
+                       ChunkedIntArray userCombo, int userCount, ChunkedArray<IntBitmap> roleUsers) {
+        this.version = version;
+        this.permissionIndex = permissionIndex;
+        this.permissionCodes = permissionCodes;
+        this.wildcards = wildcards;
+        this.roleBits = roleBits;
+        this.comboBits = comboBits;
+        this.comboCount = comboCount;
+        this.userCombo = userCombo;
+        this.userCount = userCount;
+        this.roleUsers = roleUsers;
+    }
+
+    /**
+     * 从数据库加载并编译授权模型
+     *
+     * <p>三次流式查询放在同一个事务中执行（主库、同一连接），读到的是同一时刻的一致数据
+     */
+    public static AuthorizationModel load() {
+        return ModelWriter.load(0).model();
+    }
+
+    Map<String, Integer> permissionIndex() {
+        return permissionIndex;
+    }
+
+    String[] permissionCodes() {
+        return permissionCodes;
+    }
+
+    PermissionMatcher wildcards() {
+        return wildcards;
+    }
+
+    /**
+     * 编译编码表中的通配权限，没有时返回 null
+     */
+    static PermissionMatcher compileWildcards(Map<String, Integer> permissionIndex) {
+        PermissionMatcher.Builder builder = null;
+        for (Map.Entry<String, Integer> entry : permissionIndex.entrySet()) {
+            if (PermissionMatcher.isWildcard(entry.getKey())) {
+                if (builder == null) {
+                    builder = new PermissionMatcher.Builder();
+                }
+                builder.add(entry.getKey(), entry.getValue());
+            }
+        }
+        return builder == null ? null : builder.build();
+    }
+
+    /**
+     * 权限编码对应的下标，不存在时返回 -1
+     *
+     * <p>热点路径上的固定权限编码可以先换算成下标，之后用 {@link #hasPermission(int, int)} 校验
+     * （下标只在同一个模型版本内有效）
+     */
+    public int indexOf(String permissionCode) {
+        Integer index = permissionIndex.get(permissionCode);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 用户是否拥有指定下标的权限（直接拥有，或拥有覆盖它的通配权限）
+     *
+     * @param userId 用户ID
+     * @param permissionIndex {@link #indexOf(String)} 的返回值，-1 时返回 false
+     */
+    public boolean hasPermission(int userId, int permissionIndex) {
+        if (permissionIndex < 0) {
+            return false;
+        }
+        long[] bits = comboBits.get(userCombo.get(userId));
+        if (isSet(bits, permissionIndex)) {
+            return true;
+        }
+        return wildcards != null && bits != null && bits.length > 0
+                && wildcards.anyMatch(permissionCodes[permissionIndex], index -> isSet(bits, index));
+    }
+
+    /**
+     * 用户是否拥有指定编码的权限
+     *
+     * <p>编码不在模型中（没有创建为权限）时，仍可能被用户拥有的通配权限覆盖
+     */
+    public boolean hasPermission(int userId, String permissionCode) {
+        int index = indexOf(permissionCode);
+        if (index >= 0 || wildcards == null) {
+            return hasPermission(userId, index);
+        }
+        long[] bits = comboBits.get(userCombo.get(userId));
+        return bits != null && bits.length > 0 && wildcards.anyMatch(permissionCode, i -> isSet(bits, i));
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        int word = index >>> 6;
+        return bits != null && word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * 用户的有效权限编码集合（只读）
+     */
+    public Set<String> getPermissions(int userId) {
+        long[] bits = comboBits.get(userCombo.get(userId));
+        if (bits == null || bits.length == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> codes = new HashSet<>();
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                codes.add(permissionCodes[(w << 6) + Long.numberOfTrailingZeros(word)]);
+                word &= word - 1;
+            }
+        }
+        return Collections.unmodifiableSet(codes);
+    }
+
+    /**
+     * 拥有指定权限的用户ID（升序分页），包括经由覆盖它的通配权限拥有的用户
+     *
+     * @param permissionCode 权限编码，不在模型中且没有覆盖它的通配权限时返回空数组
+     * @param afterId 返回大于此值的用户ID，第一页传0
+     * @param limit 最多返回的个数
+     */
+    public int[] findUsersWithPermission(String permissionCode, int afterId, int limit) {
+        return IntBitmap.select(usersOfRolesWith(permissionCode), afterId, limit);
+    }
+
+    /**
+     * 拥有指定权限的用户数
+     */
+    public int countUsersWithPermission(String permissionCode) {
+        return IntBitmap.unionCardinality(usersOfRolesWith(permissionCode));
+    }
+
+    /**
+     * 拥有指定角色的用户ID（升序分页）
+     *
+     * @param roleId 角色ID
+     * @param afterId 返回大于此值的用户ID，第一页传0
+     * @param limit 最多返回的个数
+     */
+    public int[] findUsersWithRole(int roleId, int afterId, int limit) {
+        IntBitmap users = roleUsers.get(roleId);
+        return users == null ? new int[0] : IntBitmap.select(Collections.singletonList(users), afterId, limit);
+    }
+
+    /**
+     * 拥有指定角色的用户数
+     */
+    public int countUsersWithRole(int roleId) {
+        IntBitmap users = roleUsers.get(roleId);
+        return users == null ? 0 : users.cardinality();
+    }
+
+    /**
+     * 权限位图包含该权限或覆盖它的通配权限的所有角色的用户集合（角色数远少于用户数，逐个角色检查位图）
+     */
+    private List<IntBitmap> usersOfRolesWith(String permissionCode) {
+        long[] mask = NO_BITS;
+        int index = indexOf(permissionCode);
+        if (index >= 0) {
+            mask = ModelWriter.setBit(mask, index);
+        }
+        if (wildcards != null) {
+            long[][] covering = {mask};
+            wildcards.forEachMatch(permissionCode, i -> covering[0] = ModelWriter.setBit(covering[0], i));
+            mask = covering[0];
+        }
+        List<IntBitmap> result = new ArrayList<>();
+        if (mask.length == 0) {
+            return result;
+        }
+        for (int roleId = 0; roleId < roleBits.capacity(); roleId++) {
+            long[] bits = roleBits.get(roleId);
+            IntBitmap users;
+            if (bits != null && intersects(bits, mask) && (users = roleUsers.get(roleId)) != null) {
+                result.add(users);
+            }
+        }
+        return result;
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int w = Math.min(a.length, b.length) - 1; w >= 0; w--) {
+            if ((a[w] & b[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 版本号，每次变更加1
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getPermissionCount() {
+        return permissionIndex.size();
+    }
+
+    /**
+     * 拥有至少一个角色的用户数
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * 不同的角色组合数（含空组合），即保存的有效权限位图数
+     */
+    public int getRoleCombinationCount() {
+        return comboCount;
+    }
+
+    /**
+     * 估算占用的堆内存（字节），按64位JVM压缩指针计算；与其他版本共享的部分同样计入
+     */
+    public long estimateBytes() {
+        return userCombo.estimateBytes() + comboBits.estimateBytes(AuthorizationModel::bitsBytes)
+                + roleBits.estimateBytes(AuthorizationModel::bitsBytes) + roleUsers.estimateBytes(IntBitmap::estimateBytes)
+                + codeBytes();
+    }
+
+    /**
+     * 每百万用户的估算字节数：用户ID索引每个4字节，加上所有角色组合的位图
+     * （组合数取决于角色的搭配方式而不是用户数，按当前数量计算），以及按当前用户数折算的反向索引
+     */
+    public long bytesPerMillionUsers() {
+        long reverseIndex = userCount == 0 ? 0
+                : roleUsers.estimateBytes(IntBitmap::estimateBytes) * 1_000_000 / userCount;
+        return 4L * 1_000_000 + comboBits.estimateBytes(AuthorizationModel::bitsBytes) + reverseIndex;
+    }
+
+    private long codeBytes() {
+        long bytes = 16 + 4L * permissionCodes.length;
+        for (String code : permissionCodes) {
+            if (code != null) {
+                // String 对象 + 字符数组，以及 HashMap 中的节点和 Integer
+                bytes += 24 + 16 + 2L * code.length() + 32 + 16;
+            }
+        }
+        return bytes;
+    }
+
+    static long bitsBytes(long[] bits) {
+        return 16 + 8L * bits.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[compiled-model] 版本=%d 权限=%d 有角色的用户=%d 角色组合=%d | 内存≈%.1fMB（每百万用户≈%.1fMB）",
+                version, permissionIndex.size(), userCount, comboCount,
+                estimateBytes() / 1048576.0, bytesPerMillionUsers() / 1048576.0);
+    }
+}
@@ -0,0 +1,114 @@
+package com.rbac.engine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * 不可变的分块引用数组 - 与 {@link ChunkedIntArray} 相同的结构，元素为不可变对象（如位图 {@code long[]}）
+ *
+ * <p>修改一个元素只复制所在的块（{@value #CHUNK_SIZE} 个引用）和块索引，其余块与旧版本共享。
+ * 下标超出长度或未设置时返回 null。
+ *
+ * @param <T> 元素类型，存入后不能再修改
+ * @author RBAC Team
+ */
+final class ChunkedArray<T> {
+
+    static final int SHIFT = 8;
+    static final int CHUNK_SIZE = 1 << SHIFT;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    private static final ChunkedArray<Object> EMPTY = new ChunkedArray<>(new Object[0][]);
+
+    private final Object[][] chunks;
+
+    private ChunkedArray(Object[][] chunks) {
+        this.chunks = chunks;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ChunkedArray<T> empty() {
+        return (ChunkedArray<T>) EMPTY;
+    }
+
+    /**
+     * 由列表构建（复制），下标与列表一致
+     */
+    static <T> ChunkedArray<T> of(List<T> values) {
+        Object[][] chunks = new Object[(values.size() + MASK) >>> SHIFT][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new Object[CHUNK_SIZE];
+            int from = c << SHIFT;
+            int to = Math.min(values.size(), from + CHUNK_SIZE);
+            for (int i = from; i < to; i++) {
+                chunks[c][i - from] = values.get(i);
+            }
+        }
+        return new ChunkedArray<>(chunks);
+    }
+
+    /**
+     * 由普通数组构建（复制），null 元素保持为 null
+     */
+    static <T> ChunkedArray<T> of(T[] values) {
+        return of(Arrays.asList(values));
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        int c = index >>> SHIFT;
+        if (index < 0 || c >= chunks.length) {
+            return null;
+        }
+        Object[] chunk = chunks[c];
+        return chunk == null ? null : (T) chunk[index & MASK];
+    }
+
+    /**
+     * 返回修改了一个元素的新版本，当前对象不变
+     */
+    ChunkedArray<T> with(int index, T value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("index=" + index);
+        }
+        if (get(index) == value) {
+            return this;
+        }
+        int c = index >>> SHIFT;
+        Object[][] spine = Arrays.copyOf(chunks, Math.max(chunks.length, c + 1));
+        Object[] chunk = spine[c] == null ? new Object[CHUNK_SIZE] : spine[c].clone();
+        chunk[index & MASK] = value;
+        spine[c] = chunk;
+        return new ChunkedArray<>(spine);
+    }
+
+    /**
+     * 可寻址的长度（块数 × 块大小）
+     */
+    int capacity() {
+        return chunks.length << SHIFT;
+    }
+
+    /**
+     * 估算占用的字节数
+     *
+     * @param elementBytes 单个元素的字节数
+     */
+    @SuppressWarnings("unchecked")
+    long estimateBytes(ToLongFunction<T> elementBytes) {
+        long bytes = 16 + 4L * chunks.length;
+        for (Object[] chunk : chunks) {
+            if (chunk == null) {
+                continue;
+            }
+            bytes += 16 + 4L * CHUNK_SIZE;
+            for (Object element : chunk) {
+                if (element != null) {
+                    bytes += elementBytes.applyAsLong((T) element);
+                }
+            }
+        }
+        return bytes;
+    }
+}
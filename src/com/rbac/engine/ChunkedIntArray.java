@@ -0,0 +1,93 @@
+package com.rbac.engine;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的分块 int 数组 - 修改一个元素只复制该元素所在的块和块索引，其余块与旧版本共享
+ *
+ * <p>每块 {@value #CHUNK_SIZE} 个元素。修改的代价是一个块（4KB）加上块索引（每块一个引用），
+ * 与数组总长度基本无关：百万个元素时块索引不到4KB。全为0的块不分配（块索引中为 null）。
+ * 下标超出长度的读取返回0，写入时自动扩展。
+ *
+ * @author RBAC Team
+ * @see ChunkedArray
+ */
+final class ChunkedIntArray {
+
+    static final int SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << SHIFT;
+    private static final int MASK = CHUNK_SIZE - 1;
+
+    static final ChunkedIntArray EMPTY = new ChunkedIntArray(new int[0][]);
+
+    private final int[][] chunks;
+
+    private ChunkedIntArray(int[][] chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * 由普通数组构建（复制）
+     */
+    static ChunkedIntArray of(int[] values, int length) {
+        int[][] chunks = new int[(length + MASK) >>> SHIFT][];
+        for (int c = 0; c < chunks.length; c++) {
+            int from = c << SHIFT;
+            int to = Math.min(length, from + CHUNK_SIZE);
+            for (int i = from; i < to; i++) {
+                if (values[i] != 0) {
+                    chunks[c] = Arrays.copyOfRange(values, from, from + CHUNK_SIZE);
+                    break;
+                }
+            }
+        }
+        return new ChunkedIntArray(chunks);
+    }
+
+    int get(int index) {
+        int c = index >>> SHIFT;
+        if (index < 0 || c >= chunks.length) {
+            return 0;
+        }
+        int[] chunk = chunks[c];
+        return chunk == null ? 0 : chunk[index & MASK];
+    }
+
+    /**
+     * 返回修改了一个元素的新版本，当前对象不变
+     */
+    ChunkedIntArray with(int index, int value) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("index=" + index);
+        }
+        int c = index >>> SHIFT;
+        if (get(index) == value) {
+            return this;
+        }
+        int[][] spine = Arrays.copyOf(chunks, Math.max(chunks.length, c + 1));
+        int[] chunk = spine[c] == null ? new int[CHUNK_SIZE] : spine[c].clone();
+        chunk[index & MASK] = value;
+        spine[c] = chunk;
+        return new ChunkedIntArray(spine);
+    }
+
+    /**
+     * 可寻址的长度（块数 × 块大小）
+     */
+    int capacity() {
+        return chunks.length << SHIFT;
+    }
+
+    /**
+     * 估算占用的字节数
+     */
+    long estimateBytes() {
+        long bytes = 16 + 4L * chunks.length;
+        for (int[] chunk : chunks) {
+            if (chunk != null) {
+                bytes += 16 + 4L * CHUNK_SIZE;
+            }
+        }
+        return bytes;
+    }
+}
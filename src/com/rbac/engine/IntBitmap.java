@@ -0,0 +1,397 @@
+package com.rbac.engine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 不可变的压缩整数集合（非负整数，如用户ID）- 按高16位分桶，每桶按密度选择数组或位图存储
+ *
+ * <p><b>结构：</b>整数的高16位作为桶号，低16位存入桶中。一个桶内元素不超过 {@value #ARRAY_MAX} 个时
+ * 保存为有序的 {@code char[]}（每个元素2字节），更多时保存为 65536 位的 {@code long[1024]}（固定8KB）。
+ * 因此稀疏的集合按元素数占用内存，稠密的集合每个元素只占1位，连续的用户ID通常落在少数几个桶中。
+ *
+ * <p><b>不可变版本：</b>{@link #add(int)}、{@link #remove(int)} 返回新集合，只复制被修改的那个桶和桶索引，
+ * 其余桶与旧版本共享，与 {@link ChunkedArray} 一样适合放入 {@link AuthorizationModel} 快照。
+ *
+ * <p><b>按序读取：</b>{@link #select(List, int, int)} 把多个集合的并集按从小到大的顺序、从任意位置开始读取一段，
+ * 逐桶合并：先把各集合同一桶按位或到一个 65536 位的临时位图，再顺序扫描，不需要物化整个并集。
+ *
+ * @author RBAC Team
+ */
+final class IntBitmap {
+
+    static final IntBitmap EMPTY = new IntBitmap(new int[0], new Container[0], 0);
+
+    /** 数组桶的最大元素数，超过后转为位图桶（此时两者大小相同：4096 × 2 字节 = 1024 × 8 字节） */
+    static final int ARRAY_MAX = 4096;
+
+    private static final int BITMAP_WORDS = 1024;
+
+    /** 升序的桶号（高16位） */
+    private final int[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    private IntBitmap(int[] keys, Container[] containers, int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = cardinality;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    boolean contains(int value) {
+        int i = Arrays.binarySearch(keys, value >>> 16);
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    /**
+     * 加入一个元素，返回新集合；已存在时返回本集合
+     */
+    IntBitmap add(int value) {
+        checkValue(value);
+        int key = value >>> 16;
+        int i = Arrays.binarySearch(keys, key);
+        if (i >= 0) {
+            Container updated = containers[i].add((char) value);
+            return updated == containers[i] ? this : replace(i, updated, cardinality + 1);
+        }
+        int at = -i - 1;
+        int[] newKeys = new int[keys.length + 1];
+        Container[] newContainers = new Container[containers.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, at);
+        System.arraycopy(containers, 0, newContainers, 0, at);
+        newKeys[at] = key;
+        newContainers[at] = Container.of((char) value);
+        System.arraycopy(keys, at, newKeys, at + 1, keys.length - at);
+        System.arraycopy(containers, at, newContainers, at + 1, containers.length - at);
+        return new IntBitmap(newKeys, newContainers, cardinality + 1);
+    }
+
+    /**
+     * 移除一个元素，返回新集合；不存在时返回本集合
+     */
+    IntBitmap remove(int value) {
+        if (value < 0) {
+            return this;
+        }
+        int i = Arrays.binarySearch(keys, value >>> 16);
+        if (i < 0) {
+            return this;
+        }
+        Container updated = containers[i].remove((char) value);
+        if (updated == containers[i]) {
+            return this;
+        }
+        if (updated != null) {
+            return replace(i, updated, cardinality - 1);
+        }
+        if (cardinality == 1) {
+            return EMPTY;
+        }
+        int[] newKeys = new int[keys.length - 1];
+        Container[] newContainers = new Container[containers.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, i);
+        System.arraycopy(containers, 0, newContainers, 0, i);
+        System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+        System.arraycopy(containers, i + 1, newContainers, i, containers.length - i - 1);
+        return new IntBitmap(newKeys, newContainers, cardinality - 1);
+    }
+
+    private IntBitmap replace(int i, Container container, int newCardinality) {
+        Container[] copy = containers.clone();
+        copy[i] = container;
+        return new IntBitmap(keys, copy, newCardinality);
+    }
+
+    /**
+     * 估算占用的堆内存（字节）
+     */
+    long estimateBytes() {
+        long bytes = 24 + 16 + 4L * keys.length + 16 + 4L * containers.length;
+        for (Container container : containers) {
+            bytes += container.estimateBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 多个集合的并集中大于 after 的前 limit 个元素（升序）
+     *
+     * @param bitmaps 集合（可以为空列表）
+     * @param after 从大于此值的元素开始，第一页传0（或任意负数）
+     * @param limit 最多返回的元素数
+     */
+    static int[] select(List<IntBitmap> bitmaps, int after, int limit) {
+        if (bitmaps.isEmpty() || limit <= 0 || after == Integer.MAX_VALUE) {
+            return new int[0];
+        }
+        int start = Math.max(0, after + 1);
+        int[] result = new int[Math.min(limit, totalCardinality(bitmaps))];
+        int count = 0;
+        long[] merged = new long[BITMAP_WORDS];
+        int key = start >>> 16;
+        while (count < result.length) {
+            key = nextKey(bitmaps, key);
+            if (key < 0) {
+                break;
+            }
+            Arrays.fill(merged, 0);
+            for (IntBitmap bitmap : bitmaps) {
+                int i = Arrays.binarySearch(bitmap.keys, key);
+                if (i >= 0) {
+                    bitmap.containers[i].orInto(merged);
+                }
+            }
+            int from = key == start >>> 16 ? start & 0xFFFF : 0;
+            int base = key << 16;
+            for (int w = from >>> 6; w < BITMAP_WORDS && count < result.length; w++) {
+                long word = w == from >>> 6 ? merged[w] & (-1L << from) : merged[w];
+                while (word != 0 && count < result.length) {
+                    result[count++] = base | (w << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            key++;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 多个集合的并集大小（逐桶合并计数）
+     */
+    static int unionCardinality(List<IntBitmap> bitmaps) {
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0).cardinality;
+        }
+        int total = 0;
+        long[] merged = new long[BITMAP_WORDS];
+        for (int key = nextKey(bitmaps, 0); key >= 0; key = nextKey(bitmaps, key + 1)) {
+            Arrays.fill(merged, 0);
+            for (IntBitmap bitmap : bitmaps) {
+                int i = Arrays.binarySearch(bitmap.keys, key);
+                if (i >= 0) {
+                    bitmap.containers[i].orInto(merged);
+                }
+            }
+            for (long word : merged) {
+                total += Long.bitCount(word);
+            }
+        }
+        return total;
+    }
+
+    private static int totalCardinality(List<IntBitmap> bitmaps) {
+        long total = 0;
+        for (IntBitmap bitmap : bitmaps) {
+            total += bitmap.cardinality;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 所有集合中不小于 key 的最小桶号，没有时返回 -1
+     */
+    private static int nextKey(List<IntBitmap> bitmaps, int key) {
+        int next = -1;
+        for (IntBitmap bitmap : bitmaps) {
+            int i = Arrays.binarySearch(bitmap.keys, key);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < bitmap.keys.length && (next < 0 || bitmap.keys[i] < next)) {
+                next = bitmap.keys[i];
+            }
+        }
+        return next;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("只能存放非负整数: " + value);
+        }
+    }
+
+    /**
+     * 按升序追加元素构建集合（全量编译时使用）
+     */
+    static final class Builder {
+        private int[] keys = new int[4];
+        private Container[] containers = new Container[4];
+        private int size;
+        private int cardinality;
+
+        private int currentKey = -1;
+        private char[] values = new char[16];
+        private int valueCount;
+        private int last = -1;
+
+        /**
+         * 追加元素，必须大于之前追加的所有元素（重复的忽略）
+         */
+        Builder add(int value) {
+            checkValue(value);
+            if (value <= last) {
+                if (value == last) {
+                    return this;
+                }
+                throw new IllegalArgumentException("元素必须按升序追加: " + value + " <= " + last);
+            }
+            last = value;
+            int key = value >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, valueCount * 2);
+            }
+            values[valueCount++] = (char) value;
+            return this;
+        }
+
+        IntBitmap build() {
+            flush();
+            return cardinality == 0 ? EMPTY
+                    : new IntBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), cardinality);
+        }
+
+        private void flush() {
+            if (valueCount == 0) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+            }
+            keys[size] = currentKey;
+            containers[size] = Container.of(values, valueCount);
+            size++;
+            cardinality += valueCount;
+            valueCount = 0;
+        }
+    }
+
+    /**
+     * 一个桶：低16位的有序数组，或 65536 位的位图（两者之一非空）
+     */
+    private static final class Container {
+        private final char[] array;
+        private final long[] bits;
+        private final int cardinality;
+
+        private Container(char[] array, long[] bits, int cardinality) {
+            this.array = array;
+            this.bits = bits;
+            this.cardinality = cardinality;
+        }
+
+        static Container of(char value) {
+            return new Container(new char[]{value}, null, 1);
+        }
+
+        /**
+         * 由有序数组的前 count 个元素构建，按数量选择存储方式
+         */
+        static Container of(char[] sorted, int count) {
+            if (count <= ARRAY_MAX) {
+                return new Container(Arrays.copyOf(sorted, count), null, count);
+            }
+            long[] bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < count; i++) {
+                bits[sorted[i] >>> 6] |= 1L << sorted[i];
+            }
+            return new Container(null, bits, count);
+        }
+
+        boolean contains(char value) {
+            if (array != null) {
+                return Arrays.binarySearch(array, value) >= 0;
+            }
+            return (bits[value >>> 6] & (1L << value)) != 0;
+        }
+
+        /**
+         * 返回加入元素后的桶，已存在时返回本桶
+         */
+        Container add(char value) {
+            if (array == null) {
+                if ((bits[value >>> 6] & (1L << value)) != 0) {
+                    return this;
+                }
+                long[] copy = bits.clone();
+                copy[value >>> 6] |= 1L << value;
+                return new Container(null, copy, cardinality + 1);
+            }
+            int i = Arrays.binarySearch(array, value);
+            if (i >= 0) {
+                return this;
+            }
+            int at = -i - 1;
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, at);
+            grown[at] = value;
+            System.arraycopy(array, at, grown, at + 1, array.length - at);
+            return of(grown, grown.length);
+        }
+
+        /**
+         * 返回移除元素后的桶：不存在时返回本桶，移除后为空时返回 null
+         */
+        Container remove(char value) {
+            if (!contains(value)) {
+                return this;
+            }
+            if (cardinality == 1) {
+                return null;
+            }
+            if (array != null) {
+                int i = Arrays.binarySearch(array, value);
+                char[] shrunk = new char[array.length - 1];
+                System.arraycopy(array, 0, shrunk, 0, i);
+                System.arraycopy(array, i + 1, shrunk, i, array.length - i - 1);
+                return new Container(shrunk, null, shrunk.length);
+            }
+            if (cardinality - 1 <= ARRAY_MAX) {
+                char[] values = new char[cardinality - 1];
+                int n = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = bits[w];
+                    while (word != 0) {
+                        char v = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                        if (v != value) {
+                            values[n++] = v;
+                        }
+                        word &= word - 1;
+                    }
+                }
+                return new Container(values, null, values.length);
+            }
+            long[] copy = bits.clone();
+            copy[value >>> 6] &= ~(1L << value);
+            return new Container(null, copy, cardinality - 1);
+        }
+
+        void orInto(long[] target) {
+            if (array != null) {
+                for (char value : array) {
+                    target[value >>> 6] |= 1L << value;
+                }
+            } else {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    target[w] |= bits[w];
+                }
+            }
+        }
+
+        long estimateBytes() {
+            return 24 + (array != null ? 16 + 2L * array.length : 16 + 8L * BITMAP_WORDS);
+        }
+    }
+}
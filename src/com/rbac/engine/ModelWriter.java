@@ -0,0 +1,542 @@
+package com.rbac.engine;
+
+import com.rbac.common.PermissionMatcher;
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleHierarchyDao;
+import com.rbac.dao.RolePermissionDao;
+import com.rbac.dao.UserRoleDao;
+import com.rbac.util.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 授权模型的写入端 - 全量编译初始模型，并把单个授权变更做成新的模型版本
+ *
+ * <p>每个变更方法基于当前版本生成一个新版本：只替换受影响的角色位图、角色组合位图、用户条目
+ * 和反向索引中受影响角色的用户集合（只复制其中一个桶），其余部分与旧版本共享（见 {@link AuthorizationModel}）。旧版本不受影响，正在使用旧版本的读取方不会看到中间状态。
+ *
+ * <p>除模型外还维护只供写入端使用的索引：权限ID → 下标、角色组合 → 组合编号、角色 → 包含它的组合。
+ * 这些索引只增不减（删除的权限下标不再复用，不再使用的角色组合保留），数量取决于出现过的权限和角色组合数，与用户数无关。
+ *
+ * <p><b>角色继承：</b>模型中的角色位图是有效权限（自身权限与所有祖先角色的自身权限之并）。写入端另外保存
+ * 每个角色的自身权限位图、祖先列表（取自继承闭包）和反向的后代集合；角色的自身权限变化时只重新合并该角色
+ * 及其后代的位图，继承关系变化时只重新合并受影响子树中的角色（{@link #setRole(int, Map, Map)}）。
+ *
+ * <p>非线程安全，由 {@link AuthorizationEngine} 串行调用。
+ *
+ * @author RBAC Team
+ */
+final class ModelWriter {
+
+    private AuthorizationModel model;
+
+    private final Map<Integer, Integer> permissionIndexById = new HashMap<>();
+    private final Map<RoleSet, Integer> comboIds = new HashMap<>();
+    private final List<int[]> comboRoles = new ArrayList<>();
+    private final Map<Integer, List<Integer>> combosByRole = new HashMap<>();
+
+    /** 角色自身（不含继承）的权限位图 */
+    private final Map<Integer, long[]> ownBits = new HashMap<>();
+    /** 角色的所有祖先（升序），没有祖先的角色不出现 */
+    private final Map<Integer, int[]> ancestorsByRole = new HashMap<>();
+    /** 角色的所有后代，与 ancestorsByRole 互为反向 */
+    private final Map<Integer, Set<Integer>> descendantsByRole = new HashMap<>();
+
+    private ModelWriter() {
+        internCombo(new int[0]);
+    }
+
+    /**
+     * 空模型（没有任何权限和授权）
+     */
+    static ModelWriter empty() {
+        ModelWriter writer = new ModelWriter();
+        writer.model = new AuthorizationModel(0, Collections.emptyMap(), new String[0], null, ChunkedArray.empty(),
+                ChunkedArray.<long[]>empty().with(0, AuthorizationModel.NO_BITS), 1, ChunkedIntArray.EMPTY, 0,
+                ChunkedArray.empty());
+        return writer;
+    }
+
+    /**
+     * 从数据库全量编译（四次流式查询在同一个事务中执行，读到一致的数据）
+     *
+     * @param version 编译结果的版本号
+     */
+    static ModelWriter load(long version) {
+        return TransactionManager.execute(() -> compile(new PermissionDao(), new RolePermissionDao(), new UserRoleDao(),
+                new RoleHierarchyDao(), version));
+    }
+
+    AuthorizationModel model() {
+        return model;
+    }
+
+    private static ModelWriter compile(PermissionDao permissionDao, RolePermissionDao rolePermissionDao,
+                                       UserRoleDao userRoleDao, RoleHierarchyDao hierarchyDao, long version) {
+        ModelWriter writer = new ModelWriter();
+
+        // 1. 权限编码 → 连续下标
+        Map<String, Integer> permissionIndex = new HashMap<>();
+        List<String> codes = new ArrayList<>();
+        permissionDao.forEach(permission -> {
+            int index = codes.size();
+            codes.add(permission.getPermissionCode());
+            permissionIndex.put(permission.getPermissionCode(), index);
+            writer.permissionIndexById.put(permission.getId(), index);
+        });
+
+        // 2. 角色自身的权限位图
+        rolePermissionDao.forEachAssignment((roleId, permissionId) -> {
+            Integer index = writer.permissionIndexById.get(permissionId);
+            if (index != null) {
+                writer.ownBits.put(roleId, setBit(writer.ownBits.get(roleId), index));
+            }
+        });
+
+        // 3. 继承闭包（按后代角色ID排序），合并出有效权限位图（按角色ID寻址）
+        Map<Integer, List<Integer>> closure = new HashMap<>();
+        hierarchyDao.forEachClosure((descendant, ancestor) ->
+                closure.computeIfAbsent(descendant, k -> new ArrayList<>()).add(ancestor));
+        closure.forEach((roleId, ancestors) ->
+                writer.setAncestors(roleId, ancestors.stream().mapToInt(Integer::intValue).sorted().toArray()));
+        Set<Integer> roleIds = new HashSet<>(writer.ownBits.keySet());
+        roleIds.addAll(closure.keySet());
+        List<long[]> roleBits = new ArrayList<>();
+        for (int roleId : roleIds) {
+            while (roleBits.size() <= roleId) {
+                roleBits.add(null);
+            }
+            roleBits.set(roleId, writer.effectiveBits(roleId));
+        }
+        ChunkedArray<long[]> roleBitsArray = ChunkedArray.of(roleBits);
+
+        // 4. 用户的角色组合及每个角色的用户集合：按用户ID顺序读取，同一用户的角色连续出现
+        UserScan scan = new UserScan(writer);
+        userRoleDao.forEachAssignment(scan::accept);
+        scan.flush();
+
+        List<long[]> comboBits = new ArrayList<>(writer.comboRoles.size());
+        for (int[] roles : writer.comboRoles) {
+            comboBits.add(union(roles, roleBitsArray));
+        }
+        writer.model = new AuthorizationModel(version, Collections.unmodifiableMap(permissionIndex),
+                codes.toArray(new String[0]), AuthorizationModel.compileWildcards(permissionIndex), roleBitsArray, ChunkedArray.of(comboBits), writer.comboRoles.size(),
+                ChunkedIntArray.of(scan.userCombo, scan.maxUserId + 1), scan.userCount, scan.roleUsers());
+        return writer;
+    }
+
+    /**
+     * 设置用户的角色（完整列表），返回新版本；没有变化时返回当前版本
+     */
+    AuthorizationModel setUserRoles(int userId, int[] roleIds) {
+        Draft draft = new Draft();
+        draft.setUserCombo(userId, draft.combo(sortedDistinct(roleIds)));
+        return draft.publish();
+    }
+
+    /**
+     * 设置角色自身的权限（完整列表：权限ID → 权限编码），返回新版本；没有变化时返回当前版本
+     *
+     * <p>角色被删除时传入空列表即可：该角色不再贡献任何权限，包含它的角色组合随之更新。
+     * 继承关系不变，该角色及其后代的有效权限重新合并
+     */
+    AuthorizationModel setRolePermissions(int roleId, Map<Integer, String> permissions) {
+        Draft draft = new Draft();
+        ownBits.put(roleId, draft.bitsOf(permissions));
+        Set<Integer> affected = new HashSet<>(descendantsByRole.getOrDefault(roleId, Collections.emptySet()));
+        affected.add(roleId);
+        draft.mergeRoles(affected);
+        return draft.publish();
+    }
+
+    /**
+     * 设置角色自身的权限，并替换该角色及其所有后代的祖先列表（继承关系变化后调用），返回新版本
+     *
+     * <p>重新合并的角色：subtreeAncestors 中的角色，以及变化前该角色的后代（已不再是后代的角色，
+     * 其祖先列表由各自的变更更新）
+     *
+     * @param roleId 角色ID
+     * @param permissions 角色自身的全部权限：权限ID → 权限编码（角色已删除时为空）
+     * @param subtreeAncestors 该角色及其所有后代各自的全部祖先（见 {@link RoleHierarchyDao#findSubtreeAncestors(int)}）
+     */
+    AuthorizationModel setRole(int roleId, Map<Integer, String> permissions, Map<Integer, int[]> subtreeAncestors) {
+        Draft draft = new Draft();
+        ownBits.put(roleId, draft.bitsOf(permissions));
+        Set<Integer> affected = new HashSet<>(descendantsByRole.getOrDefault(roleId, Collections.emptySet()));
+        affected.add(roleId);
+        subtreeAncestors.forEach(this::setAncestors);
+        affected.addAll(subtreeAncestors.keySet());
+        draft.mergeRoles(affected);
+        return draft.publish();
+    }
+
+    /**
+     * 删除权限：从所有角色位图中清除该权限，返回新版本
+     */
+    AuthorizationModel deletePermission(int permissionId) {
+        Integer index = permissionIndexById.remove(permissionId);
+        if (index == null) {
+            return model;
+        }
+        Draft draft = new Draft();
+        draft.removeCode(index);
+        int word = index >>> 6;
+        long mask = 1L << index;
+        ownBits.replaceAll((roleId, bits) -> {
+            if (bits == null || word >= bits.length || (bits[word] & mask) == 0) {
+                return bits;
+            }
+            long[] cleared = bits.clone();
+            cleared[word] &= ~mask;
+            return cleared;
+        });
+        for (int roleId = 0; roleId < model.roleBits.capacity(); roleId++) {
+            long[] bits = model.roleBits.get(roleId);
+            if (bits != null && word < bits.length && (bits[word] & mask) != 0) {
+                long[] cleared = bits.clone();
+                cleared[word] &= ~mask;
+                draft.setRoleBits(roleId, cleared);
+            }
+        }
+        return draft.publish();
+    }
+
+    /**
+     * 替换角色的祖先列表（升序），同时维护反向的后代集合
+     */
+    private void setAncestors(int roleId, int[] ancestors) {
+        int[] previous = ancestors.length == 0 ? ancestorsByRole.remove(roleId) : ancestorsByRole.put(roleId, ancestors);
+        if (previous != null) {
+            for (int ancestor : previous) {
+                Set<Integer> descendants = descendantsByRole.get(ancestor);
+                descendants.remove(roleId);
+                if (descendants.isEmpty()) {
+                    descendantsByRole.remove(ancestor);
+                }
+            }
+        }
+        for (int ancestor : ancestors) {
+            descendantsByRole.computeIfAbsent(ancestor, k -> new HashSet<>()).add(roleId);
+        }
+    }
+
+    /**
+     * 角色的有效权限位图：自身权限与所有祖先的自身权限之并（没有任何权限时为 null）
+     */
+    private long[] effectiveBits(int roleId) {
+        long[] own = ownBits.get(roleId);
+        int[] ancestors = ancestorsByRole.get(roleId);
+        if (ancestors == null) {
+            return own;
+        }
+        long[] result = own == null ? null : own.clone();
+        for (int ancestor : ancestors) {
+            long[] bits = ownBits.get(ancestor);
+            if (bits == null) {
+                continue;
+            }
+            if (result == null) {
+                result = bits.clone();
+                continue;
+            }
+            if (bits.length > result.length) {
+                result = Arrays.copyOf(result, bits.length);
+            }
+            for (int i = 0; i < bits.length; i++) {
+                result[i] |= bits[i];
+            }
+        }
+        return result;
+    }
+
+    private int internCombo(int[] roles) {
+        int id = comboRoles.size();
+        comboRoles.add(roles);
+        comboIds.put(new RoleSet(roles), id);
+        for (int roleId : roles) {
+            combosByRole.computeIfAbsent(roleId, k -> new ArrayList<>()).add(id);
+        }
+        return id;
+    }
+
+    private static long[] union(int[] roles, ChunkedArray<long[]> roleBits) {
+        long[] result = AuthorizationModel.NO_BITS;
+        for (int roleId : roles) {
+            long[] bits = roleBits.get(roleId);
+            if (bits == null) {
+                continue;
+            }
+            if (bits.length > result.length) {
+                result = Arrays.copyOf(result, bits.length);
+            }
+            for (int i = 0; i < bits.length; i++) {
+                result[i] |= bits[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 设置位图中的一位，位图不够长时扩展（返回的可能是新数组）
+     */
+    static long[] setBit(long[] bits, int index) {
+        int word = index >>> 6;
+        if (bits == null || word >= bits.length) {
+            bits = bits == null ? new long[word + 1] : Arrays.copyOf(bits, word + 1);
+        }
+        bits[word] |= 1L << index;
+        return bits;
+    }
+
+    private static int[] sortedDistinct(int[] values) {
+        return Arrays.stream(values).distinct().sorted().toArray();
+    }
+
+    /**
+     * 一次变更的工作副本：从当前版本出发，逐项替换，最后生成新版本
+     */
+    private final class Draft {
+        private Map<String, Integer> permissionIndex = model.permissionIndex();
+        private String[] permissionCodes = model.permissionCodes();
+        private PermissionMatcher wildcards = model.wildcards();
+        private ChunkedArray<long[]> roleBits = model.roleBits;
+        private ChunkedArray<long[]> comboBits = model.comboBits;
+        private ChunkedIntArray userCombo = model.userCombo;
+        private ChunkedArray<IntBitmap> roleUsers = model.roleUsers;
+        private int userCount = model.getUserCount();
+        private boolean changed;
+
+        /**
+         * 权限ID对应的下标，新权限分配新下标（复制编码表）
+         */
+        private int permissionIndex(int permissionId, String code) {
+            Integer index = permissionIndexById.get(permissionId);
+            if (index != null) {
+                return index;
+            }
+            index = permissionCodes.length;
+            permissionCodes = Arrays.copyOf(permissionCodes, index + 1);
+            permissionCodes[index] = code;
+            Map<String, Integer> copy = new HashMap<>(permissionIndex);
+            copy.put(code, index);
+            permissionIndex = Collections.unmodifiableMap(copy);
+            if (PermissionMatcher.isWildcard(code)) {
+                wildcards = AuthorizationModel.compileWildcards(permissionIndex);
+            }
+            permissionIndexById.put(permissionId, index);
+            changed = true;
+            return index;
+        }
+
+        private void removeCode(int index) {
+            String code = permissionCodes[index];
+            if (code != null && Integer.valueOf(index).equals(permissionIndex.get(code))) {
+                Map<String, Integer> copy = new HashMap<>(permissionIndex);
+                copy.remove(code);
+                permissionIndex = Collections.unmodifiableMap(copy);
+                if (PermissionMatcher.isWildcard(code)) {
+                    wildcards = AuthorizationModel.compileWildcards(permissionIndex);
+                }
+                changed = true;
+            }
+        }
+
+        /**
+         * 权限列表对应的位图（新权限分配新下标），没有权限时为 null
+         */
+        private long[] bitsOf(Map<Integer, String> permissions) {
+            long[] bits = null;
+            for (Map.Entry<Integer, String> permission : permissions.entrySet()) {
+                bits = setBit(bits, permissionIndex(permission.getKey(), permission.getValue()));
+            }
+            return bits;
+        }
+
+        /**
+         * 重新合并一组角色的有效权限位图，并重新计算包含其中位图有变化的角色的组合（每个组合只计算一次）
+         */
+        private void mergeRoles(Set<Integer> roleIds) {
+            Set<Integer> combos = new HashSet<>();
+            for (int roleId : roleIds) {
+                long[] bits = effectiveBits(roleId);
+                if (!Arrays.equals(roleBits.get(roleId), bits)) {
+                    roleBits = roleBits.with(roleId, bits);
+                    combos.addAll(combosByRole.getOrDefault(roleId, Collections.emptyList()));
+                    changed = true;
+                }
+            }
+            for (int combo : combos) {
+                comboBits = comboBits.with(combo, union(comboRoles.get(combo), roleBits));
+            }
+        }
+
+        /**
+         * 替换角色位图，并重新计算包含该角色的所有角色组合
+         */
+        private void setRoleBits(int roleId, long[] bits) {
+            if (Arrays.equals(roleBits.get(roleId), bits)) {
+                return;
+            }
+            roleBits = roleBits.with(roleId, bits);
+            for (int combo : combosByRole.getOrDefault(roleId, Collections.emptyList())) {
+                comboBits = comboBits.with(combo, union(comboRoles.get(combo), roleBits));
+            }
+            changed = true;
+        }
+
+        /**
+         * 角色组合的编号，新组合分配编号并计算位图
+         */
+        private int combo(int[] roles) {
+            Integer id = comboIds.get(new RoleSet(roles));
+            if (id != null) {
+                return id;
+            }
+            int created = internCombo(roles);
+            comboBits = comboBits.with(created, union(roles, roleBits));
+            changed = true;
+            return created;
+        }
+
+        private void setUserCombo(int userId, int combo) {
+            int previous = userCombo.get(userId);
+            if (previous == combo) {
+                return;
+            }
+            if (previous == 0) {
+                userCount++;
+            } else if (combo == 0) {
+                userCount--;
+            }
+            userCombo = userCombo.with(userId, combo);
+            moveUser(userId, comboRoles.get(previous), comboRoles.get(combo));
+            changed = true;
+        }
+
+        /**
+         * 更新反向索引：从不再拥有的角色中移除用户，加入新拥有的角色（角色ID均已排序）
+         */
+        private void moveUser(int userId, int[] before, int[] after) {
+            for (int roleId : before) {
+                IntBitmap users = roleUsers.get(roleId);
+                if (Arrays.binarySearch(after, roleId) < 0 && users != null) {
+                    IntBitmap updated = users.remove(userId);
+                    roleUsers = roleUsers.with(roleId, updated.isEmpty() ? null : updated);
+                }
+            }
+            for (int roleId : after) {
+                if (Arrays.binarySearch(before, roleId) < 0) {
+                    IntBitmap users = roleUsers.get(roleId);
+                    roleUsers = roleUsers.with(roleId, (users == null ? IntBitmap.EMPTY : users).add(userId));
+                }
+            }
+        }
+
+        private AuthorizationModel publish() {
+            if (changed) {
+                model = new AuthorizationModel(model.getVersion() + 1, permissionIndex, permissionCodes, wildcards,
+                        roleBits, comboBits, comboRoles.size(), userCombo, userCount, roleUsers);
+            }
+            return model;
+        }
+    }
+
+    /**
+     * 全量编译时逐条接收按用户ID排序的用户-角色关联，为每个用户确定角色组合
+     */
+    private static final class UserScan {
+        private final ModelWriter writer;
+        private int[] userCombo = new int[1024];
+        private int maxUserId = -1;
+        private int userCount;
+        private final List<IntBitmap.Builder> roleUsers = new ArrayList<>();
+
+        private int currentUser = -1;
+        private int[] roles = new int[8];
+        private int roleCount;
+
+        private UserScan(ModelWriter writer) {
+            this.writer = writer;
+        }
+
+        private void accept(int userId, int roleId) {
+            if (userId != currentUser) {
+                flush();
+                currentUser = userId;
+            }
+            if (roleCount == roles.length) {
+                roles = Arrays.copyOf(roles, roleCount * 2);
+            }
+            roles[roleCount++] = roleId;
+        }
+
+        private void flush() {
+            if (currentUser < 0) {
+                return;
+            }
+            int[] set = Arrays.copyOf(roles, roleCount);
+            Integer combo = writer.comboIds.get(new RoleSet(set));
+            if (combo == null) {
+                combo = writer.internCombo(set);
+            }
+            if (currentUser >= userCombo.length) {
+                userCombo = Arrays.copyOf(userCombo, Math.max(currentUser + 1, userCombo.length * 2));
+            }
+            userCombo[currentUser] = combo;
+            for (int roleId : set) {
+                while (roleUsers.size() <= roleId) {
+                    roleUsers.add(null);
+                }
+                if (roleUsers.get(roleId) == null) {
+                    roleUsers.set(roleId, new IntBitmap.Builder());
+                }
+                roleUsers.get(roleId).add(currentUser);
+            }
+            maxUserId = Math.max(maxUserId, currentUser);
+            userCount++;
+            currentUser = -1;
+            roleCount = 0;
+        }
+
+        /**
+         * 各角色的用户集合（按角色ID寻址）
+         */
+        private ChunkedArray<IntBitmap> roleUsers() {
+            List<IntBitmap> built = new ArrayList<>(roleUsers.size());
+            for (IntBitmap.Builder builder : roleUsers) {
+                built.add(builder == null ? null : builder.build());
+            }
+            return ChunkedArray.of(built);
+        }
+    }
+
+    /**
+     * 以内容比较的角色ID集合（已排序），用于合并相同的角色组合
+     */
+    private static final class RoleSet {
+        private final int[] roleIds;
+        private final int hash;
+
+        private RoleSet(int[] roleIds) {
+            this.roleIds = roleIds;
+            this.hash = Arrays.hashCode(roleIds);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RoleSet && Arrays.equals(roleIds, ((RoleSet) o).roleIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
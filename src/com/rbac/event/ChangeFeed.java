@@ -0,0 +1,51 @@
+package com.rbac.event;
+
+import com.rbac.dao.ChangeLogDao;
+import com.rbac.model.GrantChange;
+import com.rbac.util.ConfigUtil;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 授权变更日志的写入端 - {@link GrantEvents} 在通知本节点监听器的同时把变更追加到 grant_change_log 表
+ *
+ * <p>写入使用当前事务的连接，与授权修改一起提交或回滚：其他节点读到日志时修改一定已经可见，
+ * 回滚的修改也不会留下日志。写入失败时抛出异常，整个修改随之回滚。
+ *
+ * <p>节点标识取自 {@code node.id}，未配置时为 JVM 的 {@code pid@主机名}，同一台机器上的多个进程互不相同。
+ * {@code auth.changeFeed.enabled=false} 时不写日志（单节点部署）。
+ *
+ * @author RBAC Team
+ * @see ChangeFeedPoller
+ */
+public final class ChangeFeed {
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("auth.changeFeed.enabled", true);
+    private static final String NODE_ID = ConfigUtil.getString("node.id",
+            ManagementFactory.getRuntimeMXBean().getName());
+
+    private static final ChangeLogDao changeLogDao = new ChangeLogDao();
+
+    private ChangeFeed() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 本节点的标识
+     */
+    public static String nodeId() {
+        return NODE_ID;
+    }
+
+    /**
+     * 追加变更（在修改所在的事务中调用）
+     */
+    static void record(GrantChange.Type type, int... targetIds) {
+        if (ENABLED) {
+            changeLogDao.appendBatch(type, targetIds, NODE_ID, System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.rbac.event;
+
+import com.rbac.dao.ChangeLogDao;
+import com.rbac.model.GrantChange;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.LatencyHistogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 授权变更日志的读取端 - 每个节点一个后台线程，按序号顺序读取 grant_change_log，
+ * 把其他节点写入的变更转发给本节点的 {@link GrantChangeListener}（本节点的变更在提交时已经通知过，跳过）
+ *
+ * <p><b>未提交的序号：</b>序号在插入时分配、事务提交后才可见，读到序号 N 时更小的序号可能还没有提交。
+ * 跳过的序号记为"未决"，之后每次轮询按序号补读；超过 {@code auth.changeFeed.maxStalenessMs} 仍未出现
+ * （事务回滚或自增值被跳过）时放弃，并保守地通知所有授权可能已改变。
+ *
+ * <p><b>不一致时间上限：</b>正常情况下其他节点的变更在一个轮询间隔（{@code auth.changeFeed.pollIntervalMs}）内生效。
+ * 日志连续读取失败超过 {@code auth.changeFeed.maxStalenessMs} 时，每次轮询都通知所有授权可能已改变
+ * （缓存全部失效、重新从数据库加载），因此任何缓存结果都不会比这个上限更旧；恢复后从中断的序号继续读取。
+ *
+ * <p><b>统计：</b>传播延迟（写入节点的提交时间到本节点应用的时间，同一台机器或时钟同步时有意义）、
+ * 轮询次数与失败次数、未决与放弃的序号，见 {@link #toString()}。超过保留时间（{@code auth.changeFeed.retentionHours}）
+ * 的日志由各节点定期删除。
+ *
+ * @author RBAC Team
+ * @see ChangeFeed
+ * @see GrantEvents
+ */
+public class ChangeFeedPoller {
+
+    private static final Logger logger = LogManager.getLogger(ChangeFeedPoller.class);
+
+    /** 启动时检查的最近序号范围（其中尚未提交的序号记为未决） */
+    private static final int STARTUP_WINDOW = 1000;
+
+    /** 最多同时跟踪的未决序号，超出的部分直接放弃 */
+    private static final int MAX_PENDING = 10000;
+
+    private static final long CLEANUP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ChangeLogDao changeLogDao;
+    private final String nodeId;
+    private final Consumer<GrantChange> applier;
+    private final Runnable invalidateAll;
+    private final long pollIntervalMillis;
+    private final long maxStalenessNanos;
+    private final int batchSize;
+    private final long retentionMillis;
+
+    // 以下状态只在持有本对象锁时访问
+    private boolean initialized;
+    private long highestSeq;
+    private final TreeMap<Long, Long> pending = new TreeMap<>();
+    private boolean overflowed;
+    private long lastSuccessNanos = System.nanoTime();
+    private long lastCleanupNanos = System.nanoTime();
+    private ScheduledExecutorService executor;
+
+    private volatile long lastSeq;
+    private volatile int pendingCount;
+    private volatile long lastSuccessMillis = System.currentTimeMillis();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong ownChanges = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong fullInvalidations = new AtomicLong();
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    /**
+     * @param changeLogDao 变更日志
+     * @param nodeId 本节点标识（跳过本节点写入的变更）
+     * @param applier 处理其他节点的一条变更
+     * @param invalidateAll 无法确定哪些授权改变时调用
+     * @param pollIntervalMillis 轮询间隔（毫秒）
+     * @param maxStalenessMillis 不一致时间上限（毫秒），必须大于轮询间隔
+     * @param batchSize 每次最多读取的条数
+     * @param retentionHours 日志保留时间（小时）
+     */
+    public ChangeFeedPoller(ChangeLogDao changeLogDao, String nodeId, Consumer<GrantChange> applier,
+                            Runnable invalidateAll, long pollIntervalMillis, long maxStalenessMillis,
+                            int batchSize, long retentionHours) {
+        if (pollIntervalMillis < 1 || maxStalenessMillis <= pollIntervalMillis || batchSize < 1 || retentionHours < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "变更日志配置不合法: pollIntervalMs=%d maxStalenessMs=%d batchSize=%d retentionHours=%d",
+                    pollIntervalMillis, maxStalenessMillis, batchSize, retentionHours));
+        }
+        this.changeLogDao = changeLogDao;
+        this.nodeId = nodeId;
+        this.applier = applier;
+        this.invalidateAll = invalidateAll;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        this.batchSize = batchSize;
+        this.retentionMillis = TimeUnit.HOURS.toMillis(retentionHours);
+    }
+
+    /**
+     * 进程内共享的轮询器：按配置创建，{@code auth.changeFeed.enabled=true} 时启动后台线程
+     *
+     * <p>由需要跨节点失效的缓存在创建时调用（{@link com.rbac.cache.PermissionCache}、
+     * {@link com.rbac.engine.AuthorizationEngine}）
+     */
+    public static ChangeFeedPoller shared() {
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        private static final ChangeFeedPoller INSTANCE = fromConfig();
+
+        private static ChangeFeedPoller fromConfig() {
+            ChangeFeedPoller poller = new ChangeFeedPoller(new ChangeLogDao(), ChangeFeed.nodeId(),
+                    GrantEvents::deliver, GrantEvents::allGrantsChanged,
+                    ConfigUtil.getLong("auth.changeFeed.pollIntervalMs", 500),
+                    ConfigUtil.getLong("auth.changeFeed.maxStalenessMs", 5000),
+                    ConfigUtil.getInt("auth.changeFeed.batchSize", 1000),
+                    ConfigUtil.getLong("auth.changeFeed.retentionHours", 24));
+            if (ChangeFeed.isEnabled()) {
+                poller.start();
+            }
+            return poller;
+        }
+    }
+
+    /**
+     * 定位到日志末尾并启动后台线程
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        try {
+            initialize();
+        } catch (RuntimeException e) {
+            logger.warn("读取授权变更日志失败，稍后重试: {}", e.getMessage());
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rbac-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::pollOnce, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("授权变更日志轮询已启动: 节点={} 序号={} 间隔={}ms", nodeId, highestSeq, pollIntervalMillis);
+    }
+
+    /**
+     * 停止后台线程
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * 读取一次日志并应用其中的变更（后台线程定期调用，也可以直接调用）
+     */
+    public synchronized void pollOnce() {
+        long now = System.nanoTime();
+        try {
+            if (!initialized) {
+                // 启动时未能定位，期间的变更无从得知
+                initialize();
+                invalidate();
+            }
+            List<Long> recheck = new ArrayList<>(pending.keySet());
+            List<GrantChange> changes = new ArrayList<>(
+                    changeLogDao.findBySeqs(recheck.subList(0, Math.min(recheck.size(), batchSize))));
+            changes.addAll(changeLogDao.findAfter(highestSeq, batchSize));
+            for (GrantChange change : changes) {
+                track(change, now);
+                apply(change);
+            }
+            int before = pending.size();
+            pending.values().removeIf(firstSeen -> now - firstSeen > maxStalenessNanos);
+            if (pending.size() < before || overflowed) {
+                abandoned.addAndGet(before - pending.size());
+                overflowed = false;
+                invalidate();
+            }
+            pendingCount = pending.size();
+            lastSeq = highestSeq;
+            lastSuccessNanos = now;
+            lastSuccessMillis = System.currentTimeMillis();
+            polls.incrementAndGet();
+            cleanup(now);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("读取授权变更日志失败: {}", e.getMessage());
+            if (now - lastSuccessNanos > maxStalenessNanos) {
+                invalidate();
+            }
+        }
+    }
+
+    /**
+     * 从日志末尾开始：最近一段序号中缺失的记为未决，已有的视为已经反映在数据库中（不再通知）
+     */
+    private void initialize() {
+        long max = changeLogDao.maxSeq();
+        highestSeq = Math.max(0, max - STARTUP_WINDOW);
+        long now = System.nanoTime();
+        for (GrantChange change : changeLogDao.findAfter(highestSeq, STARTUP_WINDOW)) {
+            track(change, now);
+        }
+        highestSeq = Math.max(highestSeq, max);
+        lastSeq = highestSeq;
+        initialized = true;
+    }
+
+    /**
+     * 推进已读到的最大序号，中间跳过的序号记为未决；补读到的未决序号移出
+     */
+    private void track(GrantChange change, long now) {
+        long seq = change.getSeq();
+        if (seq > highestSeq) {
+            for (long missing = highestSeq + 1; missing < seq; missing++) {
+                if (pending.size() == MAX_PENDING) {
+                    abandoned.addAndGet(seq - missing);
+                    overflowed = true;
+                    break;
+                }
+                pending.put(missing, now);
+            }
+            highestSeq = seq;
+        } else {
+            pending.remove(seq);
+        }
+    }
+
+    private void apply(GrantChange change) {
+        if (nodeId.equals(change.getNodeId())) {
+            ownChanges.incrementAndGet();
+            return;
+        }
+        applier.accept(change);
+        applied.incrementAndGet();
+        lag.record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - change.getChangedAtMillis()));
+    }
+
+    private void invalidate() {
+        fullInvalidations.incrementAndGet();
+        invalidateAll.run();
+    }
+
+    private void cleanup(long now) {
+        if (now - lastCleanupNanos < CLEANUP_INTERVAL_NANOS) {
+            return;
+        }
+        lastCleanupNanos = now;
+        int deleted = changeLogDao.deleteBefore(System.currentTimeMillis() - retentionMillis);
+        if (deleted > 0) {
+            logger.info("已清理过期的授权变更日志: {} 条", deleted);
+        }
+    }
+
+    /**
+     * 已读到的最大序号
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * 应用的其他节点变更数
+     */
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * 距上次成功读取日志的时间（毫秒）
+     */
+    public long getMillisSinceLastPoll() {
+        return System.currentTimeMillis() - lastSuccessMillis;
+    }
+
+    /**
+     * 传播延迟分布（纳秒）
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[change-feed] 节点=%s 序号=%d 距上次轮询=%dms | 轮询=%d 失败=%d 应用=%d 本节点=%d | "
+                        + "延迟 p50=%.1fms p99=%.1fms 最大=%.1fms | 未决序号=%d 放弃=%d 全部失效=%d",
+                nodeId, lastSeq, getMillisSinceLastPoll(), polls.get(), failures.get(), applied.get(), ownChanges.get(),
+                lag.percentile(50) / 1e6, lag.percentile(99) / 1e6, lag.getMaxNanos() / 1e6,
+                pendingCount, abandoned.get(), fullInvalidations.get());
+    }
+}
@@ -0,0 +1,39 @@
+package com.rbac.event;
+
+/**
+ * 授权变更监听器 - 接收"哪些用户的有效权限可能已经改变"的通知
+ *
+ * <p>通知只在变更提交之后发出（见 {@link GrantEvents}）。本节点的变更在执行变更的线程上同步回调，
+ * 其他节点的变更由 {@link ChangeFeedPoller} 的线程回调；实现应当快速返回且不抛出异常。
+ *
+ * @author RBAC Team
+ * @see GrantEvents
+ */
+public interface GrantChangeListener {
+
+    /**
+     * 用户的角色发生变化（分配角色、移除角色、删除用户）
+     *
+     * @param userId 用户ID
+     */
+    void onUserRolesChanged(int userId);
+
+    /**
+     * 角色的权限发生变化（分配权限、移除权限、删除角色），拥有该角色的所有用户受影响
+     *
+     * @param roleId 角色ID
+     */
+    void onRoleChanged(int roleId);
+
+    /**
+     * 权限被删除，经由任一角色拥有该权限的所有用户受影响
+     *
+     * @param permissionId 权限ID
+     */
+    void onPermissionDeleted(int permissionId);
+
+    /**
+     * 无法确定哪些授权发生了变化（例如变更日志长时间无法读取），所有用户都可能受影响
+     */
+    void onAllGrantsChanged();
+}
@@ -0,0 +1,125 @@
+package com.rbac.event;
+
+import com.rbac.model.GrantChange;
+import com.rbac.util.TransactionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 授权变更通知 - 服务层在修改用户角色、角色权限后调用，转发给已注册的 {@link GrantChangeListener}
+ *
+ * <p>通知通过 {@link TransactionManager#afterCommit(Runnable)} 发出：在事务中调用时等到提交后才通知，
+ * 事务回滚则不通知；不在事务中时立即通知（此时写操作已经自动提交）。
+ * 监听器因此不会在变更可见之前收到通知，也不会收到最终没有生效的变更。
+ *
+ * <p>每个通知同时在当前事务中写入授权变更日志（{@link ChangeFeed}），其他节点的 {@link ChangeFeedPoller}
+ * 读取日志后在该节点上发出同样的通知。因此修改必须在事务中调用本类（服务层的修改方法都在事务中执行），
+ * 否则日志与修改不是原子的。直接修改数据库的变更不会通知，依赖通知的缓存需要自行设置过期时间兜底。
+ *
+ * @author RBAC Team
+ * @see GrantChangeListener
+ */
+public final class GrantEvents {
+
+    private static final Logger logger = LogManager.getLogger(GrantEvents.class);
+
+    private static final List<GrantChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private GrantEvents() {
+    }
+
+    /**
+     * 注册监听器
+     */
+    public static void register(GrantChangeListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * 注销监听器
+     */
+    public static void unregister(GrantChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * 通知：用户的角色发生变化
+     */
+    public static void userRolesChanged(int userId) {
+        ChangeFeed.record(GrantChange.Type.USER, userId);
+        publish(listener -> listener.onUserRolesChanged(userId));
+    }
+
+    /**
+     * 通知：多个用户的角色发生变化（批量导入，变更日志一次批量写入）
+     */
+    public static void usersRolesChanged(int[] userIds) {
+        ChangeFeed.record(GrantChange.Type.USER, userIds);
+        publish(listener -> {
+            for (int userId : userIds) {
+                listener.onUserRolesChanged(userId);
+            }
+        });
+    }
+
+    /**
+     * 通知：角色的权限发生变化或角色被删除
+     */
+    public static void roleChanged(int roleId) {
+        ChangeFeed.record(GrantChange.Type.ROLE, roleId);
+        publish(listener -> listener.onRoleChanged(roleId));
+    }
+
+    /**
+     * 通知：权限被删除
+     */
+    public static void permissionDeleted(int permissionId) {
+        ChangeFeed.record(GrantChange.Type.PERMISSION, permissionId);
+        publish(listener -> listener.onPermissionDeleted(permissionId));
+    }
+
+    private static void publish(Consumer<GrantChangeListener> event) {
+        if (LISTENERS.isEmpty()) {
+            return;
+        }
+        TransactionManager.afterCommit(() -> dispatch(event));
+    }
+
+    /**
+     * 把其他节点的变更转发给本节点的监听器（由 {@link ChangeFeedPoller} 调用，不再写日志）
+     */
+    static void deliver(GrantChange change) {
+        switch (change.getType()) {
+            case USER:
+                dispatch(listener -> listener.onUserRolesChanged(change.getTargetId()));
+                break;
+            case ROLE:
+                dispatch(listener -> listener.onRoleChanged(change.getTargetId()));
+                break;
+            default:
+                dispatch(listener -> listener.onPermissionDeleted(change.getTargetId()));
+                break;
+        }
+    }
+
+    /**
+     * 通知本节点的监听器：所有授权都可能已经改变
+     */
+    static void allGrantsChanged() {
+        dispatch(GrantChangeListener::onAllGrantsChanged);
+    }
+
+    private static void dispatch(Consumer<GrantChangeListener> event) {
+        for (GrantChangeListener listener : LISTENERS) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                logger.error("授权变更通知处理失败: {}", listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.rbac.importer;
+
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleDao;
+import com.rbac.dao.UserDao;
+import com.rbac.util.DBUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 批量导出工具 - 将用户、角色或权限流式导出为 CSV
+ *
+ * <p>用法：{@code BulkExporter <users|roles|permissions> <文件>}。
+ * 数据通过 DAO 的流式查询逐行读取、逐行写出，导出任意规模的表内存占用都保持不变。
+ * 角色和权限的列与 {@link BulkImporter} 的输入格式一致，可以直接导入另一套环境；
+ * 用户只导出 id、username、status、created_at，不导出密码哈希和盐值。
+ *
+ * @author RBAC Team
+ */
+public class BulkExporter {
+
+    public static void main(String[] args) {
+        System.out.println("========================================");
+        System.out.println("   RBAC 批量导出工具");
+        System.out.println("========================================");
+        if (args.length < 2) {
+            System.err.println("用法: BulkExporter <users|roles|permissions> <文件>");
+            System.exit(2);
+        }
+
+        int exitCode = 0;
+        try {
+            Path file = Paths.get(args[1]);
+            long start = System.currentTimeMillis();
+            long rows = export(args[0], file);
+            System.out.printf("✓ 导出完成: %d 行, 耗时 %dms -> %s%n",
+                    rows, System.currentTimeMillis() - start, file.toAbsolutePath());
+        } catch (Exception e) {
+            System.err.println("\n✗ 导出失败: " + e.getMessage());
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * 导出指定类型的数据
+     *
+     * @return 导出的行数
+     */
+    static long export(String type, Path file) throws IOException {
+        long[] rows = {0};
+        try (CsvWriter writer = new CsvWriter(file)) {
+            try {
+                switch (type.toLowerCase()) {
+                    case "users":
+                        writer.writeRow("id", "username", "status", "created_at");
+                        new UserDao().forEach(user -> {
+                            write(writer, user.getId(), user.getUsername(), user.getStatus(), user.getCreatedAt());
+                            rows[0]++;
+                        });
+                        break;
+                    case "roles":
+                        writer.writeRow("role_code", "role_name", "description");
+                        new RoleDao().forEach(role -> {
+                            write(writer, role.getRoleCode(), role.getRoleName(), role.getDescription());
+                            rows[0]++;
+                        });
+                        break;
+                    case "permissions":
+                        writer.writeRow("permission_code", "description");
+                        new PermissionDao().forEach(permission -> {
+                            write(writer, permission.getPermissionCode(), permission.getDescription());
+                            rows[0]++;
+                        });
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的导出类型: " + type);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return rows[0];
+    }
+
+    private static void write(CsvWriter writer, Object... fields) {
+        try {
+            writer.writeRow(fields);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.rbac.importer;
+
+import com.rbac.cache.RbacEpoch;
+import com.rbac.common.PermissionMatcher;
+import com.rbac.dao.BatchResult;
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleDao;
+import com.rbac.dao.RolePermissionDao;
+import com.rbac.dao.UserDao;
+import com.rbac.dao.UserRoleDao;
+import com.rbac.event.GrantEvents;
+import com.rbac.importer.ImportRecordReader.Record;
+import com.rbac.model.Permission;
+import com.rbac.model.Role;
+import com.rbac.model.User;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+import com.rbac.util.PasswordUtil;
+import com.rbac.util.TransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 批量导入工具 - 从 HR 导出的 CSV / JSONL 文件批量导入用户、角色、权限和授权关系
+ *
+ * <p>用法：{@code BulkImporter <类型> <文件> [csv|jsonl]}，格式默认按扩展名推断。各类型需要的列：
+ * <ul>
+ *   <li>{@code users} - username, password, status（可选，0=正常 1=冻结）</li>
+ *   <li>{@code roles} - role_code, role_name, description（可选）</li>
+ *   <li>{@code permissions} - permission_code, description（可选）</li>
+ *   <li>{@code user-roles} - username, role_code</li>
+ *   <li>{@code role-permissions} - role_code, permission_code</li>
+ * </ul>
+ *
+ * <p><b>流水线：</b>读取线程逐行读取文件，每 {@code import.chunkSize} 行为一块；
+ * 用户块的密码哈希在 {@code import.hashThreads} 个线程上并行计算（默认等于CPU核数）；
+ * 准备好的块交给单独的写入线程，在一个事务内通过 DAO 的批量方法写入。
+ * 写入线程处理第 N 块时读取线程已在准备第 N+1 块，任何时刻内存中最多只有两块数据，
+ * 因此导入百万行也只占用固定内存。
+ *
+ * <p>已存在的记录计为重复而不会中断导入；失败和重复的行写入 {@code <文件>.errors.csv}。
+ *
+ * @author RBAC Team
+ */
+public class BulkImporter {
+
+    /**
+     * 导入类型
+     */
+    enum Target {
+        USERS("users"), ROLES("roles"), PERMISSIONS("permissions"),
+        USER_ROLES("user-roles"), ROLE_PERMISSIONS("role-permissions");
+
+        private final String name;
+
+        Target(String name) {
+            this.name = name;
+        }
+
+        static Target of(String name) {
+            for (Target target : values()) {
+                if (target.name.equalsIgnoreCase(name)) {
+                    return target;
+                }
+            }
+            throw new IllegalArgumentException("未知的导入类型: " + name);
+        }
+    }
+
+    private final Target target;
+    private final int chunkSize;
+    private final int hashThreads;
+    private final ImportReport report;
+
+    private final UserDao userDao = new UserDao();
+    private final RoleDao roleDao = new RoleDao();
+    private final PermissionDao permissionDao = new PermissionDao();
+    private final UserRoleDao userRoleDao = new UserRoleDao();
+    private final RolePermissionDao rolePermissionDao = new RolePermissionDao();
+    private final EffectivePermissionDao effectivePermissionDao = new EffectivePermissionDao();
+
+    /** 角色编码、权限编码到ID的缓存，只在写入线程中访问 */
+    private final Map<String, Integer> roleIds = new HashMap<>();
+    private final Map<String, Integer> permissionIds = new HashMap<>();
+
+    private ExecutorService hashPool;
+    private ExecutorService writer;
+
+    BulkImporter(Target target, ImportReport report) {
+        this.target = target;
+        this.report = report;
+        this.chunkSize = Math.max(1, ConfigUtil.getInt("import.chunkSize", 1000));
+        int threads = ConfigUtil.getInt("import.hashThreads", 0);
+        this.hashThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("========================================");
+        System.out.println("   RBAC 批量导入工具");
+        System.out.println("========================================");
+        if (args.length < 2) {
+            System.err.println("用法: BulkImporter <users|roles|permissions|user-roles|role-permissions> <文件> [csv|jsonl]");
+            System.exit(2);
+        }
+
+        int exitCode = 0;
+        try {
+            Target target = Target.of(args[0]);
+            Path file = Paths.get(args[1]);
+            if (!Files.isReadable(file)) {
+                throw new IllegalArgumentException("文件不存在或不可读: " + file.toAbsolutePath());
+            }
+            ImportRecordReader.Format format = args.length > 2
+                    ? ImportRecordReader.Format.valueOf(args[2].toUpperCase())
+                    : ImportRecordReader.Format.fromFileName(file.getFileName().toString());
+            Path errorFile = Paths.get(file + ".errors.csv");
+
+            System.out.println("导入类型: " + target.name + ", 文件: " + file + " (" + format + ")");
+            try (ImportRecordReader reader = new ImportRecordReader(file, format);
+                 ImportReport report = new ImportReport(errorFile,
+                         ConfigUtil.getLong("import.progressIntervalMs", 2000))) {
+                new BulkImporter(target, report).run(reader);
+                System.out.println();
+                System.out.println("✓ 导入完成: " + report.summary());
+                if (report.getDuplicates() + report.getFailed() > 0) {
+                    System.out.println("  重复和失败的行见: " + errorFile.toAbsolutePath());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("\n✗ 导入中止: " + e.getMessage());
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * 执行导入：读取线程准备数据块，写入线程按顺序写入
+     */
+    void run(ImportRecordReader reader) throws Exception {
+        hashPool = Executors.newFixedThreadPool(hashThreads, daemon("rbac-import-hash"));
+        writer = Executors.newSingleThreadExecutor(daemon("rbac-import-writer"));
+        try {
+            List<Record> chunk = new ArrayList<>(chunkSize);
+            Future<?> pendingWrite = null;
+            Record record;
+            while ((record = reader.next()) != null) {
+                report.recordRead();
+                if (record.getError() != null) {
+                    report.recordFailed(record.getLine(), null, record.getError());
+                } else {
+                    chunk.add(record);
+                    if (chunk.size() == chunkSize) {
+                        pendingWrite = submit(chunk, pendingWrite);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                report.maybePrintProgress();
+            }
+            if (!chunk.isEmpty()) {
+                pendingWrite = submit(chunk, pendingWrite);
+            }
+            await(pendingWrite);
+        } finally {
+            hashPool.shutdownNow();
+            writer.shutdownNow();
+        }
+    }
+
+    /**
+     * 准备数据块（在读取线程中，用户块会并行计算哈希），等待上一块写完后提交写入
+     */
+    private Future<?> submit(List<Record> chunk, Future<?> previousWrite) throws Exception {
+        Runnable write;
+        switch (target) {
+            case USERS:
+                write = prepareUsers(chunk);
+                break;
+            case ROLES:
+                write = prepareRoles(chunk);
+                break;
+            case PERMISSIONS:
+                write = preparePermissions(chunk);
+                break;
+            case USER_ROLES:
+                write = prepareUserRoles(chunk);
+                break;
+            default:
+                write = prepareRolePermissions(chunk);
+                break;
+        }
+        await(previousWrite);
+        // 版本号与数据块在同一事务中递增，随数据块一起提交
+        return writer.submit(() -> TransactionManager.run(() -> {
+            write.run();
+            RbacEpoch.shared().bump();
+        }));
+    }
+
+    private static void await(Future<?> future) throws Exception {
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+        }
+    }
+
+    // ==================== 用户 ====================
+
+    private Runnable prepareUsers(List<Record> chunk) throws Exception {
+        List<Record> valid = new ArrayList<>(chunk.size());
+        for (Record record : chunk) {
+            String username = record.get("username");
+            String password = record.get("password");
+            String status = record.get("status");
+            if (username == null || password == null) {
+                report.recordFailed(record.getLine(), username, "缺少 username 或 password");
+            } else if (status != null && !"0".equals(status) && !"1".equals(status)) {
+                report.recordFailed(record.getLine(), username, "status 只能为 0 或 1");
+            } else {
+                String problem = PasswordUtil.checkStrength(password);
+                if (problem != null) {
+                    report.recordFailed(record.getLine(), username, problem);
+                } else {
+                    valid.add(record);
+                }
+            }
+        }
+
+        // 按线程数切片并行计算盐值和哈希
+        List<Callable<List<User>>> slices = new ArrayList<>();
+        int sliceSize = (valid.size() + hashThreads - 1) / Math.max(1, hashThreads);
+        for (int from = 0; from < valid.size(); from += sliceSize) {
+            List<Record> slice = valid.subList(from, Math.min(valid.size(), from + sliceSize));
+            slices.add(() -> {
+                List<User> users = new ArrayList<>(slice.size());
+                for (Record record : slice) {
+                    String salt = PasswordUtil.generateSalt();
+                    String status = record.get("status");
+                    users.add(new User(null, record.get("username"),
+                            PasswordUtil.hashPassword(record.get("password"), salt), salt,
+                            status == null ? 0 : Integer.parseInt(status)));
+                }
+                return users;
+            });
+        }
+        List<User> users = new ArrayList<>(valid.size());
+        for (Future<List<User>> future : hashPool.invokeAll(slices)) {
+            users.addAll(future.get());
+        }
+
+        return () -> reportOutcomes(userDao.insertBatch(users), valid, "username");
+    }
+
+    // ==================== 角色、权限 ====================
+
+    private Runnable prepareRoles(List<Record> chunk) {
+        List<Record> valid = new ArrayList<>(chunk.size());
+        List<Role> roles = new ArrayList<>(chunk.size());
+        for (Record record : chunk) {
+            if (record.get("role_code") == null || record.get("role_name") == null) {
+                report.recordFailed(record.getLine(), record.get("role_code"), "缺少 role_code 或 role_name");
+                continue;
+            }
+            Role role = new Role();
+            role.setRoleCode(record.get("role_code"));
+            role.setRoleName(record.get("role_name"));
+            role.setDescription(record.get("description"));
+            roles.add(role);
+            valid.add(record);
+        }
+        return () -> reportOutcomes(roleDao.insertBatch(roles), valid, "role_code");
+    }
+
+    private Runnable preparePermissions(List<Record> chunk) {
+        List<Record> valid = new ArrayList<>(chunk.size());
+        List<Permission> permissions = new ArrayList<>(chunk.size());
+        for (Record record : chunk) {
+            if (record.get("permission_code") == null) {
+                report.recordFailed(record.getLine(), null, "缺少 permission_code");
+                continue;
+            }
+            if (!PermissionMatcher.isValid(record.get("permission_code"))) {
+                report.recordFailed(record.getLine(), record.get("permission_code"), "通配符 * 只能作为最后一段");
+                continue;
+            }
+            Permission permission = new Permission();
+            permission.setPermissionCode(record.get("permission_code"));
+            permission.setDescription(record.get("description"));
+            permissions.add(permission);
+            valid.add(record);
+        }
+        return () -> reportOutcomes(permissionDao.insertBatch(permissions), valid, "permission_code");
+    }
+
+    // ==================== 授权关系 ====================
+
+    private Runnable prepareUserRoles(List<Record> chunk) {
+        Map<String, List<Record>> byRole = groupBy(chunk, "role_code", "username");
+        return () -> {
+            effectivePermissionDao.lock();
+            Set<String> usernames = new LinkedHashSet<>();
+            for (List<Record> records : byRole.values()) {
+                for (Record record : records) {
+                    usernames.add(record.get("username"));
+                }
+            }
+            Map<String, Integer> userIds = usernames.isEmpty()
+                    ? new HashMap<>() : userDao.findIdsByUsernames(usernames);
+
+            for (Map.Entry<String, List<Record>> entry : byRole.entrySet()) {
+                Integer roleId = resolveRoleId(entry.getKey());
+                List<Record> resolved = resolve(entry.getValue(), roleId, "角色不存在",
+                        "username", userIds, "用户不存在");
+                if (!resolved.isEmpty()) {
+                    int[] resolvedUserIds = ids(resolved, "username", userIds);
+                    BatchResult result = userRoleDao.assignRolesBatch(resolvedUserIds, roleId);
+                    reportOutcomes(result, resolved, "username");
+                    effectivePermissionDao.refreshUsers(resolvedUserIds);
+                    GrantEvents.usersRolesChanged(resolvedUserIds);
+                }
+            }
+        };
+    }
+
+    private Runnable prepareRolePermissions(List<Record> chunk) {
+        Map<String, List<Record>> byRole = groupBy(chunk, "role_code", "permission_code");
+        return () -> {
+            effectivePermissionDao.lock();
+            for (Map.Entry<String, List<Record>> entry : byRole.entrySet()) {
+                Integer roleId = resolveRoleId(entry.getKey());
+                for (Record record : entry.getValue()) {
+                    resolvePermissionId(record.get("permission_code"));
+                }
+                List<Record> resolved = resolve(entry.getValue(), roleId, "角色不存在",
+                        "permission_code", permissionIds, "权限不存在");
+                if (!resolved.isEmpty()) {
+                    int[] resolvedPermissionIds = ids(resolved, "permission_code", permissionIds);
+                    BatchResult result = rolePermissionDao.assignPermissionsBatch(roleId, resolvedPermissionIds);
+                    reportOutcomes(result, resolved, "permission_code");
+                    effectivePermissionDao.grant(roleId, resolvedPermissionIds);
+                    GrantEvents.roleChanged(roleId);
+                }
+            }
+        };
+    }
+
+    /**
+     * 按分组列分组，缺少任一列的行直接计为失败
+     */
+    private Map<String, List<Record>> groupBy(List<Record> chunk, String groupColumn, String memberColumn) {
+        Map<String, List<Record>> groups = new LinkedHashMap<>();
+        for (Record record : chunk) {
+            String group = record.get(groupColumn);
+            if (group == null || record.get(memberColumn) == null) {
+                report.recordFailed(record.getLine(), group, "缺少 " + groupColumn + " 或 " + memberColumn);
+                continue;
+            }
+            groups.computeIfAbsent(group, k -> new ArrayList<>()).add(record);
+        }
+        return groups;
+    }
+
+    /**
+     * 筛出角色和成员都能解析为ID的行，其余计为失败
+     */
+    private List<Record> resolve(List<Record> records, Integer roleId, String roleMissing,
+                                 String memberColumn, Map<String, Integer> memberIds, String memberMissing) {
+        List<Record> resolved = new ArrayList<>(records.size());
+        for (Record record : records) {
+            String member = record.get(memberColumn);
+            if (roleId == null) {
+                report.recordFailed(record.getLine(), member, roleMissing + ": " + record.get("role_code"));
+            } else if (!memberIds.containsKey(member)) {
+                report.recordFailed(record.getLine(), member, memberMissing);
+            } else {
+                resolved.add(record);
+            }
+        }
+        return resolved;
+    }
+
+    private static int[] ids(List<Record> records, String column, Map<String, Integer> idMap) {
+        int[] ids = new int[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idMap.get(records.get(i).get(column));
+        }
+        return ids;
+    }
+
+    private Integer resolveRoleId(String roleCode) {
+        Integer id = roleIds.get(roleCode);
+        if (id == null) {
+            Role role = roleDao.findByCode(roleCode);
+            if (role != null) {
+                id = role.getId();
+                roleIds.put(roleCode, id);
+            }
+        }
+        return id;
+    }
+
+    private void resolvePermissionId(String permissionCode) {
+        if (!permissionIds.containsKey(permissionCode)) {
+            Permission permission = permissionDao.findByCode(permissionCode);
+            if (permission != null) {
+                permissionIds.put(permissionCode, permission.getId());
+            }
+        }
+    }
+
+    /**
+     * 把批量写入结果按行号计入报告
+     */
+    private void reportOutcomes(BatchResult result, List<Record> records, String keyColumn) {
+        for (int i = 0; i < result.size(); i++) {
+            Record record = records.get(i);
+            switch (result.getOutcome(i)) {
+                case INSERTED:
+                    report.recordInserted();
+                    break;
+                case DUPLICATE:
+                    report.recordDuplicate(record.getLine(), record.get(keyColumn));
+                    break;
+                default:
+                    report.recordFailed(record.getLine(), record.get(keyColumn), result.getError(i));
+                    break;
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
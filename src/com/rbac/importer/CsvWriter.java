@@ -0,0 +1,51 @@
+package com.rbac.importer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * CSV 写入器 - 导出文件和导入错误文件共用，转义规则与 {@link ImportRecordReader} 的读取规则一致
+ *
+ * <p>包含逗号或双引号的字段用双引号包裹，字段内的双引号写成两个；换行替换为空格（读取端不支持字段内换行）。
+ *
+ * @author RBAC Team
+ */
+class CsvWriter implements Closeable {
+
+    private final BufferedWriter writer;
+
+    CsvWriter(Path path) throws IOException {
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写入一行，null 写为空字段
+     */
+    void writeRow(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(fields[i] == null ? null : String.valueOf(fields[i])));
+        }
+        writer.newLine();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        String oneLine = value.replace('\r', ' ').replace('\n', ' ');
+        return oneLine.contains(",") || oneLine.contains("\"")
+                ? "\"" + oneLine.replace("\"", "\"\"") + "\"" : oneLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
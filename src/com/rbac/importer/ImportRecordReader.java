@@ -0,0 +1,286 @@
+package com.rbac.importer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导入文件读取器 - 逐行流式读取 CSV 或 JSONL 文件
+ *
+ * <p>每次只在内存中保留当前一行，文件大小不影响内存占用。
+ * <ul>
+ *   <li><b>CSV：</b>第一行为列名；字段可用双引号包裹，引号内的 {@code ""} 表示一个双引号；不支持字段内换行</li>
+ *   <li><b>JSONL：</b>每行一个扁平 JSON 对象，值可以是字符串、数字、布尔值或 null</li>
+ * </ul>
+ * 空行会被跳过。格式错误的行不会中断读取，而是返回带错误信息的记录，由调用方计入失败。
+ *
+ * @author RBAC Team
+ */
+public class ImportRecordReader implements Closeable {
+
+    /**
+     * 文件格式
+     */
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * 根据文件扩展名推断格式（.jsonl / .json 为 JSONL，其余为 CSV）
+         */
+        public static Format fromFileName(String fileName) {
+            String lower = fileName.toLowerCase();
+            return lower.endsWith(".jsonl") || lower.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    /**
+     * 一条导入记录
+     */
+    public static final class Record {
+        private final long line;
+        private final Map<String, String> fields;
+        private final String error;
+
+        private Record(long line, Map<String, String> fields, String error) {
+            this.line = line;
+            this.fields = fields;
+            this.error = error;
+        }
+
+        /** 记录所在的行号（从1开始） */
+        public long getLine() {
+            return line;
+        }
+
+        /** 读取字段值，字段不存在或为空白时返回 null */
+        public String get(String column) {
+            String value = fields.get(column);
+            return value == null || value.trim().isEmpty() ? null : value.trim();
+        }
+
+        /** 解析错误信息，正常记录返回 null */
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private List<String> header;
+    private long lineNumber;
+
+    public ImportRecordReader(Path path, Format format) throws IOException {
+        this.reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        this.format = format;
+        if (format == Format.CSV) {
+            String first = nextNonEmptyLine();
+            if (first == null) {
+                throw new IOException("CSV 文件为空，缺少列名行: " + path);
+            }
+            if (first.startsWith("\uFEFF")) {
+                first = first.substring(1);
+            }
+            this.header = new ArrayList<>();
+            for (String column : splitCsv(first)) {
+                header.add(column.trim());
+            }
+        }
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 下一条记录，文件结束时返回 null
+     * @throws IOException 当读取文件失败时
+     */
+    public Record next() throws IOException {
+        String line = nextNonEmptyLine();
+        if (line == null) {
+            return null;
+        }
+        try {
+            return new Record(lineNumber, format == Format.CSV ? parseCsv(line) : parseJson(line), null);
+        } catch (IllegalArgumentException e) {
+            return new Record(lineNumber, new LinkedHashMap<>(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String nextNonEmptyLine() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!line.trim().isEmpty()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    // ==================== CSV ====================
+
+    private Map<String, String> parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("字段数(" + values.size() + ")多于列名数(" + header.size() + ")");
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i), values.get(i));
+        }
+        return fields;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("引号未闭合");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // ==================== JSONL ====================
+
+    private static Map<String, String> parseJson(String line) {
+        JsonCursor cursor = new JsonCursor(line);
+        Map<String, String> fields = new LinkedHashMap<>();
+        cursor.expect('{');
+        if (!cursor.tryConsume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                fields.put(key, cursor.readValue());
+            } while (cursor.tryConsume(','));
+            cursor.expect('}');
+        }
+        cursor.expectEnd();
+        return fields;
+    }
+
+    /**
+     * 只支持扁平对象的最小 JSON 解析器
+     */
+    private static final class JsonCursor {
+        private final String text;
+        private int pos;
+
+        private JsonCursor(String text) {
+            this.text = text;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean tryConsume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!tryConsume(c)) {
+                throw new IllegalArgumentException("JSON 格式错误：第" + (pos + 1) + "个字符处应为 '" + c + "'");
+            }
+        }
+
+        private void expectEnd() {
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw new IllegalArgumentException("JSON 格式错误：对象结束后还有多余内容");
+            }
+        }
+
+        private String readValue() {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return readString();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos).trim();
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw new IllegalArgumentException("JSON 格式错误：只支持字符串、数字、布尔值和 null");
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("JSON 格式错误：\\u 转义不完整");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(escaped); break;
+                }
+            }
+            throw new IllegalArgumentException("JSON 格式错误：字符串未闭合");
+        }
+    }
+}
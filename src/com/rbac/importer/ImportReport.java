@@ -0,0 +1,116 @@
+package com.rbac.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 导入报告 - 统计每行的处理结果，定期输出进度和吞吐量
+ *
+ * <p>失败和重复的行逐条写入错误文件（CSV：行号、结果、键、原因），控制台只显示前
+ * {@value #CONSOLE_ERROR_LIMIT} 条，因此错误再多也不会占用额外内存。
+ *
+ * <p>读取计数由读取线程更新，其余计数由写入线程更新（失败在两边都可能发生，相关方法加锁），
+ * 进度在读取线程中输出，因此计数字段使用 volatile。
+ *
+ * @author RBAC Team
+ */
+public class ImportReport implements Closeable {
+
+    private static final int CONSOLE_ERROR_LIMIT = 10;
+
+    private final Path errorFile;
+    private final CsvWriter errorWriter;
+    private final long progressIntervalMs;
+    private final long startNanos = System.nanoTime();
+
+    private volatile long read;
+    private volatile long inserted;
+    private volatile long duplicates;
+    private volatile long failed;
+    private long lastProgressAt = System.currentTimeMillis();
+    private int consoleErrors;
+
+    public ImportReport(Path errorFile, long progressIntervalMs) throws IOException {
+        this.errorFile = errorFile;
+        this.errorWriter = new CsvWriter(errorFile);
+        this.progressIntervalMs = progressIntervalMs;
+        errorWriter.writeRow("line", "outcome", "key", "reason");
+    }
+
+    /** 读取线程：已读取一行 */
+    void recordRead() {
+        read++;
+    }
+
+    /** 写入线程：一行插入成功 */
+    void recordInserted() {
+        inserted++;
+    }
+
+    /** 写入线程：一行已存在，跳过 */
+    synchronized void recordDuplicate(long line, String key) {
+        duplicates++;
+        writeError(line, "DUPLICATE", key, "已存在");
+    }
+
+    /** 读取线程或写入线程：一行失败 */
+    synchronized void recordFailed(long line, String key, String reason) {
+        failed++;
+        writeError(line, "FAILED", key, reason);
+        if (consoleErrors < CONSOLE_ERROR_LIMIT) {
+            consoleErrors++;
+            System.err.println("  ✗ 第" + line + "行" + (key != null ? " [" + key + "]" : "") + ": " + reason);
+        }
+    }
+
+    private void writeError(long line, String outcome, String key, String reason) {
+        try {
+            errorWriter.writeRow(line, outcome, key, reason);
+        } catch (IOException e) {
+            throw new RuntimeException("写入错误文件失败: " + errorFile, e);
+        }
+    }
+
+    /**
+     * 距上次输出超过进度间隔时打印一行进度
+     */
+    void maybePrintProgress() {
+        long now = System.currentTimeMillis();
+        if (now - lastProgressAt >= progressIntervalMs) {
+            lastProgressAt = now;
+            System.out.println("  进度: " + summary());
+        }
+    }
+
+    /**
+     * 当前统计摘要
+     */
+    public String summary() {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        long done = inserted + duplicates + failed;
+        return String.format("已读取=%d 已处理=%d 插入=%d 重复=%d 失败=%d 耗时=%.1fs 吞吐=%.0f 行/秒",
+                read, done, inserted, duplicates, failed, seconds, seconds > 0 ? done / seconds : 0);
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public Path getErrorFile() {
+        return errorFile;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        errorWriter.close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.rbac.model;
+
+/**
+ * 授权变更日志条目（grant_change_log 表的一行）
+ *
+ * <p>只记录"哪个对象变了"，不记录变更内容：收到条目的节点使本地缓存中与该对象有关的部分失效，再从数据库重新加载。
+ *
+ * @author RBAC Team
+ * @see com.rbac.event.ChangeFeedPoller
+ */
+public final class GrantChange {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+        /** 用户的角色发生变化（分配、移除角色或删除用户），目标为用户ID */
+        USER,
+        /** 角色的权限发生变化或角色被删除，目标为角色ID */
+        ROLE,
+        /** 权限被删除，目标为权限ID */
+        PERMISSION
+    }
+
+    private final long seq;
+    private final Type type;
+    private final int targetId;
+    private final String nodeId;
+    private final long changedAtMillis;
+
+    public GrantChange(long seq, Type type, int targetId, String nodeId, long changedAtMillis) {
+        this.seq = seq;
+        this.type = type;
+        this.targetId = targetId;
+        this.nodeId = nodeId;
+        this.changedAtMillis = changedAtMillis;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getTargetId() {
+        return targetId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getChangedAtMillis() {
+        return changedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "GrantChange{seq=" + seq + ", type=" + type + ", targetId=" + targetId + ", nodeId='" + nodeId + "'}";
+    }
+}
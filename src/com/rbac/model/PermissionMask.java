@@ -0,0 +1,138 @@
+package com.rbac.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 批量权限校验的结果 - 与输入的权限编码按顺序对齐的位掩码
+ *
+ * <p>第 i 位对应输入中的第 i 个权限编码（重复的编码各占一位），{@link #toLongArray()} 可以直接序列化给前端或网关。
+ * 结果创建后不可变。
+ *
+ * @author RBAC Team
+ * @see com.rbac.service.AuthService#filterPermitted(Collection)
+ */
+public final class PermissionMask {
+
+    private final List<String> codes;
+    private final long[] bits;
+    private final int permittedCount;
+
+    private PermissionMask(List<String> codes, long[] bits) {
+        this.codes = codes;
+        this.bits = bits;
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        this.permittedCount = count;
+    }
+
+    /**
+     * 按输入顺序逐个判断权限编码
+     *
+     * @param permissionCodes 权限编码（按迭代顺序编号）
+     * @param granted 判断单个权限编码是否已授予
+     */
+    public static PermissionMask evaluate(Collection<String> permissionCodes, Predicate<String> granted) {
+        List<String> codes = Collections.unmodifiableList(new ArrayList<>(permissionCodes));
+        long[] bits = new long[(codes.size() + 63) >>> 6];
+        for (int i = 0; i < codes.size(); i++) {
+            if (granted.test(codes.get(i))) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return new PermissionMask(codes, bits);
+    }
+
+    /**
+     * 全部未授予的结果（如未登录）
+     */
+    public static PermissionMask none(Collection<String> permissionCodes) {
+        List<String> codes = Collections.unmodifiableList(new ArrayList<>(permissionCodes));
+        return new PermissionMask(codes, new long[(codes.size() + 63) >>> 6]);
+    }
+
+    /**
+     * 输入的权限编码个数
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * 输入的第 index 个权限编码是否已授予
+     */
+    public boolean isPermitted(int index) {
+        if (index < 0 || index >= codes.size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + codes.size());
+        }
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * 指定的权限编码是否已授予（不在输入中时返回 false）
+     */
+    public boolean isPermitted(String permissionCode) {
+        int index = codes.indexOf(permissionCode);
+        return index >= 0 && isPermitted(index);
+    }
+
+    /**
+     * 是否全部已授予（输入为空时返回 true）
+     */
+    public boolean allPermitted() {
+        return permittedCount == codes.size();
+    }
+
+    /**
+     * 是否至少有一个已授予
+     */
+    public boolean anyPermitted() {
+        return permittedCount > 0;
+    }
+
+    public int getPermittedCount() {
+        return permittedCount;
+    }
+
+    /**
+     * 输入的权限编码（只读，按输入顺序）
+     */
+    public List<String> getCodes() {
+        return codes;
+    }
+
+    /**
+     * 已授予的权限编码（按输入顺序）
+     */
+    public List<String> getPermittedCodes() {
+        List<String> permitted = new ArrayList<>(permittedCount);
+        for (int i = 0; i < codes.size(); i++) {
+            if (isPermitted(i)) {
+                permitted.add(codes.get(i));
+            }
+        }
+        return permitted;
+    }
+
+    /**
+     * 位掩码副本：第 i 位（{@code words[i >>> 6] & (1L << i)}）对应输入的第 i 个权限编码
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(bits, bits.length);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder mask = new StringBuilder(codes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            mask.append(isPermitted(i) ? '1' : '0');
+        }
+        return "PermissionMask{" + permittedCount + "/" + codes.size() + ", mask=" + mask + "}";
+    }
+}
@@ -0,0 +1,106 @@
+package com.rbac.model;
+
+import com.rbac.common.PermissionMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户授权快照 - 某一时刻用户拥有的角色和（经由这些角色获得的）有效权限
+ *
+ * <p>本类不对应单独的表，是 user_roles、role_closure、role_permissions、permissions 关联的查询结果，
+ * 角色包括直接分配的角色及其继承的所有祖先角色。创建后不可修改，可以在线程之间共享。除权限编码外还保留角色ID和权限ID，
+ * 供缓存判断某个角色或权限的变更是否影响该用户。
+ *
+ * <p>权限中的通配授权（如 {@code USER:*}，见 {@link PermissionMatcher}）在创建时编译为前缀树，
+ * {@link #matches(String)} 先查精确编码，再沿前缀树走一条路径，代价与编码的段数成正比，与授权数无关。
+ *
+ * @author RBAC Team
+ * @see com.rbac.dao.PermissionDao#findGrantsByUserId(int)
+ * @see com.rbac.cache.PermissionCache
+ */
+public final class UserGrants {
+
+    /** 角色ID（直接分配的角色及其祖先角色，升序） */
+    private final int[] roleIds;
+
+    /** 权限ID（升序） */
+    private final int[] permissionIds;
+
+    /** 权限编码（只读） */
+    private final Set<String> permissionCodes;
+
+    /** 通配授权的前缀树，没有通配授权时为 null */
+    private final PermissionMatcher wildcards;
+
+    /**
+     * @param roleIds 用户拥有的角色ID（包括继承的祖先角色）
+     * @param permissions 有效权限：权限ID → 权限编码
+     */
+    public UserGrants(Collection<Integer> roleIds, Map<Integer, String> permissions) {
+        this.roleIds = sortedArray(roleIds);
+        this.permissionIds = sortedArray(permissions.keySet());
+        this.permissionCodes = Collections.unmodifiableSet(new HashSet<>(permissions.values()));
+        this.wildcards = compileWildcards(this.permissionCodes);
+    }
+
+    private static PermissionMatcher compileWildcards(Set<String> codes) {
+        List<String> patterns = new ArrayList<>();
+        for (String code : codes) {
+            if (PermissionMatcher.isWildcard(code)) {
+                patterns.add(code);
+            }
+        }
+        return patterns.isEmpty() ? null : PermissionMatcher.of(patterns);
+    }
+
+    private static int[] sortedArray(Collection<Integer> ids) {
+        int[] array = new int[ids.size()];
+        int i = 0;
+        for (Integer id : ids) {
+            array[i++] = id;
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * 有效权限编码集合（只读）
+     */
+    public Set<String> getPermissionCodes() {
+        return permissionCodes;
+    }
+
+    /**
+     * 是否拥有指定角色（直接分配或经由继承）
+     */
+    public boolean hasRole(int roleId) {
+        return Arrays.binarySearch(roleIds, roleId) >= 0;
+    }
+
+    /**
+     * 是否（经由任一角色）拥有指定权限
+     */
+    public boolean hasPermission(int permissionId) {
+        return Arrays.binarySearch(permissionIds, permissionId) >= 0;
+    }
+
+    /**
+     * 是否拥有指定权限编码：与某个权限编码相等，或被某个通配授权覆盖
+     */
+    public boolean matches(String permissionCode) {
+        return permissionCodes.contains(permissionCode)
+                || (wildcards != null && wildcards.matches(permissionCode));
+    }
+
+    @Override
+    public String toString() {
+        return "UserGrants{roleIds=" + Arrays.toString(roleIds) + ", permissionCodes=" + permissionCodes + "}";
+    }
+}
@@ -0,0 +1,96 @@
+package com.rbac.service;
+
+import com.rbac.dao.Page;
+import com.rbac.model.Permission;
+import com.rbac.model.PermissionMask;
+import com.rbac.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步认证服务接口
+ * 
+ * <p>与 {@link AuthService} 对应的非阻塞版本：方法立即返回 {@link CompletableFuture}，
+ * 数据库访问在专用的有界线程池上执行。身份不通过会话上下文传递，
+ * 需要身份的方法由调用方显式传入 {@link #login(String, String)} 返回的用户对象。
+ * <p>失败时 Future 以原有的异常（AuthenticationException、PermissionDeniedException 等）完成
+ */
+public interface AsyncAuthService {
+    
+    /**
+     * 用户登录（验证用户名密码，不建立会话）
+     * @param username 用户名
+     * @param password 密码
+     * @return 登录成功的用户对象，后续调用时作为 principal 传入
+     */
+    CompletableFuture<User> login(String username, String password);
+    
+    /**
+     * 用户登出（记录登出日志）
+     * @param principal 登录用户
+     */
+    CompletableFuture<Void> logout(User principal);
+    
+    /**
+     * 检查用户是否拥有指定权限
+     * @param principal 登录用户，null 时结果为 false
+     * @param permissionCode 权限编码
+     * @return 是否拥有权限
+     */
+    CompletableFuture<Boolean> hasPermission(User principal, String permissionCode);
+    
+    /**
+     * 检查权限，无权限时 Future 以 PermissionDeniedException 失败
+     * @param principal 登录用户
+     * @param permissionCode 权限编码
+     */
+    CompletableFuture<Void> checkPermission(User principal, String permissionCode);
+    
+    /**
+     * 检查用户是否拥有全部指定权限
+     * @param principal 登录用户，null 时结果为 false
+     * @param permissionCodes 权限编码
+     */
+    CompletableFuture<Boolean> hasAllPermissions(User principal, Collection<String> permissionCodes);
+    
+    /**
+     * 检查用户是否拥有任一指定权限
+     * @param principal 登录用户，null 时结果为 false
+     * @param permissionCodes 权限编码
+     */
+    CompletableFuture<Boolean> hasAnyPermission(User principal, Collection<String> permissionCodes);
+    
+    /**
+     * 批量检查权限
+     * @param principal 登录用户，null 时全部为未授予
+     * @param permissionCodes 权限编码
+     * @return 与输入顺序对齐的结果
+     */
+    CompletableFuture<PermissionMask> filterPermitted(User principal, Collection<String> permissionCodes);
+    
+    /**
+     * 获取用户的所有权限
+     * @param userId 用户ID
+     * @return 权限编码集合
+     */
+    CompletableFuture<Set<String>> getUserPermissions(int userId);
+    
+    /**
+     * 获取用户的所有权限详情（包含权限描述）
+     * @param userId 用户ID
+     * @return 权限对象列表
+     */
+    CompletableFuture<List<Permission>> getUserPermissionDetails(int userId);
+    
+    /**
+     * 分页查询拥有指定权限的用户
+     * @param permissionCode 权限编码
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数
+     * @return 一页用户
+     */
+    CompletableFuture<Page<User>> findUsersWithPermission(String permissionCode, int afterId, int limit);
+}
@@ -1,8 +1,11 @@
 package com.rbac.service;
 
+import com.rbac.dao.Page;
 import com.rbac.model.Permission;
+import com.rbac.model.PermissionMask;
 import com.rbac.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -19,6 +22,15 @@ public interface AuthService {
      */
     User login(String username, String password);
     
+    /**
+     * 验证用户名密码，不建立会话
+     * <p>供调用方自行管理身份的场景使用（如异步接口），会话信息由调用方显式传递
+     * @param username 用户名
+     * @param password 密码
+     * @return 验证通过的用户对象
+     */
+    User authenticate(String username, String password);
+    
     /**
      * 用户登出
      */
@@ -31,17 +43,45 @@ public interface AuthService {
     
     /**
      * 检查用户是否拥有指定权限
+     * 
+     * <p>授予的权限可以是通配授权：{@code USER:*} 覆盖 {@code USER:} 开头的所有权限编码，
+     * {@code *} 覆盖所有权限（见 {@link com.rbac.common.PermissionMatcher}）
+     * 
      * @param permissionCode 权限编码
-     * @return 是否拥有权限
+     * @return 是否拥有权限（直接授予或被通配授权覆盖）
      */
     boolean hasPermission(String permissionCode);
     
     /**
      * 检查权限，无权限时抛出异常
+     * 
+     * <p>与 {@link #hasPermission(String)} 相同，通配授权同样生效
+     * 
      * @param permissionCode 权限编码
      */
     void checkPermission(String permissionCode);
     
+    /**
+     * 检查用户是否拥有全部指定权限（只解析一次用户的有效权限）
+     * @param permissionCodes 权限编码
+     * @return 是否全部拥有，未登录时返回false
+     */
+    boolean hasAllPermissions(Collection<String> permissionCodes);
+    
+    /**
+     * 检查用户是否拥有任一指定权限（只解析一次用户的有效权限）
+     * @param permissionCodes 权限编码
+     * @return 是否至少拥有一个，未登录时返回false
+     */
+    boolean hasAnyPermission(Collection<String> permissionCodes);
+    
+    /**
+     * 批量检查权限（只解析一次用户的有效权限），不记录审计日志
+     * @param permissionCodes 权限编码
+     * @return 与输入顺序对齐的结果，未登录时全部为未授予
+     */
+    PermissionMask filterPermitted(Collection<String> permissionCodes);
+    
     /**
      * 获取用户的所有权限
      * @param userId 用户ID
@@ -55,4 +95,13 @@ public interface AuthService {
      * @return 权限对象列表
      */
     List<Permission> getUserPermissionDetails(int userId);
+    
+    /**
+     * 分页查询拥有指定权限的用户（经由任一角色，按用户ID排序），用于权限审查和删除权限前评估影响范围
+     * @param permissionCode 权限编码
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数
+     * @return 一页用户
+     */
+    Page<User> findUsersWithPermission(String permissionCode, int afterId, int limit);
 }
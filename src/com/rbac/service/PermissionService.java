@@ -1,5 +1,6 @@
 package com.rbac.service;
 
+import com.rbac.dao.Page;
 import com.rbac.model.Permission;
 
 import java.util.List;
@@ -24,6 +25,11 @@ public interface PermissionService {
      */
     List<Permission> listPermissions();
     
+    /**
+     * 分页查询权限（键集分页，第一页 afterId 传0，之后传上一页的 nextAfterId）
+     */
+    Page<Permission> listPermissions(int afterId, int limit);
+    
     /**
      * 根据ID查询权限
      */
@@ -48,4 +54,9 @@ public interface PermissionService {
      * 查询角色的所有权限
      */
     List<Permission> getRolePermissions(int roleId);
+    
+    /**
+     * 分页查询角色的权限
+     */
+    Page<Permission> getRolePermissions(int roleId, int afterId, int limit);
 }
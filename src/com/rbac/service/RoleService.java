@@ -1,6 +1,8 @@
 package com.rbac.service;
 
+import com.rbac.dao.Page;
 import com.rbac.model.Role;
+import com.rbac.model.User;
 
 import java.util.List;
 
@@ -24,6 +26,11 @@ public interface RoleService {
      */
     List<Role> listRoles();
     
+    /**
+     * 分页查询角色（键集分页，第一页 afterId 传0，之后传上一页的 nextAfterId）
+     */
+    Page<Role> listRoles(int afterId, int limit);
+    
     /**
      * 根据ID查询角色
      */
@@ -48,4 +55,29 @@ public interface RoleService {
      * 查询用户的所有角色
      */
     List<Role> getUserRoles(int userId);
+    
+    /**
+     * 分页查询拥有该角色的用户（按用户ID排序），启用编译授权模型时由内存中的反向索引给出用户ID
+     */
+    Page<User> listRoleUsers(int roleId, int afterId, int limit);
+    
+    /**
+     * 让角色继承父角色的全部权限（包括父角色继承的权限）
+     */
+    void addParentRole(int roleId, int parentRoleId);
+    
+    /**
+     * 取消角色对父角色的继承
+     */
+    void removeParentRole(int roleId, int parentRoleId);
+    
+    /**
+     * 查询角色直接继承的父角色
+     */
+    List<Role> getParentRoles(int roleId);
+    
+    /**
+     * 查询角色直接或间接继承的所有祖先角色
+     */
+    List<Role> getAncestorRoles(int roleId);
 }
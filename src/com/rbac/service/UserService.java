@@ -1,8 +1,10 @@
 package com.rbac.service;
 
+import com.rbac.dao.Page;
 import com.rbac.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 用户服务接口
@@ -34,6 +36,21 @@ public interface UserService {
      */
     List<User> listUsers();
     
+    /**
+     * 分页查询用户（键集分页，第一页 afterId 传0，之后传上一页的 nextAfterId）
+     */
+    Page<User> listUsers(int afterId, int limit);
+    
+    /**
+     * 按状态分页查询用户（0=正常，1=冻结）
+     */
+    Page<User> listUsersByStatus(int status, int afterId, int limit);
+    
+    /**
+     * 逐个遍历所有用户（流式读取，内存占用与用户数量无关）
+     */
+    void forEachUser(Consumer<User> action);
+    
     /**
      * 根据ID查询用户
      */
@@ -0,0 +1,122 @@
+package com.rbac.service.impl;
+
+import com.rbac.audit.AuditLogger;
+import com.rbac.dao.Page;
+import com.rbac.model.Permission;
+import com.rbac.model.PermissionMask;
+import com.rbac.model.User;
+import com.rbac.service.AsyncAuthService;
+import com.rbac.service.AuthService;
+import com.rbac.util.AsyncExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步认证服务实现类 - 在 {@link AsyncExecutor} 上执行同步的 {@link AuthService}
+ * 
+ * <p>认证和权限判断的逻辑、审计日志都复用同步实现，本类只负责两件事：
+ * <ul>
+ *   <li>把阻塞调用转移到有界的工作线程池，调用方线程不等待 JDBC</li>
+ *   <li>把调用方传入的用户作为会话身份，只在任务执行期间绑定到工作线程
+ *       （{@link AsyncExecutor#submitAs(User, java.util.function.Supplier)}），
+ *       审计日志中的操作者与同步调用一致</li>
+ * </ul>
+ * 
+ * <p>管理类操作（用户、角色、权限的增删改）可以用同一个执行器异步调用带权限检查的装饰器：
+ * <pre>
+ * executor.submitAs(principal, () -&gt; { userService.freezeUser(userId); return null; });
+ * </pre>
+ * 
+ * @author RBAC Team
+ * @see AsyncAuthService
+ */
+public class AsyncAuthServiceImpl implements AsyncAuthService {
+    
+    private final AuthService delegate;
+    private final AsyncExecutor executor;
+    
+    /**
+     * @param delegate 同步认证服务
+     * @param executor 执行数据库访问的线程池
+     */
+    public AsyncAuthServiceImpl(AuthService delegate, AsyncExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+    
+    @Override
+    public CompletableFuture<User> login(String username, String password) {
+        return executor.submit(() -> delegate.authenticate(username, password));
+    }
+    
+    /**
+     * 用户登出
+     * 
+     * <p>会话由调用方持有，这里只记录登出日志，不访问数据库，因此直接在调用方线程完成
+     */
+    @Override
+    public CompletableFuture<Void> logout(User principal) {
+        if (principal != null) {
+            AuditLogger.logLogout(principal.getUsername());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> hasPermission(User principal, String permissionCode) {
+        if (principal == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return executor.submitAs(principal, () -> delegate.hasPermission(permissionCode));
+    }
+    
+    @Override
+    public CompletableFuture<Void> checkPermission(User principal, String permissionCode) {
+        return executor.submitAs(principal, () -> {
+            delegate.checkPermission(permissionCode);
+            return null;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> hasAllPermissions(User principal, Collection<String> permissionCodes) {
+        if (principal == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return executor.submitAs(principal, () -> delegate.hasAllPermissions(permissionCodes));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> hasAnyPermission(User principal, Collection<String> permissionCodes) {
+        if (principal == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return executor.submitAs(principal, () -> delegate.hasAnyPermission(permissionCodes));
+    }
+    
+    @Override
+    public CompletableFuture<PermissionMask> filterPermitted(User principal, Collection<String> permissionCodes) {
+        if (principal == null) {
+            return CompletableFuture.completedFuture(PermissionMask.none(permissionCodes));
+        }
+        return executor.submitAs(principal, () -> delegate.filterPermitted(permissionCodes));
+    }
+    
+    @Override
+    public CompletableFuture<Set<String>> getUserPermissions(int userId) {
+        return executor.submit(() -> delegate.getUserPermissions(userId));
+    }
+    
+    @Override
+    public CompletableFuture<List<Permission>> getUserPermissionDetails(int userId) {
+        return executor.submit(() -> delegate.getUserPermissionDetails(userId));
+    }
+    
+    @Override
+    public CompletableFuture<Page<User>> findUsersWithPermission(String permissionCode, int afterId, int limit) {
+        return executor.submit(() -> delegate.findUsersWithPermission(permissionCode, afterId, limit));
+    }
+}
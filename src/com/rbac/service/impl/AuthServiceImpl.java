@@ -1,19 +1,28 @@
 package com.rbac.service.impl;
 
 import com.rbac.audit.AuditLogger;
+import com.rbac.cache.DenialCache;
+import com.rbac.cache.PermissionCache;
+import com.rbac.common.PermissionMatcher;
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.dao.Page;
 import com.rbac.dao.PermissionDao;
 import com.rbac.dao.UserDao;
 import com.rbac.exception.AuthenticationException;
+import com.rbac.exception.BusinessException;
 import com.rbac.exception.PermissionDeniedException;
 import com.rbac.model.Permission;
+import com.rbac.model.PermissionMask;
 import com.rbac.model.User;
+import com.rbac.model.UserGrants;
 import com.rbac.service.AuthService;
 import com.rbac.util.PasswordUtil;
 import com.rbac.util.SessionContext;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * 认证服务实现类 - 负责用户认证、权限验证和会话管理
@@ -26,6 +35,16 @@ import java.util.stream.Collectors;
  *   <li>审计日志记录（登录成功/失败、权限检查失败）</li>
  * </ul>
  * 
+ * <p>权限校验使用进程内共享的 {@link PermissionCache}：同一用户的重复校验（装饰器和菜单在每次操作前都会校验）
+ * 不再查询数据库，授权变更由服务层通知缓存失效
+ * 
+ * <p>单个权限校验被拒绝的结果另外记入 {@link DenialCache}：权限缓存未命中时（未启用、过期或被淘汰），
+ * 被拒绝的操作反复重试也不会每次都关联查询。{@link #checkPermission(String)} 的失败审计经由
+ * {@link AuditLogger#logFailCoalesced(String, String, String)} 记录，重复的拒绝合并为周期性的汇总记录
+ * 
+ * <p>权限缓存未启用而用户有效权限物化表已启用时，单个权限校验直接按主键查找物化表
+ * （{@link EffectivePermissionDao#hasAny(int, List)}），不再读取用户的全部授权
+ * 
  * @author RBAC Team
  * @see AuthService
  * @see SessionContext
@@ -34,6 +53,12 @@ public class AuthServiceImpl implements AuthService {
     
     private final UserDao userDao;
     private final PermissionDao permissionDao;
+    private final PermissionCache permissionCache;
+    private final DenialCache denialCache;
+    private final EffectivePermissionDao effectivePermissionDao;
+    
+    /** 单个权限校验是否按主键查找物化表（权限缓存未启用、物化表已启用） */
+    private final boolean probeMaterialized;
     
     /**
      * 构造函数 - 初始化DAO依赖
@@ -41,6 +66,10 @@ public class AuthServiceImpl implements AuthService {
     public AuthServiceImpl() {
         this.userDao = new UserDao();
         this.permissionDao = new PermissionDao();
+        this.permissionCache = PermissionCache.shared();
+        this.denialCache = DenialCache.shared();
+        this.effectivePermissionDao = new EffectivePermissionDao();
+        this.probeMaterialized = !permissionCache.isEnabled() && EffectivePermissionDao.isEnabled();
     }
     
     /**
@@ -61,6 +90,24 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public User login(String username, String password) {
+        User user = authenticate(username, password);
+        SessionContext.setCurrentUser(user);
+        return user;
+    }
+    
+    /**
+     * 验证用户名密码，不建立会话
+     * 
+     * <p>执行 {@link #login(String, String)} 的前三步并记录登录审计日志，但不绑定 {@link SessionContext}，
+     * 返回的用户对象由调用方保存并在后续调用中显式传递
+     * 
+     * @param username 用户名，不能为空
+     * @param password 密码明文，不能为空
+     * @return 验证通过的用户对象
+     * @throws AuthenticationException 当输入为空、用户不存在、密码错误或账户被冻结时
+     */
+    @Override
+    public User authenticate(String username, String password) {
         // 步骤1：验证输入参数
         validateLoginInput(username, password);
         
@@ -70,8 +117,7 @@ public class AuthServiceImpl implements AuthService {
         // 步骤3：检查账户状态
         validateUserStatus(user, username);
         
-        // 步骤4：建立会话并记录成功日志
-        SessionContext.setCurrentUser(user);
+        // 步骤4：记录成功日志（会话由 login 建立）
         AuditLogger.logLoginSuccess(username);
         
         return user;
@@ -168,6 +214,8 @@ public class AuthServiceImpl implements AuthService {
     /**
      * 检查当前用户是否拥有指定权限
      * 
+     * <p>授予的权限可以是通配授权（如 {@code USER:*}），由 {@link UserGrants#matches(String)} 判断
+     * 
      * @param permissionCode 权限编码
      * @return 如果用户拥有该权限返回true，否则返回false；未登录时返回false
      */
@@ -178,14 +226,39 @@ public class AuthServiceImpl implements AuthService {
             return false;
         }
         
-        Set<String> permissions = getUserPermissions(currentUser.getId());
-        return permissions.contains(permissionCode);
+        return permitted(currentUser.getId(), permissionCode);
+    }
+    
+    /**
+     * 判断用户是否拥有权限：近期被拒绝过的直接拒绝，否则按授权判断并记住拒绝结果
+     * 
+     * <p>按主键查找物化表时，只有查找不到（拒绝）才读取用户的授权快照，供拒绝结果缓存判断之后的失效
+     */
+    private boolean permitted(int userId, String permissionCode) {
+        if (denialCache.isDenied(userId, permissionCode)) {
+            return false;
+        }
+        if (probeMaterialized) {
+            // 精确授权或任一覆盖它的通配授权
+            List<String> grantCodes = PermissionMatcher.coveringWildcards(permissionCode);
+            grantCodes.add(permissionCode);
+            if (effectivePermissionDao.hasAny(userId, grantCodes)) {
+                return true;
+            }
+        }
+        long observed = denialCache.generation();
+        UserGrants grants = permissionCache.get(userId);
+        if (grants.matches(permissionCode)) {
+            return true;
+        }
+        denialCache.put(userId, permissionCode, grants, observed);
+        return false;
     }
     
     /**
      * 检查权限，无权限时抛出异常
      * 
-     * <p>此方法用于需要强制权限验证的场景，失败时会记录审计日志
+     * <p>此方法用于需要强制权限验证的场景，失败时会记录审计日志（重复的失败合并为汇总记录）
      * 
      * @param permissionCode 权限编码
      * @throws PermissionDeniedException 当用户未登录或没有该权限时
@@ -197,26 +270,89 @@ public class AuthServiceImpl implements AuthService {
             throw new PermissionDeniedException("未登录，无法执行此操作");
         }
         
-        if (!hasPermission(permissionCode)) {
+        if (!permitted(currentUser.getId(), permissionCode)) {
             String message = String.format("权限不足：需要权限 [%s]", permissionCode);
-            AuditLogger.logFail("PERMISSION_CHECK", permissionCode, message);
+            AuditLogger.logFailCoalesced("PERMISSION_CHECK", permissionCode, message);
             throw new PermissionDeniedException(message);
         }
     }
     
+    /**
+     * 检查当前用户是否拥有全部指定权限
+     * 
+     * <p>用户的有效权限只读取一次（缓存命中时不访问数据库），各权限编码在同一个集合上判断
+     * 
+     * @param permissionCodes 权限编码
+     * @return 全部拥有时返回true（输入为空时同样返回true）；未登录时返回false
+     */
+    @Override
+    public boolean hasAllPermissions(Collection<String> permissionCodes) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            return false;
+        }
+        
+        UserGrants grants = permissionCache.get(currentUser.getId());
+        for (String permissionCode : permissionCodes) {
+            if (!grants.matches(permissionCode)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 检查当前用户是否拥有任一指定权限
+     * 
+     * @param permissionCodes 权限编码
+     * @return 至少拥有一个时返回true；未登录或输入为空时返回false
+     */
+    @Override
+    public boolean hasAnyPermission(Collection<String> permissionCodes) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            return false;
+        }
+        
+        UserGrants grants = permissionCache.get(currentUser.getId());
+        for (String permissionCode : permissionCodes) {
+            if (grants.matches(permissionCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 批量检查当前用户的权限
+     * 
+     * <p>供界面和网关一次性判断一组操作是否可用：用户的有效权限只读取一次，
+     * 结果按输入顺序对齐。与 {@link #hasPermission(String)} 一样不记录审计日志
+     * 
+     * @param permissionCodes 权限编码
+     * @return 与输入顺序对齐的结果；未登录时全部为未授予
+     */
+    @Override
+    public PermissionMask filterPermitted(Collection<String> permissionCodes) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            return PermissionMask.none(permissionCodes);
+        }
+        
+        return PermissionMask.evaluate(permissionCodes, permissionCache.get(currentUser.getId())::matches);
+    }
+    
     /**
      * 获取用户的所有权限编码集合
      * 
-     * <p>使用Stream API优化集合转换，避免手动循环
+     * <p>优先从 {@link PermissionCache} 读取，未命中时一次关联查询加载该用户的角色和权限
      * 
      * @param userId 用户ID
-     * @return 权限编码集合
+     * @return 权限编码集合（只读）
      */
     @Override
     public Set<String> getUserPermissions(int userId) {
-        return permissionDao.findByUserId(userId).stream()
-                .map(Permission::getPermissionCode)
-                .collect(Collectors.toSet());
+        return permissionCache.get(userId).getPermissionCodes();
     }
     
     /**
@@ -229,4 +365,40 @@ public class AuthServiceImpl implements AuthService {
     public List<Permission> getUserPermissionDetails(int userId) {
         return permissionDao.findByUserId(userId);
     }
+    
+    /**
+     * 分页查询拥有指定权限的用户（经由任一角色，键集分页，按用户ID排序）
+     * 
+     * <p>经由覆盖该权限的通配授权（如 {@code USER:*}）拥有它的用户同样返回；
+     * 编码本身不必作为权限创建过，只要存在覆盖它的通配权限即可（如只有 {@code REPORT:*} 时查询 {@code REPORT:DAILY}）。
+     * 从拥有这些权限的角色出发查找用户，见 {@link UserDao#findPageByPermissionIds(int[], int, int)}
+     * 
+     * @param permissionCode 权限编码
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws BusinessException 当该权限及覆盖它的通配权限都不存在，或每页条数超出范围时
+     */
+    @Override
+    public Page<User> findUsersWithPermission(String permissionCode, int afterId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new BusinessException("每页条数必须在1到" + Page.MAX_LIMIT + "之间");
+        }
+        List<Integer> permissionIds = new ArrayList<>();
+        Permission permission = permissionDao.findByCode(permissionCode);
+        if (permission != null) {
+            permissionIds.add(permission.getId());
+        }
+        for (String wildcard : PermissionMatcher.coveringWildcards(permissionCode)) {
+            Permission covering = wildcard.equals(permissionCode) ? null : permissionDao.findByCode(wildcard);
+            if (covering != null) {
+                permissionIds.add(covering.getId());
+            }
+        }
+        if (permissionIds.isEmpty()) {
+            throw new BusinessException("权限不存在");
+        }
+        return userDao.findPageByPermissionIds(permissionIds.stream().mapToInt(Integer::intValue).toArray(),
+                afterId, limit);
+    }
 }
@@ -0,0 +1,217 @@
+package com.rbac.service.impl;
+
+import com.rbac.audit.AuditLogger;
+import com.rbac.dao.Page;
+import com.rbac.dao.UserDao;
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.engine.AuthorizationModel;
+import com.rbac.exception.BusinessException;
+import com.rbac.exception.PermissionDeniedException;
+import com.rbac.model.Permission;
+import com.rbac.model.PermissionMask;
+import com.rbac.model.User;
+import com.rbac.service.AuthService;
+import com.rbac.util.SessionContext;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于编译授权模型的认证服务实现 - 权限校验完全在内存中完成
+ *
+ * <p>登录、登出和权限详情查询委托给 {@link AuthServiceImpl}；
+ * {@link #hasPermission(String)}、{@link #checkPermission(String)}、批量校验和 {@link #getUserPermissions(int)}
+ * 使用 {@link AuthorizationEngine} 的当前模型：一次哈希查找把权限编码换算为下标，再做一次位运算，不访问数据库。
+ * 批量校验的所有权限编码都在同一个模型版本上判断。
+ * {@link #findUsersWithPermission(String, int, int)} 的用户ID取自模型的反向索引，只按主键取回一页用户。
+ *
+ * <p>与 {@link AuthServiceImpl} 的行为一致（包括权限不足时的审计日志），可以直接替换；
+ * 命令行程序通过配置 {@code auth.engine=compiled} 启用。
+ *
+ * @author RBAC Team
+ * @see AuthorizationEngine
+ */
+public class CompiledAuthServiceImpl implements AuthService {
+
+    private final AuthService delegate;
+    private final AuthorizationEngine engine;
+    private final UserDao userDao = new UserDao();
+
+    /**
+     * 构造函数 - 使用进程内共享的授权引擎
+     */
+    public CompiledAuthServiceImpl() {
+        this(new AuthServiceImpl(), AuthorizationEngine.shared());
+    }
+
+    /**
+     * @param delegate 负责登录、登出等非校验操作的认证服务
+     * @param engine 授权引擎
+     */
+    public CompiledAuthServiceImpl(AuthService delegate, AuthorizationEngine engine) {
+        this.delegate = delegate;
+        this.engine = engine;
+    }
+
+    @Override
+    public User login(String username, String password) {
+        return delegate.login(username, password);
+    }
+
+    @Override
+    public User authenticate(String username, String password) {
+        return delegate.authenticate(username, password);
+    }
+
+    @Override
+    public void logout() {
+        delegate.logout();
+    }
+
+    @Override
+    public User getCurrentUser() {
+        return delegate.getCurrentUser();
+    }
+
+    /**
+     * 检查当前用户是否拥有指定权限（内存校验）
+     *
+     * @param permissionCode 权限编码
+     * @return 如果用户拥有该权限返回true，否则返回false；未登录时返回false
+     */
+    @Override
+    public boolean hasPermission(String permissionCode) {
+        User currentUser = SessionContext.getCurrentUser();
+        return currentUser != null && engine.model().hasPermission(currentUser.getId(), permissionCode);
+    }
+
+    /**
+     * 检查权限，无权限时抛出异常并记录审计日志（重复的失败合并为汇总记录）
+     *
+     * @param permissionCode 权限编码
+     * @throws PermissionDeniedException 当用户未登录或没有该权限时
+     */
+    @Override
+    public void checkPermission(String permissionCode) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            throw new PermissionDeniedException("未登录，无法执行此操作");
+        }
+
+        if (!engine.model().hasPermission(currentUser.getId(), permissionCode)) {
+            String message = String.format("权限不足：需要权限 [%s]", permissionCode);
+            AuditLogger.logFailCoalesced("PERMISSION_CHECK", permissionCode, message);
+            throw new PermissionDeniedException(message);
+        }
+    }
+
+    /**
+     * 检查当前用户是否拥有全部指定权限（内存校验，同一模型版本）
+     *
+     * @param permissionCodes 权限编码
+     * @return 全部拥有时返回true（输入为空时同样返回true）；未登录时返回false
+     */
+    @Override
+    public boolean hasAllPermissions(Collection<String> permissionCodes) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            return false;
+        }
+
+        AuthorizationModel model = engine.model();
+        for (String permissionCode : permissionCodes) {
+            if (!model.hasPermission(currentUser.getId(), permissionCode)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 检查当前用户是否拥有任一指定权限（内存校验，同一模型版本）
+     *
+     * @param permissionCodes 权限编码
+     * @return 至少拥有一个时返回true；未登录或输入为空时返回false
+     */
+    @Override
+    public boolean hasAnyPermission(Collection<String> permissionCodes) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            return false;
+        }
+
+        AuthorizationModel model = engine.model();
+        for (String permissionCode : permissionCodes) {
+            if (model.hasPermission(currentUser.getId(), permissionCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 批量检查当前用户的权限（内存校验，同一模型版本），不记录审计日志
+     *
+     * @param permissionCodes 权限编码
+     * @return 与输入顺序对齐的结果；未登录时全部为未授予
+     */
+    @Override
+    public PermissionMask filterPermitted(Collection<String> permissionCodes) {
+        User currentUser = SessionContext.getCurrentUser();
+        if (currentUser == null) {
+            return PermissionMask.none(permissionCodes);
+        }
+
+        AuthorizationModel model = engine.model();
+        int userId = currentUser.getId();
+        return PermissionMask.evaluate(permissionCodes, code -> model.hasPermission(userId, code));
+    }
+
+    /**
+     * 获取用户的所有权限编码集合（由当前模型的位图还原）
+     *
+     * @param userId 用户ID
+     * @return 权限编码集合（只读）
+     */
+    @Override
+    public Set<String> getUserPermissions(int userId) {
+        return engine.model().getPermissions(userId);
+    }
+
+    /**
+     * 获取用户的所有权限详情（包含权限描述），查询数据库
+     *
+     * @param userId 用户ID
+     * @return 权限对象列表
+     */
+    @Override
+    public List<Permission> getUserPermissionDetails(int userId) {
+        return delegate.getUserPermissionDetails(userId);
+    }
+
+    /**
+     * 分页查询拥有指定权限的用户（按用户ID排序）
+     *
+     * <p>用户ID由当前模型的反向索引给出（拥有该权限的各角色的用户集合的并集，从游标处按序读取），
+     * 再按主键取回这一页的用户。权限不在模型中（不存在，或尚未分配给任何角色）时查询数据库，
+     * 由数据库给出结果或"权限不存在"
+     *
+     * @param permissionCode 权限编码
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数（1 到 {@link Page#MAX_LIMIT}）
+     * @return 一页用户
+     * @throws BusinessException 当权限不存在或每页条数超出范围时
+     */
+    @Override
+    public Page<User> findUsersWithPermission(String permissionCode, int afterId, int limit) {
+        AuthorizationModel model = engine.model();
+        if (model.indexOf(permissionCode) < 0) {
+            return delegate.findUsersWithPermission(permissionCode, afterId, limit);
+        }
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new BusinessException("每页条数必须在1到" + Page.MAX_LIMIT + "之间");
+        }
+        return userDao.findPageByIds(model.findUsersWithPermission(permissionCode, afterId, limit + 1), afterId, limit);
+    }
+}
@@ -1,12 +1,17 @@
 package com.rbac.service.impl;
 
+import com.rbac.common.PermissionMatcher;
+import com.rbac.dao.ConstraintViolationException;
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.dao.Page;
 import com.rbac.dao.PermissionDao;
 import com.rbac.dao.RoleDao;
 import com.rbac.dao.RolePermissionDao;
+import com.rbac.event.GrantEvents;
 import com.rbac.exception.BusinessException;
 import com.rbac.model.Permission;
-import com.rbac.model.Role;
 import com.rbac.service.PermissionService;
+import com.rbac.util.TransactionManager;
 
 import java.util.List;
 
@@ -17,10 +22,17 @@ import java.util.List;
  * <ul>
  *   <li>权限创建（权限编码唯一性检查）</li>
  *   <li>权限删除</li>
- *   <li>权限查询（按ID、按编码、列表查询）</li>
+ *   <li>权限查询（按ID、按编码、列表查询、分页查询）</li>
  *   <li>角色-权限关联管理（分配、移除、查询）</li>
  * </ul>
  * 
+ * <p>写操作都是单条语句，不事先查询是否存在或是否重复：唯一键冲突翻译为“已存在/已拥有”，
+ * 外键冲突或未影响任何行时才额外查询以给出具体原因（角色不存在、权限不存在等）。
+ * 成功路径只有一次数据库往返，并发操作之间也不存在“先检查后写入”的竞态。
+ * 
+ * <p>启用用户有效权限物化表时（{@link EffectivePermissionDao}），角色权限的修改在同一事务中先锁定、
+ * 再给拥有该角色（含继承）的用户补上或删除对应的物化行；删除权限时物化行由外键级联删除。
+ * 
  * @author RBAC Team
  * @see PermissionService
  */
@@ -29,6 +41,7 @@ public class PermissionServiceImpl implements PermissionService {
     private final PermissionDao permissionDao;
     private final RoleDao roleDao;
     private final RolePermissionDao rolePermissionDao;
+    private final EffectivePermissionDao effectivePermissionDao;
     
     /**
      * 构造函数 - 初始化DAO依赖
@@ -37,6 +50,7 @@ public class PermissionServiceImpl implements PermissionService {
         this.permissionDao = new PermissionDao();
         this.roleDao = new RoleDao();
         this.rolePermissionDao = new RolePermissionDao();
+        this.effectivePermissionDao = new EffectivePermissionDao();
     }
     
     /**
@@ -51,17 +65,20 @@ public class PermissionServiceImpl implements PermissionService {
         // 验证输入
         validatePermissionCode(permissionCode);
         
-        // 检查权限编码唯一性
-        if (permissionDao.existsByCode(permissionCode)) {
-            throw new BusinessException("权限编码已存在: " + permissionCode);
-        }
-        
-        // 创建并保存权限
+        // 创建并保存权限（权限编码唯一性由唯一键保证，不事先查询）
         Permission permission = new Permission();
         permission.setPermissionCode(permissionCode);
         permission.setDescription(description);
         
-        int permissionId = permissionDao.insert(permission);
+        int permissionId;
+        try {
+            permissionId = permissionDao.insert(permission);
+        } catch (ConstraintViolationException e) {
+            if (e.isDuplicateKey()) {
+                throw new BusinessException("权限编码已存在: " + permissionCode);
+            }
+            throw e;
+        }
         if (permissionId <= 0) {
             throw new BusinessException("创建权限失败");
         }
@@ -71,12 +88,15 @@ public class PermissionServiceImpl implements PermissionService {
      * 验证权限编码
      * 
      * @param permissionCode 权限编码
-     * @throws BusinessException 当权限编码为空时
+     * @throws BusinessException 当权限编码为空，或通配符 * 不是完整的最后一段时
      */
     private void validatePermissionCode(String permissionCode) {
         if (permissionCode == null || permissionCode.trim().isEmpty()) {
             throw new BusinessException("权限编码不能为空");
         }
+        if (!PermissionMatcher.isValid(permissionCode)) {
+            throw new BusinessException("通配符 * 只能作为权限编码的最后一段（如 USER:*）: " + permissionCode);
+        }
     }
     
     /**
@@ -87,12 +107,13 @@ public class PermissionServiceImpl implements PermissionService {
      */
     @Override
     public void deletePermission(int permissionId) {
-        checkPermissionExists(permissionId);
-        
-        boolean success = permissionDao.deleteById(permissionId);
-        if (!success) {
-            throw new BusinessException("删除权限失败");
-        }
+        // 删除与变更日志在同一事务中提交；没有删除任何行即说明权限不存在
+        TransactionManager.run(() -> {
+            if (!permissionDao.deleteById(permissionId)) {
+                throw new BusinessException("权限不存在");
+            }
+            GrantEvents.permissionDeleted(permissionId);
+        });
     }
     
     /**
@@ -105,6 +126,20 @@ public class PermissionServiceImpl implements PermissionService {
         return permissionDao.findAll();
     }
     
+    /**
+     * 分页查询权限（键集分页，按ID排序）
+     * 
+     * @param afterId 上一页的 nextAfterId，第一页传0
+     * @param limit 每页条数
+     * @return 一页权限
+     * @throws BusinessException 当每页条数超出范围时
+     */
+    @Override
+    public Page<Permission> listPermissions(int afterId, int limit) {
+        checkPageLimit(limit);
+        return permissionDao.findPage(afterId, limit);
+    }
+    
     /**
      * 根据权限ID查询权限
      * 
@@ -146,20 +181,24 @@ public class PermissionServiceImpl implements PermissionService {
      */
     @Override
     public void assignPermissionToRole(int roleId, int permissionId) {
-        // 验证角色和权限的存在性
-        checkRoleExists(roleId);
-        checkPermissionExists(permissionId);
-        
-        // 检查是否已经分配
-        if (rolePermissionDao.hasPermission(roleId, permissionId)) {
-            throw new BusinessException("角色已拥有该权限");
-        }
-        
-        // 分配权限
-        boolean success = rolePermissionDao.assignPermission(roleId, permissionId);
-        if (!success) {
-            throw new BusinessException("分配权限失败");
-        }
+        // 直接插入：唯一键冲突说明已分配，外键冲突说明角色或权限不存在
+        TransactionManager.run(() -> {
+            effectivePermissionDao.lock();
+            boolean assigned;
+            try {
+                assigned = rolePermissionDao.assignPermission(roleId, permissionId);
+            } catch (ConstraintViolationException e) {
+                if (e.isForeignKey()) {
+                    throw explainFailure(roleId, permissionId, "分配权限失败");
+                }
+                throw e;
+            }
+            if (!assigned) {
+                throw new BusinessException("角色已拥有该权限");
+            }
+            effectivePermissionDao.grant(roleId, permissionId);
+            GrantEvents.roleChanged(roleId);
+        });
     }
     
     /**
@@ -171,20 +210,15 @@ public class PermissionServiceImpl implements PermissionService {
      */
     @Override
     public void removePermissionFromRole(int roleId, int permissionId) {
-        // 验证角色和权限的存在性
-        checkRoleExists(roleId);
-        checkPermissionExists(permissionId);
-        
-        // 检查是否拥有该权限
-        if (!rolePermissionDao.hasPermission(roleId, permissionId)) {
-            throw new BusinessException("角色未拥有该权限");
-        }
-        
-        // 移除权限
-        boolean success = rolePermissionDao.removePermission(roleId, permissionId);
-        if (!success) {
-            throw new BusinessException("移除权限失败");
-        }
+        // 直接删除：没有删除任何行时再查明是角色、权限不存在还是未拥有该权限
+        TransactionManager.run(() -> {
+            effectivePermissionDao.lock();
+            if (!rolePermissionDao.removePermission(roleId, permissionId)) {
+                throw explainFailure(roleId, permissionId, "角色未拥有该权限");
+            }
+            effectivePermissionDao.revoke(roleId, permissionId);
+            GrantEvents.roleChanged(roleId);
+        });
     }
     
     /**
@@ -200,6 +234,22 @@ public class PermissionServiceImpl implements PermissionService {
         return permissionDao.findByRoleId(roleId);
     }
     
+    /**
+     * 分页查询角色的权限（键集分页，按权限ID排序）
+     * 
+     * @param roleId 角色ID
+     * @param afterId 上一页的 nextAfterId，第一页传0
+     * @param limit 每页条数
+     * @return 一页权限
+     * @throws BusinessException 当角色不存在或每页条数超出范围时
+     */
+    @Override
+    public Page<Permission> getRolePermissions(int roleId, int afterId, int limit) {
+        checkPageLimit(limit);
+        checkRoleExists(roleId);
+        return permissionDao.findPageByRoleId(roleId, afterId, limit);
+    }
+    
     /**
      * 检查角色是否存在
      * 
@@ -207,22 +257,38 @@ public class PermissionServiceImpl implements PermissionService {
      * @throws BusinessException 当角色不存在时
      */
     private void checkRoleExists(int roleId) {
-        Role role = roleDao.findById(roleId);
-        if (role == null) {
+        if (!roleDao.existsById(roleId)) {
             throw new BusinessException("角色不存在");
         }
     }
     
     /**
-     * 检查权限是否存在
+     * 分配或移除权限失败后查明原因（只在失败路径上额外查询）
      * 
+     * @param roleId 角色ID
      * @param permissionId 权限ID
-     * @throws BusinessException 当权限不存在时
+     * @param otherwise 角色和权限都存在时使用的错误消息
+     * @return 描述失败原因的业务异常
      */
-    private void checkPermissionExists(int permissionId) {
-        Permission permission = permissionDao.findById(permissionId);
-        if (permission == null) {
-            throw new BusinessException("权限不存在");
+    private BusinessException explainFailure(int roleId, int permissionId, String otherwise) {
+        if (!roleDao.existsById(roleId)) {
+            return new BusinessException("角色不存在");
+        }
+        if (!permissionDao.existsById(permissionId)) {
+            return new BusinessException("权限不存在");
+        }
+        return new BusinessException(otherwise);
+    }
+    
+    /**
+     * 检查每页条数是否在允许范围内
+     * 
+     * @param limit 每页条数
+     * @throws BusinessException 当条数不在 1 到 {@link Page#MAX_LIMIT} 之间时
+     */
+    private void checkPageLimit(int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new BusinessException("每页条数必须在1到" + Page.MAX_LIMIT + "之间");
         }
     }
 }
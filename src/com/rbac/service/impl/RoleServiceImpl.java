@@ -1,14 +1,26 @@
 package com.rbac.service.impl;
 
+import com.rbac.dao.ConstraintViolationException;
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.dao.Page;
 import com.rbac.dao.RoleDao;
+import com.rbac.dao.RoleHierarchyDao;
 import com.rbac.dao.UserDao;
 import com.rbac.dao.UserRoleDao;
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.event.GrantEvents;
 import com.rbac.exception.BusinessException;
 import com.rbac.model.Role;
 import com.rbac.model.User;
 import com.rbac.service.RoleService;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.TransactionManager;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 角色服务实现类 - 负责角色的增删改查和用户-角色关联管理
@@ -17,10 +29,18 @@ import java.util.List;
  * <ul>
  *   <li>角色创建（角色编码唯一性检查）</li>
  *   <li>角色删除</li>
- *   <li>角色查询（按ID、按编码、列表查询）</li>
+ *   <li>角色查询（按ID、按编码、列表查询、分页查询）</li>
  *   <li>用户-角色关联管理（分配、移除、查询）</li>
+ *   <li>角色继承（子角色拥有父角色及其祖先的全部权限；拒绝成环和超过最大层数的继承链）</li>
  * </ul>
  * 
+ * <p>写操作都是单条语句，不事先查询是否存在或是否重复：唯一键冲突翻译为“已存在/已拥有”，
+ * 外键冲突或未影响任何行时才额外查询以给出具体原因（用户不存在、角色不存在等）。
+ * 成功路径只有一次数据库往返，并发操作之间也不存在“先检查后写入”的竞态。
+ * 
+ * <p>启用用户有效权限物化表时（{@link EffectivePermissionDao}），用户角色和继承关系的修改在同一事务中
+ * 先锁定、再更新受影响用户的物化行。
+ * 
  * @author RBAC Team
  * @see RoleService
  */
@@ -29,14 +49,32 @@ public class RoleServiceImpl implements RoleService {
     private final RoleDao roleDao;
     private final UserDao userDao;
     private final UserRoleDao userRoleDao;
+    private final RoleHierarchyDao hierarchyDao;
+    private final EffectivePermissionDao effectivePermissionDao;
+    
+    /** 继承链的最大层数 */
+    private final int maxDepth = Math.max(1, ConfigUtil.getInt("auth.roleHierarchy.maxDepth", 8));
+    
+    /** 反向查询使用的授权引擎，为 null 时查询数据库 */
+    private final AuthorizationEngine engine;
     
     /**
      * 构造函数 - 初始化DAO依赖
      */
     public RoleServiceImpl() {
+        this(null);
+    }
+    
+    /**
+     * @param engine 授权引擎，{@link #listRoleUsers(int, int, int)} 从其反向索引读取用户ID；为 null 时查询数据库
+     */
+    public RoleServiceImpl(AuthorizationEngine engine) {
         this.roleDao = new RoleDao();
         this.userDao = new UserDao();
         this.userRoleDao = new UserRoleDao();
+        this.hierarchyDao = new RoleHierarchyDao();
+        this.effectivePermissionDao = new EffectivePermissionDao();
+        this.engine = engine;
     }
     
     /**
@@ -52,18 +90,21 @@ public class RoleServiceImpl implements RoleService {
         // 验证输入
         validateRoleInput(roleCode, roleName);
         
-        // 检查角色编码唯一性
-        if (roleDao.existsByCode(roleCode)) {
-            throw new BusinessException("角色编码已存在: " + roleCode);
-        }
-        
-        // 创建并保存角色
+        // 创建并保存角色（角色编码唯一性由唯一键保证，不事先查询）
         Role role = new Role();
         role.setRoleCode(roleCode);
         role.setRoleName(roleName);
         role.setDescription(description);
         
-        int roleId = roleDao.insert(role);
+        int roleId;
+        try {
+            roleId = roleDao.insert(role);
+        } catch (ConstraintViolationException e) {
+            if (e.isDuplicateKey()) {
+                throw new BusinessException("角色编码已存在: " + roleCode);
+            }
+            throw e;
+        }
         if (roleId <= 0) {
             throw new BusinessException("创建角色失败");
         }
@@ -93,12 +134,24 @@ public class RoleServiceImpl implements RoleService {
      */
     @Override
     public void deleteRole(int roleId) {
-        checkRoleExists(roleId);
-        
-        boolean success = roleDao.deleteById(roleId);
-        if (!success) {
-            throw new BusinessException("删除角色失败");
-        }
+        // 删除与变更日志在同一事务中提交；没有删除任何行即说明角色不存在
+        TransactionManager.run(() -> {
+            // 先拆除继承关系以扣减经过该角色的闭包路径（外键级联只删除以该角色为端点的行）
+            hierarchyDao.lock();
+            int[] affectedUsers = effectivePermissionDao.findRoleUserIds(roleId);
+            for (int childId : hierarchyDao.findChildIds(roleId)) {
+                detach(roleId, childId);
+                GrantEvents.roleChanged(childId);
+            }
+            for (int parentId : hierarchyDao.findParentIds(roleId)) {
+                detach(parentId, roleId);
+            }
+            if (!roleDao.deleteById(roleId)) {
+                throw new BusinessException("角色不存在");
+            }
+            effectivePermissionDao.refreshUsers(affectedUsers);
+            GrantEvents.roleChanged(roleId);
+        });
     }
     
     /**
@@ -111,6 +164,20 @@ public class RoleServiceImpl implements RoleService {
         return roleDao.findAll();
     }
     
+    /**
+     * 分页查询角色（键集分页，按ID排序）
+     * 
+     * @param afterId 上一页的 nextAfterId，第一页传0
+     * @param limit 每页条数
+     * @return 一页角色
+     * @throws BusinessException 当每页条数超出范围时
+     */
+    @Override
+    public Page<Role> listRoles(int afterId, int limit) {
+        checkPageLimit(limit);
+        return roleDao.findPage(afterId, limit);
+    }
+    
     /**
      * 根据角色ID查询角色
      * 
@@ -152,20 +219,24 @@ public class RoleServiceImpl implements RoleService {
      */
     @Override
     public void assignRoleToUser(int userId, int roleId) {
-        // 验证用户和角色的存在性
-        checkUserExists(userId);
-        checkRoleExists(roleId);
-        
-        // 检查是否已经分配
-        if (userRoleDao.hasRole(userId, roleId)) {
-            throw new BusinessException("用户已拥有该角色");
-        }
-        
-        // 分配角色
-        boolean success = userRoleDao.assignRole(userId, roleId);
-        if (!success) {
-            throw new BusinessException("分配角色失败");
-        }
+        // 直接插入：唯一键冲突说明已分配，外键冲突说明用户或角色不存在
+        TransactionManager.run(() -> {
+            effectivePermissionDao.lock();
+            boolean assigned;
+            try {
+                assigned = userRoleDao.assignRole(userId, roleId);
+            } catch (ConstraintViolationException e) {
+                if (e.isForeignKey()) {
+                    throw explainFailure(userId, roleId, "分配角色失败");
+                }
+                throw e;
+            }
+            if (!assigned) {
+                throw new BusinessException("用户已拥有该角色");
+            }
+            effectivePermissionDao.refreshUsers(userId);
+            GrantEvents.userRolesChanged(userId);
+        });
     }
     
     /**
@@ -177,20 +248,15 @@ public class RoleServiceImpl implements RoleService {
      */
     @Override
     public void removeRoleFromUser(int userId, int roleId) {
-        // 验证用户和角色的存在性
-        checkUserExists(userId);
-        checkRoleExists(roleId);
-        
-        // 检查是否拥有该角色
-        if (!userRoleDao.hasRole(userId, roleId)) {
-            throw new BusinessException("用户未拥有该角色");
-        }
-        
-        // 移除角色
-        boolean success = userRoleDao.removeRole(userId, roleId);
-        if (!success) {
-            throw new BusinessException("移除角色失败");
-        }
+        // 直接删除：没有删除任何行时再查明是用户、角色不存在还是未拥有该角色
+        TransactionManager.run(() -> {
+            effectivePermissionDao.lock();
+            if (!userRoleDao.removeRole(userId, roleId)) {
+                throw explainFailure(userId, roleId, "用户未拥有该角色");
+            }
+            effectivePermissionDao.refreshUsers(userId);
+            GrantEvents.userRolesChanged(userId);
+        });
     }
     
     /**
@@ -206,6 +272,46 @@ public class RoleServiceImpl implements RoleService {
         return roleDao.findByUserId(userId);
     }
     
+    /**
+     * 分页查询拥有该角色的用户（键集分页，按用户ID排序）
+     * 
+     * <p>配置了授权引擎时，用户ID取自当前模型中该角色的用户集合（压缩位图，按ID顺序从游标处读取），
+     * 再按主键取回这一页的用户；否则关联 user_roles 查询数据库
+     * 
+     * @param roleId 角色ID
+     * @param afterId 上一页的 {@link Page#getNextAfterId()}，第一页传0
+     * @param limit 每页条数
+     * @return 一页用户
+     * @throws BusinessException 当角色不存在或每页条数超出范围时
+     */
+    @Override
+    public Page<User> listRoleUsers(int roleId, int afterId, int limit) {
+        checkPageLimit(limit);
+        checkRoleExists(roleId);
+        if (engine == null) {
+            return userDao.findPageByRoleId(roleId, afterId, limit);
+        }
+        return userDao.findPageByIds(engine.model().findUsersWithRole(roleId, afterId, limit + 1), afterId, limit);
+    }
+    
+    /**
+     * 分配或移除角色失败后查明原因（只在失败路径上额外查询）
+     * 
+     * @param userId 用户ID
+     * @param roleId 角色ID
+     * @param otherwise 用户和角色都存在时使用的错误消息
+     * @return 描述失败原因的业务异常
+     */
+    private BusinessException explainFailure(int userId, int roleId, String otherwise) {
+        if (!userDao.existsById(userId)) {
+            return new BusinessException("用户不存在");
+        }
+        if (!roleDao.existsById(roleId)) {
+            return new BusinessException("角色不存在");
+        }
+        return new BusinessException(otherwise);
+    }
+    
     /**
      * 检查用户是否存在
      * 
@@ -213,8 +319,7 @@ public class RoleServiceImpl implements RoleService {
      * @throws BusinessException 当用户不存在时
      */
     private void checkUserExists(int userId) {
-        User user = userDao.findById(userId);
-        if (user == null) {
+        if (!userDao.existsById(userId)) {
             throw new BusinessException("用户不存在");
         }
     }
@@ -226,9 +331,163 @@ public class RoleServiceImpl implements RoleService {
      * @throws BusinessException 当角色不存在时
      */
     private void checkRoleExists(int roleId) {
-        Role role = roleDao.findById(roleId);
-        if (role == null) {
+        if (!roleDao.existsById(roleId)) {
             throw new BusinessException("角色不存在");
         }
     }
+    
+    /**
+     * 检查每页条数是否在允许范围内
+     * 
+     * @param limit 每页条数
+     * @throws BusinessException 当条数不在 1 到 {@link Page#MAX_LIMIT} 之间时
+     */
+    private void checkPageLimit(int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new BusinessException("每页条数必须在1到" + Page.MAX_LIMIT + "之间");
+        }
+    }
+    
+    /**
+     * 让角色继承父角色
+     * 
+     * <p>在同一事务中：锁定继承关系，检查不成环（父角色的祖先中不能有该角色）、继承链不超过最大层数，
+     * 写入继承关系并增量更新闭包（父角色及其祖先 × 该角色及其后代），最后记录角色变更：
+     * 该角色及其后代的用户的有效权限随之改变
+     * 
+     * @param roleId 子角色ID
+     * @param parentRoleId 父角色ID
+     * @throws BusinessException 当角色不存在、继承自身、成环、超过最大层数或已经继承时
+     */
+    @Override
+    public void addParentRole(int roleId, int parentRoleId) {
+        if (roleId == parentRoleId) {
+            throw new BusinessException("角色不能继承自身");
+        }
+        TransactionManager.run(() -> {
+            hierarchyDao.lock();
+            Map<Integer, Long> ancestors = hierarchyDao.findAncestors(parentRoleId);
+            if (ancestors.containsKey(roleId)) {
+                throw new BusinessException("继承关系成环：该角色已是父角色的祖先");
+            }
+            Map<Integer, Long> descendants = hierarchyDao.findDescendants(roleId);
+            int depth = longestPath(parentRoleId, ancestors.keySet(), true) + 1
+                    + longestPath(roleId, descendants.keySet(), false);
+            if (depth > maxDepth) {
+                throw new BusinessException("继承链层数 " + depth + " 超过上限 " + maxDepth);
+            }
+            
+            boolean inserted;
+            try {
+                inserted = hierarchyDao.insertEdge(parentRoleId, roleId);
+            } catch (ConstraintViolationException e) {
+                if (e.isForeignKey()) {
+                    throw new BusinessException("角色不存在");
+                }
+                throw e;
+            }
+            if (!inserted) {
+                throw new BusinessException("该角色已继承此父角色");
+            }
+            ancestors.put(parentRoleId, 1L);
+            descendants.put(roleId, 1L);
+            hierarchyDao.addPaths(ancestors, descendants);
+            effectivePermissionDao.refreshRoleUsers(roleId);
+            GrantEvents.roleChanged(roleId);
+        });
+    }
+    
+    /**
+     * 取消角色对父角色的继承（扣减经过该继承关系的闭包路径）
+     * 
+     * @param roleId 子角色ID
+     * @param parentRoleId 父角色ID
+     * @throws BusinessException 当角色不存在或未继承该父角色时
+     */
+    @Override
+    public void removeParentRole(int roleId, int parentRoleId) {
+        TransactionManager.run(() -> {
+            hierarchyDao.lock();
+            if (!detach(parentRoleId, roleId)) {
+                checkRoleExists(roleId);
+                checkRoleExists(parentRoleId);
+                throw new BusinessException("该角色未继承此父角色");
+            }
+            effectivePermissionDao.refreshRoleUsers(roleId);
+            GrantEvents.roleChanged(roleId);
+        });
+    }
+    
+    /**
+     * 查询角色直接继承的父角色
+     * 
+     * @param roleId 角色ID
+     * @return 父角色列表（按ID排序）
+     * @throws BusinessException 当角色不存在时
+     */
+    @Override
+    public List<Role> getParentRoles(int roleId) {
+        checkRoleExists(roleId);
+        return roleDao.findParentsByRoleId(roleId);
+    }
+    
+    /**
+     * 查询角色直接或间接继承的所有祖先角色（读取闭包表，不逐层递归）
+     * 
+     * @param roleId 角色ID
+     * @return 祖先角色列表（按ID排序）
+     * @throws BusinessException 当角色不存在时
+     */
+    @Override
+    public List<Role> getAncestorRoles(int roleId) {
+        checkRoleExists(roleId);
+        return roleDao.findAncestorsByRoleId(roleId);
+    }
+    
+    /**
+     * 删除继承关系并扣减闭包路径（调用方已锁定继承关系）
+     * 
+     * @return 继承关系不存在时返回 false
+     */
+    private boolean detach(int parentRoleId, int childRoleId) {
+        Map<Integer, Long> ancestors = hierarchyDao.findAncestors(parentRoleId);
+        Map<Integer, Long> descendants = hierarchyDao.findDescendants(childRoleId);
+        if (!hierarchyDao.deleteEdge(parentRoleId, childRoleId)) {
+            return false;
+        }
+        ancestors.put(parentRoleId, 1L);
+        descendants.put(childRoleId, 1L);
+        hierarchyDao.removePaths(ancestors, descendants);
+        return true;
+    }
+    
+    /**
+     * 从角色出发沿继承关系向上（或向下）的最长路径的边数
+     * 
+     * @param roleId 起点角色
+     * @param reachable 起点的全部祖先（或后代），取自闭包表
+     * @param up true 向上沿父角色，false 向下沿子角色
+     */
+    private int longestPath(int roleId, Set<Integer> reachable, boolean up) {
+        if (reachable.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> roles = new HashSet<>(reachable);
+        roles.add(roleId);
+        Map<Integer, int[]> next = up ? hierarchyDao.findParentsOf(roles) : hierarchyDao.findChildrenOf(roles);
+        return longestPath(roleId, next, new HashMap<>());
+    }
+    
+    private int longestPath(int roleId, Map<Integer, int[]> next, Map<Integer, Integer> memo) {
+        Integer known = memo.get(roleId);
+        if (known != null) {
+            return known;
+        }
+        int longest = 0;
+        for (int nextId : next.getOrDefault(roleId, new int[0])) {
+            longest = Math.max(longest, longestPath(nextId, next, memo) + 1);
+        }
+        memo.put(roleId, longest);
+        return longest;
+    }
 }
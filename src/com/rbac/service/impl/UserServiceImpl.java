@@ -1,12 +1,17 @@
 package com.rbac.service.impl;
 
+import com.rbac.dao.ConstraintViolationException;
+import com.rbac.dao.Page;
 import com.rbac.dao.UserDao;
+import com.rbac.event.GrantEvents;
 import com.rbac.exception.BusinessException;
 import com.rbac.model.User;
 import com.rbac.service.UserService;
 import com.rbac.util.PasswordUtil;
+import com.rbac.util.TransactionManager;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 用户服务实现类 - 负责用户的增删改查和状态管理
@@ -16,7 +21,7 @@ import java.util.List;
  *   <li>用户创建（用户名唯一性检查、密码复杂度验证）</li>
  *   <li>用户删除</li>
  *   <li>用户状态管理（冻结、解冻）</li>
- *   <li>用户查询（按ID、按用户名、列表查询）</li>
+ *   <li>用户查询（按ID、按用户名、列表查询、按状态分页查询）</li>
  * </ul>
  * 
  * <p><b>密码复杂度要求：</b>
@@ -25,6 +30,10 @@ import java.util.List;
  *   <li>必须包含字母和数字</li>
  * </ul>
  * 
+ * <p>写操作都是单条语句（INSERT、DELETE、条件 UPDATE），不事先查询是否存在或是否重复：
+ * 唯一键冲突翻译为“用户名已存在”，未影响任何行时才额外查询以给出具体原因。
+ * 成功路径只有一次数据库往返，并发操作之间也不存在“先检查后写入”的竞态。
+ * 
  * @author RBAC Team
  * @see UserService
  */
@@ -46,9 +55,8 @@ public class UserServiceImpl implements UserService {
      * <ol>
      *   <li>验证用户名和密码非空</li>
      *   <li>验证密码复杂度（至少8位，包含字母和数字）</li>
-     *   <li>检查用户名是否已存在</li>
      *   <li>生成盐值和密码哈希</li>
-     *   <li>保存到数据库</li>
+     *   <li>保存到数据库（用户名已存在时由唯一键冲突判断）</li>
      * </ol>
      * 
      * @param username 用户名，不能为空
@@ -63,23 +71,26 @@ public class UserServiceImpl implements UserService {
         // 步骤2：验证密码复杂度
         validatePasswordStrength(password);
         
-        // 步骤3：检查用户名唯一性
-        if (userDao.existsByUsername(username)) {
-            throw new BusinessException("用户名已存在: " + username);
-        }
-        
-        // 步骤4：生成盐值和密码哈希
+        // 步骤3：生成盐值和密码哈希
         String salt = PasswordUtil.generateSalt();
         String passwordHash = PasswordUtil.hashPassword(password, salt);
         
-        // 步骤5：创建并保存用户
+        // 步骤4：创建并保存用户（用户名唯一性由唯一键保证，不事先查询）
         User user = new User();
         user.setUsername(username);
         user.setPasswordHash(passwordHash);
         user.setSalt(salt);
         user.setStatus(0); // 0=正常, 1=冻结
         
-        int userId = userDao.insert(user);
+        int userId;
+        try {
+            userId = userDao.insert(user);
+        } catch (ConstraintViolationException e) {
+            if (e.isDuplicateKey()) {
+                throw new BusinessException("用户名已存在: " + username);
+            }
+            throw e;
+        }
         if (userId <= 0) {
             throw new BusinessException("创建用户失败");
         }
@@ -115,11 +126,9 @@ public class UserServiceImpl implements UserService {
      * @throws BusinessException 当密码不符合强度要求时
      */
     private void validatePasswordStrength(String password) {
-        if (password.length() < 8) {
-            throw new BusinessException("密码长度至少为8位");
-        }
-        if (!password.matches(".*[a-zA-Z].*") || !password.matches(".*\\d.*")) {
-            throw new BusinessException("密码必须包含字母和数字");
+        String problem = PasswordUtil.checkStrength(password);
+        if (problem != null) {
+            throw new BusinessException(problem);
         }
     }
     
@@ -131,14 +140,13 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void deleteUser(int userId) {
-        // 检查用户是否存在
-        checkUserExists(userId);
-        
-        // 删除用户
-        boolean success = userDao.deleteById(userId);
-        if (!success) {
-            throw new BusinessException("删除用户失败");
-        }
+        // 删除与变更日志在同一事务中提交；没有删除任何行即说明用户不存在
+        TransactionManager.run(() -> {
+            if (!userDao.deleteById(userId)) {
+                throw new BusinessException("用户不存在");
+            }
+            GrantEvents.userRolesChanged(userId);
+        });
     }
     
     /**
@@ -151,13 +159,7 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void freezeUser(int userId) {
-        User user = getUserById(userId);
-        
-        if (user.isFrozen()) {
-            throw new BusinessException("用户已被冻结");
-        }
-        
-        updateUserStatusInternal(userId, 1, "冻结");
+        updateUserStatusInternal(userId, 0, 1, "用户已被冻结");
     }
     
     /**
@@ -170,30 +172,30 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public void unfreezeUser(int userId) {
-        User user = getUserById(userId);
-        
-        if (user.isNormal()) {
-            throw new BusinessException("用户已是正常状态");
-        }
-        
-        updateUserStatusInternal(userId, 0, "解冻");
+        updateUserStatusInternal(userId, 1, 0, "用户已是正常状态");
     }
     
     /**
      * 内部方法：更新用户状态
      * 
-     * <p>此方法封装了状态更新的通用逻辑，避免freezeUser和unfreezeUser之间的重复代码
+     * <p>此方法封装了状态更新的通用逻辑，避免freezeUser和unfreezeUser之间的重复代码。
+     * 状态检查和更新是一条条件 UPDATE，成功时只有一次往返；未更新任何行时才查询用户，
+     * 区分“用户不存在”和“已处于目标状态”
      * 
      * @param userId 用户ID
+     * @param expectedStatus 更新前应处于的状态
      * @param status 目标状态（0=正常, 1=冻结）
-     * @param operationName 操作名称（用于错误消息）
-     * @throws BusinessException 当更新失败时
+     * @param alreadyMessage 用户已处于目标状态时的错误消息
+     * @throws BusinessException 当用户不存在或已处于目标状态时
      */
-    private void updateUserStatusInternal(int userId, int status, String operationName) {
-        boolean success = userDao.updateStatus(userId, status);
-        if (!success) {
-            throw new BusinessException(operationName + "用户失败");
+    private void updateUserStatusInternal(int userId, int expectedStatus, int status, String alreadyMessage) {
+        if (userDao.updateStatusIf(userId, expectedStatus, status)) {
+            return;
         }
+        if (userDao.findPrincipalById(userId) == null) {
+            throw new BusinessException("用户不存在");
+        }
+        throw new BusinessException(alreadyMessage);
     }
     
     /**
@@ -206,16 +208,62 @@ public class UserServiceImpl implements UserService {
         return userDao.findAll();
     }
     
+    /**
+     * 分页查询用户（键集分页，按ID排序）
+     * 
+     * @param afterId 上一页的 nextAfterId，第一页传0
+     * @param limit 每页条数
+     * @return 一页用户
+     * @throws BusinessException 当每页条数超出范围时
+     */
+    @Override
+    public Page<User> listUsers(int afterId, int limit) {
+        checkPageLimit(limit);
+        return userDao.findPage(afterId, limit);
+    }
+    
+    /**
+     * 按状态分页查询用户（键集分页，按ID排序）
+     * 
+     * @param status 用户状态（0=正常，1=冻结）
+     * @param afterId 上一页的 nextAfterId，第一页传0
+     * @param limit 每页条数
+     * @return 一页用户
+     * @throws BusinessException 当状态无效或每页条数超出范围时
+     */
+    @Override
+    public Page<User> listUsersByStatus(int status, int afterId, int limit) {
+        if (status != 0 && status != 1) {
+            throw new BusinessException("无效的用户状态: " + status);
+        }
+        checkPageLimit(limit);
+        return userDao.findPageByStatus(status, afterId, limit);
+    }
+    
+    /**
+     * 逐个遍历所有用户（按ID排序）
+     * 
+     * <p>用户从数据库流式读取，适合用户量很大时的列表显示和导出
+     * 
+     * @param action 对每个用户执行的操作
+     */
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        userDao.forEach(action);
+    }
+    
     /**
      * 根据用户ID查询用户
      * 
+     * <p>只查询身份信息（id、username、status），不读取密码哈希和盐值
+     * 
      * @param userId 用户ID
-     * @return 用户对象
+     * @return 用户对象（不含凭据和时间戳）
      * @throws BusinessException 当用户不存在时
      */
     @Override
     public User getUserById(int userId) {
-        User user = userDao.findById(userId);
+        User user = userDao.findPrincipalById(userId);
         if (user == null) {
             throw new BusinessException("用户不存在");
         }
@@ -225,24 +273,25 @@ public class UserServiceImpl implements UserService {
     /**
      * 根据用户名查询用户
      * 
+     * <p>只查询身份信息（id、username、status），不读取密码哈希和盐值
+     * 
      * @param username 用户名
-     * @return 用户对象，如果不存在则返回null
+     * @return 用户对象（不含凭据和时间戳），如果不存在则返回null
      */
     @Override
     public User getUserByUsername(String username) {
-        return userDao.findByUsername(username);
+        return userDao.findPrincipalByUsername(username);
     }
     
     /**
-     * 检查用户是否存在
+     * 检查每页条数是否在允许范围内
      * 
-     * @param userId 用户ID
-     * @throws BusinessException 当用户不存在时
+     * @param limit 每页条数
+     * @throws BusinessException 当条数不在 1 到 {@link Page#MAX_LIMIT} 之间时
      */
-    private void checkUserExists(int userId) {
-        User user = userDao.findById(userId);
-        if (user == null) {
-            throw new BusinessException("用户不存在");
+    private void checkPageLimit(int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new BusinessException("每页条数必须在1到" + Page.MAX_LIMIT + "之间");
         }
     }
 }
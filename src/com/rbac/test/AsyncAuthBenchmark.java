@@ -0,0 +1,104 @@
+package com.rbac.test;
+
+import com.rbac.common.PermissionConsts;
+import com.rbac.model.User;
+import com.rbac.service.AsyncAuthService;
+import com.rbac.service.impl.AsyncAuthServiceImpl;
+import com.rbac.service.impl.AuthServiceImpl;
+import com.rbac.service.impl.UserServiceImpl;
+import com.rbac.util.AsyncExecutor;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 异步认证接口测试 - 单个调用方线程同时发起大量授权检查
+ *
+ * <p>admin 和一个没有任何角色的普通用户交替发起 {@code hasPermission(USER_LIST)}，
+ * 检查每个结果都对应各自的身份（验证身份随请求显式传递，不会串到其他请求上），并输出吞吐量。
+ * 最后用容量很小的队列验证队列满时请求立即失败。
+ *
+ * <p>用法：{@code AsyncAuthBenchmark [请求数]}，默认 20000。建议使用 {@code -Ddb.type=embedded} 运行。
+ */
+public class AsyncAuthBenchmark {
+
+    private static final String PLAIN_USERNAME = "async_bench_user";
+    private static final String PLAIN_PASSWORD = "bench123";
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        System.out.println("========================================");
+        System.out.println("   异步认证接口测试");
+        System.out.println("========================================");
+        System.out.println("后端类型: " + DBUtil.getBackendType());
+
+        if (new UserServiceImpl().getUserByUsername(PLAIN_USERNAME) == null) {
+            new UserServiceImpl().createUser(PLAIN_USERNAME, PLAIN_PASSWORD);
+        }
+
+        try (AsyncExecutor executor = new AsyncExecutor(ConfigUtil.getInt("db.pool.maxSize", 10), requests)) {
+            AsyncAuthService authService = new AsyncAuthServiceImpl(new AuthServiceImpl(), executor);
+            User admin = authService.login("admin", ConfigUtil.getString("db.embedded.adminPassword", "admin123")).join();
+            User plain = authService.login(PLAIN_USERNAME, PLAIN_PASSWORD).join();
+            System.out.println("请求数: " + requests + ", " + executor);
+
+            // 预热
+            runRound(authService, admin, plain, Math.min(requests, 2000));
+
+            long start = System.nanoTime();
+            int mismatches = runRound(authService, admin, plain, requests);
+            long elapsed = System.nanoTime() - start;
+
+            double seconds = elapsed / 1_000_000_000.0;
+            System.out.printf("完成 %d 个请求, 耗时: %.2fs, 吞吐量: %.0f ops/s%n", requests, seconds, requests / seconds);
+            System.out.println((mismatches == 0 ? "✓" : "✗") + " 身份不匹配的结果: " + mismatches);
+            System.out.println("执行器: " + executor);
+        }
+
+        try (AsyncExecutor tiny = new AsyncExecutor(1, 1)) {
+            AsyncAuthService authService = new AsyncAuthServiceImpl(new AuthServiceImpl(), tiny);
+            int rejected = 0;
+            List<CompletableFuture<Set<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(authService.getUserPermissions(1));
+            }
+            for (CompletableFuture<Set<String>> future : futures) {
+                try {
+                    future.join();
+                } catch (Exception e) {
+                    if (e.getCause() instanceof RejectedExecutionException) {
+                        rejected++;
+                    }
+                }
+            }
+            System.out.println((rejected > 0 ? "✓" : "✗") + " 队列容量为1时被拒绝的请求: " + rejected + "/100");
+        }
+
+        DBUtil.shutdown();
+    }
+
+    /**
+     * 一次性提交全部请求后等待完成，返回结果与身份不符的请求数
+     */
+    private static int runRound(AsyncAuthService authService, User admin, User plain, int requests) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            User principal = i % 2 == 0 ? admin : plain;
+            futures.add(authService.hasPermission(principal, PermissionConsts.USER_LIST));
+        }
+        int mismatches = 0;
+        for (int i = 0; i < requests; i++) {
+            boolean expected = i % 2 == 0;
+            if (futures.get(i).join() != expected) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+}
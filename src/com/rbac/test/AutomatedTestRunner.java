@@ -2,12 +2,15 @@ package com.rbac.test;
 
 import com.rbac.audit.AuditAnalyzer;
 import com.rbac.common.PermissionConsts;
+import com.rbac.dao.Page;
 import com.rbac.dao.UserDao;
 import com.rbac.decorator.AuthPermissionServiceDecorator;
 import com.rbac.decorator.AuthRoleServiceDecorator;
 import com.rbac.decorator.AuthUserServiceDecorator;
+import com.rbac.engine.AuthorizationEngine;
 import com.rbac.exception.BusinessException;
 import com.rbac.model.Permission;
+import com.rbac.model.PermissionMask;
 import com.rbac.model.Role;
 import com.rbac.model.User;
 import com.rbac.service.AuthService;
@@ -15,6 +18,7 @@ import com.rbac.service.PermissionService;
 import com.rbac.service.RoleService;
 import com.rbac.service.UserService;
 import com.rbac.service.impl.AuthServiceImpl;
+import com.rbac.service.impl.CompiledAuthServiceImpl;
 import com.rbac.service.impl.PermissionServiceImpl;
 import com.rbac.service.impl.RoleServiceImpl;
 import com.rbac.service.impl.UserServiceImpl;
@@ -31,6 +35,8 @@ import java.sql.Connection;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -63,6 +69,10 @@ public class AutomatedTestRunner {
             testPasswordComplexity(); // 新增：密码复杂度测试
             testRolePermissionLifecycle();
             testAuditAnalysis();      // 优化：审计分析测试
+            testBatchPermissionCheck();
+            testReverseQuery();
+            testWildcardPermission();
+            testRoleInheritance();
 
             System.out.println("\n=================================");
             System.out.println("   所有测试用例执行完毕！");
@@ -79,15 +89,16 @@ public class AutomatedTestRunner {
         
         // 基础服务
         UserService baseUserService = new UserServiceImpl();
-        RoleService baseRoleService = new RoleServiceImpl();
+        boolean compiled = "compiled".equalsIgnoreCase(ConfigUtil.getString("auth.engine", "sql"));
+        RoleService baseRoleService = new RoleServiceImpl(compiled ? AuthorizationEngine.shared() : null);
         PermissionService basePermissionService = new PermissionServiceImpl();
-        authService = new AuthServiceImpl();
+        authService = compiled ? new CompiledAuthServiceImpl() : new AuthServiceImpl();
         userDao = new UserDao();
 
         // 装饰器包装
         userService = new AuthUserServiceDecorator(baseUserService, authService);
-        roleService = new AuthRoleServiceDecorator(baseRoleService, authService, baseUserService);
-        permissionService = new AuthPermissionServiceDecorator(basePermissionService, authService, baseRoleService);
+        roleService = new AuthRoleServiceDecorator(baseRoleService, authService);
+        permissionService = new AuthPermissionServiceDecorator(basePermissionService, authService);
         
         System.out.println("[INIT] 服务初始化完成");
     }
@@ -295,6 +306,23 @@ public class AutomatedTestRunner {
             System.err.println("  ✗ 分配权限失败: " + e.getMessage());
         }
 
+        // 4.3b 重复分配、分配不存在的权限：由写入时的唯一键/外键冲突给出原因
+        try {
+            permissionService.assignPermissionToRole(role.getId(), perm.getId());
+            System.err.println("  ✗ 重复分配权限未被拒绝");
+        } catch (BusinessException e) {
+            try {
+                permissionService.assignPermissionToRole(role.getId(), Integer.MAX_VALUE);
+                System.err.println("  ✗ 分配不存在的权限未被拒绝");
+            } catch (BusinessException e2) {
+                if ("角色已拥有该权限".equals(e.getMessage()) && "权限不存在".equals(e2.getMessage())) {
+                    System.out.println("  ✓ 冲突写入给出具体原因");
+                } else {
+                    System.err.println("  ✗ 冲突原因不符: " + e.getMessage() + " / " + e2.getMessage());
+                }
+            }
+        }
+
         // 4.4 移除权限 (测试新加的 PERMISSION:REVOKE)
         try {
             permissionService.removePermissionFromRole(role.getId(), perm.getId());
@@ -356,4 +384,196 @@ public class AutomatedTestRunner {
             System.err.println("  ✗ 审计分析执行异常: " + e.getMessage());
         }
     }
+
+    private static void testBatchPermissionCheck() {
+        System.out.println("\n[TEST] 6. 批量权限校验测试");
+        
+        // admin 拥有 USER:CREATE 和 ROLE:LIST，没有不存在的权限
+        List<String> codes = Arrays.asList(PermissionConsts.USER_CREATE, "TEST:NOT_EXIST", PermissionConsts.ROLE_LIST);
+        try {
+            PermissionMask mask = authService.filterPermitted(codes);
+            boolean expected = mask.isPermitted(0) && !mask.isPermitted(1) && mask.isPermitted(2)
+                    && mask.getPermittedCount() == 2
+                    && !authService.hasAllPermissions(codes) && authService.hasAnyPermission(codes)
+                    && authService.hasAllPermissions(Arrays.asList(PermissionConsts.USER_CREATE, PermissionConsts.ROLE_LIST))
+                    && !authService.hasAnyPermission(Arrays.asList("TEST:NOT_EXIST"));
+            if (expected) {
+                System.out.println("  ✓ 批量校验结果与逐个校验一致: " + mask);
+            } else {
+                System.err.println("  ✗ 批量校验结果错误: " + mask);
+            }
+        } catch (Exception e) {
+            System.err.println("  ✗ 批量校验异常: " + e.getMessage());
+        }
+    }
+
+    private static void testReverseQuery() {
+        System.out.println("\n[TEST] 7. 反向查询测试（拥有权限/角色的用户）");
+        
+        try {
+            User admin = userDao.findByUsername("admin");
+            Role adminRole = roleService.getRoleByCode("ADMIN");
+            Page<User> withPermission = authService.findUsersWithPermission(PermissionConsts.USER_CREATE, admin.getId() - 1, 1);
+            Page<User> inRole = roleService.listRoleUsers(adminRole.getId(), admin.getId() - 1, 1);
+            if (!withPermission.isEmpty() && withPermission.getItems().get(0).getId() == admin.getId()
+                    && !inRole.isEmpty() && inRole.getItems().get(0).getId() == admin.getId()) {
+                System.out.println("  ✓ admin 出现在 USER:CREATE 和 ADMIN 角色的用户中");
+            } else {
+                System.err.println("  ✗ 反向查询结果错误: " + withPermission.getItems() + " / " + inRole.getItems());
+            }
+            
+            // 逐页读取全部结果，与逐个用户判断一致（含经由继承获得权限的用户）
+            List<Integer> paged = new ArrayList<>();
+            int afterId = 0;
+            Page<User> page;
+            do {
+                page = authService.findUsersWithPermission(PermissionConsts.USER_LIST, afterId, 2);
+                page.getItems().forEach(user -> paged.add(user.getId()));
+                afterId = page.getNextAfterId();
+            } while (page.hasNext());
+            List<Integer> expected = new ArrayList<>();
+            for (User user : userDao.findAll()) {
+                if (authService.getUserPermissions(user.getId()).contains(PermissionConsts.USER_LIST)) {
+                    expected.add(user.getId());
+                }
+            }
+            expected.sort(null);
+            if (paged.equals(expected)) {
+                System.out.println("  ✓ 分页读取拥有 USER:LIST 的用户与逐个判断一致: " + paged.size() + " 个");
+            } else {
+                System.err.println("  ✗ 分页结果 " + paged + " 与逐个判断 " + expected + " 不一致");
+            }
+        } catch (Exception e) {
+            System.err.println("  ✗ 反向查询异常: " + e.getMessage());
+        }
+    }
+
+    private static void testWildcardPermission() {
+        System.out.println("\n[TEST] 8. 通配权限测试");
+        
+        User admin = SessionContext.getCurrentUser();
+        String username = "testuser_wild";
+        try {
+            permissionService.createPermission("TEST:WILD:*", "测试通配权限");
+            roleService.createRole("TEST_WILD", "通配测试角色", "描述");
+            userService.createUser(username, "Password123");
+            Role role = roleService.getRoleByCode("TEST_WILD");
+            User user = userDao.findByUsername(username);
+            permissionService.assignPermissionToRole(role.getId(), permissionService.getPermissionByCode("TEST:WILD:*").getId());
+            roleService.assignRoleToUser(user.getId(), role.getId());
+            
+            SessionContext.setCurrentUser(user);
+            boolean covered = authService.hasPermission("TEST:WILD:EXPORT")
+                    && authService.hasPermission("TEST:WILD:REPORT:DAILY")
+                    && authService.filterPermitted(Arrays.asList("TEST:WILD:A", "TEST:OTHER")).toString().endsWith("mask=10}");
+            boolean notCovered = !authService.hasPermission("TEST:WILD") && !authService.hasPermission("TEST:OTHER");
+            authService.checkPermission("TEST:WILD:EXPORT");
+            if (covered && notCovered) {
+                System.out.println("  ✓ TEST:WILD:* 覆盖 TEST:WILD 下的权限，不覆盖 TEST:WILD 和其他权限");
+            } else {
+                System.err.println("  ✗ 通配权限校验错误: covered=" + covered + ", notCovered=" + notCovered);
+            }
+            
+            // 8.2 反向查询：TEST:WILD:EXPORT 没有作为权限创建，由 TEST:WILD:* 覆盖
+            SessionContext.setCurrentUser(admin);
+            boolean found = authService.findUsersWithPermission("TEST:WILD:EXPORT", 0, Page.MAX_LIMIT).getItems()
+                    .stream().anyMatch(u -> u.getId().equals(user.getId()));
+            String missing;
+            try {
+                authService.findUsersWithPermission("TEST:NOWILD:EXPORT", 0, 10);
+                missing = null;
+            } catch (BusinessException e) {
+                missing = e.getMessage();
+            }
+            if (found && "权限不存在".equals(missing)) {
+                System.out.println("  ✓ 仅由通配权限覆盖的编码可反向查询，无任何覆盖时提示权限不存在");
+            } else {
+                System.err.println("  ✗ 通配反向查询错误: found=" + found + ", missing=" + missing);
+            }
+        } catch (Exception e) {
+            System.err.println("  ✗ 通配权限测试异常: " + e.getMessage());
+        } finally {
+            SessionContext.setCurrentUser(admin);
+        }
+        
+        try {
+            permissionService.createPermission("TEST:*:EXPORT", "通配符不在最后一段");
+            System.err.println("  ✗ 非法通配编码未被拒绝");
+        } catch (BusinessException e) {
+            System.out.println("  ✓ 拒绝非法通配编码: " + e.getMessage());
+        }
+        
+        // 清理
+        try {
+            userService.deleteUser(userDao.findByUsername(username).getId());
+            roleService.deleteRole(roleService.getRoleByCode("TEST_WILD").getId());
+            permissionService.deletePermission(permissionService.getPermissionByCode("TEST:WILD:*").getId());
+        } catch (Exception e) {
+            System.err.println("  ✗ 清理失败: " + e.getMessage());
+        }
+    }
+
+    private static void testRoleInheritance() {
+        System.out.println("\n[TEST] 9. 角色继承测试");
+        
+        User admin = SessionContext.getCurrentUser();
+        String username = "testuser_inherit";
+        try {
+            permissionService.createPermission("TEST:INHERIT", "测试继承权限");
+            roleService.createRole("TEST_PARENT", "父角色", "描述");
+            roleService.createRole("TEST_CHILD", "子角色", "描述");
+            roleService.createRole("TEST_GRAND", "孙角色", "描述");
+            userService.createUser(username, "Password123");
+            Role parent = roleService.getRoleByCode("TEST_PARENT");
+            Role child = roleService.getRoleByCode("TEST_CHILD");
+            Role grand = roleService.getRoleByCode("TEST_GRAND");
+            User user = userDao.findByUsername(username);
+            permissionService.assignPermissionToRole(parent.getId(), permissionService.getPermissionByCode("TEST:INHERIT").getId());
+            roleService.addParentRole(child.getId(), parent.getId());
+            roleService.addParentRole(grand.getId(), child.getId());
+            roleService.assignRoleToUser(user.getId(), grand.getId());
+            
+            SessionContext.setCurrentUser(user);
+            boolean inherited = authService.hasPermission("TEST:INHERIT");
+            SessionContext.setCurrentUser(admin);
+            int ancestors = roleService.getAncestorRoles(grand.getId()).size();
+            if (inherited && ancestors == 2) {
+                System.out.println("  ✓ 孙角色的用户经由两层继承拥有父角色的权限");
+            } else {
+                System.err.println("  ✗ 继承权限错误: inherited=" + inherited + ", ancestors=" + ancestors);
+            }
+            
+            try {
+                roleService.addParentRole(parent.getId(), grand.getId());
+                System.err.println("  ✗ 成环的继承关系未被拒绝");
+            } catch (BusinessException e) {
+                System.out.println("  ✓ 拒绝成环的继承关系: " + e.getMessage());
+            }
+            
+            roleService.removeParentRole(child.getId(), parent.getId());
+            SessionContext.setCurrentUser(user);
+            boolean revoked = !authService.hasPermission("TEST:INHERIT");
+            SessionContext.setCurrentUser(admin);
+            if (revoked && roleService.getAncestorRoles(grand.getId()).size() == 1) {
+                System.out.println("  ✓ 取消继承后不再拥有父角色的权限");
+            } else {
+                System.err.println("  ✗ 取消继承后仍拥有父角色的权限");
+            }
+        } catch (Exception e) {
+            System.err.println("  ✗ 角色继承测试异常: " + e.getMessage());
+        } finally {
+            SessionContext.setCurrentUser(admin);
+        }
+        
+        // 清理
+        try {
+            userService.deleteUser(userDao.findByUsername(username).getId());
+            for (String roleCode : new String[]{"TEST_GRAND", "TEST_CHILD", "TEST_PARENT"}) {
+                roleService.deleteRole(roleService.getRoleByCode(roleCode).getId());
+            }
+            permissionService.deletePermission(permissionService.getPermissionByCode("TEST:INHERIT").getId());
+        } catch (Exception e) {
+            System.err.println("  ✗ 清理失败: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.rbac.test;
+
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleDao;
+import com.rbac.dao.UserDao;
+import com.rbac.model.User;
+import com.rbac.util.DBUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库后端基准测试 - 在当前配置的后端上测量授权热点查询的吞吐量
+ *
+ * <p>用法：分别以 {@code -Ddb.type=mysql} 和 {@code -Ddb.type=embedded} 运行，对比两种后端的结果。
+ * 可选参数：{@code 线程数 每线程迭代次数}，默认 4 线程、每线程 5000 次。
+ */
+public class BackendBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        System.out.println("========================================");
+        System.out.println("   数据库后端基准测试");
+        System.out.println("========================================");
+        System.out.println("后端类型: " + DBUtil.getBackendType());
+        System.out.println("线程数: " + threads + ", 每线程迭代: " + iterations);
+
+        UserDao userDao = new UserDao();
+        PermissionDao permissionDao = new PermissionDao();
+        RoleDao roleDao = new RoleDao();
+
+        User admin = userDao.findByUsername("admin");
+        if (admin == null) {
+            System.err.println("✗ admin 用户不存在，请先初始化数据库");
+            return;
+        }
+        int adminId = admin.getId();
+
+        // 预热：填满连接池和语句缓存，让JIT完成编译
+        runRound(threads, iterations / 5, userDao, permissionDao, roleDao, adminId);
+
+        long start = System.nanoTime();
+        long ops = runRound(threads, iterations, userDao, permissionDao, roleDao, adminId);
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = elapsed / 1_000_000_000.0;
+        System.out.println();
+        System.out.printf("总操作数: %d, 耗时: %.2fs%n", ops, seconds);
+        System.out.printf("吞吐量: %.0f ops/s, 平均延迟: %.1fus%n",
+                ops / seconds, elapsed / 1000.0 / ops * threads);
+        System.out.println("连接池: " + DBUtil.getPoolStats());
+        DBUtil.shutdown();
+    }
+
+    /**
+     * 每次迭代执行一组授权路径上的典型查询：按用户名查用户、查用户权限、查用户角色
+     */
+    private static long runRound(int threads, int iterations, UserDao userDao, PermissionDao permissionDao,
+                                 RoleDao roleDao, int userId) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                long count = 0;
+                for (int i = 0; i < iterations; i++) {
+                    userDao.findByUsername("admin");
+                    permissionDao.findByUserId(userId);
+                    roleDao.findByUserId(userId);
+                    count += 3;
+                }
+                return count;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> future : futures) {
+            total += future.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        return total;
+    }
+}
@@ -0,0 +1,302 @@
+package com.rbac.test;
+
+import com.rbac.cache.PermissionCache;
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.event.ChangeFeedPoller;
+import com.rbac.service.PermissionService;
+import com.rbac.service.RoleService;
+import com.rbac.service.UserService;
+import com.rbac.service.impl.PermissionServiceImpl;
+import com.rbac.service.impl.RoleServiceImpl;
+import com.rbac.service.impl.UserServiceImpl;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+import com.rbac.util.TransactionManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跨节点缓存失效检查 - 两个JVM共享同一个数据库，一个修改授权，另一个的缓存通过变更日志失效
+ *
+ * <p>本进程作为写入节点，启动一个子进程作为读取节点。读取节点持续从权限缓存（{@link PermissionCache}）
+ * 和编译授权模型（{@link AuthorizationEngine}）读取测试用户的权限，变化时输出。写入节点依次分配/移除权限、
+ * 回滚一个事务、移除/分配角色、删除权限，每一步等待读取节点看到新的权限，并统计传播延迟。
+ *
+ * <p>两个进程需要共享一个文件库：
+ * <pre>
+ * -Ddb.type=embedded -Ddb.embedded.url=jdbc:h2:/tmp/rbac-feed/db;MODE=MySQL;DATABASE_TO_LOWER=TRUE;AUTO_SERVER=TRUE
+ * </pre>
+ * 以 {@code db.}、{@code auth.} 开头的系统属性会传给子进程。
+ */
+public class ChangeFeedCheck {
+
+    private static final UserService userService = new UserServiceImpl();
+    private static final RoleService roleService = new RoleServiceImpl();
+    private static final PermissionService permissionService = new PermissionServiceImpl();
+
+    private static final BlockingQueue<String> followerLines = new LinkedBlockingQueue<>();
+    private static final List<Long> latencies = new ArrayList<>();
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && "follower".equals(args[0])) {
+            follow(Integer.parseInt(args[1]));
+            return;
+        }
+
+        System.out.println("========================================");
+        System.out.println("   跨节点缓存失效检查");
+        System.out.println("========================================");
+        String url = ConfigUtil.getString("db.embedded.url", "");
+        if (!"embedded".equals(ConfigUtil.getString("db.type", "")) || !url.contains("AUTO_SERVER=TRUE")) {
+            System.err.println("✗ 需要两个进程共享的文件库，请按类注释中的参数运行");
+            return;
+        }
+
+        String suffix = Long.toString(System.currentTimeMillis() % 1000000);
+        userService.createUser("feed_user_" + suffix, "feed123456");
+        int userId = userService.getUserByUsername("feed_user_" + suffix).getId();
+        roleService.createRole("FEED_ROLE_" + suffix, "变更日志检查角色", null);
+        int roleId = roleService.getRoleByCode("FEED_ROLE_" + suffix).getId();
+        String codeA = "FEED:A" + suffix;
+        String codeB = "FEED:B" + suffix;
+        permissionService.createPermission(codeA, "变更日志检查权限A");
+        int permA = permissionService.getPermissionByCode(codeA).getId();
+        permissionService.createPermission(codeB, "变更日志检查权限B");
+        int permB = permissionService.getPermissionByCode(codeB).getId();
+        roleService.assignRoleToUser(userId, roleId);
+
+        long timeout = ConfigUtil.getLong("auth.changeFeed.maxStalenessMs", 5000) + 2000;
+        Process follower = startFollower(userId);
+        PrintWriter commands = new PrintWriter(follower.getOutputStream(), true);
+        try {
+            if (awaitState(Collections.<String>emptySet(), timeout) < 0) {
+                throw new IllegalStateException("读取节点没有启动");
+            }
+            System.out.println("读取节点已启动，初始权限为空\n");
+
+            step("给角色分配权限A", () -> permissionService.assignPermissionToRole(roleId, permA),
+                    Arrays.asList(codeA), timeout);
+            step("给角色分配权限B", () -> permissionService.assignPermissionToRole(roleId, permB),
+                    Arrays.asList(codeA, codeB), timeout);
+            step("移除角色的权限A", () -> permissionService.removePermissionFromRole(roleId, permA),
+                    Arrays.asList(codeB), timeout);
+
+            try {
+                TransactionManager.run(() -> {
+                    permissionService.assignPermissionToRole(roleId, permA);
+                    throw new IllegalStateException("回滚");
+                });
+            } catch (IllegalStateException expected) {
+                // 修改和变更日志一起回滚
+            }
+            long quiet = ConfigUtil.getLong("auth.changeFeed.pollIntervalMs", 500) * 4;
+            String unexpected = followerLines.poll(quiet, TimeUnit.MILLISECONDS);
+            check("事务回滚：读取节点的权限不变", unexpected == null);
+
+            step("移除用户的角色", () -> roleService.removeRoleFromUser(userId, roleId),
+                    Collections.<String>emptySet(), timeout);
+            step("重新分配角色", () -> roleService.assignRoleToUser(userId, roleId),
+                    Arrays.asList(codeB), timeout);
+            step("删除权限B", () -> permissionService.deletePermission(permB),
+                    Collections.<String>emptySet(), timeout);
+
+            commands.println("STATS");
+            String stats = followerLines.poll(timeout, TimeUnit.MILLISECONDS);
+            System.out.println("\n读取节点: " + (stats == null ? "（无响应）" : stats.substring("STATS ".length())));
+        } finally {
+            commands.println("EXIT");
+            follower.waitFor(10, TimeUnit.SECONDS);
+            follower.destroy();
+            cleanup(userId, roleId, permA, permB);
+        }
+
+        if (!latencies.isEmpty()) {
+            long max = 0;
+            long total = 0;
+            for (long latency : latencies) {
+                max = Math.max(max, latency);
+                total += latency;
+            }
+            System.out.printf("传播延迟（提交到另一个JVM的缓存更新）: 平均 %dms，最大 %dms（%d 次）%n",
+                    total / latencies.size(), max, latencies.size());
+        }
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        DBUtil.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 执行一次修改，等待读取节点的缓存和编译模型都变为预期的权限
+     */
+    private static void step(String name, Runnable change, Collection<String> expected, long timeout)
+            throws InterruptedException {
+        change.run();
+        long committedAt = System.currentTimeMillis();
+        long seenAt = awaitState(expected, timeout);
+        boolean ok = seenAt >= 0;
+        if (ok) {
+            latencies.add(seenAt - committedAt);
+        }
+        check(name + (ok ? "（" + (seenAt - committedAt) + "ms 后可见）" : "：超时未看到 " + expected), ok);
+    }
+
+    /**
+     * 等待读取节点报告的两种权限都等于预期值，返回读取节点看到的时间；超时返回 -1
+     */
+    private static long awaitState(Collection<String> expected, long timeout) throws InterruptedException {
+        String want = new TreeSet<>(expected).toString();
+        String cache = null;
+        String engine = null;
+        long seenAt = 0;
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!want.equals(cache) || !want.equals(engine)) {
+            String line = followerLines.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (line == null) {
+                return -1;
+            }
+            String[] parts = line.split(" ", 3);
+            if ("CACHE".equals(parts[0])) {
+                cache = parts[2];
+            } else if ("ENGINE".equals(parts[0])) {
+                engine = parts[2];
+            }
+            seenAt = Math.max(seenAt, Long.parseLong(parts[1]));
+        }
+        return seenAt;
+    }
+
+    private static Process startFollower(int userId) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            String key = property.getKey().toString();
+            if (key.startsWith("db.") || key.startsWith("auth.")) {
+                command.add("-D" + key + "=" + property.getValue());
+            }
+        }
+        command.add("-cp");
+        command.add(classPath());
+        command.add(ChangeFeedCheck.class.getName());
+        command.add("follower");
+        command.add(String.valueOf(userId));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader lines = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.startsWith("CACHE ") || line.startsWith("ENGINE ") || line.startsWith("STATS ")) {
+                        followerLines.add(line);
+                    } else if (line.contains("ERROR") || line.contains("Exception")) {
+                        System.out.println("  [读取节点] " + line);
+                    }
+                }
+            } catch (Exception ignored) {
+                // 子进程结束
+            }
+        }, "follower-output");
+        reader.setDaemon(true);
+        reader.start();
+        return process;
+    }
+
+    /**
+     * 当前类路径：mvn exec:java 下由类加载器给出，直接用 java 运行时取 java.class.path
+     */
+    private static String classPath() {
+        ClassLoader loader = ChangeFeedCheck.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            StringBuilder path = new StringBuilder();
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                if (path.length() > 0) {
+                    path.append(File.pathSeparator);
+                }
+                path.append(new File(url.getPath()).getPath());
+            }
+            return path.toString();
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    /**
+     * 读取节点：持续读取用户权限，变化时输出；收到 STATS 输出统计，收到 EXIT 退出
+     */
+    private static void follow(int userId) throws Exception {
+        PermissionCache cache = PermissionCache.shared();
+        AuthorizationEngine engine = AuthorizationEngine.shared();
+        Thread watcher = new Thread(() -> {
+            String lastCache = null;
+            String lastEngine = null;
+            while (!Thread.currentThread().isInterrupted()) {
+                String cached = new TreeSet<>(cache.get(userId).getPermissionCodes()).toString();
+                String compiled = new TreeSet<>(engine.model().getPermissions(userId)).toString();
+                if (!cached.equals(lastCache)) {
+                    System.out.println("CACHE " + System.currentTimeMillis() + " " + cached);
+                    lastCache = cached;
+                }
+                if (!compiled.equals(lastEngine)) {
+                    System.out.println("ENGINE " + System.currentTimeMillis() + " " + compiled);
+                    lastEngine = compiled;
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "follower-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        BufferedReader commands = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String command;
+        while ((command = commands.readLine()) != null && !"EXIT".equals(command)) {
+            if ("STATS".equals(command)) {
+                System.out.println("STATS " + ChangeFeedPoller.shared() + " | " + cache);
+            }
+        }
+        watcher.interrupt();
+        DBUtil.shutdown();
+    }
+
+    private static void cleanup(int userId, int roleId, int permA, int permB) {
+        for (Runnable step : new Runnable[]{
+                () -> userService.deleteUser(userId),
+                () -> roleService.deleteRole(roleId),
+                () -> permissionService.deletePermission(permA),
+                () -> permissionService.deletePermission(permB)}) {
+            try {
+                step.run();
+            } catch (RuntimeException ignored) {
+                // 已在检查中删除
+            }
+        }
+    }
+
+    private static void check(String step, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
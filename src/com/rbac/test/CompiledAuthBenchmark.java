@@ -0,0 +1,138 @@
+package com.rbac.test;
+
+import com.rbac.cache.PermissionCache;
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.UserDao;
+import com.rbac.engine.AuthorizationModel;
+import com.rbac.model.Permission;
+import com.rbac.util.DBUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * 编译授权模型基准测试 - 对比SQL关联查询、权限缓存和内存位图三种权限校验方式
+ *
+ * <p>在当前配置的数据库上编译 {@link AuthorizationModel}，输出估算内存与实测堆增量，
+ * 然后对随机的（用户, 权限）组合分别测量：
+ * <ol>
+ *   <li>SQL：{@link PermissionDao#findCodesByUserId(int)} 后判断是否包含</li>
+ *   <li>权限缓存：{@link PermissionCache}，分别在全部用户（多数未命中）和1000个热点用户上测量</li>
+ *   <li>编译模型：{@link AuthorizationModel#hasPermission(int, String)}</li>
+ *   <li>编译模型（预先换算下标）：{@link AuthorizationModel#hasPermission(int, int)}</li>
+ * </ol>
+ * 每种方式先预热，再测量5轮取中位数；SQL方式的迭代次数按1/200缩减。
+ *
+ * <p>用法：{@code CompiledAuthBenchmark [每轮迭代次数]}，默认 2000000。建议在导入了大量用户的库上运行。
+ */
+public class CompiledAuthBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int HOT_USERS = 1000;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        System.out.println("========================================");
+        System.out.println("   编译授权模型基准测试");
+        System.out.println("========================================");
+        System.out.println("后端类型: " + DBUtil.getBackendType());
+
+        // 第一次编译同时完成连接池、类加载等初始化，第二次编译的耗时和堆增量才只反映模型本身
+        AuthorizationModel.load();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        AuthorizationModel model = AuthorizationModel.load();
+        long compileMillis = (System.nanoTime() - start) / 1_000_000;
+        long heapAfter = usedHeap();
+        System.out.println("模型: " + model);
+        System.out.printf("编译耗时: %dms, 实测堆增量≈%.1fMB（估算 %.1fMB）%n",
+                compileMillis, (heapAfter - heapBefore) / 1048576.0, model.estimateBytes() / 1048576.0);
+
+        List<Integer> ids = new ArrayList<>();
+        new UserDao().forEach(user -> ids.add(user.getId()));
+        List<Permission> permissions = new PermissionDao().findAll();
+        if (ids.isEmpty() || permissions.isEmpty()) {
+            System.err.println("✗ 没有用户或权限，请先初始化数据库");
+            return;
+        }
+
+        // 预先生成随机的（用户, 权限）序列，测量时不包含随机数生成的开销
+        Random random = new Random(42);
+        int size = 1 << 16;
+        int[] userIds = new int[size];
+        int[] hotUserIds = new int[size];
+        String[] codes = new String[size];
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            userIds[i] = ids.get(random.nextInt(ids.size()));
+            hotUserIds[i] = ids.get(random.nextInt(Math.min(HOT_USERS, ids.size())));
+            codes[i] = permissions.get(random.nextInt(permissions.size())).getPermissionCode();
+            indexes[i] = model.indexOf(codes[i]);
+        }
+        int mask = size - 1;
+
+        PermissionDao permissionDao = new PermissionDao();
+        PermissionCache cache = PermissionCache.shared();
+        System.out.println("用户数: " + ids.size() + ", 权限数: " + permissions.size() + ", 每轮迭代: " + iterations);
+        System.out.println();
+
+        double sql = measure("SQL关联查询", Math.max(1, iterations / 200),
+                i -> permissionDao.findCodesByUserId(userIds[i & mask]).contains(codes[i & mask]));
+        measure("权限缓存（全部用户）", Math.max(1, iterations / 20),
+                i -> cache.get(userIds[i & mask]).getPermissionCodes().contains(codes[i & mask]));
+        measure("权限缓存（热点用户）", iterations,
+                i -> cache.get(hotUserIds[i & mask]).getPermissionCodes().contains(codes[i & mask]));
+        double compiled = measure("编译模型（编码）", iterations,
+                i -> model.hasPermission(userIds[i & mask], codes[i & mask]));
+        measure("编译模型（下标）", iterations,
+                i -> model.hasPermission(userIds[i & mask], indexes[i & mask]));
+
+        System.out.println();
+        System.out.println(cache);
+        System.out.printf("编译模型相对SQL关联查询: %.0f 倍%n", sql / compiled);
+        System.out.println("(校验结果计数: " + sink + ")");
+        DBUtil.shutdown();
+    }
+
+    /**
+     * 预热一轮后测量 {@value #ROUNDS} 轮，输出并返回每次操作耗时的中位数（纳秒）
+     */
+    private static double measure(String name, int iterations, IntPredicate check) {
+        run(check, iterations);
+        double[] nanosPerOp = new double[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            run(check, iterations);
+            nanosPerOp[r] = (System.nanoTime() - start) / (double) iterations;
+        }
+        Arrays.sort(nanosPerOp);
+        double median = nanosPerOp[ROUNDS / 2];
+        System.out.printf("%-16s %12.1f ns/op %14.0f ops/s  (最快 %.1f, 最慢 %.1f)%n",
+                name, median, 1e9 / median, nanosPerOp[0], nanosPerOp[ROUNDS - 1]);
+        return median;
+    }
+
+    private static void run(IntPredicate check, int iterations) {
+        long granted = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (check.test(i)) {
+                granted++;
+            }
+        }
+        sink += granted;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
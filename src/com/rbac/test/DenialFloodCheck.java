@@ -0,0 +1,320 @@
+package com.rbac.test;
+
+import com.rbac.audit.AuditCoalescer;
+import com.rbac.audit.AuditLogger;
+import com.rbac.cache.DenialCache;
+import com.rbac.dao.PermissionDao;
+import com.rbac.exception.PermissionDeniedException;
+import com.rbac.model.User;
+import com.rbac.service.AuthService;
+import com.rbac.service.PermissionService;
+import com.rbac.service.RoleService;
+import com.rbac.service.UserService;
+import com.rbac.service.impl.AuthServiceImpl;
+import com.rbac.service.impl.PermissionServiceImpl;
+import com.rbac.service.impl.RoleServiceImpl;
+import com.rbac.service.impl.UserServiceImpl;
+import com.rbac.util.DBUtil;
+import com.rbac.util.SessionContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 拒绝风暴检查 - 验证被拒绝的权限校验反复重试时的拒绝结果缓存和审计聚合
+ *
+ * <p>依次检查：
+ * <ol>
+ *   <li>{@link AuditCoalescer}：重复事件只原样写出第一次，汇总记录的次数与实际次数一致（含并发）</li>
+ *   <li>{@link DenialCache}：重复的拒绝由缓存给出，授予权限或分配角色后立即变为允许</li>
+ *   <li>审计文件：大量相同的拒绝只产生一条原样记录和一条 {@code AUDIT_SUMMARY} 汇总记录</li>
+ *   <li>逐次读取授权并逐条写审计（原来的做法）与当前做法的吞吐对比</li>
+ * </ol>
+ * 在当前配置的数据库中创建临时的用户、角色和权限，结束时删除。
+ *
+ * <p>用法：{@code DenialFloodCheck [拒绝次数]}，默认 10000。
+ */
+public class DenialFloodCheck {
+
+    private static final UserService userService = new UserServiceImpl();
+    private static final RoleService roleService = new RoleServiceImpl();
+    private static final PermissionService permissionService = new PermissionServiceImpl();
+    private static final AuthService authService = new AuthServiceImpl();
+    private static final PermissionDao permissionDao = new PermissionDao();
+
+    private static final Path AUDIT_FILE = Paths.get("logs/audit.log");
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int denials = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        System.out.println("========================================");
+        System.out.println("   拒绝风暴检查");
+        System.out.println("========================================");
+
+        checkCoalescer();
+        checkConcurrentCoalescer();
+
+        String suffix = Long.toString(System.currentTimeMillis() % 1000000);
+        String username = "flood_user_" + suffix;
+        userService.createUser(username, "flood123");
+        User user = userService.getUserByUsername(username);
+        roleService.createRole("FLOOD_ROLE_" + suffix, "拒绝风暴检查角色", null);
+        int roleId = roleService.getRoleByCode("FLOOD_ROLE_" + suffix).getId();
+        roleService.createRole("FLOOD_GRANT_" + suffix, "拒绝风暴检查授予角色", null);
+        int grantRoleId = roleService.getRoleByCode("FLOOD_GRANT_" + suffix).getId();
+        String codeA = "FLOOD:A" + suffix;
+        String codeB = "FLOOD:B" + suffix;
+        permissionService.createPermission(codeA, "拒绝风暴检查权限A");
+        int permA = permissionService.getPermissionByCode(codeA).getId();
+        permissionService.createPermission(codeB, "拒绝风暴检查权限B");
+        int permB = permissionService.getPermissionByCode(codeB).getId();
+        roleService.assignRoleToUser(user.getId(), roleId);
+        permissionService.assignPermissionToRole(grantRoleId, permB);
+
+        try {
+            SessionContext.setCurrentUser(user);
+            checkInvalidation(user.getId(), roleId, grantRoleId, permA, codeA, codeB);
+            checkAuditFile(codeA + "-flood", denials);
+            measure(user.getId(), codeA + "-bench", denials);
+        } finally {
+            SessionContext.clear();
+            cleanup(user.getId(), roleId, grantRoleId, permA, permB);
+        }
+
+        System.out.println("\n" + DenialCache.shared());
+        System.out.println(AuditLogger.coalescerStats());
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        DBUtil.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 单线程：第一次原样写出，其余计入汇总；不同事件互不影响；没有重复的窗口后重新原样写出
+     */
+    private static void checkCoalescer() {
+        RecordingSink sink = new RecordingSink();
+        AuditCoalescer coalescer = new AuditCoalescer(sink, true, 60000, 100);
+        for (int i = 0; i < 1000; i++) {
+            coalescer.record("alice", "PERMISSION_CHECK", "USER:DELETE", "权限不足");
+        }
+        coalescer.record("alice", "PERMISSION_CHECK", "USER:CREATE", "权限不足");
+        check("1000次相同事件只原样写出第一次", sink.verbatim.size() == 2 && sink.summaries.isEmpty(),
+                "原样=" + sink.verbatim + " 汇总=" + sink.summaries);
+
+        coalescer.flush();
+        check("窗口结束时写出一条汇总，次数999",
+                sink.summaries.size() == 1 && sink.summaries.get(0).equals("USER:DELETE count=999"),
+                "汇总=" + sink.summaries);
+
+        coalescer.flush();
+        coalescer.record("alice", "PERMISSION_CHECK", "USER:DELETE", "权限不足");
+        check("没有重复的窗口之后再次出现时重新原样写出",
+                sink.verbatim.size() == 3 && sink.summaries.size() == 1, "原样=" + sink.verbatim);
+
+        AuditCoalescer disabled = new AuditCoalescer(sink, false, 60000, 100);
+        disabled.record("bob", "PERMISSION_CHECK", "USER:DELETE", "权限不足");
+        disabled.record("bob", "PERMISSION_CHECK", "USER:DELETE", "权限不足");
+        check("未启用时逐条原样写出", sink.verbatim.size() == 5, "原样=" + sink.verbatim);
+
+        RecordingSink full = new RecordingSink();
+        AuditCoalescer small = new AuditCoalescer(full, true, 60000, 2);
+        for (int i = 0; i < 4; i++) {
+            small.record("carol", "PERMISSION_CHECK", "P" + i, "权限不足");
+            small.record("carol", "PERMISSION_CHECK", "P" + i, "权限不足");
+        }
+        small.flush();
+        long total = full.verbatim.size() + full.summedCount();
+        check("超出事件数上限后逐条写出，不丢记录", total == 8, "原样=" + full.verbatim + " 汇总=" + full.summaries);
+    }
+
+    /**
+     * 多线程重复记录并与汇总并发：原样写出次数加上汇总次数等于记录次数
+     */
+    private static void checkConcurrentCoalescer() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        AuditCoalescer coalescer = new AuditCoalescer(sink, true, 60000, 100);
+        int threads = 8;
+        int perThread = 50000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String target = "T" + (t % 3);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    coalescer.record("dave", "PERMISSION_CHECK", target, "权限不足");
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (int i = 0; i < 200; i++) {
+            coalescer.flush();
+            Thread.yield();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        coalescer.flush();
+        long total = sink.verbatim.size() + sink.summedCount();
+        check("并发记录与汇总（" + threads + "线程×" + perThread + "次）", total == (long) threads * perThread,
+                "原样=" + sink.verbatim.size() + " 汇总次数=" + sink.summedCount());
+    }
+
+    /**
+     * 重复的拒绝由拒绝结果缓存给出；各类授权变更后立即生效
+     */
+    private static void checkInvalidation(int userId, int roleId, int grantRoleId, int permA,
+                                          String codeA, String codeB) {
+        DenialCache denialCache = DenialCache.shared();
+        check("没有权限时拒绝", !authService.hasPermission(codeA), "");
+        long hits = denialCache.getHitCount();
+        boolean denied = true;
+        for (int i = 0; i < 100; i++) {
+            denied &= !authService.hasPermission(codeA);
+        }
+        check("重复校验由拒绝结果缓存给出", denied && denialCache.getHitCount() - hits == 100,
+                "命中=" + (denialCache.getHitCount() - hits));
+
+        permissionService.assignPermissionToRole(roleId, permA);
+        check("给用户的角色分配权限后立即允许", authService.hasPermission(codeA), "");
+
+        permissionService.removePermissionFromRole(roleId, permA);
+        check("移除权限后再次拒绝", !authService.hasPermission(codeA), "");
+
+        check("没有权限B时拒绝", !authService.hasPermission(codeB), "");
+        roleService.assignRoleToUser(userId, grantRoleId);
+        check("分配拥有权限B的角色后立即允许", authService.hasPermission(codeB), "");
+        roleService.removeRoleFromUser(userId, grantRoleId);
+
+        check("移除角色后再次拒绝", !authService.hasPermission(codeB), "");
+        roleService.addParentRole(roleId, grantRoleId);
+        check("继承拥有权限B的角色后立即允许", authService.hasPermission(codeB), "");
+        roleService.removeParentRole(roleId, grantRoleId);
+        check("取消继承后再次拒绝", !authService.hasPermission(codeB), "");
+    }
+
+    /**
+     * 大量相同的拒绝在审计文件中只有一条原样记录，汇总后再有一条带次数的汇总记录
+     */
+    private static void checkAuditFile(String code, int denials) throws IOException {
+        AuditLogger.flush();
+        for (int i = 0; i < denials; i++) {
+            try {
+                authService.checkPermission(code);
+            } catch (PermissionDeniedException expected) {
+                // 每次都应被拒绝
+            }
+        }
+        List<String> lines = auditLines(code);
+        check(denials + "次拒绝只写入一条原样记录",
+                lines.size() == 1 && lines.get(0).contains("[AUDIT_FAIL]"), "记录=" + lines);
+
+        AuditLogger.flush();
+        lines = auditLines(code);
+        boolean summarized = lines.size() == 2 && lines.get(1).contains("[AUDIT_SUMMARY]")
+                && lines.get(1).contains("count=" + (denials - 1));
+        check("汇总后写入一条 AUDIT_SUMMARY，count=" + (denials - 1), summarized, "记录=" + lines);
+        if (summarized) {
+            System.out.println("    " + lines.get(1));
+        }
+    }
+
+    private static List<String> auditLines(String code) throws IOException {
+        List<String> matched = new ArrayList<>();
+        if (!Files.exists(AUDIT_FILE)) {
+            return matched;
+        }
+        String needle = "target=" + code + " ";
+        for (String line : Files.readAllLines(AUDIT_FILE, StandardCharsets.UTF_8)) {
+            if (line.contains(needle)) {
+                matched.add(line);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 原来的做法（每次读取授权 + 逐条写审计）与当前做法的拒绝吞吐
+     */
+    private static void measure(int userId, String code, int denials) {
+        int legacy = Math.max(1, denials / 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < legacy; i++) {
+            if (!permissionDao.findGrantsByUserId(userId).matches(code)) {
+                AuditLogger.logFail("PERMISSION_CHECK", code, "权限不足：需要权限 [" + code + "]");
+            }
+        }
+        double legacyNanos = (System.nanoTime() - start) / (double) legacy;
+
+        start = System.nanoTime();
+        for (int i = 0; i < denials; i++) {
+            try {
+                authService.checkPermission(code);
+            } catch (PermissionDeniedException expected) {
+                // 每次都应被拒绝
+            }
+        }
+        double currentNanos = (System.nanoTime() - start) / (double) denials;
+        AuditLogger.flush();
+
+        System.out.printf("%n拒绝耗时: 逐次查询+逐条审计 %.1fus/次（%d次），拒绝缓存+审计聚合 %.2fus/次（%d次），%.0f倍%n",
+                legacyNanos / 1e3, legacy, currentNanos / 1e3, denials, legacyNanos / currentNanos);
+    }
+
+    private static void check(String step, boolean ok, String detail) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            System.out.println("    " + detail);
+            failures++;
+        }
+    }
+
+    private static void cleanup(int userId, int roleId, int grantRoleId, int permA, int permB) {
+        for (Runnable step : new Runnable[]{
+                () -> userService.deleteUser(userId),
+                () -> roleService.deleteRole(roleId),
+                () -> roleService.deleteRole(grantRoleId),
+                () -> permissionService.deletePermission(permA),
+                () -> permissionService.deletePermission(permB)}) {
+            try {
+                step.run();
+            } catch (RuntimeException ignored) {
+                // 已在检查中删除
+            }
+        }
+    }
+
+    /**
+     * 把写出的记录保存在内存中
+     */
+    private static final class RecordingSink implements AuditCoalescer.Sink {
+        private final List<String> verbatim = new ArrayList<>();
+        private final List<String> summaries = new ArrayList<>();
+        private final AtomicLong summed = new AtomicLong();
+
+        @Override
+        public synchronized void verbatim(String operator, String action, String target, String message) {
+            verbatim.add(target);
+        }
+
+        @Override
+        public synchronized void summary(String operator, String action, String target, String message,
+                                         long count, long firstMillis, long lastMillis) {
+            summaries.add(target + " count=" + count);
+            summed.addAndGet(count);
+        }
+
+        private long summedCount() {
+            return summed.get();
+        }
+    }
+}
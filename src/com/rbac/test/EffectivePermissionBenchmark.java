@@ -0,0 +1,445 @@
+package com.rbac.test;
+
+import com.rbac.common.PermissionMatcher;
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.dao.PermissionDao;
+import com.rbac.service.PermissionService;
+import com.rbac.service.RoleService;
+import com.rbac.service.impl.PermissionServiceImpl;
+import com.rbac.service.impl.RoleServiceImpl;
+import com.rbac.util.DBUtil;
+import com.rbac.util.EffectivePermissionTool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 用户有效权限物化表基准测试 - 对比关联查询与物化表的权限校验耗时，并验证服务层维护的物化表与授权一致
+ *
+ * <p>在当前配置的数据库中批量写入临时数据（不经过服务层，只为节省时间）：{@value #PARENTS} 个父角色和
+ * {@value #LEAVES} 个子角色各拥有2个权限，每个子角色继承一个父角色；每个用户拥有一个子角色，每4个用户中有一个
+ * 再拥有第二个子角色。随后：
+ * <ol>
+ *   <li>用 {@link EffectivePermissionTool} 全量重建并校验物化表，输出耗时</li>
+ *   <li>对随机的（用户, 权限）组合测量三种校验方式，检查三者结果相同：
+ *     关联查询（{@code PermissionDao(false).findCodesByUserId}）、物化表读取用户全部权限
+ *     （{@code PermissionDao(true).findCodesByUserId}）、物化表主键查找（{@link EffectivePermissionDao#hasAny(int, List)}）</li>
+ *   <li>经由服务层执行分配/移除角色、分配/移除权限、建立/取消继承、删除角色，输出各自维护物化表的耗时，
+ *     之后物化表必须与授权一致</li>
+ *   <li>人为删除和插入物化行，校验必须发现，重建后恢复一致</li>
+ * </ol>
+ * 结束时删除临时数据。需要 {@code -Dauth.effectivePermissions.enabled=true}；用户数较大时建议使用文件库
+ * （{@code db.embedded.url=jdbc:h2:/tmp/...}）并加大堆内存。
+ *
+ * <p>用法：{@code EffectivePermissionBenchmark [用户数] [每轮校验次数]}，默认 1000000、20000。
+ */
+public class EffectivePermissionBenchmark {
+
+    private static final int PARENTS = 5;
+    private static final int LEAVES = 50;
+    private static final int ROUNDS = 5;
+    private static final int CHUNK = 10000;
+
+    private static final RoleService roleService = new RoleServiceImpl();
+    private static final PermissionService permissionService = new PermissionServiceImpl();
+    private static final EffectivePermissionDao effectiveDao = new EffectivePermissionDao(true);
+
+    private static int failures;
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        if (!EffectivePermissionDao.isEnabled()) {
+            System.err.println("需要启用物化表: -Dauth.effectivePermissions.enabled=true");
+            System.exit(2);
+        }
+        String prefix = "EPB_" + System.currentTimeMillis() % 1000000;
+
+        System.out.println("========================================");
+        System.out.println("   用户有效权限物化表基准测试");
+        System.out.println("========================================");
+        System.out.println("后端类型: " + DBUtil.getBackendType() + ", 用户数: " + userCount);
+
+        Fixture fixture = null;
+        try {
+            long start = System.nanoTime();
+            fixture = seed(prefix, userCount);
+            System.out.printf("写入临时数据: %dms%n", millisSince(start));
+
+            EffectivePermissionTool.Report rebuild = EffectivePermissionTool.rebuild(effectiveDao, CHUNK);
+            System.out.println(rebuild);
+            expectConsistent("全量重建后一致");
+
+            measure(fixture, iterations);
+            maintain(fixture);
+            corrupt(fixture);
+        } finally {
+            if (fixture != null) {
+                cleanup(fixture);
+            }
+        }
+
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        DBUtil.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 对随机的（用户, 权限）组合测量三种校验方式，每种预热后测量 {@value #ROUNDS} 轮取中位数
+     */
+    private static void measure(Fixture fixture, int iterations) {
+        Random random = new Random(11);
+        int[] users = new int[iterations];
+        String[] codes = new String[iterations];
+        List<List<String>> grantCodes = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            users[i] = fixture.firstUserId + random.nextInt(fixture.userCount);
+            codes[i] = fixture.codes[random.nextInt(fixture.codes.length)];
+            List<String> covering = PermissionMatcher.coveringWildcards(codes[i]);
+            covering.add(codes[i]);
+            grantCodes.add(covering);
+        }
+
+        PermissionDao joined = new PermissionDao(false);
+        PermissionDao materialized = new PermissionDao(true);
+        int mismatches = 0;
+        int granted = 0;
+        for (int i = 0; i < Math.min(iterations, 2000); i++) {
+            boolean a = joined.findCodesByUserId(users[i]).contains(codes[i]);
+            boolean b = materialized.findCodesByUserId(users[i]).contains(codes[i]);
+            boolean c = effectiveDao.hasAny(users[i], grantCodes.get(i));
+            if (a != b || a != c) {
+                mismatches++;
+            }
+            granted += a ? 1 : 0;
+        }
+        check("三种校验方式结果相同（" + Math.min(iterations, 2000) + " 组，其中允许 " + granted + " 组）",
+                mismatches == 0, "不一致 " + mismatches + " 组");
+
+        double join = median(() -> {
+            for (int i = 0; i < iterations; i++) {
+                sink += joined.findCodesByUserId(users[i]).contains(codes[i]) ? 1 : 0;
+            }
+        }, iterations);
+        double list = median(() -> {
+            for (int i = 0; i < iterations; i++) {
+                sink += materialized.findCodesByUserId(users[i]).contains(codes[i]) ? 1 : 0;
+            }
+        }, iterations);
+        double probe = median(() -> {
+            for (int i = 0; i < iterations; i++) {
+                sink += effectiveDao.hasAny(users[i], grantCodes.get(i)) ? 1 : 0;
+            }
+        }, iterations);
+        System.out.printf("%n权限校验耗时（%d次×%d轮中位数）:%n", iterations, ROUNDS);
+        System.out.printf("  关联查询（user_roles + role_closure + role_permissions）: %.1fus/次%n", join / 1e3);
+        System.out.printf("  物化表读取用户全部权限:                                   %.1fus/次%n", list / 1e3);
+        System.out.printf("  物化表主键查找:                                           %.1fus/次（%.1f倍）%n",
+                probe / 1e3, join / probe);
+    }
+
+    private static double median(Runnable round, int iterations) {
+        round.run();
+        double[] nanos = new double[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            round.run();
+            nanos[r] = (System.nanoTime() - start) / (double) iterations;
+        }
+        Arrays.sort(nanos);
+        return nanos[ROUNDS / 2];
+    }
+
+    /**
+     * 经由服务层修改授权，输出维护物化表的耗时，之后物化表必须与授权一致
+     */
+    private static void maintain(Fixture fixture) {
+        System.out.println("\n授权修改（含物化表维护）耗时:");
+        int userId = fixture.firstUserId;
+        int parent0 = fixture.parentIds[0];
+        int parent1 = fixture.parentIds[1];
+        int leaf0 = fixture.leafIds[0];
+
+        long start = System.nanoTime();
+        roleService.assignRoleToUser(userId, parent1);
+        report("分配角色", start, 1);
+        start = System.nanoTime();
+        roleService.removeRoleFromUser(userId, parent1);
+        report("移除角色", start, 1);
+
+        int fanOut = effectiveDao.findRoleUserIds(parent0).length;
+        start = System.nanoTime();
+        permissionService.assignPermissionToRole(parent0, fixture.spareCodeId);
+        report("给父角色分配权限", start, fanOut);
+        start = System.nanoTime();
+        permissionService.removePermissionFromRole(parent0, fixture.spareCodeId);
+        report("移除父角色的权限", start, fanOut);
+
+        int leafUsers = effectiveDao.findRoleUserIds(leaf0).length;
+        start = System.nanoTime();
+        roleService.addParentRole(leaf0, parent1);
+        report("子角色再继承一个父角色", start, leafUsers);
+        start = System.nanoTime();
+        roleService.removeParentRole(leaf0, parent1);
+        report("取消继承", start, leafUsers);
+
+        int lastLeaf = fixture.leafIds[LEAVES - 1];
+        int lastLeafUsers = effectiveDao.findRoleUserIds(lastLeaf).length;
+        start = System.nanoTime();
+        roleService.deleteRole(lastLeaf);
+        report("删除子角色", start, lastLeafUsers);
+        fixture.leafIds = Arrays.copyOf(fixture.leafIds, LEAVES - 1);
+
+        permissionService.assignPermissionToRole(parent0, fixture.spareCodeId);
+        expectConsistent("服务层修改后一致");
+    }
+
+    private static void report(String step, long start, int users) {
+        System.out.printf("  %-14s %6dms（影响 %d 个用户）%n", step, millisSince(start), users);
+    }
+
+    /**
+     * 人为删除和插入物化行：校验必须发现，重建后恢复一致
+     */
+    private static void corrupt(Fixture fixture) throws SQLException {
+        int userId = fixture.firstUserId + 1;
+        try (Connection conn = DBUtil.getConnection()) {
+            try (PreparedStatement delete = conn.prepareStatement(
+                    "DELETE FROM user_effective_permissions WHERE user_id = ?")) {
+                delete.setInt(1, userId);
+                delete.executeUpdate();
+            }
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO user_effective_permissions (user_id, permission_id) VALUES (?, ?)")) {
+                insert.setInt(1, userId + 1);
+                insert.setInt(2, fixture.unusedCodeId);
+                insert.executeUpdate();
+            }
+        }
+        EffectivePermissionTool.Report verify = EffectivePermissionTool.verify(effectiveDao, CHUNK);
+        System.out.println("\n" + verify);
+        check("校验发现人为删除和插入的行", verify.getMissing() > 0 && verify.getExtra() == 1,
+                verify.getSamples().toString());
+        EffectivePermissionTool.Report rebuild = EffectivePermissionTool.rebuild(effectiveDao, CHUNK);
+        System.out.println(rebuild);
+        expectConsistent("重建后恢复一致");
+    }
+
+    private static void expectConsistent(String step) {
+        EffectivePermissionTool.Report verify = EffectivePermissionTool.verify(effectiveDao, CHUNK);
+        System.out.println(verify);
+        check(step, verify.isConsistent(), verify.getSamples().toString());
+    }
+
+    private static void check(String step, boolean ok, String detail) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            System.out.println("    " + detail);
+            failures++;
+        }
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    // ==================== 临时数据 ====================
+
+    /**
+     * 临时数据的ID
+     */
+    private static final class Fixture {
+        private final String prefix;
+        private int userCount;
+        private int firstUserId;
+        private int[] parentIds;
+        private int[] leafIds;
+        private String[] codes;
+        private int spareCodeId;
+        private int unusedCodeId;
+
+        private Fixture(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static Fixture seed(String prefix, int userCount) throws SQLException {
+        Fixture fixture = new Fixture(prefix);
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int[] roleIds = insertRoles(conn, prefix, PARENTS + LEAVES);
+                fixture.parentIds = Arrays.copyOf(roleIds, PARENTS);
+                fixture.leafIds = Arrays.copyOfRange(roleIds, PARENTS, roleIds.length);
+
+                // 每个角色2个权限，另有一个之后分配给父角色的权限和一个不分配的权限
+                int[] permissionIds = insertPermissions(conn, prefix, roleIds.length * 2 + 2);
+                fixture.codes = new String[roleIds.length * 2];
+                for (int i = 0; i < fixture.codes.length; i++) {
+                    fixture.codes[i] = prefix + ":P" + i;
+                }
+                fixture.spareCodeId = permissionIds[roleIds.length * 2];
+                fixture.unusedCodeId = permissionIds[roleIds.length * 2 + 1];
+                try (PreparedStatement grant = conn.prepareStatement(
+                        "INSERT INTO role_permissions (role_id, permission_id) VALUES (?, ?)")) {
+                    for (int i = 0; i < roleIds.length * 2; i++) {
+                        grant.setInt(1, roleIds[i / 2]);
+                        grant.setInt(2, permissionIds[i]);
+                        grant.addBatch();
+                    }
+                    grant.executeBatch();
+                }
+                // 一层继承：闭包与继承关系相同
+                try (PreparedStatement edge = conn.prepareStatement(
+                        "INSERT INTO role_hierarchy (parent_role_id, child_role_id) VALUES (?, ?)");
+                     PreparedStatement closure = conn.prepareStatement(
+                             "INSERT INTO role_closure (ancestor_id, descendant_id, path_count) VALUES (?, ?, 1)")) {
+                    for (int i = 0; i < LEAVES; i++) {
+                        for (PreparedStatement pstmt : new PreparedStatement[]{edge, closure}) {
+                            pstmt.setInt(1, fixture.parentIds[i % PARENTS]);
+                            pstmt.setInt(2, fixture.leafIds[i]);
+                            pstmt.addBatch();
+                        }
+                    }
+                    edge.executeBatch();
+                    closure.executeBatch();
+                }
+                conn.commit();
+
+                fixture.firstUserId = insertUsers(conn, prefix.toLowerCase(), userCount);
+                fixture.userCount = userCount;
+                assignRoles(conn, fixture);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return fixture;
+    }
+
+    private static int[] insertRoles(Connection conn, String prefix, int count) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO roles (role_code, role_name) VALUES (?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.setString(1, prefix + "_ROLE_" + i);
+                insert.setString(2, "物化表基准角色" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        return findIds(conn, "SELECT id FROM roles WHERE role_code LIKE ? ORDER BY id", prefix + "\\_ROLE\\_%", count);
+    }
+
+    private static int[] insertPermissions(Connection conn, String prefix, int count) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO permissions (permission_code, description) VALUES (?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                insert.setString(1, prefix + ":P" + i);
+                insert.setString(2, "物化表基准权限" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        return findIds(conn, "SELECT id FROM permissions WHERE permission_code LIKE ? ORDER BY id", prefix + ":P%", count);
+    }
+
+    private static int[] findIds(Connection conn, String sql, String pattern, int count) throws SQLException {
+        int[] ids = new int[count];
+        int n = 0;
+        try (PreparedStatement select = conn.prepareStatement(sql)) {
+            select.setString(1, pattern);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next() && n < count) {
+                    ids[n++] = rs.getInt(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 每 {@value #CHUNK} 个用户提交一次，返回第一个用户的ID（新用户的ID连续）
+     */
+    private static int insertUsers(Connection conn, String prefix, int userCount) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO users (username, password_hash, salt, status) VALUES (?, 'x', 'x', 0)")) {
+            for (int i = 0; i < userCount; i++) {
+                insert.setString(1, prefix + "_" + i);
+                insert.addBatch();
+                if ((i + 1) % CHUNK == 0 || i == userCount - 1) {
+                    insert.executeBatch();
+                    conn.commit();
+                }
+            }
+        }
+        try (PreparedStatement select = conn.prepareStatement("SELECT id FROM users WHERE username = ?")) {
+            select.setString(1, prefix + "_0");
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * 用户按ID取模分配子角色，每4个用户中的一个再分配第二个子角色
+     */
+    private static void assignRoles(Connection conn, Fixture fixture) throws SQLException {
+        int lastUserId = fixture.firstUserId + fixture.userCount - 1;
+        try (PreparedStatement first = conn.prepareStatement(
+                "INSERT INTO user_roles (user_id, role_id) SELECT u.id, ? FROM users u " +
+                        "WHERE u.id BETWEEN ? AND ? AND MOD(u.id, " + LEAVES + ") = ?");
+             PreparedStatement second = conn.prepareStatement(
+                     "INSERT INTO user_roles (user_id, role_id) SELECT u.id, ? FROM users u " +
+                             "WHERE u.id BETWEEN ? AND ? AND MOD(u.id, " + LEAVES + ") = ? AND MOD(u.id, 4) = 0")) {
+            for (int i = 0; i < LEAVES; i++) {
+                first.setInt(1, fixture.leafIds[i]);
+                second.setInt(1, fixture.leafIds[(i + 7) % LEAVES]);
+                for (PreparedStatement pstmt : new PreparedStatement[]{first, second}) {
+                    pstmt.setInt(2, fixture.firstUserId);
+                    pstmt.setInt(3, lastUserId);
+                    pstmt.setInt(4, i);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            }
+        }
+    }
+
+    /**
+     * 分段删除临时用户（级联删除角色关联和物化行），再删除临时角色和权限
+     */
+    private static void cleanup(Fixture fixture) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = DBUtil.getConnection()) {
+            if (fixture.userCount > 0) {
+                try (PreparedStatement delete = conn.prepareStatement("DELETE FROM users WHERE id BETWEEN ? AND ?")) {
+                    for (int from = fixture.firstUserId; from < fixture.firstUserId + fixture.userCount; from += CHUNK) {
+                        delete.setInt(1, from);
+                        delete.setInt(2, from + CHUNK - 1);
+                        delete.executeUpdate();
+                    }
+                }
+            }
+            try (PreparedStatement roles = conn.prepareStatement("DELETE FROM roles WHERE role_code LIKE ?");
+                 PreparedStatement permissions = conn.prepareStatement(
+                         "DELETE FROM permissions WHERE permission_code LIKE ?")) {
+                roles.setString(1, fixture.prefix + "\\_ROLE\\_%");
+                roles.executeUpdate();
+                permissions.setString(1, fixture.prefix + ":P%");
+                permissions.executeUpdate();
+            }
+        }
+        System.out.printf("%n删除临时数据: %dms%n", millisSince(start));
+    }
+}
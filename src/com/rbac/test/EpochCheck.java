@@ -0,0 +1,178 @@
+package com.rbac.test;
+
+import com.rbac.cache.EpochCache;
+import com.rbac.cache.RbacEpoch;
+import com.rbac.dao.EpochDao;
+import com.rbac.dao.RoleHierarchyDao;
+import com.rbac.dao.UserDao;
+import com.rbac.decorator.AuthPermissionServiceDecorator;
+import com.rbac.decorator.AuthRoleServiceDecorator;
+import com.rbac.model.Role;
+import com.rbac.model.User;
+import com.rbac.service.AuthService;
+import com.rbac.service.PermissionService;
+import com.rbac.service.RoleService;
+import com.rbac.service.impl.AuthServiceImpl;
+import com.rbac.service.impl.PermissionServiceImpl;
+import com.rbac.service.impl.RoleServiceImpl;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+import com.rbac.util.SessionContext;
+import com.rbac.util.TransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 授权数据版本号检查 - 验证装饰器的修改操作递增版本号、列表缓存按版本号失效，并模拟另一个进程的修改
+ *
+ * <p>"另一个进程"用独立的 {@link RbacEpoch}（检查间隔为0）和未经装饰的服务表示，与本进程共享数据库：
+ * <ul>
+ *   <li>本进程经装饰器创建角色 → 另一个进程下一次读取即看到新版本号和新列表</li>
+ *   <li>另一个进程创建角色并递增版本号 → 本进程在检查间隔内继续使用缓存（不访问数据库），间隔过后看到新列表</li>
+ * </ul>
+ * 再验证修改与递增在同一事务中（递增失败时修改回滚）、持有授权修改锁时其他修改不被阻塞，最后对比进程内校验和读取数据库校验的耗时。需要 admin 用户，结束时删除创建的角色。
+ */
+public class EpochCheck {
+
+    private static final AuthService authService = new AuthServiceImpl();
+    private static final RoleService roleService = new AuthRoleServiceDecorator(new RoleServiceImpl(), authService);
+    private static final PermissionService permissionService =
+            new AuthPermissionServiceDecorator(new PermissionServiceImpl(), authService);
+    private static final RoleService otherProcessRoles = new RoleServiceImpl();
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("========================================");
+        System.out.println("   授权数据版本号检查");
+        System.out.println("========================================");
+
+        User admin = new UserDao().findByUsername("admin");
+        SessionContext.setCurrentUser(admin);
+        String suffix = Long.toString(System.currentTimeMillis() % 1000000);
+        long interval = ConfigUtil.getLong("auth.epoch.checkIntervalMs", 1000);
+
+        RbacEpoch epoch = RbacEpoch.shared();
+        EpochDao epochDao = new EpochDao();
+        RbacEpoch otherEpoch = new RbacEpoch(epochDao::read, epochDao::increment, 0);
+        EpochCache<String, List<Role>> otherCache = new EpochCache<>("other-process", otherEpoch, 16, true);
+
+        List<Role> first = roleService.listRoles();
+        check("同一版本内重复读取使用缓存", roleService.listRoles() == first);
+        check("另一个进程首次读取", otherCache.get("all", otherProcessRoles::listRoles).size() == first.size());
+
+        long before = epoch.current();
+        roleService.createRole("EPOCH_A_" + suffix, "版本号检查角色A", null);
+        check("创建角色后版本号递增", epoch.current() == before + 1);
+        List<Role> afterCreate = roleService.listRoles();
+        check("本进程列表立即更新", afterCreate != first && contains(afterCreate, "EPOCH_A_" + suffix));
+        check("另一个进程下一次读取即更新",
+                contains(otherCache.get("all", otherProcessRoles::listRoles), "EPOCH_A_" + suffix));
+
+        // 另一个进程的修改：只递增数据库中的版本号，本进程的版本号在检查间隔内不变
+        epoch.refresh();
+        otherProcessRoles.createRole("EPOCH_B_" + suffix, "版本号检查角色B", null);
+        otherEpoch.bump();
+        if (interval > 0) {
+            check("检查间隔内继续使用缓存（不访问数据库）",
+                    roleService.listRoles() == afterCreate && !contains(afterCreate, "EPOCH_B_" + suffix));
+            Thread.sleep(interval + 50);
+        }
+        check("检查间隔过后看到另一个进程的修改", contains(roleService.listRoles(), "EPOCH_B_" + suffix));
+        check("两个进程版本号一致", epoch.current() == otherEpoch.current());
+
+        Role roleA = roleService.getRoleByCode("EPOCH_A_" + suffix);
+        long beforeDelete = epoch.current();
+        roleService.deleteRole(roleA.getId());
+        check("删除角色后版本号递增", epoch.current() == beforeDelete + 1);
+        check("删除后列表更新", !contains(roleService.listRoles(), "EPOCH_A_" + suffix));
+        otherProcessRoles.deleteRole(otherProcessRoles.getRoleByCode("EPOCH_B_" + suffix).getId());
+        otherEpoch.bump();
+
+        // 修改与递增在同一事务中：递增失败时修改一起回滚，不会出现数据已提交而版本号未变的情况
+        RbacEpoch failingEpoch = new RbacEpoch(epochDao::read, () -> {
+            throw new IllegalStateException("模拟递增失败");
+        }, 0);
+        boolean thrown = false;
+        try {
+            TransactionManager.run(() -> {
+                otherProcessRoles.createRole("EPOCH_C_" + suffix, "版本号检查角色C", null);
+                failingEpoch.bump();
+            });
+        } catch (IllegalStateException e) {
+            thrown = true;
+        }
+        check("事务中递增失败时修改一起回滚", thrown && failingEpoch.resets() == 0
+                && !contains(otherProcessRoles.listRoles(), "EPOCH_C_" + suffix));
+
+        // 授权修改锁（rbac_lock）与版本号不是同一行：另一个事务长时间持有锁时，其他修改照常递增版本号
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> TransactionManager.run(() -> {
+            new RoleHierarchyDao().lock();
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        locked.await();
+        long beforeLocked = epoch.refresh();
+        long start = System.nanoTime();
+        roleService.createRole("EPOCH_D_" + suffix, "版本号检查角色D", null);
+        long lockedMillis = (System.nanoTime() - start) / 1_000_000;
+        release.countDown();
+        holder.join();
+        check("持有授权修改锁期间其他修改不被阻塞（" + lockedMillis + "ms）",
+                epoch.current() == beforeLocked + 1 && lockedMillis < 1000);
+        roleService.deleteRole(roleService.getRoleByCode("EPOCH_D_" + suffix).getId());
+
+        permissionService.listPermissions();
+        measure(epoch, otherEpoch);
+
+        System.out.println("\n" + epoch);
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        DBUtil.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void measure(RbacEpoch local, RbacEpoch database) {
+        int iterations = 200000;
+        int reads = 2000;
+        local.refresh();
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += local.validate();
+        }
+        double localNanos = (System.nanoTime() - start) / (double) iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            sink += database.validate();
+        }
+        double databaseNanos = (System.nanoTime() - start) / (double) reads;
+        System.out.printf("%n校验耗时: 进程内 %.1fns/次，读取数据库 %.1fus/次 (%d)%n",
+                localNanos, databaseNanos / 1e3, sink % 10);
+    }
+
+    private static boolean contains(List<Role> roles, String roleCode) {
+        for (Role role : roles) {
+            if (role.getRoleCode().equals(roleCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void check(String step, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
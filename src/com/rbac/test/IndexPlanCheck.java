@@ -0,0 +1,170 @@
+package com.rbac.test;
+
+import com.rbac.util.EmbeddedDataSourceProvider;
+import com.rbac.util.MigrationRunner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 索引迁移执行计划检查 - 对比执行迁移前后热点查询的执行计划
+ *
+ * <p>在独立的嵌入式库（基线 sql/schema.sql + init_data.sql）中生成测试数据，
+ * 先输出各热点查询在基线索引下的执行计划，再执行 sql/migrations 中的迁移并重新输出，
+ * 最后检查迁移后每条查询都用上了预期的索引。
+ *
+ * <p>用法：{@code IndexPlanCheck [用户数]}，默认 20000。
+ */
+public class IndexPlanCheck {
+
+    private static final int ROLES = 50;
+    private static final int PERMISSIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        System.out.println("========================================");
+        System.out.println("   索引迁移执行计划检查");
+        System.out.println("========================================");
+
+        EmbeddedDataSourceProvider provider = new EmbeddedDataSourceProvider("plancheck");
+        provider.initialize();
+
+        List<PlanQuery> queries = new ArrayList<>();
+        queries.add(new PlanQuery("用户的权限编码（PermissionDao.findCodesByUserId）",
+                "SELECT DISTINCT p.permission_code FROM permissions p " +
+                        "JOIN role_permissions rp ON p.id = rp.permission_id " +
+                        "JOIN user_roles ur ON rp.role_id = ur.role_id " +
+                        "WHERE ur.user_id = ?", "uk_user_role", 42));
+        queries.add(new PlanQuery("用户的角色（RoleDao.findByUserId）",
+                "SELECT r.id, r.role_code FROM roles r JOIN user_roles ur ON r.id = ur.role_id WHERE ur.user_id = ?",
+                "uk_user_role", 42));
+        queries.add(new PlanQuery("角色下的用户（UserDao.findPageByRoleId）",
+                "SELECT u.id, u.username FROM user_roles ur JOIN users u ON u.id = ur.user_id " +
+                        "WHERE ur.role_id = ? AND ur.user_id > ? ORDER BY ur.role_id, ur.user_id LIMIT ?",
+                "idx_user_roles_role_user", 7, 0, 21));
+        queries.add(new PlanQuery("拥有某权限的角色",
+                "SELECT rp.role_id FROM role_permissions rp WHERE rp.permission_id = ?",
+                "idx_role_permissions_perm_role", 17));
+        queries.add(new PlanQuery("按状态分页（UserDao.findPageByStatus）",
+                "SELECT id, username FROM users WHERE status = ? AND id > ? ORDER BY status, id LIMIT ?",
+                "idx_users_status", 1, 0, 21));
+        queries.add(new PlanQuery("按用户名查询（UserDao.findByUsername）",
+                "SELECT id, username FROM users WHERE username = ?",
+                "constraint_", "user_00042"));
+
+        try (Connection conn = provider.createConnection()) {
+            seed(conn, userCount);
+            printPlans(conn, queries, "迁移前（基线索引）");
+        }
+
+        int applied = MigrationRunner.fromConfig(provider).migrate();
+        System.out.println("\n执行迁移: " + applied + " 个");
+
+        int failures = 0;
+        try (Connection conn = provider.createConnection()) {
+            analyze(conn);
+            printPlans(conn, queries, "迁移后");
+            System.out.println();
+            for (PlanQuery query : queries) {
+                boolean ok = explain(conn, query).toLowerCase().contains(query.expectedIndex);
+                System.out.println((ok ? "✓ " : "✗ ") + query.name + " 使用 " + query.expectedIndex);
+                if (!ok) {
+                    failures++;
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "\n全部查询均使用预期索引" : "\n" + failures + " 条查询未使用预期索引");
+    }
+
+    /**
+     * 生成测试数据：每个用户2个角色，每个角色20个权限，约三分之一的用户为冻结状态
+     */
+    private static void seed(Connection conn, int userCount) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement users = conn.prepareStatement(
+                "INSERT INTO users (username, password_hash, salt, status) VALUES (?, 'x', 'x', ?)");
+             PreparedStatement roles = conn.prepareStatement(
+                     "INSERT INTO roles (role_code, role_name) VALUES (?, ?)");
+             PreparedStatement permissions = conn.prepareStatement(
+                     "INSERT INTO permissions (permission_code) VALUES (?)")) {
+            for (int i = 0; i < userCount; i++) {
+                users.setString(1, String.format("user_%05d", i));
+                users.setInt(2, i % 3 == 0 ? 1 : 0);
+                users.addBatch();
+            }
+            users.executeBatch();
+            for (int i = 0; i < ROLES; i++) {
+                roles.setString(1, "PLAN_ROLE_" + i);
+                roles.setString(2, "角色" + i);
+                roles.addBatch();
+            }
+            roles.executeBatch();
+            for (int i = 0; i < PERMISSIONS; i++) {
+                permissions.setString(1, "PLAN:PERM_" + i);
+                permissions.addBatch();
+            }
+            permissions.executeBatch();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO user_roles (user_id, role_id) " +
+                    "SELECT u.id, r.id FROM users u JOIN roles r " +
+                    "ON (MOD(u.id, " + ROLES + ") = MOD(r.id, " + ROLES + ") OR MOD(u.id + 1, " + ROLES + ") = MOD(r.id, " + ROLES + ")) " +
+                    "WHERE u.username LIKE 'user\\_%' AND r.role_code LIKE 'PLAN\\_ROLE\\_%'");
+            stmt.executeUpdate("INSERT INTO role_permissions (role_id, permission_id) " +
+                    "SELECT r.id, p.id FROM roles r JOIN permissions p ON MOD(p.id, 10) = MOD(r.id, 10) " +
+                    "WHERE r.role_code LIKE 'PLAN\\_ROLE\\_%' AND p.permission_code LIKE 'PLAN:%'");
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        analyze(conn);
+    }
+
+    private static void analyze(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    private static void printPlans(Connection conn, List<PlanQuery> queries, String title) throws SQLException {
+        System.out.println("\n---------- " + title + " ----------");
+        for (PlanQuery query : queries) {
+            System.out.println("\n[" + query.name + "]");
+            System.out.println(explain(conn, query));
+        }
+    }
+
+    private static String explain(Connection conn, PlanQuery query) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query.sql)) {
+            for (int i = 0; i < query.params.length; i++) {
+                pstmt.setObject(i + 1, query.params[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private static final class PlanQuery {
+        private final String name;
+        private final String sql;
+        private final String expectedIndex;
+        private final Object[] params;
+
+        private PlanQuery(String name, String sql, String expectedIndex, Object... params) {
+            this.name = name;
+            this.sql = sql;
+            this.expectedIndex = expectedIndex;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.rbac.test;
+
+import com.rbac.dao.Page;
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.UserDao;
+import com.rbac.model.Permission;
+import com.rbac.model.User;
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 结果集映射基准测试 - 对比批量读取时每行的映射开销
+ *
+ * <p>对比三种读取方式（均按每页1000行遍历整张 users 表）：
+ * <ul>
+ *   <li><b>SELECT * + 按列名读取：</b>改造前 DAO 的写法，在这里原样复现作为基线</li>
+ *   <li><b>显式列 + 按下标读取：</b>{@link UserDao#findPage(int, int)} 当前的写法</li>
+ *   <li><b>身份信息投影：</b>只选择 id、username、status 三列</li>
+ * </ul>
+ * 另外对比授权路径上“查询完整权限对象再取编码”与 {@link PermissionDao#findCodesByUserId(int)} 的吞吐量。
+ *
+ * <p>用法：{@code MappingBenchmark [用户数] [轮数]}，默认 20000 个用户、5 轮；
+ * 表中用户不足时先批量插入测试用户。建议使用 {@code -Ddb.type=embedded} 运行。
+ */
+public class MappingBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.println("========================================");
+        System.out.println("   结果集映射基准测试");
+        System.out.println("========================================");
+        System.out.println("后端类型: " + DBUtil.getBackendType());
+
+        UserDao userDao = new UserDao();
+        PermissionDao permissionDao = new PermissionDao();
+        int rows = ensureUsers(userDao, userCount);
+        System.out.println("用户数: " + rows + ", 轮数: " + rounds);
+
+        User admin = userDao.findByUsername("admin");
+        int adminId = admin != null ? admin.getId() : 1;
+
+        for (int round = 1; round <= rounds; round++) {
+            long legacy = timeRows(() -> scanLegacy());
+            long indexed = timeRows(() -> scanIndexed(userDao));
+            long principal = timeRows(() -> scanPrincipal());
+            System.out.printf("第%d轮  SELECT*+列名: %6.0f ns/行   显式列+下标: %6.0f ns/行   身份投影: %6.0f ns/行%n",
+                    round, nanosPerRow(legacy), nanosPerRow(indexed), nanosPerRow(principal));
+        }
+
+        int iterations = 20000;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                Set<String> codes = permissionDao.findByUserId(adminId).stream()
+                        .map(Permission::getPermissionCode)
+                        .collect(Collectors.toSet());
+                if (codes.isEmpty()) {
+                    throw new IllegalStateException("admin 没有权限");
+                }
+            }
+            long entity = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (permissionDao.findCodesByUserId(adminId).isEmpty()) {
+                    throw new IllegalStateException("admin 没有权限");
+                }
+            }
+            long codesOnly = System.nanoTime() - start;
+            System.out.printf("第%d轮  授权查询  完整对象: %.1f us/次   只查编码: %.1f us/次%n",
+                    round, entity / 1000.0 / iterations, codesOnly / 1000.0 / iterations);
+        }
+
+        DBUtil.shutdown();
+    }
+
+    /** 一次全表遍历，返回读取的行数 */
+    private interface Scan {
+        long run() throws SQLException;
+    }
+
+    private static long scannedRows;
+
+    /**
+     * 执行一次遍历，返回耗时（纳秒），行数记录在 {@link #scannedRows}
+     */
+    private static long timeRows(Scan scan) throws SQLException {
+        long start = System.nanoTime();
+        scannedRows = scan.run();
+        return System.nanoTime() - start;
+    }
+
+    private static double nanosPerRow(long nanos) {
+        return scannedRows == 0 ? 0 : (double) nanos / scannedRows;
+    }
+
+    /**
+     * 基线：SELECT * 并按列名读取（改造前的映射方式）
+     */
+    private static long scanLegacy() throws SQLException {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        long count = 0;
+        int afterId = 0;
+        while (true) {
+            List<User> page = new ArrayList<>(PAGE_SIZE);
+            try (Connection conn = DBUtil.getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, afterId);
+                pstmt.setInt(2, PAGE_SIZE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        User user = new User();
+                        user.setId(rs.getInt("id"));
+                        user.setUsername(rs.getString("username"));
+                        user.setPasswordHash(rs.getString("password_hash"));
+                        user.setSalt(rs.getString("salt"));
+                        user.setStatus(rs.getInt("status"));
+                        Timestamp createdAt = rs.getTimestamp("created_at");
+                        if (createdAt != null) {
+                            user.setCreatedAt(createdAt.toLocalDateTime());
+                        }
+                        Timestamp updatedAt = rs.getTimestamp("updated_at");
+                        if (updatedAt != null) {
+                            user.setUpdatedAt(updatedAt.toLocalDateTime());
+                        }
+                        page.add(user);
+                    }
+                }
+            }
+            if (page.isEmpty()) {
+                return count;
+            }
+            count += page.size();
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 当前 DAO：显式列 + 按下标读取
+     */
+    private static long scanIndexed(UserDao userDao) {
+        long count = 0;
+        int afterId = 0;
+        Page<User> page;
+        do {
+            page = userDao.findPage(afterId, PAGE_SIZE);
+            count += page.size();
+            afterId = page.getNextAfterId();
+        } while (page.hasNext());
+        return count;
+    }
+
+    /**
+     * 身份信息投影：只读取 id、username、status
+     */
+    private static long scanPrincipal() throws SQLException {
+        String sql = "SELECT id, username, status FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        long count = 0;
+        int afterId = 0;
+        while (true) {
+            List<User> page = new ArrayList<>(PAGE_SIZE);
+            try (Connection conn = DBUtil.getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, afterId);
+                pstmt.setInt(2, PAGE_SIZE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        User user = new User();
+                        user.setId(rs.getInt(1));
+                        user.setUsername(rs.getString(2));
+                        user.setStatus(rs.getInt(3));
+                        page.add(user);
+                    }
+                }
+            }
+            if (page.isEmpty()) {
+                return count;
+            }
+            count += page.size();
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    /**
+     * 用户不足时批量插入测试用户，返回当前用户总数
+     */
+    private static int ensureUsers(UserDao userDao, int userCount) throws SQLException {
+        int existing = countUsers();
+        if (existing >= userCount) {
+            return existing;
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = existing; i < userCount; i++) {
+            users.add(new User(null, "bench_map_" + i, "0000000000000000000000000000000000000000000000000000000000000000",
+                    "00000000000000000000000000000000", i % 2));
+        }
+        userDao.insertBatch(users);
+        return countUsers();
+    }
+
+    private static int countUsers() throws SQLException {
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM users");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
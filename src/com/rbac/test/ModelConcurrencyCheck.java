@@ -0,0 +1,229 @@
+package com.rbac.test;
+
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.engine.AuthorizationModel;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 授权模型并发检查 - 验证写入增量发布时读取方不会看到半新半旧的模型，并测量每次增量的内存开销
+ *
+ * <p>不需要数据库：直接通过 {@link AuthorizationEngine} 的增量方法构造模型。写线程不停地：
+ * <ul>
+ *   <li>在两个权限之间切换一个角色的权限（该角色出现在多个角色组合中）</li>
+ *   <li>在两个角色之间移动一个用户</li>
+ *   <li>定期给另一个角色换上新建的权限，并删除上一个</li>
+ * </ul>
+ * 读线程每次取一个快照，在该快照上检查：切换中的角色恰好贡献一个权限，且所有组合一致；
+ * 移动中的用户恰好拥有一个角色的权限；{@code getPermissions} 与 {@code hasPermission}、{@code indexOf} 一致；
+ * 版本号不回退。
+ *
+ * <p>用法：{@code ModelConcurrencyCheck [秒数] [用户数]}，默认 5 秒、1000000 个用户。
+ */
+public class ModelConcurrencyCheck {
+
+    private static final int TOGGLE_ROLE = 1;
+    private static final int STABLE_ROLE = 2;
+    private static final int MOVE_ROLE_A = 3;
+    private static final int MOVE_ROLE_B = 4;
+
+    private static final int PERM_A = 1;
+    private static final int PERM_B = 2;
+    private static final int PERM_STABLE = 3;
+    private static final int PERM_MOVE_A = 4;
+    private static final int PERM_MOVE_B = 5;
+    private static final int PERM_DYNAMIC_BASE = 1000;
+    private static final String DYNAMIC_PREFIX = "STRESS:NEW";
+
+    private static final AtomicLong failures = new AtomicLong();
+    private static final AtomicLong checks = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int movingUser = users + 1;
+
+        System.out.println("========================================");
+        System.out.println("   授权模型并发检查");
+        System.out.println("========================================");
+
+        AuthorizationEngine engine = new AuthorizationEngine();
+        engine.setRolePermissions(TOGGLE_ROLE, permissions(PERM_A));
+        engine.setRolePermissions(STABLE_ROLE, permissions(PERM_STABLE));
+        engine.setRolePermissions(MOVE_ROLE_A, permissions(PERM_MOVE_A));
+        engine.setRolePermissions(MOVE_ROLE_B, permissions(PERM_MOVE_B));
+
+        long start = System.nanoTime();
+        for (int userId = 1; userId <= users; userId++) {
+            engine.setUserRoles(userId, rolesOf(userId));
+        }
+        engine.setUserRoles(movingUser, new int[]{MOVE_ROLE_A});
+        System.out.printf("构造 %d 个用户: %dms%n", users, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("模型: " + engine.model());
+
+        measureDeltaAllocation(engine, users);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        int readerCount = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        for (int i = 0; i < readerCount; i++) {
+            Thread reader = new Thread(() -> read(engine, users, movingUser, running), "reader-" + i);
+            reader.start();
+            readers.add(reader);
+        }
+
+        long writes = 0;
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        int dynamic = 0;
+        while (System.nanoTime() < deadline) {
+            engine.setRolePermissions(TOGGLE_ROLE, permissions(writes % 2 == 0 ? PERM_B : PERM_A));
+            engine.setUserRoles(movingUser, new int[]{writes % 2 == 0 ? MOVE_ROLE_B : MOVE_ROLE_A});
+            if (writes % 64 == 0) {
+                dynamic++;
+                Map<Integer, String> stable = permissions(PERM_STABLE);
+                stable.put(PERM_DYNAMIC_BASE + dynamic, DYNAMIC_PREFIX + dynamic);
+                engine.setRolePermissions(STABLE_ROLE, stable);
+                engine.deletePermission(PERM_DYNAMIC_BASE + dynamic - 1);
+            }
+            writes++;
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        System.out.printf("%n写入: %d 轮（%d 次增量），读取检查: %d 次（%d 个读线程）%n",
+                writes, writes * 2 + dynamic * 2, checks.get(), readerCount);
+        System.out.println("模型: " + engine.model());
+        System.out.println(failures.get() == 0 ? "\n✓ 没有读到不一致的模型" : "\n✗ " + failures.get() + " 次检查失败");
+        if (failures.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 用户的角色：按 ID 分成三组，前两组包含切换中的角色（两种不同的角色组合）
+     */
+    private static int[] rolesOf(int userId) {
+        switch (userId % 3) {
+            case 0:
+                return new int[]{TOGGLE_ROLE};
+            case 1:
+                return new int[]{TOGGLE_ROLE, STABLE_ROLE};
+            default:
+                return new int[]{STABLE_ROLE};
+        }
+    }
+
+    private static void read(AuthorizationEngine engine, int users, int movingUser, AtomicBoolean running) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long lastVersion = -1;
+        while (running.get()) {
+            AuthorizationModel model = engine.model();
+            if (model.getVersion() < lastVersion) {
+                fail("版本回退: " + lastVersion + " → " + model.getVersion());
+            }
+            lastVersion = model.getVersion();
+
+            // 切换中的角色：同一快照中不同组合的用户一致，且恰好拥有 A、B 之一
+            boolean a = model.hasPermission(3, code(PERM_A));
+            if (model.hasPermission(4, code(PERM_A)) != a || model.hasPermission(3, code(PERM_B)) == a) {
+                fail("角色权限切换不一致: 版本=" + model.getVersion());
+            }
+
+            int userId = 1 + random.nextInt(users);
+            if (userId % 3 != 2) {
+                boolean ua = model.hasPermission(userId, code(PERM_A));
+                if (ua != a || model.hasPermission(userId, code(PERM_B)) == ua) {
+                    fail("用户 " + userId + " 的切换权限不一致: 版本=" + model.getVersion());
+                }
+            }
+
+            boolean moveA = model.hasPermission(movingUser, code(PERM_MOVE_A));
+            if (model.hasPermission(movingUser, code(PERM_MOVE_B)) == moveA) {
+                fail("移动中的用户角色不一致: 版本=" + model.getVersion());
+            }
+
+            // 稳定角色：始终拥有固定权限，新建的权限最多一个（新建和删除上一个是两个版本）
+            Set<String> permissions = model.getPermissions(userId);
+            int dynamic = 0;
+            for (String permission : permissions) {
+                if (model.indexOf(permission) < 0 || !model.hasPermission(userId, permission)) {
+                    fail("getPermissions 与 hasPermission 不一致: " + permission + " 版本=" + model.getVersion());
+                }
+                if (permission.startsWith(DYNAMIC_PREFIX)) {
+                    dynamic++;
+                }
+            }
+            if (userId % 3 != 0 && (!permissions.contains(code(PERM_STABLE)) || dynamic > 1)) {
+                fail("稳定角色的权限不一致: " + permissions + " 版本=" + model.getVersion());
+            }
+            checks.incrementAndGet();
+        }
+    }
+
+    /**
+     * 每次增量分配的字节数（写线程自身），与模型总大小对比
+     */
+    private static void measureDeltaAllocation(AuthorizationEngine engine, int users) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int rounds = 2000;
+
+        // 预热，排除首次执行的类加载等分配
+        for (int i = 0; i < rounds; i++) {
+            engine.setUserRoles(1 + random.nextInt(users), new int[]{TOGGLE_ROLE, MOVE_ROLE_A});
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < rounds; i++) {
+            int userId = 1 + random.nextInt(users);
+            engine.setUserRoles(userId, i % 2 == 0 ? new int[]{MOVE_ROLE_A} : rolesOf(userId));
+        }
+        long perUserDelta = (threads.getThreadAllocatedBytes(thread) - before) / rounds;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < rounds; i++) {
+            engine.setRolePermissions(MOVE_ROLE_B, permissions(i % 2 == 0 ? PERM_MOVE_B : PERM_MOVE_A));
+        }
+        long perRoleDelta = (threads.getThreadAllocatedBytes(thread) - before) / rounds;
+        engine.setRolePermissions(MOVE_ROLE_B, permissions(PERM_MOVE_B));
+        for (int userId = 1; userId <= users; userId++) {
+            engine.setUserRoles(userId, rolesOf(userId));
+        }
+
+        long modelBytes = engine.model().estimateBytes();
+        System.out.printf("每次增量分配: 用户角色 %.1fKB，角色权限 %.1fKB（模型共 %.1fMB，全量复制的 %.3f%%）%n",
+                perUserDelta / 1024.0, perRoleDelta / 1024.0, modelBytes / 1048576.0,
+                perUserDelta * 100.0 / modelBytes);
+        // 一个用户块（4KB）加块索引（每1024个用户4字节）再加少量对象，远小于全量复制
+        if (perUserDelta > 16 * 1024 + users / 256) {
+            fail("用户增量的分配与用户数不成比例: " + perUserDelta + " 字节");
+        }
+    }
+
+    private static Map<Integer, String> permissions(int permissionId) {
+        Map<Integer, String> permissions = new HashMap<>();
+        permissions.put(permissionId, code(permissionId));
+        return permissions;
+    }
+
+    private static String code(int permissionId) {
+        return "STRESS:P" + permissionId;
+    }
+
+    private static void fail(String message) {
+        if (failures.incrementAndGet() <= 10) {
+            System.out.println("✗ " + message);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.rbac.test;
+
+import com.rbac.cache.PermissionCache;
+import com.rbac.dao.PermissionDao;
+import com.rbac.service.AuthService;
+import com.rbac.service.PermissionService;
+import com.rbac.service.RoleService;
+import com.rbac.service.UserService;
+import com.rbac.service.impl.AuthServiceImpl;
+import com.rbac.service.impl.PermissionServiceImpl;
+import com.rbac.service.impl.RoleServiceImpl;
+import com.rbac.service.impl.UserServiceImpl;
+import com.rbac.util.DBUtil;
+import com.rbac.util.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 权限缓存检查 - 验证各类授权变更后缓存立即失效，并对比缓存前后的权限校验耗时
+ *
+ * <p>在当前配置的数据库中创建临时的用户、角色和权限，依次执行分配/移除角色、分配/移除权限、
+ * 删除权限、删除角色以及事务回滚，每一步之后检查 {@link AuthService#getUserPermissions(int)}
+ * 与数据库一致；随后在并发读取的同时反复变更授权，检查最终缓存没有残留旧授权。结束时删除临时数据。
+ *
+ * <p>用法：{@code PermissionCacheCheck [校验次数]}，默认 200000。
+ */
+public class PermissionCacheCheck {
+
+    private static final UserService userService = new UserServiceImpl();
+    private static final RoleService roleService = new RoleServiceImpl();
+    private static final PermissionService permissionService = new PermissionServiceImpl();
+    private static final AuthService authService = new AuthServiceImpl();
+    private static final PermissionDao permissionDao = new PermissionDao();
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        String suffix = Long.toString(System.currentTimeMillis() % 1000000);
+
+        System.out.println("========================================");
+        System.out.println("   权限缓存检查");
+        System.out.println("========================================");
+
+        userService.createUser("cache_user_" + suffix, "cache123");
+        int userId = userService.getUserByUsername("cache_user_" + suffix).getId();
+        roleService.createRole("CACHE_ROLE_" + suffix, "缓存检查角色", null);
+        int roleId = roleService.getRoleByCode("CACHE_ROLE_" + suffix).getId();
+        permissionService.createPermission("CACHE:A" + suffix, "缓存检查权限A");
+        int permA = permissionService.getPermissionByCode("CACHE:A" + suffix).getId();
+        permissionService.createPermission("CACHE:B" + suffix, "缓存检查权限B");
+        int permB = permissionService.getPermissionByCode("CACHE:B" + suffix).getId();
+
+        try {
+            expect("新用户没有权限", userId);
+
+            permissionService.assignPermissionToRole(roleId, permA);
+            expect("给角色分配权限（用户尚未拥有角色）", userId);
+
+            roleService.assignRoleToUser(userId, roleId);
+            expect("分配角色", userId);
+
+            permissionService.assignPermissionToRole(roleId, permB);
+            expect("给已拥有的角色分配权限", userId);
+
+            permissionService.removePermissionFromRole(roleId, permB);
+            expect("移除角色的权限", userId);
+
+            try {
+                TransactionManager.run(() -> {
+                    permissionService.assignPermissionToRole(roleId, permB);
+                    throw new IllegalStateException("回滚");
+                });
+            } catch (IllegalStateException expected) {
+                // 事务回滚，变更和失效通知都不应生效
+            }
+            expect("事务回滚", userId);
+
+            TransactionManager.run(() -> permissionService.assignPermissionToRole(roleId, permB));
+            expect("事务提交", userId);
+
+            roleService.removeRoleFromUser(userId, roleId);
+            expect("移除角色", userId);
+
+            roleService.assignRoleToUser(userId, roleId);
+            permissionService.deletePermission(permB);
+            expect("删除权限", userId);
+
+            concurrentToggles(userId, roleId, permA);
+
+            measure(userId, iterations);
+
+            roleService.deleteRole(roleId);
+            expect("删除角色", userId);
+        } finally {
+            cleanup(userId, roleId, permA);
+        }
+
+        System.out.println("\n" + PermissionCache.shared());
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        DBUtil.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 缓存中的权限（读两次，第二次必然来自缓存）与数据库一致
+     */
+    private static void expect(String step, int userId) {
+        Set<String> expected = permissionDao.findCodesByUserId(userId);
+        authService.getUserPermissions(userId);
+        Set<String> cached = authService.getUserPermissions(userId);
+        boolean ok = expected.equals(cached);
+        System.out.println((ok ? "✓ " : "✗ ") + step + ": " + cached);
+        if (!ok) {
+            System.out.println("    数据库: " + expected);
+            failures++;
+        }
+    }
+
+    /**
+     * 读线程持续读取的同时反复分配/移除权限，结束后缓存必须与数据库一致
+     */
+    private static void concurrentToggles(int userId, int roleId, int permissionId) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    authService.getUserPermissions(userId);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int i = 0; i < 200; i++) {
+            if (i % 2 == 0) {
+                permissionService.removePermissionFromRole(roleId, permissionId);
+            } else {
+                permissionService.assignPermissionToRole(roleId, permissionId);
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        expect("并发读取期间反复变更（200次）", userId);
+    }
+
+    private static void measure(int userId, int iterations) {
+        String code = authService.getUserPermissions(userId).iterator().next();
+        int queries = Math.max(1, iterations / 100);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            permissionDao.findCodesByUserId(userId).contains(code);
+        }
+        double uncached = (System.nanoTime() - start) / (double) queries;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            authService.getUserPermissions(userId).contains(code);
+        }
+        double cached = (System.nanoTime() - start) / (double) iterations;
+
+        System.out.printf("%n权限校验耗时: 关联查询 %.1fus/次（%d次），缓存 %.3fus/次（%d次）%n",
+                uncached / 1e3, queries, cached / 1e3, iterations);
+    }
+
+    private static void cleanup(int userId, int roleId, int permissionId) {
+        for (Runnable step : new Runnable[]{
+                () -> userService.deleteUser(userId),
+                () -> roleService.deleteRole(roleId),
+                () -> permissionService.deletePermission(permissionId)}) {
+            try {
+                step.run();
+            } catch (RuntimeException ignored) {
+                // 已在检查中删除
+            }
+        }
+    }
+}
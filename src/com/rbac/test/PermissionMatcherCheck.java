@@ -0,0 +1,180 @@
+package com.rbac.test;
+
+import com.rbac.common.PermissionMatcher;
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.engine.AuthorizationModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * 通配权限匹配检查 - 验证前缀树匹配与逐个授权比较的结果一致，并对比两者的耗时
+ *
+ * <p>不需要数据库。检查：
+ * <ul>
+ *   <li>固定用例：{@code USER:*} 覆盖 {@code USER:CREATE}、{@code USER:EXPORT:CSV}，不覆盖 {@code USER}、{@code USERX:A}；
+ *       {@code *} 覆盖所有编码；非法编码（{@code *} 不是完整的最后一段）被拒绝</li>
+ *   <li>随机授权与随机编码：{@link PermissionMatcher#matches(String)} 与逐个授权比较的结果相同</li>
+ *   <li>编译模型：角色拥有通配权限时，用户的 {@code hasPermission} 和"拥有权限的用户"都包含被覆盖的编码</li>
+ * </ul>
+ * 然后在不同的授权数下对比前缀树与逐个比较的单次匹配耗时（授权各不相同，约一半的编码没有匹配的授权，
+ * 逐个比较需要看完全部授权）。
+ *
+ * <p>用法：{@code PermissionMatcherCheck [最大授权数]}，默认 100000。
+ */
+public class PermissionMatcherCheck {
+
+    private static final String[] RESOURCES = {"USER", "ROLE", "PERMISSION", "REPORT", "ORDER", "AUDIT"};
+    private static final String[] ACTIONS = {"CREATE", "DELETE", "LIST", "EXPORT", "SALES", "DAILY"};
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        int maxGrants = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.println("========================================");
+        System.out.println("   通配权限匹配检查");
+        System.out.println("========================================");
+
+        // 1. 固定用例
+        PermissionMatcher matcher = PermissionMatcher.of(Arrays.asList("USER:*", "REPORT:SALES:*", "ORDER:LIST"));
+        check("USER:* 覆盖 USER:CREATE 和 USER:EXPORT:CSV",
+                matcher.matches("USER:CREATE") && matcher.matches("USER:EXPORT:CSV"));
+        check("USER:* 不覆盖 USER、USERX:A", !matcher.matches("USER") && !matcher.matches("USERX:A"));
+        check("REPORT:SALES:* 覆盖 REPORT:SALES:DAILY，不覆盖 REPORT:SALES、REPORT:DAILY",
+                matcher.matches("REPORT:SALES:DAILY") && !matcher.matches("REPORT:SALES") && !matcher.matches("REPORT:DAILY"));
+        check("精确授权 ORDER:LIST 只匹配自身",
+                matcher.matches("ORDER:LIST") && !matcher.matches("ORDER:LIST:X") && !matcher.matches("ORDER"));
+        check("* 覆盖所有编码", PermissionMatcher.of(Arrays.asList("*")).matches("AUDIT:LIST:ALL"));
+        check("非法编码被拒绝", !PermissionMatcher.isValid("USER:*:LIST") && !PermissionMatcher.isValid("USER*")
+                && !PermissionMatcher.isValid("*:*") && PermissionMatcher.isValid("USER:*") && PermissionMatcher.isValid("*"));
+        check("覆盖 A:B:C 的通配授权为 *、A:*、A:B:*",
+                PermissionMatcher.coveringWildcards("A:B:C").equals(Arrays.asList("*", "A:*", "A:B:*")));
+
+        // 2. 随机授权与逐个比较一致
+        Random random = new Random(11);
+        int mismatches = 0;
+        for (int round = 0; round < 200; round++) {
+            List<String> grants = randomGrants(random, 1 + random.nextInt(30), 0.3);
+            PermissionMatcher compiled = PermissionMatcher.of(grants);
+            for (int i = 0; i < 200; i++) {
+                String code = randomCode(random, 1 + random.nextInt(4));
+                if (compiled.matches(code) != linearMatch(grants, code)) {
+                    mismatches++;
+                }
+            }
+        }
+        check("随机授权：前缀树与逐个比较的结果一致（40000 次）", mismatches == 0);
+
+        // 3. 编译模型
+        AuthorizationEngine engine = new AuthorizationEngine();
+        Map<Integer, String> wildcardRole = new HashMap<>();
+        wildcardRole.put(1, "REPORT:*");
+        engine.setRolePermissions(1, wildcardRole);
+        Map<Integer, String> exactRole = new HashMap<>();
+        exactRole.put(2, "REPORT:SALES");
+        exactRole.put(3, "USER:LIST");
+        engine.setRolePermissions(2, exactRole);
+        engine.setUserRoles(10, new int[]{1});
+        engine.setUserRoles(20, new int[]{2});
+        AuthorizationModel model = engine.model();
+        check("模型：通配角色的用户拥有 REPORT:SALES 和未创建的 REPORT:DAILY",
+                model.hasPermission(10, "REPORT:SALES") && model.hasPermission(10, "REPORT:DAILY")
+                        && !model.hasPermission(10, "USER:LIST") && !model.hasPermission(10, "REPORT"));
+        check("模型：拥有 REPORT:SALES 的用户包括两种授权",
+                Arrays.equals(model.findUsersWithPermission("REPORT:SALES", 0, 10), new int[]{10, 20})
+                        && model.countUsersWithPermission("REPORT:DAILY") == 1);
+        engine.setRolePermissions(1, new HashMap<>());
+        check("模型：移除通配权限后不再覆盖", !engine.model().hasPermission(10, "REPORT:SALES")
+                && model.hasPermission(10, "REPORT:SALES"));
+
+        // 4. 耗时
+        System.out.printf("%n%10s %14s %14s%n", "授权数", "前缀树", "逐个比较");
+        for (int grantCount = 10; grantCount <= maxGrants; grantCount *= 10) {
+            List<String> grants = new ArrayList<>(grantCount);
+            for (int i = 0; i < grantCount; i++) {
+                grants.add(tenantCode(i) + (i % 2 == 0 ? ":*" : ":LIST"));
+            }
+            String[] probes = new String[1024];
+            for (int i = 0; i < probes.length; i++) {
+                probes[i] = tenantCode(random.nextInt(grantCount * 2)) + ":LIST";
+            }
+            PermissionMatcher compiled = PermissionMatcher.of(grants);
+            long trie = nanosPerMatch(probes, compiled::matches, 2_000_000);
+            long linear = nanosPerMatch(probes, code -> linearMatch(grants, code), Math.max(2000, 20_000_000 / grantCount));
+            System.out.printf("%10d %12dns %12dns%n", grantCount, trie, linear);
+        }
+
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 随机授权：资源和操作取自固定词表，更深的段用编号；wildcardRatio 的比例以 {@code :*} 结尾
+     */
+    private static List<String> randomGrants(Random random, int count, double wildcardRatio) {
+        List<String> grants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String code = randomCode(random, 1 + random.nextInt(3));
+            grants.add(random.nextDouble() < wildcardRatio ? code + ":*" : code);
+        }
+        return grants;
+    }
+
+    private static String tenantCode(int tenant) {
+        return RESOURCES[tenant % RESOURCES.length] + ":" + ACTIONS[tenant / RESOURCES.length % ACTIONS.length] + ":T" + tenant;
+    }
+
+    private static String randomCode(Random random, int segments) {
+        StringBuilder code = new StringBuilder(RESOURCES[random.nextInt(RESOURCES.length)]);
+        for (int i = 1; i < segments; i++) {
+            code.append(':').append(i == 1 ? ACTIONS[random.nextInt(ACTIONS.length)] : "S" + random.nextInt(50));
+        }
+        return code.toString();
+    }
+
+    /**
+     * 逐个授权比较：相等，或通配授权的前缀（含末尾的 {@code :}）是编码的前缀
+     */
+    private static boolean linearMatch(List<String> grants, String code) {
+        for (String grant : grants) {
+            if (grant.equals(code)) {
+                return true;
+            }
+            if (PermissionMatcher.isWildcard(grant)) {
+                String prefix = grant.substring(0, grant.length() - 1);
+                if (code.length() > prefix.length() && code.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long nanosPerMatch(String[] probes, Predicate<String> match, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations / 4; i++) {
+            sink += match.test(probes[i & (probes.length - 1)]) ? 1 : 0;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += match.test(probes[i & (probes.length - 1)]) ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        return sink < 0 ? 0 : elapsed / iterations;
+    }
+
+    private static void check(String step, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.rbac.test;
+
+import com.rbac.cache.EpochCache;
+import com.rbac.cache.RbacEpoch;
+import com.rbac.dao.EpochDao;
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleDao;
+import com.rbac.dao.UserDao;
+import com.rbac.model.Role;
+import com.rbac.model.User;
+import com.rbac.util.ConfigUtil;
+import com.rbac.util.DBUtil;
+import com.rbac.util.PasswordUtil;
+import com.rbac.util.TransactionManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离检查 - 验证从库轮询和读己之写
+ *
+ * <p>本地可用两个嵌入式库充当从库（它们之间没有复制，正好能看出读请求落在了哪里）：
+ * <pre>
+ * -Ddb.type=embedded -Ddb.replicas=r1,r2
+ * -Ddb.replica.r1.type=embedded -Ddb.replica.r2.type=embedded
+ * -Ddb.replica.stickyAfterWriteMs=500
+ * </pre>
+ */
+public class ReplicaRoutingCheck {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("========================================");
+        System.out.println("   读写分离检查");
+        System.out.println("========================================");
+        if (!DBUtil.getReplicaRouter().hasReplicas()) {
+            System.err.println("✗ 未配置从库（db.replicas），请按类注释中的参数运行");
+            return;
+        }
+
+        UserDao userDao = new UserDao();
+        String username = "replica_check_" + System.currentTimeMillis();
+
+        // 1. 未写入过的线程：读请求在从库间轮询
+        for (int i = 0; i < 4; i++) {
+            userDao.findByUsername("admin");
+        }
+        System.out.println("初始读取后: " + DBUtil.getReplicaRouter().describe());
+
+        // 2. 写入后立即读取：同一线程走主库，能读到刚写入的数据
+        String salt = PasswordUtil.generateSalt();
+        int userId = userDao.insert(new User(null, username, PasswordUtil.hashPassword("check123", salt), salt, 1));
+        check("写入后同一线程立即可读（读己之写）", userDao.findByUsername(username) != null);
+
+        // 3. 其他线程没有写入过，读请求仍走从库（演示用的从库不同步，因此读不到）
+        final boolean[] seenByOther = new boolean[1];
+        Thread other = new Thread(() -> seenByOther[0] = userDao.findByUsername(username) != null);
+        other.start();
+        other.join();
+        check("其他线程的读请求路由到从库", !seenByOther[0]);
+
+        // 3b. 必须读主库的查询（版本号、授权快照）不触发读己之写，之后的读请求仍走从库
+        Thread primaryReader = new Thread(() -> {
+            new EpochDao().read();
+            new PermissionDao().findGrantsByUserId(userId);
+            seenByOther[0] = userDao.findByUsername(username) != null;
+        });
+        primaryReader.start();
+        primaryReader.join();
+        check("读主库的查询不会让线程粘在主库", !seenByOther[0]);
+
+        // 3c. 其他线程修改后，未写入过的线程按新版本号加载并缓存的列表必须包含这次修改
+        //     （版本号已是新值，若列表从尚未复制的从库读取，旧数据会在整个新版本内被当作最新）
+        RoleDao roleDao = new RoleDao();
+        EpochCache<String, List<Role>> roleCache = new EpochCache<>("replica-check", RbacEpoch.shared(), 16, true);
+        String roleCode = "REPLICA_CHECK_" + System.currentTimeMillis();
+        final int[] roleId = new int[1];
+        Thread writer = new Thread(() -> TransactionManager.run(() -> {
+            roleId[0] = roleDao.insert(new Role(null, roleCode, "读写分离检查", null));
+            RbacEpoch.shared().bump();
+        }));
+        writer.start();
+        writer.join();
+        Thread cacheReader = new Thread(() -> seenByOther[0] = roleCache.get("all", roleDao::findAll).stream()
+                .anyMatch(role -> roleCode.equals(role.getRoleCode())));
+        cacheReader.start();
+        cacheReader.join();
+        check("按版本号缓存的数据从主库加载，不会把从库的旧数据记在新版本下", seenByOther[0]);
+        roleDao.deleteById(roleId[0]);
+
+        // 4. 超过粘滞窗口后，本线程的读请求回到从库
+        Thread.sleep(ConfigUtil.getLong("db.replica.stickyAfterWriteMs", 5000) + 100);
+        check("粘滞窗口结束后路由回从库", userDao.findByUsername(username) == null);
+
+        // 5. 从库连接池全部借满：读请求短暂等待后回退主库，从库不因繁忙被暂停
+        List<Connection> held = new ArrayList<>();
+        int replicaCapacity = ConfigUtil.getInt("db.pool.maxSize", 10) * 2;
+        Thread holder = new Thread(() -> {
+            try {
+                for (int i = 0; i < replicaCapacity; i++) {
+                    held.add(DBUtil.getReadConnection());
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        holder.start();
+        holder.join();
+        final long[] elapsedMs = new long[1];
+        Thread reader = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            seenByOther[0] = userDao.findByUsername(username) != null;
+            elapsedMs[0] = System.currentTimeMillis() - start;
+        });
+        reader.start();
+        reader.join();
+        for (Connection conn : held) {
+            conn.close();
+        }
+        check("从库繁忙时回退主库（" + elapsedMs[0] + "ms）", seenByOther[0]
+                && elapsedMs[0] < ConfigUtil.getLong("db.pool.borrowTimeoutMs", 5000));
+        check("从库繁忙不会被暂停使用", !DBUtil.getReplicaRouter().describe().contains("不可用"));
+
+        userDao.deleteById(userId);
+        System.out.println();
+        System.out.println(DBUtil.getReplicaRouter().describe());
+        System.out.println("主库连接池: " + DBUtil.getPoolStats());
+        DBUtil.shutdown();
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "✓ " : "✗ ") + name);
+    }
+}
@@ -0,0 +1,270 @@
+package com.rbac.test;
+
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.engine.AuthorizationModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * 反向索引检查 - 验证"哪些用户拥有某权限/某角色"的分页结果与逐个用户判断一致，并测量查询耗时
+ *
+ * <p>不需要数据库：直接通过 {@link AuthorizationEngine} 的增量方法构造模型。每个角色随机拥有若干权限，
+ * 每个用户随机拥有1到3个角色（部分角色只分配给少数用户，对应稀疏的用户集合）。检查：
+ * <ul>
+ *   <li>按页读取 {@link AuthorizationModel#findUsersWithPermission(String, int, int)} 的全部结果，
+ *       与对所有用户调用 {@code hasPermission} 得到的列表相同（升序、不重复、不遗漏），计数一致</li>
+ *   <li>{@link AuthorizationModel#findUsersWithRole(int, int, int)} 与用户的角色一致</li>
+ *   <li>增量修改用户的角色、角色的权限之后，新快照的结果随之改变，旧快照不受影响</li>
+ * </ul>
+ * 然后对比第一页查询、读取全部结果与逐个用户判断（内存中的位运算，已经比逐个用户查询数据库快得多）的耗时。
+ *
+ * <p>用法：{@code ReverseIndexCheck [用户数] [角色数] [权限数]}，默认 1000000、50、200。
+ */
+public class ReverseIndexCheck {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int SPARSE_ROLES = 5;
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int roles = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int permissions = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        System.out.println("========================================");
+        System.out.println("   反向索引检查");
+        System.out.println("========================================");
+
+        Random random = new Random(7);
+        AuthorizationEngine engine = new AuthorizationEngine();
+        for (int roleId = 1; roleId <= roles; roleId++) {
+            Map<Integer, String> granted = new HashMap<>();
+            for (int i = 0; i < 1 + random.nextInt(20); i++) {
+                int permissionId = 1 + random.nextInt(permissions);
+                granted.put(permissionId, code(permissionId));
+            }
+            engine.setRolePermissions(roleId, granted);
+        }
+        List<List<Integer>> expectedRoleUsers = new ArrayList<>();
+        for (int roleId = 0; roleId <= roles; roleId++) {
+            expectedRoleUsers.add(new ArrayList<>());
+        }
+        long start = System.nanoTime();
+        for (int userId = 1; userId <= users; userId++) {
+            int[] assigned = rolesOf(userId, roles, random);
+            engine.setUserRoles(userId, assigned);
+            for (int roleId : Arrays.stream(assigned).distinct().toArray()) {
+                expectedRoleUsers.get(roleId).add(userId);
+            }
+        }
+        AuthorizationModel model = engine.model();
+        System.out.printf("构造 %d 个用户、%d 个角色、%d 个权限: %dms%n",
+                users, roles, permissions, (System.nanoTime() - start) / 1_000_000);
+        System.out.println("模型: " + model);
+
+        // 1. 拥有权限的用户：分页结果与逐个判断一致
+        int checked = 0;
+        for (int permissionId = 1; permissionId <= permissions && checked < 20; permissionId += 7) {
+            String code = code(permissionId);
+            if (model.indexOf(code) < 0) {
+                continue;
+            }
+            checked++;
+            int[] expected = scanPermission(model, code, users);
+            int[] actual = readAllPermission(model, code);
+            if (!Arrays.equals(expected, actual) || model.countUsersWithPermission(code) != expected.length) {
+                check(code + " 的用户: 期望 " + expected.length + " 个，分页读到 " + actual.length
+                        + " 个，计数 " + model.countUsersWithPermission(code), false);
+            }
+        }
+        check("拥有权限的用户与逐个判断一致（" + checked + " 个权限）", failures == 0);
+
+        // 2. 拥有角色的用户
+        int before = failures;
+        for (int roleId = 1; roleId <= roles; roleId++) {
+            int[] expected = expectedRoleUsers.get(roleId).stream().mapToInt(Integer::intValue).toArray();
+            int[] actual = readAllRole(model, roleId);
+            if (!Arrays.equals(expected, actual) || model.countUsersWithRole(roleId) != expected.length) {
+                check("角色 " + roleId + " 的用户: 期望 " + expected.length + " 个，分页读到 " + actual.length + " 个", false);
+            }
+        }
+        check("拥有角色的用户与分配的角色一致（" + roles + " 个角色）", failures == before);
+
+        // 3. 增量修改
+        int sparseRole = roles - SPARSE_ROLES + 1;
+        int movedUser = users / 2;
+        String sparseCode = "CHECK:SPARSE";
+        Map<Integer, String> sparsePermissions = new HashMap<>();
+        sparsePermissions.put(permissions + 1, sparseCode);
+        engine.setRolePermissions(sparseRole, sparsePermissions);
+        AuthorizationModel withPermission = engine.model();
+        int[] holders = withPermission.findUsersWithPermission(sparseCode, 0, Integer.MAX_VALUE);
+        check("给稀疏角色新增权限后立即可查（" + holders.length + " 个用户）",
+                Arrays.equals(holders, withPermission.findUsersWithRole(sparseRole, 0, Integer.MAX_VALUE))
+                        && holders.length == withPermission.countUsersWithRole(sparseRole));
+
+        engine.setUserRoles(movedUser, new int[]{sparseRole});
+        AuthorizationModel moved = engine.model();
+        check("用户改为只拥有稀疏角色后出现在该权限的结果中",
+                contains(moved.findUsersWithPermission(sparseCode, movedUser - 1, 1), movedUser)
+                        && moved.countUsersWithPermission(sparseCode) == holders.length + (contains(holders, movedUser) ? 0 : 1));
+        check("用户从原来的角色中移除",
+                Arrays.equals(rolesOfUser(moved, movedUser, roles), new int[]{sparseRole}));
+        check("旧快照不受影响", withPermission.countUsersWithPermission(sparseCode) == holders.length);
+
+        engine.setRolePermissions(sparseRole, new HashMap<>());
+        check("角色失去权限后不再出现在结果中",
+                engine.model().findUsersWithPermission(sparseCode, 0, 10).length == 0
+                        && engine.model().countUsersWithRole(sparseRole) == moved.countUsersWithRole(sparseRole));
+
+        // 4. 耗时
+        model = engine.model();
+        String dense = mostCommonCode(model, permissions);
+        String sparse = leastCommonCode(model, permissions);
+        System.out.printf("%n%-28s %12s %12s %14s%n", "权限（用户数）", "第一页(50)", "读取全部", "逐个用户判断");
+        for (String code : new String[]{dense, sparse}) {
+            AuthorizationModel snapshot = model;
+            long firstPage = medianNanos(() -> snapshot.findUsersWithPermission(code, 0, 50).length);
+            long all = medianNanos(() -> readAllPermission(snapshot, code).length);
+            long scan = medianNanos(() -> scanPermission(snapshot, code, users).length);
+            System.out.printf("%-28s %10.1fus %10.2fms %12.2fms%n",
+                    code + "（" + model.countUsersWithPermission(code) + "）",
+                    firstPage / 1e3, all / 1e6, scan / 1e6);
+        }
+
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 用户的角色：1到3个常规角色；每1000个用户中有一个额外拥有某个稀疏角色
+     */
+    private static int[] rolesOf(int userId, int roles, Random random) {
+        int regular = roles - SPARSE_ROLES;
+        int count = 1 + random.nextInt(3);
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(1 + random.nextInt(regular));
+        }
+        if (userId % 1000 == 0) {
+            result.add(regular + 1 + random.nextInt(SPARSE_ROLES));
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] rolesOfUser(AuthorizationModel model, int userId, int roles) {
+        List<Integer> result = new ArrayList<>();
+        for (int roleId = 1; roleId <= roles; roleId++) {
+            if (contains(model.findUsersWithRole(roleId, userId - 1, 1), userId)) {
+                result.add(roleId);
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] scanPermission(AuthorizationModel model, String code, int users) {
+        int index = model.indexOf(code);
+        int[] result = new int[users];
+        int count = 0;
+        for (int userId = 1; userId <= users; userId++) {
+            if (model.hasPermission(userId, index)) {
+                result[count++] = userId;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] readAllPermission(AuthorizationModel model, String code) {
+        int[] all = new int[0];
+        int afterId = 0;
+        while (true) {
+            int[] page = model.findUsersWithPermission(code, afterId, PAGE_SIZE);
+            if (page.length == 0) {
+                return all;
+            }
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + page.length);
+            System.arraycopy(page, 0, all, offset, page.length);
+            afterId = page[page.length - 1];
+        }
+    }
+
+    private static int[] readAllRole(AuthorizationModel model, int roleId) {
+        int[] all = new int[0];
+        int afterId = 0;
+        while (true) {
+            int[] page = model.findUsersWithRole(roleId, afterId, PAGE_SIZE);
+            if (page.length == 0) {
+                return all;
+            }
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + page.length);
+            System.arraycopy(page, 0, all, offset, page.length);
+            afterId = page[page.length - 1];
+        }
+    }
+
+    private static String mostCommonCode(AuthorizationModel model, int permissions) {
+        String best = null;
+        int bestCount = -1;
+        for (int permissionId = 1; permissionId <= permissions; permissionId++) {
+            int count = model.countUsersWithPermission(code(permissionId));
+            if (count > bestCount) {
+                best = code(permissionId);
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static String leastCommonCode(AuthorizationModel model, int permissions) {
+        String best = null;
+        int bestCount = Integer.MAX_VALUE;
+        for (int permissionId = 1; permissionId <= permissions; permissionId++) {
+            int count = model.countUsersWithPermission(code(permissionId));
+            if (count > 0 && count < bestCount) {
+                best = code(permissionId);
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static long medianNanos(IntSupplier action) {
+        long sink = 0;
+        long[] samples = new long[7];
+        for (int i = 0; i < samples.length + 3; i++) {
+            long start = System.nanoTime();
+            sink += action.getAsInt();
+            if (i >= 3) {
+                samples[i - 3] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(samples);
+        return sink == Long.MIN_VALUE ? 0 : samples[samples.length / 2];
+    }
+
+    private static boolean contains(int[] values, int value) {
+        return Arrays.stream(values).anyMatch(v -> v == value);
+    }
+
+    private static String code(int permissionId) {
+        return "CHECK:P" + permissionId;
+    }
+
+    private static void check(String step, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
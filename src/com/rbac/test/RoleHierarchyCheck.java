@@ -0,0 +1,388 @@
+package com.rbac.test;
+
+import com.rbac.dao.PermissionDao;
+import com.rbac.dao.RoleHierarchyDao;
+import com.rbac.engine.AuthorizationEngine;
+import com.rbac.engine.AuthorizationModel;
+import com.rbac.exception.BusinessException;
+import com.rbac.service.PermissionService;
+import com.rbac.service.RoleService;
+import com.rbac.service.UserService;
+import com.rbac.service.impl.PermissionServiceImpl;
+import com.rbac.service.impl.RoleServiceImpl;
+import com.rbac.service.impl.UserServiceImpl;
+import com.rbac.util.DBUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 角色继承检查 - 验证增量维护的继承闭包与从头计算的结果一致，并测量增量维护、全量重算和权限校验的耗时
+ *
+ * <p>在当前配置的数据库中创建临时角色，按 {@value #LEVELS} 层组织成有向无环图：第0层为根角色（各拥有一个临时权限），
+ * 其余每个角色继承上一层的1到2个角色。继承关系逐条通过 {@link RoleService#addParentRole(int, int)} 建立。检查：
+ * <ul>
+ *   <li>role_closure 中的每对（祖先, 后代）及路径数与按 role_hierarchy 从头计算的闭包相同</li>
+ *   <li>随机删除、重新建立继承关系后闭包仍然一致；成环和超过最大层数的继承关系被拒绝</li>
+ *   <li>最底层角色的用户经由继承拥有根角色的权限（SQL 查询与编译模型一致）</li>
+ *   <li>编译模型：给根角色分配新权限后增量更新，其所有后代角色的用户随即拥有该权限</li>
+ * </ul>
+ * 然后对比单条继承关系的增量维护与全量重算整个闭包的耗时，以及 SQL 查询与编译模型的校验耗时。结束时删除临时数据。
+ *
+ * <p>用法：{@code RoleHierarchyCheck [角色数] [随机变更次数]}，默认 10000、200。
+ */
+public class RoleHierarchyCheck {
+
+    private static final int LEVELS = 6;
+
+    private static final RoleService roleService = new RoleServiceImpl();
+    private static final PermissionService permissionService = new PermissionServiceImpl();
+    private static final UserService userService = new UserServiceImpl();
+    private static final RoleHierarchyDao hierarchyDao = new RoleHierarchyDao();
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int roleCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String prefix = "HIER_" + System.currentTimeMillis() % 1000000 + "_";
+
+        System.out.println("========================================");
+        System.out.println("   角色继承检查");
+        System.out.println("========================================");
+        System.out.println("后端类型: " + DBUtil.getBackendType());
+
+        Random random = new Random(5);
+        int[][] levels = createRoles(prefix, roleCount);
+        Map<Integer, Integer> levelOf = new HashMap<>();
+        for (int level = 0; level < LEVELS; level++) {
+            for (int roleId : levels[level]) {
+                levelOf.put(roleId, level);
+            }
+        }
+        Map<Integer, Set<Integer>> parents = new HashMap<>();
+        String username = prefix.toLowerCase() + "user";
+        List<String> codes = new ArrayList<>();
+
+        try {
+            // 1. 根角色的权限与逐层的继承关系
+            for (int rootId : levels[0]) {
+                String code = prefix + ":ROOT" + rootId;
+                permissionService.createPermission(code, "角色继承检查权限");
+                permissionService.assignPermissionToRole(rootId, permissionService.getPermissionByCode(code).getId());
+                codes.add(code);
+            }
+            long start = System.nanoTime();
+            int edges = 0;
+            for (int level = 1; level < LEVELS; level++) {
+                for (int roleId : levels[level]) {
+                    int[] above = levels[level - 1];
+                    int count = 1 + random.nextInt(2);
+                    for (int i = 0; i < count; i++) {
+                        int parentId = above[random.nextInt(above.length)];
+                        if (parents.computeIfAbsent(roleId, k -> new HashSet<>()).add(parentId)) {
+                            roleService.addParentRole(roleId, parentId);
+                            edges++;
+                        }
+                    }
+                }
+            }
+            System.out.printf("建立 %d 个角色、%d 条继承关系: %dms%n",
+                    roleCount, edges, (System.nanoTime() - start) / 1_000_000);
+            verifyClosure("逐条建立继承关系后闭包与从头计算一致", parents, levelOf.keySet());
+
+            // 此时第 k 层角色向上的最长路径恰为 k：最底层角色作为根角色的父角色，继承链为 5 + 1 + 5 层
+            int leafId = levels[LEVELS - 1][0];
+            Map<Integer, Long> leafAncestors = hierarchyDao.findAncestors(leafId);
+            int ancestorId = leafAncestors.keySet().iterator().next();
+            check("拒绝成环的继承关系", rejected(() -> roleService.addParentRole(ancestorId, leafId), "成环"));
+            check("拒绝继承自身", rejected(() -> roleService.addParentRole(leafId, leafId), "自身"));
+            int rootId = Arrays.stream(levels[0])
+                    .filter(id -> !leafAncestors.containsKey(id) && hierarchyDao.findDescendants(id).keySet().stream()
+                            .anyMatch(d -> levelOf.get(d) == LEVELS - 1))
+                    .findFirst().orElse(levels[0][0]);
+            check("拒绝超过最大层数的继承链", rejected(() -> roleService.addParentRole(rootId, leafId), "层数"));
+
+            // 2. 随机删除/建立继承关系
+            List<Long> removeNanos = new ArrayList<>();
+            List<Long> addNanos = new ArrayList<>();
+            for (int op = 0; op < operations; op++) {
+                List<Integer> children = new ArrayList<>(parents.keySet());
+                int childId = children.get(random.nextInt(children.size()));
+                Set<Integer> childParents = parents.get(childId);
+                if (!childParents.isEmpty()) {
+                    int parentId = childParents.iterator().next();
+                    start = System.nanoTime();
+                    roleService.removeParentRole(childId, parentId);
+                    removeNanos.add(System.nanoTime() - start);
+                    childParents.remove(parentId);
+                }
+                // 新的父角色取自更上层的任意一层，保持无环
+                int level = levelOf.get(childId);
+                int[] above = levels[random.nextInt(level)];
+                int parentId = above[random.nextInt(above.length)];
+                if (childParents.add(parentId)) {
+                    start = System.nanoTime();
+                    roleService.addParentRole(childId, parentId);
+                    addNanos.add(System.nanoTime() - start);
+                }
+            }
+            verifyClosure("随机删除/建立 " + operations + " 次后闭包与从头计算一致", parents, levelOf.keySet());
+
+
+            // 3. 全量重算整个闭包（对比用）
+            start = System.nanoTime();
+            rebuildClosure(fromScratch(parents, levelOf.keySet()), levelOf.keySet());
+            long rebuildNanos = System.nanoTime() - start;
+            verifyClosure("全量重算后闭包不变", parents, levelOf.keySet());
+
+            System.out.printf("%n%-24s %12s %12s%n", "", "中位数", "p99");
+            printPercentiles("增量删除继承关系", removeNanos);
+            printPercentiles("增量建立继承关系", addNanos);
+            System.out.printf("%-24s %10.2fms%n", "全量重算闭包", rebuildNanos / 1e6);
+
+            // 4. 权限校验：最底层角色的用户经由继承获得根角色的权限
+            userService.createUser(username, "Password123");
+            int userId = userService.getUserByUsername(username).getId();
+            roleService.assignRoleToUser(userId, leafId);
+            PermissionDao permissionDao = new PermissionDao();
+            Set<String> inherited = permissionDao.findCodesByUserId(userId);
+            Set<String> expectedCodes = new HashSet<>();
+            for (int ancestor : hierarchyDao.findAncestors(leafId).keySet()) {
+                if (levelOf.get(ancestor) == 0) {
+                    expectedCodes.add(prefix + ":ROOT" + ancestor);
+                }
+            }
+            check("最底层角色的用户拥有其所有根祖先的权限（" + expectedCodes.size() + " 个）",
+                    !expectedCodes.isEmpty() && inherited.equals(expectedCodes));
+
+            long compileStart = System.nanoTime();
+            AuthorizationEngine engine = AuthorizationEngine.load();
+            long compileMillis = (System.nanoTime() - compileStart) / 1_000_000;
+            AuthorizationModel model = engine.model();
+            String code = expectedCodes.iterator().next();
+            check("编译模型与 SQL 查询一致", expectedCodes.stream().allMatch(c -> model.hasPermission(userId, c))
+                    && codes.stream().filter(c -> !expectedCodes.contains(c)).noneMatch(c -> model.hasPermission(userId, c)));
+
+            int queries = 2000;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                permissionDao.findCodesByUserId(userId).contains(code);
+            }
+            double sqlNanos = (System.nanoTime() - start) / (double) queries;
+            int checks = 5_000_000;
+            int hits = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < checks; i++) {
+                hits += model.hasPermission(userId, code) ? 1 : 0;
+            }
+            double compiledNanos = (System.nanoTime() - start) / (double) checks;
+            System.out.printf("%n权限校验（%d 层继承）: SQL 关联查询 %.1fus/次，编译模型 %.1fns/次（命中 %d）%n",
+                    LEVELS - 1, sqlNanos / 1e3, compiledNanos, hits);
+
+            // 5. 编译模型的增量更新：根角色新增权限，重新合并其整个子树
+            int root = Arrays.stream(levels[0]).filter(id -> hierarchyDao.findDescendants(id).containsKey(leafId))
+                    .findFirst().orElse(levels[0][0]);
+            String added = prefix + ":ADDED";
+            permissionService.createPermission(added, "角色继承检查权限");
+            codes.add(added);
+            permissionService.assignPermissionToRole(root, permissionService.getPermissionByCode(added).getId());
+            start = System.nanoTime();
+            engine.onRoleChanged(root);
+            long deltaNanos = System.nanoTime() - start;
+            check("根角色新增权限后，后代角色的用户在新模型中拥有该权限（子树 "
+                            + hierarchyDao.findDescendants(root).size() + " 个角色）",
+                    engine.model().hasPermission(userId, added) && !model.hasPermission(userId, added));
+            // 之后重复应用同一变更（读取数据库并重新合并子树，模型不变），取中位数作为预热后的耗时
+            long[] repeated = new long[11];
+            for (int i = 0; i < repeated.length; i++) {
+                start = System.nanoTime();
+                engine.onRoleChanged(root);
+                repeated[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(repeated);
+            System.out.printf("编译模型: 全量编译 %dms，根角色权限变更的增量更新 %.2fms（预热后 %.2fms）%n",
+                    compileMillis, deltaNanos / 1e6, repeated[repeated.length / 2] / 1e6);
+        } finally {
+            cleanup(prefix, username, codes);
+        }
+
+        System.out.println(failures == 0 ? "\n✓ 全部检查通过" : "\n✗ " + failures + " 项检查失败");
+        DBUtil.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 批量创建临时角色（不经过服务层，只为节省时间），按层返回角色ID；第0层约占1%
+     */
+    private static int[][] createRoles(String prefix, int roleCount) throws SQLException {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO roles (role_code, role_name) VALUES (?, ?)")) {
+            for (int i = 0; i < roleCount; i++) {
+                insert.setString(1, prefix + i);
+                insert.setString(2, "继承检查角色" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement select = conn.prepareStatement("SELECT id FROM roles WHERE role_code LIKE ? ORDER BY id")) {
+            select.setString(1, prefix + "%");
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        int roots = Math.max(2, ids.size() / 100);
+        int perLevel = (ids.size() - roots + LEVELS - 2) / (LEVELS - 1);
+        int[][] levels = new int[LEVELS][];
+        levels[0] = ids.subList(0, roots).stream().mapToInt(Integer::intValue).toArray();
+        for (int level = 1; level < LEVELS; level++) {
+            int from = Math.min(ids.size(), roots + (level - 1) * perLevel);
+            levels[level] = ids.subList(from, Math.min(ids.size(), from + perLevel)).stream()
+                    .mapToInt(Integer::intValue).toArray();
+        }
+        return levels;
+    }
+
+    /**
+     * 按继承关系从头计算闭包：后代角色ID → (祖先角色ID → 路径数)
+     */
+    private static Map<Integer, Map<Integer, Long>> fromScratch(Map<Integer, Set<Integer>> parents, Set<Integer> roleIds) {
+        Map<Integer, Map<Integer, Long>> closure = new HashMap<>();
+        for (int roleId : roleIds) {
+            ancestorsOf(roleId, parents, closure);
+        }
+        closure.values().removeIf(Map::isEmpty);
+        return closure;
+    }
+
+    private static Map<Integer, Long> ancestorsOf(int roleId, Map<Integer, Set<Integer>> parents,
+                                                  Map<Integer, Map<Integer, Long>> closure) {
+        Map<Integer, Long> known = closure.get(roleId);
+        if (known != null) {
+            return known;
+        }
+        Map<Integer, Long> ancestors = new HashMap<>();
+        for (int parentId : parents.getOrDefault(roleId, new HashSet<>())) {
+            ancestors.merge(parentId, 1L, Long::sum);
+            ancestorsOf(parentId, parents, closure).forEach((ancestor, paths) -> ancestors.merge(ancestor, paths, Long::sum));
+        }
+        closure.put(roleId, ancestors);
+        return ancestors;
+    }
+
+    /**
+     * 读取数据库中临时角色的闭包，与从头计算的结果比较（包括路径数）
+     */
+    private static void verifyClosure(String step, Map<Integer, Set<Integer>> parents, Set<Integer> roleIds)
+            throws SQLException {
+        Map<Integer, Map<Integer, Long>> expected = fromScratch(parents, roleIds);
+        Map<Integer, Map<Integer, Long>> actual = new HashMap<>();
+        int rows = 0;
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT descendant_id, ancestor_id, path_count FROM role_closure")) {
+            while (rs.next()) {
+                if (roleIds.contains(rs.getInt(1))) {
+                    actual.computeIfAbsent(rs.getInt(1), k -> new HashMap<>()).put(rs.getInt(2), rs.getLong(3));
+                    rows++;
+                }
+            }
+        }
+        check(step + "（" + rows + " 行）", expected.equals(actual));
+    }
+
+    /**
+     * 全量重算：删除临时角色的全部闭包行，再写入从头计算的结果
+     */
+    private static void rebuildClosure(Map<Integer, Map<Integer, Long>> closure, Set<Integer> roleIds) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM role_closure WHERE descendant_id = ?");
+                 PreparedStatement insert = conn.prepareStatement(
+                         "INSERT INTO role_closure (ancestor_id, descendant_id, path_count) VALUES (?, ?, ?)")) {
+                for (int roleId : roleIds) {
+                    delete.setInt(1, roleId);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                for (Map.Entry<Integer, Map<Integer, Long>> row : closure.entrySet()) {
+                    for (Map.Entry<Integer, Long> ancestor : row.getValue().entrySet()) {
+                        insert.setInt(1, ancestor.getKey());
+                        insert.setInt(2, row.getKey());
+                        insert.setLong(3, ancestor.getValue());
+                        insert.addBatch();
+                    }
+                }
+                insert.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static boolean rejected(Runnable action, String reason) {
+        try {
+            action.run();
+            return false;
+        } catch (BusinessException e) {
+            System.out.println("    " + e.getMessage());
+            return e.getMessage().contains(reason);
+        }
+    }
+
+    private static void printPercentiles(String name, List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return;
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%-24s %10.2fms %10.2fms%n", name + "（" + sorted.length + " 次）",
+                sorted[sorted.length / 2] / 1e6, sorted[Math.min(sorted.length - 1, sorted.length * 99 / 100)] / 1e6);
+    }
+
+    /**
+     * 删除临时数据：角色删除时继承关系和闭包行随外键级联删除（临时角色只与临时角色之间有继承关系）
+     */
+    private static void cleanup(String prefix, String username, List<String> codes) {
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement users = conn.prepareStatement("DELETE FROM users WHERE username = ?");
+             PreparedStatement roles = conn.prepareStatement("DELETE FROM roles WHERE role_code LIKE ?");
+             PreparedStatement permissions = conn.prepareStatement("DELETE FROM permissions WHERE permission_code LIKE ?")) {
+            users.setString(1, username);
+            users.executeUpdate();
+            roles.setString(1, prefix + "%");
+            roles.executeUpdate();
+            permissions.setString(1, prefix + ":%");
+            permissions.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("清理临时数据失败: " + e.getMessage());
+        }
+    }
+
+    private static void check(String step, boolean ok) {
+        System.out.println((ok ? "✓ " : "✗ ") + step);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.rbac.util;
+
+import com.rbac.model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 异步执行器 - 在有界线程池上执行阻塞的服务/DAO 调用，返回 {@link CompletableFuture}
+ *
+ * <p>JDBC 调用本身是阻塞的，真正限制并发的是连接池：线程数超过 {@code db.pool.maxSize}
+ * 之后多出来的线程只会排队等连接。因此工作线程数默认等于连接池上限，其余请求在有界队列中等待，
+ * 调用方线程提交后立即返回，成千上万个进行中的请求只占用队列位置，而不是各自占用一个线程。
+ *
+ * <p><b>会话：</b>工作线程不继承调用方的 {@link SessionContext}。需要身份的调用使用
+ * {@link #submitAs(User, Supplier)} 显式传入用户，任务执行期间临时绑定，结束后立即解除。
+ *
+ * <p><b>背压：</b>队列满时不阻塞调用方，返回的 Future 以 {@link RejectedExecutionException} 失败，
+ * 由调用方决定重试还是直接拒绝请求。
+ *
+ * <p><b>注意：</b>
+ * <ul>
+ *   <li>不带 Async 后缀的回调（{@code thenApply} 等）可能在工作线程上执行，耗时的回调应使用调用方自己的线程池</li>
+ *   <li>读己之写按线程判断（见 {@link ReplicaRouter}），先后提交的写和读可能落在不同工作线程上；
+ *       需要立即读到刚写入的数据时，把写和读放在同一个任务里</li>
+ * </ul>
+ *
+ * <p>配置：{@code async.threads}（0 表示等于 {@code db.pool.maxSize}）、{@code async.queueCapacity}。
+ *
+ * @author RBAC Team
+ * @see com.rbac.service.AsyncAuthService
+ */
+public class AsyncExecutor implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AsyncExecutor.class);
+
+    private static final AtomicInteger executorCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param threads 工作线程数
+     * @param queueCapacity 等待队列容量
+     */
+    public AsyncExecutor(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("线程数和队列容量必须大于0: threads=" + threads + ", queueCapacity=" + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        String prefix = "rbac-async-" + executorCount.incrementAndGet() + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, prefix + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        logger.info("异步执行器已启动: 线程数={}, 队列容量={}", threads, queueCapacity);
+    }
+
+    /**
+     * 按配置创建执行器
+     */
+    public static AsyncExecutor fromConfig() {
+        int threads = ConfigUtil.getInt("async.threads", 0);
+        if (threads <= 0) {
+            threads = ConfigUtil.getInt("db.pool.maxSize", 10);
+        }
+        return new AsyncExecutor(threads, ConfigUtil.getInt("async.queueCapacity", 10000));
+    }
+
+    /**
+     * 以未登录身份异步执行
+     *
+     * @param action 要执行的操作
+     * @return 操作结果；队列已满时以 {@link RejectedExecutionException} 失败
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> action) {
+        return submitAs(null, action);
+    }
+
+    /**
+     * 以指定用户的身份异步执行，任务期间该用户绑定到工作线程的 {@link SessionContext}
+     *
+     * @param principal 执行操作的用户，null 表示未登录
+     * @param action 要执行的操作（通常是对服务接口或装饰器的调用）
+     * @return 操作结果；队列已满时以 {@link RejectedExecutionException} 失败
+     */
+    public <T> CompletableFuture<T> submitAs(User principal, Supplier<T> action) {
+        submitted.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(() -> SessionContext.callAs(principal, action), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new RejectedExecutionException(
+                    "异步队列已满（容量 " + queueCapacity + "）", e));
+            return failed;
+        }
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 队列中等待的任务数
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 因队列已满被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[async] 线程=%d 执行中=%d 排队=%d | 提交=%d 拒绝=%d 完成=%d",
+                executor.getMaximumPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                submitted.get(), rejected.get(), executor.getCompletedTaskCount());
+    }
+
+    /**
+     * 停止接收新任务，等待已提交的任务完成（最多30秒）
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("异步执行器关闭超时，仍有 {} 个任务未完成", executor.getQueue().size() + executor.getActiveCount());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,6 +6,9 @@ import java.util.Properties;
 
 /**
  * 配置工具类 - 负责读取配置文件
+ * 
+ * <p>同名的JVM系统属性优先于 config.properties，便于临时切换配置，
+ * 例如 {@code -Ddb.type=embedded} 在内嵌数据库上运行测试。
  */
 public class ConfigUtil {
     
@@ -27,21 +30,22 @@ public class ConfigUtil {
      * 获取字符串配置
      */
     public static String getString(String key) {
-        return properties.getProperty(key);
+        return lookup(key);
     }
     
     /**
      * 获取字符串配置，提供默认值
      */
     public static String getString(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+        String value = lookup(key);
+        return value != null ? value : defaultValue;
     }
     
     /**
      * 获取整数配置
      */
     public static int getInt(String key) {
-        String value = properties.getProperty(key);
+        String value = lookup(key);
         if (value == null) {
             throw new IllegalArgumentException("配置项不存在: " + key);
         }
@@ -52,7 +56,7 @@ public class ConfigUtil {
      * 获取整数配置，提供默认值
      */
     public static int getInt(String key, int defaultValue) {
-        String value = properties.getProperty(key);
+        String value = lookup(key);
         if (value == null) {
             return defaultValue;
         }
@@ -63,14 +67,37 @@ public class ConfigUtil {
         }
     }
     
+    /**
+     * 获取长整数配置，提供默认值
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = lookup(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     /**
      * 获取布尔配置
      */
     public static boolean getBoolean(String key, boolean defaultValue) {
-        String value = properties.getProperty(key);
+        String value = lookup(key);
         if (value == null) {
             return defaultValue;
         }
         return Boolean.parseBoolean(value);
     }
+    
+    /**
+     * 查找配置值：JVM系统属性优先，其次为配置文件
+     */
+    private static String lookup(String key) {
+        String value = System.getProperty(key);
+        return value != null ? value : properties.getProperty(key);
+    }
 }
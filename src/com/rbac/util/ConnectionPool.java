@@ -0,0 +1,661 @@
+package com.rbac.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Constructor;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 有界JDBC连接池 - 复用物理连接，避免每次数据库访问都重新握手和认证
+ *
+ * <p>DAO 层通过 {@link DBUtil#getConnection()} 借出连接，使用完毕后照常调用 {@code close()}，
+ * 本池拦截 close 调用并将物理连接归还池中，因此DAO代码无需任何改动。
+ *
+ * <p><b>功能：</b>
+ * <ul>
+ *   <li><b>容量控制</b>：最少空闲连接数（minIdle）与最大连接数（maxSize），借出数量由信号量严格限制</li>
+ *   <li><b>借出校验</b>：借出前调用 {@link Connection#isValid(int)} 校验连接，
+ *       最近刚使用过的连接（validationBypassMs内）跳过校验以节省一次往返</li>
+ *   <li><b>空闲回收</b>：空闲超过 idleTimeoutMs 的连接被关闭，但保留 minIdle 个</li>
+ *   <li><b>最大寿命</b>：存活超过 maxLifetimeMs 的连接在归还或空闲时被替换，避免被服务器端超时断开</li>
+ *   <li><b>借用超时</b>：池满时最多等待 borrowTimeoutMs，超时抛出 {@link SQLTransientConnectionException}</li>
+ *   <li><b>泄漏检测</b>：借出超过 leakDetectionThresholdMs 仍未归还的连接会连同借出位置的堆栈一起记录警告</li>
+ *   <li><b>语句缓存</b>：每个物理连接带一个 {@link StatementCache}，按SQL文本复用预编译语句，
+ *       可选开启 MySQL 服务端预编译（serverPrepStmts）</li>
+ *   <li><b>断线识别</b>：连接本身以及其上创建的语句、结果集抛出连接级错误（SQLState 08）时，
+ *       该连接被标记为损坏，归还时直接销毁而不是放回空闲队列</li>
+ *   <li><b>执行统计</b>：借出连接上预编译的语句由 {@link QueryMetrics} 包装，记录每条SQL的延迟分布和慢查询</li>
+ * </ul>
+ *
+ * <p>物理连接由 {@link DataSourceProvider} 创建，连接池本身与具体数据库后端无关。
+ *
+ * <p><b>线程安全：</b>空闲连接保存在双端队列中（后进先出，热连接优先复用），
+ * 所有计数器均为原子变量，后台维护线程为守护线程，不会阻止JVM退出。
+ *
+ * @author RBAC Team
+ * @see PoolStats
+ * @see DBUtil
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    private final String name;
+    private final DataSourceProvider provider;
+
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final int validationTimeoutSeconds;
+    private final long validationBypassMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+
+    /** 空闲连接（头部为最近归还的连接） */
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+
+    /** 已借出的连接，用于泄漏检测 */
+    private final Set<PooledEntry> active = ConcurrentHashMap.newKeySet();
+
+    /** 借出许可，数量等于 maxSize */
+    private final Semaphore permits;
+
+    /** 物理连接总数（空闲 + 借出） */
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalBorrowNanos = new AtomicLong();
+    private final LongAccumulator maxBorrowNanos = new LongAccumulator(Long::max, 0);
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    /**
+     * 创建连接池，容量等参数从 config.properties 中的 {@code db.pool.*} 读取
+     *
+     * @param name 连接池名称（用于日志和统计）
+     * @param provider 物理连接的提供者
+     */
+    public ConnectionPool(String name, DataSourceProvider provider) {
+        this.name = name;
+        this.provider = provider;
+
+        this.maxSize = Math.max(1, ConfigUtil.getInt("db.pool.maxSize", 10));
+        this.minIdle = Math.min(maxSize, Math.max(0, ConfigUtil.getInt("db.pool.minIdle", 2)));
+        this.borrowTimeoutMs = ConfigUtil.getLong("db.pool.borrowTimeoutMs", 5000);
+        this.validationTimeoutSeconds = ConfigUtil.getInt("db.pool.validationTimeoutSeconds", 3);
+        this.validationBypassMs = ConfigUtil.getLong("db.pool.validationBypassMs", 500);
+        this.idleTimeoutMs = ConfigUtil.getLong("db.pool.idleTimeoutMs", 600_000);
+        this.maxLifetimeMs = ConfigUtil.getLong("db.pool.maxLifetimeMs", 1_800_000);
+        this.leakDetectionThresholdMs = ConfigUtil.getLong("db.pool.leakDetectionThresholdMs", 60_000);
+        this.statementCacheSize = Math.max(0, ConfigUtil.getInt("db.pool.statementCacheSize", 64));
+        long housekeepingIntervalMs = Math.max(100, ConfigUtil.getLong("db.pool.housekeepingIntervalMs", 30_000));
+
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rbac-pool-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        // 首次填充放到后台执行，数据库暂不可用时不影响启动
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 从池中借出连接
+     *
+     * <p>优先复用空闲连接；无空闲连接且未达上限时新建物理连接；
+     * 已达上限时等待其他线程归还，最长等待 borrowTimeoutMs。
+     *
+     * @return 池化连接代理，调用 close() 即归还
+     * @throws SQLTransientConnectionException 当等待超时
+     * @throws SQLException 当连接池已关闭或新建连接失败时
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(borrowTimeoutMs);
+    }
+
+    /**
+     * 从池中借出连接，最长等待指定时间（不使用配置的 borrowTimeoutMs）
+     *
+     * <p>供有其他数据源可选的调用方使用，例如读请求在从库繁忙时尽快改用下一个从库或主库
+     *
+     * @param timeoutMs 最长等待毫秒数
+     * @throws SQLTransientConnectionException 当等待超时
+     * @throws SQLException 当连接池已关闭或新建连接失败时
+     */
+    public Connection getConnection(long timeoutMs) throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭: " + name);
+        }
+        long start = System.nanoTime();
+        acquirePermit(timeoutMs);
+        try {
+            PooledEntry entry = takeEntry(start, timeoutMs);
+            recordBorrow(entry, start);
+            return entry.newProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("连接池不支持按调用指定凭据");
+    }
+
+    private void acquirePermit(long timeoutMs) throws SQLException {
+        waitingThreads.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTransientConnectionException(String.format(
+                        "获取数据库连接超时（等待%dms），%s", timeoutMs, getStats()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接时被中断", e);
+        } finally {
+            waitingThreads.decrementAndGet();
+        }
+    }
+
+    /**
+     * 在已持有许可的前提下取得一个可用的物理连接
+     */
+    private PooledEntry takeEntry(long start, long timeoutMs) throws SQLException {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            PooledEntry entry = idle.pollFirst();
+            if (entry != null) {
+                if (isUsable(entry)) {
+                    return entry;
+                }
+                destroy(entry);
+                continue;
+            }
+            if (reserveSlot()) {
+                try {
+                    return createEntry();
+                } catch (SQLException | RuntimeException e) {
+                    totalConnections.decrementAndGet();
+                    throw e;
+                }
+            }
+            // 物理连接数已满但空闲队列为空：说明维护线程正在补充或有连接正在归还，短暂等待后重试
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTransientConnectionException("获取数据库连接超时，" + getStats());
+            }
+            try {
+                entry = idle.pollFirst(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("等待数据库连接时被中断", e);
+            }
+            if (entry != null) {
+                if (isUsable(entry)) {
+                    return entry;
+                }
+                destroy(entry);
+            }
+        }
+    }
+
+    /**
+     * 检查空闲连接是否可以借出（未超过寿命且通过校验）
+     */
+    private boolean isUsable(PooledEntry entry) {
+        long now = System.currentTimeMillis();
+        if (isExpired(entry, now)) {
+            return false;
+        }
+        if (now - entry.lastUsedAt <= validationBypassMs) {
+            return true;
+        }
+        try {
+            return entry.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledEntry entry, long now) {
+        return maxLifetimeMs > 0 && now - entry.createdAt >= maxLifetimeMs;
+    }
+
+    /**
+     * 在物理连接总数未达上限时占用一个名额
+     */
+    private boolean reserveSlot() {
+        while (true) {
+            int current = totalConnections.get();
+            if (current >= maxSize) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = provider.createConnection();
+        createdCount.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    private void recordBorrow(PooledEntry entry, long start) {
+        entry.borrowedAt = System.currentTimeMillis();
+        entry.borrowSite = leakDetectionThresholdMs > 0 ? new Throwable("连接借出位置") : null;
+        entry.leakReported = false;
+        active.add(entry);
+
+        long elapsed = System.nanoTime() - start;
+        borrowCount.incrementAndGet();
+        totalBorrowNanos.addAndGet(elapsed);
+        maxBorrowNanos.accumulate(elapsed);
+    }
+
+    /**
+     * 归还连接：重置会话状态后放回空闲队列，损坏或过期的连接直接销毁
+     */
+    private void release(PooledEntry entry) {
+        active.remove(entry);
+        try {
+            if (closed || entry.broken || isExpired(entry, System.currentTimeMillis())) {
+                destroy(entry);
+                return;
+            }
+            if (entry.statementCache != null) {
+                entry.statementCache.releaseAll();
+            }
+            try {
+                resetSession(entry);
+            } catch (SQLException e) {
+                destroy(entry);
+                return;
+            }
+            entry.lastUsedAt = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 回滚未提交的事务并恢复默认会话设置，避免状态泄漏给下一个借用者
+     */
+    private void resetSession(PooledEntry entry) throws SQLException {
+        Connection physical = entry.physical;
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        if (entry.readOnlyChanged) {
+            physical.setReadOnly(false);
+            entry.readOnlyChanged = false;
+        }
+        physical.clearWarnings();
+    }
+
+    private void destroy(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            logger.debug("关闭物理连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 后台维护：回收超时空闲连接、替换过期连接、补足最少空闲数、检测连接泄漏
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledEntry> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledEntry entry = it.next();
+                boolean idleTooLong = idleTimeoutMs > 0 && now - entry.lastUsedAt >= idleTimeoutMs
+                        && totalConnections.get() > minIdle;
+                if ((idleTooLong || isExpired(entry, now)) && idle.remove(entry)) {
+                    destroy(entry);
+                }
+            }
+
+            while (idle.size() < minIdle && reserveSlot()) {
+                try {
+                    idle.offerLast(createEntry());
+                } catch (SQLException e) {
+                    totalConnections.decrementAndGet();
+                    logger.warn("连接池[{}]补充空闲连接失败: {}", name, e.getMessage());
+                    break;
+                }
+            }
+
+            if (leakDetectionThresholdMs > 0) {
+                for (PooledEntry entry : active) {
+                    if (!entry.leakReported && now - entry.borrowedAt >= leakDetectionThresholdMs) {
+                        entry.leakReported = true;
+                        leakCount.incrementAndGet();
+                        logger.warn(String.format("连接池[%s]疑似连接泄漏：连接已借出%dms未归还",
+                                name, now - entry.borrowedAt), entry.borrowSite);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("连接池[{}]维护任务异常", name, e);
+        }
+    }
+
+    /**
+     * 获取连接池统计快照
+     */
+    public PoolStats getStats() {
+        int activeCount = active.size();
+        return new PoolStats(name, activeCount, idle.size(), waitingThreads.get(), maxSize,
+                borrowCount.get(), timeoutCount.get(), createdCount.get(), destroyedCount.get(),
+                leakCount.get(), totalBorrowNanos.get(), maxBorrowNanos.get(),
+                statementCounters.hits.get(), statementCounters.misses.get(), statementCounters.evictions.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取物理连接的提供者（可据此判断当前数据库后端类型）
+     */
+    public DataSourceProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * 关闭连接池：停止维护线程并关闭所有空闲连接，借出中的连接在归还时关闭
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    // ==================== DataSource 其余方法 ====================
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("无法转换为 " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * 池中的一个物理连接及其元数据
+     */
+    private final class PooledEntry {
+        private final Connection physical;
+        private final long createdAt;
+        private final StatementCache statementCache;
+        private volatile long lastUsedAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+        private boolean readOnlyChanged;
+
+        private PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementCounters) : null;
+        }
+
+        /**
+         * 为本次借用创建新的代理，每次借用的代理相互独立，归还后旧代理即失效
+         */
+        private Connection newProxy() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LogicalConnectionHandler(this));
+        }
+    }
+
+    /**
+     * 逻辑连接的调用处理器：拦截 close 实现归还，其余调用转发给物理连接
+     */
+    private final class LogicalConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean logicallyClosed;
+
+        private LogicalConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]@" + Integer.toHexString(System.identityHashCode(proxy));
+                case "unwrap":
+                    return ((Class<?>) args[0]).isInstance(proxy) ? proxy : entry.physical.unwrap((Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy) || entry.physical.isWrapperFor((Class<?>) args[0]);
+                default:
+                    break;
+            }
+            if (logicallyClosed) {
+                throw new SQLException("连接已归还连接池，不能继续使用");
+            }
+            if ("setReadOnly".equals(methodName)) {
+                entry.readOnlyChanged = true;
+            }
+            if ("prepareStatement".equals(methodName)) {
+                PreparedStatement statement;
+                if (entry.statementCache != null && isCacheable(args)) {
+                    int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                    try {
+                        statement = entry.statementCache.prepare((Connection) proxy, (String) args[0], keys);
+                    } catch (SQLException e) {
+                        markIfBroken(entry, e);
+                        throw e;
+                    }
+                } else {
+                    statement = (PreparedStatement) invokePhysical(method, args);
+                }
+                return track(entry, QueryMetrics.instrument(statement, (String) args[0]),
+                        PreparedStatement.class, proxy);
+            }
+            Object result = invokePhysical(method, args);
+            if (result instanceof Statement) {
+                // createStatement / prepareCall
+                return track(entry, result, method.getReturnType(), proxy);
+            }
+            return result;
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                markIfBroken(entry, cause);
+                throw cause;
+            }
+        }
+    }
+
+    /**
+     * 借出连接上的语句和结果集代理：execute*、next 等调用抛出的连接级错误同样标记连接损坏。
+     * 只在连接方法上识别是不够的，断线通常在执行语句或读取结果时才暴露，
+     * 未标记的连接会带着新的 lastUsedAt 回到空闲队列，并在 validationBypassMs 内跳过校验再次借出
+     */
+    private static final class ErrorTrackingHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private final Object target;
+        /** 语句所属的逻辑连接，或结果集所属的语句代理 */
+        private final Object owner;
+
+        private ErrorTrackingHandler(PooledEntry entry, Object target, Object owner) {
+            this.entry = entry;
+            this.target = target;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                case "getStatement":
+                    return owner;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                markIfBroken(entry, cause);
+                throw cause;
+            }
+            if (result instanceof ResultSet) {
+                return track(entry, result, ResultSet.class, proxy);
+            }
+            return result;
+        }
+    }
+
+    /** 各接口代理类的构造器，每个接口只查找一次 */
+    private static final Map<Class<?>, Constructor<?>> TRACKING_CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    private static Object track(PooledEntry entry, Object target, Class<?> type, Object owner) {
+        Constructor<?> constructor = TRACKING_CONSTRUCTORS.computeIfAbsent(type, t -> {
+            try {
+                return Proxy.getProxyClass(t.getClassLoader(), t).getConstructor(InvocationHandler.class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            return constructor.newInstance(new ErrorTrackingHandler(entry, target, owner));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建语句代理失败", e);
+        }
+    }
+
+    private static void markIfBroken(PooledEntry entry, Throwable error) {
+        if (error instanceof SQLException && isConnectionError((SQLException) error)) {
+            entry.broken = true;
+        }
+    }
+
+    /**
+     * 只缓存 prepareStatement(sql) 和 prepareStatement(sql, autoGeneratedKeys) 两种形式，
+     * 指定游标类型或列名的语句按原样创建
+     */
+    private static boolean isCacheable(Object[] args) {
+        return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+    }
+
+    /**
+     * SQLState 以 08 开头表示连接级错误，此类连接归还时直接销毁
+     */
+    private static boolean isConnectionError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
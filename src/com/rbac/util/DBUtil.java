@@ -1,33 +1,120 @@
 package com.rbac.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 /**
  * 数据库工具类 - 负责数据库连接管理
+ * 
+ * <p>所有连接均从内置的 {@link ConnectionPool} 借出，调用 {@code close()} 即归还连接池，
+ * 不再为每次查询建立新的物理连接。连接池参数见 config.properties 中的 {@code db.pool.*}。
+ * 
+ * <p>数据库后端由 {@code db.type} 选择（mysql 或 embedded），见 {@link DataSourceProvider}。
+ * 创建连接池之前会执行尚未执行的数据库迁移（{@code db.migration.autoApply}），见 {@link MigrationRunner}。
+ * 
+ * <p>只读查询应使用 {@link #getReadConnection()}：配置了从库（{@code db.replicas}）时由
+ * {@link ReplicaRouter} 分发到从库，未配置时与 {@link #getConnection()} 相同。
+ * 必须读到最新数据的查询使用 {@link #getPrimaryReadConnection()}，读主库但不触发读己之写。
  */
 public class DBUtil {
     
-    private static final String URL = ConfigUtil.getString("db.url");
-    private static final String USER = ConfigUtil.getString("db.user");
-    private static final String PASSWORD = ConfigUtil.getString("db.password");
+    private static final DataSourceProvider PROVIDER = DataSourceProvider.fromConfig("db");
     
     static {
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("加载数据库驱动失败", e);
+            PROVIDER.initialize();
+            if (ConfigUtil.getBoolean("db.migration.autoApply", true)) {
+                MigrationRunner.fromConfig(PROVIDER).migrate();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("初始化数据源失败（" + PROVIDER.getType() + "）", e);
         }
     }
     
+    private static final ConnectionPool POOL = new ConnectionPool("primary", PROVIDER);
+    
+    private static final ReplicaRouter ROUTER = new ReplicaRouter(POOL);
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DBUtil::shutdown, "rbac-pool-shutdown"));
+    }
+    
     /**
-     * 获取数据库连接
+     * 获取数据库连接（主库，从连接池借出，close() 即归还）
+     * 
+     * <p>写操作必须使用此方法；借用后当前线程在一段时间内的读操作也会走主库（读己之写）。
+     * 当前线程处于 {@link TransactionManager} 事务中时，返回事务绑定的连接。
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        Connection bound = TransactionManager.currentConnection();
+        return bound != null ? bound : ROUTER.getWriteConnection();
+    }
+    
+    /**
+     * 获取只读连接（从库可用时走从库，否则走主库），只能用于查询
+     * 
+     * <p>处于事务中时同样返回事务绑定的连接，以便读到本事务内尚未提交的修改。
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection bound = TransactionManager.currentConnection();
+        return bound != null ? bound : ROUTER.getReadConnection();
+    }
+    
+    /**
+     * 获取主库的只读连接，用于不能容忍复制延迟的查询
+     * 
+     * <p>与 {@link #getConnection()} 不同，不会让当前线程之后的读操作在一段时间内都走主库。
+     * 处于事务中时返回事务绑定的连接。
+     */
+    public static Connection getPrimaryReadConnection() throws SQLException {
+        Connection bound = TransactionManager.currentConnection();
+        return bound != null ? bound : ROUTER.getPrimaryReadConnection();
+    }
+    
+    /**
+     * 获取连接池统计信息（活跃、空闲、等待线程数及借用耗时）
+     */
+    public static PoolStats getPoolStats() {
+        return POOL.getStats();
+    }
+    
+    /**
+     * 获取读写分离路由器（从库状态、读请求分布）
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        return ROUTER;
+    }
+    
+    /**
+     * 获取当前数据库后端类型（mysql / embedded）
+     */
+    public static String getBackendType() {
+        return PROVIDER.getType();
+    }
+    
+    /**
+     * 判断异常是否为唯一键冲突（MySQL 错误码 1062，标准 SQLState 23505）
+     */
+    public static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == 1062 || "23505".equals(e.getSQLState());
+    }
+    
+    /**
+     * 判断异常是否为外键约束冲突：引用的父记录不存在
+     * （MySQL 错误码 1452，H2 的 SQLState 23506，标准 SQLState 23503）
+     */
+    public static boolean isForeignKeyViolation(SQLException e) {
+        return e.getErrorCode() == 1452 || "23506".equals(e.getSQLState()) || "23503".equals(e.getSQLState());
+    }
+    
+    /**
+     * 关闭连接池（含从库），释放所有空闲的物理连接
+     */
+    public static void shutdown() {
+        ROUTER.close();
+        POOL.close();
     }
     
     /**
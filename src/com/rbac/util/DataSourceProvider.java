@@ -0,0 +1,67 @@
+package com.rbac.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 数据源提供者 - 屏蔽具体数据库后端的差异，为连接池创建物理连接
+ *
+ * <p>{@link ConnectionPool} 只负责连接的复用与管理，物理连接由本接口的实现创建。
+ * 通过配置项 {@code <前缀>.type} 选择后端：
+ * <ul>
+ *   <li><b>mysql</b>（默认）：{@link MysqlDataSourceProvider}，连接外部 MySQL 服务器</li>
+ *   <li><b>embedded</b>：{@link EmbeddedDataSourceProvider}，进程内嵌数据库，
+ *       启动时自动执行 sql/schema.sql 和 sql/init_data.sql，适合压测、基准测试和CI</li>
+ * </ul>
+ *
+ * @author RBAC Team
+ * @see ConnectionPool
+ */
+public interface DataSourceProvider {
+
+    /**
+     * 后端类型名称（如 mysql、embedded），用于日志和统计
+     */
+    String getType();
+
+    /**
+     * 创建一个新的物理连接（由连接池负责复用和关闭）
+     *
+     * @return 物理连接
+     * @throws SQLException 当连接失败时
+     */
+    Connection createConnection() throws SQLException;
+
+    /**
+     * 初始化后端（加载驱动、建表等），在连接池创建前调用一次
+     *
+     * @throws SQLException 当初始化失败时
+     */
+    default void initialize() throws SQLException {
+    }
+
+    /**
+     * 按配置前缀创建数据源提供者
+     *
+     * <p>读取 {@code <prefix>.type}、{@code <prefix>.url}、{@code <prefix>.user}、{@code <prefix>.password}，
+     * 例如主库使用前缀 {@code db}。
+     *
+     * @param prefix 配置项前缀
+     * @return 数据源提供者
+     * @throws IllegalArgumentException 当后端类型不受支持时
+     */
+    static DataSourceProvider fromConfig(String prefix) {
+        String type = ConfigUtil.getString(prefix + ".type", MysqlDataSourceProvider.TYPE).trim().toLowerCase();
+        String url = ConfigUtil.getString(prefix + ".url");
+        String user = ConfigUtil.getString(prefix + ".user");
+        String password = ConfigUtil.getString(prefix + ".password");
+        switch (type) {
+            case MysqlDataSourceProvider.TYPE:
+                return new MysqlDataSourceProvider(url, user, password);
+            case EmbeddedDataSourceProvider.TYPE:
+                return new EmbeddedDataSourceProvider(prefix);
+            default:
+                throw new IllegalArgumentException("不支持的数据库类型: " + type + "（配置项 " + prefix + ".type）");
+        }
+    }
+}
@@ -1,7 +1,18 @@
 package com.rbac.util;
 
+import com.rbac.cache.RbacEpoch;
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.dao.RoleHierarchyDao;
+import com.rbac.event.GrantEvents;
+import com.rbac.service.RoleService;
+import com.rbac.service.impl.RoleServiceImpl;
+
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 数据库重置工具
@@ -27,20 +38,83 @@ public class DatabaseResetUtil {
 
     /**
      * 重置数据库到初始状态
+     *
+     * <p>授权相关的表在一个事务中重置，并与普通修改一样写入授权变更日志、递增版本号，
+     * 其他节点的权限缓存、拒绝缓存和编译模型随之刷新。内置角色的继承关系经由 {@link RoleService#addParentRole(int, int)}
+     * 建立（增量维护闭包），用户有效权限物化表由 {@link EffectivePermissionTool#rebuild} 按授权重新计算，
+     * 不在此重复迁移 V5、V6 中的 SQL
      */
     private static void resetDatabase() throws Exception {
         System.out.println("正在重置数据库...");
         
+        TransactionManager.run(() -> {
+            try {
+                resetGrants();
+            } catch (SQLException e) {
+                throw new RuntimeException("重置授权数据失败", e);
+            }
+        });
+        
+        try (Connection conn = DBUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            // 清空数据库审计日志表
+            System.out.print("  [额外] 清空数据库审计日志表... ");
+            try {
+                stmt.executeUpdate("DELETE FROM audit_logs");
+                System.out.println("✓");
+            } catch (Exception e) {
+                System.out.println("⚠️ (表可能不存在)");
+            }
+        }
+        
+        // 清空文件审计日志
+        System.out.print("  [额外] 清空文件审计日志... ");
+        java.nio.file.Path logPath = java.nio.file.Paths.get(
+                ConfigUtil.getString("audit.log.path", "logs/audit.log"));
+        if (java.nio.file.Files.exists(logPath)) {
+            java.nio.file.Files.delete(logPath);
+        }
+        System.out.println("✓");
+        
+        System.out.println();
+        System.out.println("数据库已重置为初始状态：");
+        System.out.println("  - 保留 admin 用户（密码: admin123）");
+        System.out.println("  - 保留 4 个系统角色: ADMIN, USER_MANAGER, AUDITOR, GUEST");
+        System.out.println("  - 恢复所有角色的标准权限配置");
+        System.out.println("  - 保留所有系统权限 (23个)");
+        System.out.println("  - 清空所有测试数据");
+        System.out.println("  - 清空审计日志（文件 + 数据库）");
+    }
+
+    /**
+     * 在当前事务中重置用户、角色、权限及其关联，并发出授权变更通知
+     */
+    private static void resetGrants() throws SQLException {
+        RoleHierarchyDao hierarchyDao = new RoleHierarchyDao();
+        RoleService roleService = new RoleServiceImpl();
+        hierarchyDao.lock();
+        
         try (Connection conn = DBUtil.getConnection();
              Statement stmt = conn.createStatement()) {
             
+            // 重置前的全部角色和将被删除的权限，重置后逐个通知
+            int[] roleIds = queryIds(stmt, "SELECT id FROM roles");
+            String customPermissions = "permission_code NOT LIKE 'USER:%' " +
+                    "AND permission_code NOT LIKE 'ROLE:%' " +
+                    "AND permission_code NOT LIKE 'PERMISSION:%' " +
+                    "AND permission_code NOT LIKE 'AUDIT:%'";
+            int[] deletedPermissionIds = queryIds(stmt, "SELECT id FROM permissions WHERE " + customPermissions);
+            
             // 1. 清空所有表数据（保留结构）
             System.out.print("  [1/9] 清空用户角色关联表... ");
             stmt.executeUpdate("DELETE FROM user_roles");
             System.out.println("✓");
             
-            System.out.print("  [2/9] 清空角色权限关联表... ");
+            System.out.print("  [2/9] 清空角色权限关联表和角色继承关系... ");
             stmt.executeUpdate("DELETE FROM role_permissions");
+            stmt.executeUpdate("DELETE FROM role_closure");
+            stmt.executeUpdate("DELETE FROM role_hierarchy");
             System.out.println("✓");
             
             System.out.print("  [3/9] 清空用户表（保留admin）... ");
@@ -52,23 +126,11 @@ public class DatabaseResetUtil {
             System.out.println("✓");
             
             System.out.print("  [5/9] 清空权限表（保留系统权限）... ");
-            stmt.executeUpdate("DELETE FROM permissions WHERE permission_code NOT LIKE 'USER:%' " +
-                    "AND permission_code NOT LIKE 'ROLE:%' " +
-                    "AND permission_code NOT LIKE 'PERMISSION:%' " +
-                    "AND permission_code NOT LIKE 'AUDIT:%'");
-            System.out.println("✓");
-            
-            // 2. 恢复所有系统角色的权限（完全匹配 init_data.sql）
-            System.out.print("  [6/9] 恢复ADMIN角色的所有权限... ");
-            stmt.executeUpdate(
-                "INSERT INTO role_permissions (role_id, permission_id) " +
-                "SELECT r.id, p.id " +
-                "FROM roles r, permissions p " +
-                "WHERE r.role_code = 'ADMIN'"
-            );
+            stmt.executeUpdate("DELETE FROM permissions WHERE " + customPermissions);
             System.out.println("✓");
             
-            System.out.print("  [7/9] 恢复USER_MANAGER角色的权限... ");
+            // 2. 恢复所有系统角色的权限和继承关系（完全匹配 init_data.sql 和迁移 V5）
+            System.out.print("  [6/9] 恢复USER_MANAGER角色的权限... ");
             int userManagerRows = stmt.executeUpdate(
                 "INSERT INTO role_permissions (role_id, permission_id) " +
                 "SELECT r.id, p.id " +
@@ -78,17 +140,17 @@ public class DatabaseResetUtil {
             );
             System.out.println("✓ (" + userManagerRows + "个权限)");
             
-            System.out.print("  [8/9] 恢复AUDITOR角色的权限... ");
+            System.out.print("  [7/9] 恢复AUDITOR角色的权限... ");
             int auditorRows = stmt.executeUpdate(
                 "INSERT INTO role_permissions (role_id, permission_id) " +
                 "SELECT r.id, p.id " +
                 "FROM roles r, permissions p " +
                 "WHERE r.role_code = 'AUDITOR' " +
-                "AND p.permission_code IN ('AUDIT:VIEW', 'AUDIT:ANALYZE', 'USER:LIST', 'ROLE:LIST', 'PERMISSION:LIST')"
+                "AND p.permission_code IN ('AUDIT:VIEW', 'AUDIT:ANALYZE')"
             );
             System.out.println("✓ (" + auditorRows + "个权限)");
             
-            System.out.print("  [9/9] 恢复GUEST角色的权限... ");
+            System.out.print("  [8/9] 恢复GUEST角色的权限... ");
             int guestRows = stmt.executeUpdate(
                 "INSERT INTO role_permissions (role_id, permission_id) " +
                 "SELECT r.id, p.id " +
@@ -98,6 +160,22 @@ public class DatabaseResetUtil {
             );
             System.out.println("✓ (" + guestRows + "个权限)");
             
+            System.out.print("  [9/9] 恢复ADMIN角色的权限和内置角色的继承关系... ");
+            int adminRows = stmt.executeUpdate(
+                "INSERT INTO role_permissions (role_id, permission_id) " +
+                "SELECT r.id, p.id " +
+                "FROM roles r, permissions p " +
+                "WHERE r.role_code = 'ADMIN' " +
+                "AND NOT EXISTS (SELECT 1 FROM role_permissions rp JOIN roles pr ON pr.id = rp.role_id " +
+                "WHERE rp.permission_id = p.id AND pr.role_code IN ('USER_MANAGER', 'AUDITOR', 'GUEST'))"
+            );
+            int adminRoleId = roleService.getRoleByCode("ADMIN").getId();
+            int auditorRoleId = roleService.getRoleByCode("AUDITOR").getId();
+            roleService.addParentRole(adminRoleId, roleService.getRoleByCode("USER_MANAGER").getId());
+            roleService.addParentRole(adminRoleId, auditorRoleId);
+            roleService.addParentRole(auditorRoleId, roleService.getRoleByCode("GUEST").getId());
+            System.out.println("✓ (" + adminRows + "个权限)");
+            
             // 3. 恢复admin用户的ADMIN角色
             System.out.print("  [额外] 恢复admin用户的ADMIN角色... ");
             stmt.executeUpdate(
@@ -113,32 +191,34 @@ public class DatabaseResetUtil {
             stmt.executeUpdate("UPDATE users SET status = 0 WHERE username = 'admin'");
             System.out.println("✓");
             
-            // 5. 清空数据库审计日志表
-            System.out.print("  [额外] 清空数据库审计日志表... ");
-            try {
-                stmt.executeUpdate("DELETE FROM audit_logs");
-                System.out.println("✓");
-            } catch (Exception e) {
-                System.out.println("⚠️ (表可能不存在)");
-            }
+            // 5. 按恢复后的授权重新计算用户有效权限物化表（内容有变化的用户同时写入变更日志）
+            System.out.print("  [额外] 重新计算用户有效权限物化表... ");
+            EffectivePermissionTool.Report report = EffectivePermissionTool.rebuild(new EffectivePermissionDao(true), 10000);
+            System.out.println("✓ (" + report + ")");
             
-            // 6. 清空文件审计日志
-            System.out.print("  [额外] 清空文件审计日志... ");
-            java.nio.file.Path logPath = java.nio.file.Paths.get(
-                    ConfigUtil.getString("audit.log.path", "logs/audit.log"));
-            if (java.nio.file.Files.exists(logPath)) {
-                java.nio.file.Files.delete(logPath);
+            // 6. 授权变更通知：重置前后的全部角色、被删除的权限、admin 用户
+            System.out.print("  [额外] 写入授权变更日志并递增授权数据版本号... ");
+            for (int roleId : roleIds) {
+                GrantEvents.roleChanged(roleId);
+            }
+            for (int permissionId : deletedPermissionIds) {
+                GrantEvents.permissionDeleted(permissionId);
+            }
+            int[] adminIds = queryIds(stmt, "SELECT id FROM users WHERE username = 'admin'");
+            if (adminIds.length > 0) {
+                GrantEvents.userRolesChanged(adminIds[0]);
+            }
+            System.out.println("✓ (" + RbacEpoch.shared().bump() + ")");
+        }
+    }
+    
+    private static int[] queryIds(Statement stmt, String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
             }
-            System.out.println("✓");
-            
-            System.out.println();
-            System.out.println("数据库已重置为初始状态：");
-            System.out.println("  - 保留 admin 用户（密码: admin123）");
-            System.out.println("  - 保留 4 个系统角色: ADMIN, USER_MANAGER, AUDITOR, GUEST");
-            System.out.println("  - 恢复所有角色的标准权限配置");
-            System.out.println("  - 保留所有系统权限 (23个)");
-            System.out.println("  - 清空所有测试数据");
-            System.out.println("  - 清空审计日志（文件 + 数据库）");
         }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
     }
 }
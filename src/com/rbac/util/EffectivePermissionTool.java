@@ -0,0 +1,215 @@
+package com.rbac.util;
+
+import com.rbac.dao.EffectivePermissionDao;
+import com.rbac.event.GrantEvents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 用户有效权限物化表的重建与校验工具
+ *
+ * <p>用法：{@code EffectivePermissionTool [verify|rebuild] [每段用户数]}，默认 verify、每段 10000。
+ * <ul>
+ *   <li>{@code verify} - 按用户ID分段，比较物化表与关联查询（user_roles、role_closure、role_permissions）的结果，
+ *       输出缺少和多余的行数及前若干条样例；不一致时退出码为1</li>
+ *   <li>{@code rebuild} - 按用户ID分段比较后只重新计算内容有变化的用户，已有数据的库启用物化表之前、
+ *       或 verify 发现不一致时运行。这些用户写入授权变更日志，各节点的权限缓存随之失效</li>
+ * </ul>
+ * 每段在一个事务中执行并持有授权修改锁（{@link EffectivePermissionDao#lock()}），
+ * 可以在服务运行期间执行：段内的校验结果不受并发修改影响，其他授权修改只会等待当前段完成。
+ *
+ * @author RBAC Team
+ * @see EffectivePermissionDao
+ */
+public final class EffectivePermissionTool {
+
+    /** 输出的不一致样例条数 */
+    private static final int SAMPLE_LIMIT = 20;
+
+    private EffectivePermissionTool() {
+    }
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "verify";
+        int rangeSize = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+        System.out.println("========================================");
+        System.out.println("   用户有效权限物化表工具");
+        System.out.println("========================================");
+        if (!EffectivePermissionDao.isEnabled()) {
+            System.out.println("注意: auth.effectivePermissions.enabled=false，服务层当前不维护物化表");
+        }
+
+        int exitCode = 0;
+        try {
+            EffectivePermissionDao dao = new EffectivePermissionDao(true);
+            Report report;
+            switch (command) {
+                case "verify":
+                    report = verify(dao, rangeSize);
+                    break;
+                case "rebuild":
+                    report = rebuild(dao, rangeSize);
+                    break;
+                default:
+                    System.err.println("用法: EffectivePermissionTool [verify|rebuild] [每段用户数]");
+                    System.exit(2);
+                    return;
+            }
+            System.out.println(report);
+            for (String sample : report.getSamples()) {
+                System.out.println("  " + sample);
+            }
+            if ("verify".equals(command) && !report.isConsistent()) {
+                System.out.println("✗ 物化表与授权不一致，运行 EffectivePermissionTool rebuild 修复");
+                exitCode = 1;
+            } else {
+                System.out.println("✓ 完成");
+            }
+        } catch (Exception e) {
+            System.err.println("✗ 执行失败: " + e.getMessage());
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            DBUtil.shutdown();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * 校验物化表与关联查询的结果是否一致
+     *
+     * @param dao 物化表访问对象
+     * @param rangeSize 每段的用户ID数
+     */
+    public static Report verify(EffectivePermissionDao dao, int rangeSize) {
+        return run(dao, rangeSize, false);
+    }
+
+    /**
+     * 重新计算物化表中内容有变化的用户，并写入授权变更日志
+     *
+     * @param dao 物化表访问对象（必须启用）
+     * @param rangeSize 每段的用户ID数
+     */
+    public static Report rebuild(EffectivePermissionDao dao, int rangeSize) {
+        return run(dao, rangeSize, true);
+    }
+
+    private static Report run(EffectivePermissionDao dao, int rangeSize, boolean rebuild) {
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("每段用户数必须大于0: " + rangeSize);
+        }
+        Report report = new Report(rebuild);
+        int maxUserId = dao.findMaxUserId();
+        long start = System.nanoTime();
+        for (int from = 1; from <= maxUserId; from += rangeSize) {
+            int fromId = from;
+            int toId = (int) Math.min((long) maxUserId + 1, (long) from + rangeSize);
+            TransactionManager.run(() -> {
+                dao.lock();
+                int[] changedUsers = report.compare(dao.findDerivedRange(fromId, toId),
+                        dao.findMaterializedRange(fromId, toId));
+                if (rebuild && changedUsers.length > 0) {
+                    dao.refreshUsers(changedUsers);
+                    GrantEvents.usersRolesChanged(changedUsers);
+                }
+            });
+        }
+        report.millis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    /**
+     * 校验或重建的结果
+     */
+    public static final class Report {
+        private final boolean rebuild;
+        private long rows;
+        private long missing;
+        private long extra;
+        private long changedUsers;
+        private long millis;
+        private final List<String> samples = new ArrayList<>();
+
+        private Report(boolean rebuild) {
+            this.rebuild = rebuild;
+        }
+
+        /**
+         * 合并比较两个按（用户ID, 权限ID）升序的结果，返回内容不一致的用户ID
+         */
+        private int[] compare(long[] derived, long[] materialized) {
+            rows += derived.length;
+            int[] users = new int[16];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < derived.length || j < materialized.length) {
+                long pair;
+                if (j == materialized.length || (i < derived.length && derived[i] < materialized[j])) {
+                    pair = derived[i++];
+                    missing++;
+                    sample("缺少", pair);
+                } else if (i == derived.length || materialized[j] < derived[i]) {
+                    pair = materialized[j++];
+                    extra++;
+                    sample("多余", pair);
+                } else {
+                    i++;
+                    j++;
+                    continue;
+                }
+                int userId = (int) (pair >>> 32);
+                if (count == 0 || users[count - 1] != userId) {
+                    if (count == users.length) {
+                        users = Arrays.copyOf(users, count * 2);
+                    }
+                    users[count++] = userId;
+                }
+            }
+            changedUsers += count;
+            return Arrays.copyOf(users, count);
+        }
+
+        private void sample(String kind, long pair) {
+            if (samples.size() < SAMPLE_LIMIT) {
+                samples.add(kind + " 用户ID=" + (pair >>> 32) + " 权限ID=" + (int) pair);
+            }
+        }
+
+        /**
+         * 物化表与关联查询的结果一致（重建时指重建之前）
+         */
+        public boolean isConsistent() {
+            return missing == 0 && extra == 0;
+        }
+
+        public long getMissing() {
+            return missing;
+        }
+
+        public long getExtra() {
+            return extra;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * 前若干条不一致的样例
+         */
+        public List<String> getSamples() {
+            return samples;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[effective-permissions] %s 有效权限=%d行 缺少=%d 多余=%d 不一致的用户=%d 耗时=%dms",
+                    rebuild ? "重建" : "校验", rows, missing, extra, changedUsers, millis);
+        }
+    }
+}
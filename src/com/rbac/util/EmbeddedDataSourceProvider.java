@@ -0,0 +1,105 @@
+package com.rbac.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 嵌入式数据源提供者 - 在进程内运行 H2 数据库（MySQL兼容模式）
+ *
+ * <p>无需安装 MySQL 即可运行 {@code AutomatedTestRunner}、{@code DatabaseResetUtil}、压测和基准测试。
+ * 首次初始化时若库中还没有 users 表，会依次执行 {@code db.embedded.schemaScript}
+ * 和 {@code db.embedded.dataScript}（默认为 sql/schema.sql 和 sql/init_data.sql），
+ * 随后把 admin 的密码设置为 {@code db.embedded.adminPassword}（init_data.sql 中的哈希只是占位值）。
+ *
+ * <p><b>URL 约定：</b>默认使用内存库
+ * {@code jdbc:h2:mem:rbac_system;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1}，
+ * 可通过 {@code <前缀>.embedded.url} 改为文件库（例如多个JVM共享同一个库时使用 {@code AUTO_SERVER=TRUE}）。
+ *
+ * @author RBAC Team
+ * @see DataSourceProvider
+ */
+public class EmbeddedDataSourceProvider implements DataSourceProvider {
+
+    public static final String TYPE = "embedded";
+
+    private static final Logger logger = LogManager.getLogger(EmbeddedDataSourceProvider.class);
+
+    private static final String DRIVER_CLASS = "org.h2.Driver";
+    private static final String URL_OPTIONS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final String url;
+
+    /**
+     * @param prefix 配置项前缀（主库为 db），用于读取 {@code <prefix>.embedded.url}
+     */
+    public EmbeddedDataSourceProvider(String prefix) {
+        String defaultName = "db".equals(prefix) ? "rbac_system" : "rbac_" + prefix.replaceAll("[^A-Za-z0-9]", "_");
+        this.url = ConfigUtil.getString(prefix + ".embedded.url", "jdbc:h2:mem:" + defaultName + URL_OPTIONS);
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public void initialize() throws SQLException {
+        try {
+            Class.forName(DRIVER_CLASS);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("嵌入式数据库驱动不存在，请检查 H2 依赖", e);
+        }
+        try (Connection conn = createConnection()) {
+            if (!tableExists(conn, "users")) {
+                long start = System.currentTimeMillis();
+                loadScript(conn, ConfigUtil.getString("db.embedded.schemaScript", "sql/schema.sql"));
+                loadScript(conn, ConfigUtil.getString("db.embedded.dataScript", "sql/init_data.sql"));
+                resetAdminPassword(conn);
+                logger.info("嵌入式数据库初始化完成: {}（{}ms）", url, System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    @Override
+    public Connection createConnection() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(null, conn.getSchema(), table, null)) {
+            return rs.next();
+        }
+    }
+
+    private static void loadScript(Connection conn, String location) throws SQLException {
+        Path path = Paths.get(location);
+        try {
+            SqlScript.execute(conn, SqlScript.parse(path));
+        } catch (IOException e) {
+            throw new SQLException("读取初始化脚本失败: " + path.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 与 FixAdminPassword 相同：为 admin 生成真实的盐值和密码哈希
+     */
+    private static void resetAdminPassword(Connection conn) throws SQLException {
+        String password = ConfigUtil.getString("db.embedded.adminPassword", "admin123");
+        String salt = PasswordUtil.generateSalt();
+        String sql = "UPDATE users SET password_hash = ?, salt = ? WHERE username = 'admin'";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, PasswordUtil.hashPassword(password, salt));
+            pstmt.setString(2, salt);
+            pstmt.executeUpdate();
+        }
+    }
+}
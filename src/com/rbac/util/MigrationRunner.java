@@ -0,0 +1,363 @@
+package com.rbac.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库迁移工具 - 按版本号依次执行 {@code sql/migrations} 下的 DDL 脚本
+ *
+ * <p>sql/schema.sql 是基线（版本0），之后的结构调整都写成迁移脚本，文件名格式为
+ * {@code V<版本号>__<说明>.sql}（例如 {@code V2__join_table_reverse_indexes.sql}）。
+ * 已执行的版本记录在 {@value #VERSION_TABLE} 表中（版本号、说明、校验和、执行时间、耗时），
+ * 每次运行只执行尚未记录的版本；已执行脚本的内容被修改时（校验和不一致）只记录警告，不会重新执行。
+ *
+ * <p><b>执行时机：</b>{@code db.migration.autoApply=true}（默认）时，{@link DBUtil} 在创建连接池前自动执行；
+ * 多实例部署可以关闭自动执行，改为发布时手动运行 {@code MigrationRunner migrate}。
+ *
+ * <p><b>索引语句：</b>MySQL 的 DDL 会隐式提交，一个迁移执行到一半失败时无法整体回滚，
+ * 而且不支持 {@code CREATE INDEX IF NOT EXISTS}。因此本工具在执行
+ * {@code CREATE [UNIQUE] INDEX 名称 ON 表(...)} 前检查索引是否已存在、执行
+ * {@code ALTER TABLE 表 DROP INDEX 名称} 前检查索引是否存在，不满足时跳过该语句，
+ * 失败后修正问题再次运行即可从断点继续，也兼容手工建过索引的库。
+ *
+ * <p>用法：{@code MigrationRunner [status|migrate]}，默认 status。
+ *
+ * @author RBAC Team
+ * @see SqlScript
+ */
+public class MigrationRunner {
+
+    private static final Logger logger = LogManager.getLogger(MigrationRunner.class);
+
+    /** 已执行版本的记录表 */
+    public static final String VERSION_TABLE = "schema_version";
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+)\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DROP_INDEX = Pattern.compile(
+            "^ALTER\\s+TABLE\\s+(\\w+)\\s+DROP\\s+INDEX\\s+(\\w+)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DataSourceProvider provider;
+    private final Path location;
+
+    /**
+     * @param provider 目标数据库（直接创建物理连接，不经过连接池）
+     * @param location 迁移脚本目录
+     */
+    public MigrationRunner(DataSourceProvider provider, Path location) {
+        this.provider = provider;
+        this.location = location;
+    }
+
+    /**
+     * 使用 {@code db.migration.location}（默认 sql/migrations）创建迁移工具
+     */
+    public static MigrationRunner fromConfig(DataSourceProvider provider) {
+        return new MigrationRunner(provider, Paths.get(ConfigUtil.getString("db.migration.location", "sql/migrations")));
+    }
+
+    /**
+     * 执行所有尚未执行的迁移
+     *
+     * @return 本次执行的迁移数量
+     * @throws SQLException 当读取脚本失败或某个迁移执行失败时（之前的迁移已生效）
+     */
+    public int migrate() throws SQLException {
+        List<Migration> migrations = scan();
+        try (Connection conn = provider.createConnection()) {
+            ensureVersionTable(conn);
+            Map<Integer, String> applied = loadAppliedChecksums(conn);
+            int count = 0;
+            for (Migration migration : migrations) {
+                String checksum = applied.get(migration.getVersion());
+                if (checksum == null) {
+                    apply(conn, migration);
+                    count++;
+                } else if (!checksum.equals(migration.getChecksum())) {
+                    logger.warn("迁移脚本在执行后被修改（校验和不一致），不会重新执行: {}", migration);
+                }
+            }
+            if (count > 0) {
+                logger.info("数据库迁移完成: 执行 {} 个，当前版本 V{}", count, currentVersion(conn));
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 列出每个迁移的状态（已执行 / 待执行 / 已修改）
+     */
+    public List<String> status() throws SQLException {
+        List<Migration> migrations = scan();
+        List<String> lines = new ArrayList<>();
+        try (Connection conn = provider.createConnection()) {
+            ensureVersionTable(conn);
+            Map<Integer, AppliedRecord> applied = loadApplied(conn);
+            for (Migration migration : migrations) {
+                AppliedRecord record = applied.remove(migration.getVersion());
+                if (record == null) {
+                    lines.add(migration + "  待执行");
+                } else {
+                    lines.add(migration + "  已执行 " + TIME_FORMAT.format(record.appliedAt.toLocalDateTime()) + "（" + record.executionMs + "ms）"
+                            + (record.checksum.equals(migration.getChecksum()) ? "" : "  ⚠ 脚本已修改"));
+                }
+            }
+            for (Map.Entry<Integer, AppliedRecord> orphan : applied.entrySet()) {
+                lines.add("V" + orphan.getKey() + " " + orphan.getValue().description + "  已执行，但脚本文件不存在");
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 读取迁移目录，按版本号排序
+     *
+     * @throws SQLException 当目录无法读取、文件名不合法或版本号重复时
+     */
+    public List<Migration> scan() throws SQLException {
+        List<Migration> migrations = new ArrayList<>();
+        if (!Files.isDirectory(location)) {
+            logger.warn("迁移目录不存在，跳过: {}", location.toAbsolutePath());
+            return migrations;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(location, "*.sql")) {
+            for (Path file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    throw new SQLException("迁移脚本文件名不合法（应为 V<版本号>__<说明>.sql）: " + file.getFileName());
+                }
+                String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                        matcher.group(2).replace('_', ' '), file, content));
+            }
+        } catch (IOException e) {
+            throw new SQLException("读取迁移目录失败: " + location.toAbsolutePath(), e);
+        }
+        migrations.sort(Comparator.comparingInt(Migration::getVersion));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).getVersion() == migrations.get(i - 1).getVersion()) {
+                throw new SQLException("迁移版本号重复: V" + migrations.get(i).getVersion());
+            }
+        }
+        return migrations;
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        logger.info("执行迁移: {}", migration);
+        long start = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try {
+            for (String sql : SqlScript.parse(migration.content)) {
+                if (isSatisfied(conn, sql)) {
+                    logger.info("  跳过（目标状态已满足）: {}", sql);
+                    continue;
+                }
+                SqlScript.execute(conn, Collections.singletonList(sql));
+            }
+            String insert = "INSERT INTO " + VERSION_TABLE
+                    + " (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+                pstmt.setInt(1, migration.getVersion());
+                pstmt.setString(2, migration.getDescription());
+                pstmt.setString(3, migration.getChecksum());
+                pstmt.setLong(4, System.currentTimeMillis() - start);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw new SQLException("执行迁移失败: " + migration + " - " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * 索引语句的目标状态是否已满足：要创建的索引已存在，或要删除的索引不存在
+     */
+    private static boolean isSatisfied(Connection conn, String sql) throws SQLException {
+        Matcher create = CREATE_INDEX.matcher(sql);
+        if (create.find()) {
+            return indexExists(conn, create.group(2), create.group(1));
+        }
+        Matcher drop = DROP_INDEX.matcher(sql);
+        if (drop.find()) {
+            return !indexExists(conn, drop.group(1), drop.group(2));
+        }
+        return false;
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(conn.getCatalog(), conn.getSchema(), table, false, true)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void ensureVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + VERSION_TABLE + " ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "checksum VARCHAR(64) NOT NULL, "
+                    + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                    + "execution_ms BIGINT NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, String> loadAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> checksums = new LinkedHashMap<>();
+        for (Map.Entry<Integer, AppliedRecord> entry : loadApplied(conn).entrySet()) {
+            checksums.put(entry.getKey(), entry.getValue().checksum);
+        }
+        return checksums;
+    }
+
+    private static Map<Integer, AppliedRecord> loadApplied(Connection conn) throws SQLException {
+        Map<Integer, AppliedRecord> applied = new LinkedHashMap<>();
+        String sql = "SELECT version, description, checksum, applied_at, execution_ms FROM " + VERSION_TABLE + " ORDER BY version";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), new AppliedRecord(rs.getString(2), rs.getString(3), rs.getTimestamp(4), rs.getLong(5)));
+            }
+        }
+        return applied;
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM " + VERSION_TABLE)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * 一个迁移脚本
+     */
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final Path path;
+        private final String content;
+        private final String checksum;
+
+        private Migration(int version, String description, Path path, String content) {
+            this.version = version;
+            this.description = description;
+            this.path = path;
+            this.content = content;
+            this.checksum = sha256(content.replace("\r\n", "\n"));
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        /** 脚本内容的 SHA-256（换行统一为 \n，不受 Windows/Unix 检出方式影响） */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + " " + description;
+        }
+    }
+
+    private static final class AppliedRecord {
+        private final String description;
+        private final String checksum;
+        private final Timestamp appliedAt;
+        private final long executionMs;
+
+        private AppliedRecord(String description, String checksum, Timestamp appliedAt, long executionMs) {
+            this.description = description;
+            this.checksum = checksum;
+            this.appliedAt = appliedAt;
+            this.executionMs = executionMs;
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 命令行入口：查看迁移状态或手动执行迁移
+     */
+    public static void main(String[] args) throws SQLException {
+        String command = args.length > 0 ? args[0] : "status";
+        DataSourceProvider provider = DataSourceProvider.fromConfig("db");
+        provider.initialize();
+        MigrationRunner runner = fromConfig(provider);
+        switch (command) {
+            case "status":
+                break;
+            case "migrate":
+                System.out.println("执行迁移: " + runner.migrate() + " 个");
+                break;
+            default:
+                System.err.println("用法: MigrationRunner [status|migrate]");
+                return;
+        }
+        System.out.println("迁移目录: " + runner.location.toAbsolutePath());
+        for (String line : runner.status()) {
+            System.out.println("  " + line);
+        }
+    }
+}
@@ -75,6 +75,22 @@ public class PasswordUtil {
         }
     }
     
+    /**
+     * 检查密码复杂度：长度至少8位，且同时包含字母和数字
+     * 
+     * @param password 密码明文
+     * @return 不符合要求时返回原因，符合要求返回null
+     */
+    public static String checkStrength(String password) {
+        if (password.length() < 8) {
+            return "密码长度至少为8位";
+        }
+        if (!password.matches(".*[a-zA-Z].*") || !password.matches(".*\\d.*")) {
+            return "密码必须包含字母和数字";
+        }
+        return null;
+    }
+    
     /**
      * 验证密码是否正确
      * 
@@ -0,0 +1,147 @@
+package com.rbac.util;
+
+/**
+ * 连接池统计快照 - 某一时刻连接池运行状态的只读副本
+ *
+ * <p>由 {@link ConnectionPool#getStats()} 生成，用于在压测时观察连接池水位，
+ * 据此调整 {@code db.pool.maxSize} 等参数。
+ *
+ * <p><b>指标说明：</b>
+ * <ul>
+ *   <li><b>active</b>：已借出、尚未归还的连接数</li>
+ *   <li><b>idle</b>：池中空闲、可立即借出的连接数</li>
+ *   <li><b>waiting</b>：正在等待可用连接的线程数（持续大于0说明连接池偏小）</li>
+ *   <li><b>borrowLatency</b>：从调用 getConnection 到拿到连接的耗时</li>
+ *   <li><b>statementCache</b>：预编译语句缓存的命中、未命中与淘汰次数（所有连接合计）</li>
+ * </ul>
+ *
+ * @author RBAC Team
+ * @see ConnectionPool
+ */
+public class PoolStats {
+
+    private final String poolName;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final int maxSize;
+    private final long borrowCount;
+    private final long timeoutCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long leakCount;
+    private final long totalBorrowNanos;
+    private final long maxBorrowNanos;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolStats(String poolName, int active, int idle, int waiting, int maxSize,
+                     long borrowCount, long timeoutCount, long createdCount, long destroyedCount,
+                     long leakCount, long totalBorrowNanos, long maxBorrowNanos,
+                     long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.poolName = poolName;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.maxSize = maxSize;
+        this.borrowCount = borrowCount;
+        this.timeoutCount = timeoutCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.leakCount = leakCount;
+        this.totalBorrowNanos = totalBorrowNanos;
+        this.maxBorrowNanos = maxBorrowNanos;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getTotal() {
+        return active + idle;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getLeakCount() {
+        return leakCount;
+    }
+
+    /**
+     * 平均借用耗时（微秒）
+     */
+    public double getAvgBorrowMicros() {
+        return borrowCount == 0 ? 0 : totalBorrowNanos / 1000.0 / borrowCount;
+    }
+
+    /**
+     * 最大借用耗时（微秒）
+     */
+    public double getMaxBorrowMicros() {
+        return maxBorrowNanos / 1000.0;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions;
+    }
+
+    /**
+     * 语句缓存命中率（0~1）
+     */
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] 活跃=%d 空闲=%d 等待=%d 上限=%d | 借用=%d 超时=%d 创建=%d 销毁=%d 泄漏=%d | 借用耗时 平均=%.1fus 最大=%.1fus"
+                        + " | 语句缓存 命中=%d 未命中=%d 淘汰=%d 命中率=%.1f%%",
+                poolName, active, idle, waiting, maxSize,
+                borrowCount, timeoutCount, createdCount, destroyedCount, leakCount,
+                getAvgBorrowMicros(), getMaxBorrowMicros(),
+                statementCacheHits, statementCacheMisses, statementCacheEvictions, getStatementCacheHitRatio() * 100);
+    }
+}
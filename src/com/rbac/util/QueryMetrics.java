@@ -0,0 +1,283 @@
+package com.rbac.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SQL执行统计 - 按语句记录调用次数、失败次数和延迟分布，并输出慢查询日志
+ *
+ * <p>连接池借出的连接在 {@code prepareStatement} 时由 {@link #instrument(PreparedStatement, String)}
+ * 包装语句，所有 DAO 语句（包括事务中和从库上的）都会被统计，DAO 本身无需改动。
+ * 每次 {@code execute*} 调用记录一次耗时，查询的耗时只到返回 ResultSet 为止，不含逐行读取。
+ *
+ * <p><b>开销：</b>统计以SQL文本为键（DAO 中都是静态SQL），每次执行只有两次 {@code nanoTime}
+ * 和几次原子自增；延迟分布使用固定内存的 {@link LatencyHistogram}。
+ * 不同SQL的数量超过 {@code db.metrics.maxStatements} 后，新出现的语句合并到 "{@value #OTHER_KEY}"。
+ *
+ * <p><b>慢查询日志：</b>耗时达到 {@code db.metrics.slowQueryMs} 的执行写入 SLOW_QUERY 日志
+ * （logs/slow-query.log），包含SQL文本和绑定参数。{@code db.metrics.redactParameters=true}（默认）
+ * 时参数只显示类型，不显示值，避免用户名、密码哈希等写入日志。
+ *
+ * <p>查看方式：命令行主菜单"数据库运行状态"，或调用 {@link #snapshot()} / {@link #report(int)}。
+ *
+ * @author RBAC Team
+ * @see QueryStats
+ */
+public class QueryMetrics {
+
+    private static final Logger slowLogger = LogManager.getLogger("SLOW_QUERY");
+
+    static final String OTHER_KEY = "<其他语句>";
+
+    private static final boolean ENABLED = ConfigUtil.getBoolean("db.metrics.enabled", true);
+    private static final long SLOW_THRESHOLD_NANOS = ConfigUtil.getLong("db.metrics.slowQueryMs", 200) * 1_000_000L;
+    private static final boolean REDACT_PARAMETERS = ConfigUtil.getBoolean("db.metrics.redactParameters", true);
+    private static final int MAX_STATEMENTS = Math.max(1, ConfigUtil.getInt("db.metrics.maxStatements", 500));
+
+    private static final int MAX_LOGGED_VALUE_LENGTH = 64;
+
+    private static final ConcurrentMap<String, StatementMetrics> METRICS = new ConcurrentHashMap<>();
+
+    /** 语句代理类的构造器，只查找一次（每次 newProxyInstance 都要重新查找代理类和构造器） */
+    private static final Constructor<?> PROXY_CONSTRUCTOR = proxyConstructor();
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * 是否启用统计（{@code db.metrics.enabled}）
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 包装预编译语句，统计其每次执行；未启用时原样返回
+     *
+     * @param statement 连接池返回的语句
+     * @param sql 语句的SQL文本
+     */
+    static PreparedStatement instrument(PreparedStatement statement, String sql) {
+        if (!ENABLED) {
+            return statement;
+        }
+        try {
+            return (PreparedStatement) PROXY_CONSTRUCTOR.newInstance(new TimedStatementHandler(statement, metricsFor(sql)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建语句代理失败", e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Constructor<?> proxyConstructor() {
+        try {
+            return Proxy.getProxyClass(PreparedStatement.class.getClassLoader(), PreparedStatement.class)
+                    .getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static StatementMetrics metricsFor(String sql) {
+        StatementMetrics metrics = METRICS.get(sql);
+        if (metrics != null) {
+            return metrics;
+        }
+        String key = METRICS.size() < MAX_STATEMENTS ? sql : OTHER_KEY;
+        return METRICS.computeIfAbsent(key, k -> new StatementMetrics(normalize(k)));
+    }
+
+    /**
+     * 当前所有语句的统计快照，按累计耗时从高到低排序
+     */
+    public static List<QueryStats> snapshot() {
+        List<QueryStats> result = new ArrayList<>(METRICS.size());
+        for (StatementMetrics metrics : METRICS.values()) {
+            result.add(metrics.snapshot());
+        }
+        result.sort(Comparator.comparingLong(QueryStats::getTotalNanos).reversed());
+        return result;
+    }
+
+    /**
+     * 格式化的统计报告：累计耗时最高的若干条语句
+     *
+     * @param top 最多显示的语句数
+     */
+    public static String report(int top) {
+        List<QueryStats> stats = snapshot();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%8s %6s %6s %10s %9s %9s %9s %9s  %s%n",
+                "calls", "errors", "slow", "total ms", "p50 us", "p99 us", "p999 us", "max us", "SQL"));
+        for (int i = 0; i < stats.size() && i < top; i++) {
+            QueryStats s = stats.get(i);
+            sb.append(String.format("%8d %6d %6d %10.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    s.getCalls(), s.getErrors(), s.getSlowCalls(), s.getTotalNanos() / 1e6,
+                    s.getP50Nanos() / 1e3, s.getP99Nanos() / 1e3, s.getP999Nanos() / 1e3, s.getMaxNanos() / 1e3,
+                    abbreviate(s.getSql(), 100)));
+        }
+        if (stats.size() > top) {
+            sb.append("... 共 ").append(stats.size()).append(" 条语句").append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 清空所有统计
+     */
+    public static void reset() {
+        METRICS.clear();
+    }
+
+    private static String normalize(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    private static String abbreviate(String text, int maxLength) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength - 3) + "...";
+    }
+
+    /**
+     * 一条SQL的累计统计
+     */
+    private static final class StatementMetrics {
+        private final String sql;
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong slowCalls = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private StatementMetrics(String sql) {
+            this.sql = sql;
+        }
+
+        private QueryStats snapshot() {
+            return new QueryStats(sql, latency.getCount(), errors.get(), slowCalls.get(), latency);
+        }
+    }
+
+    /**
+     * 语句代理：计时 execute* 调用，记录绑定的参数供慢查询日志使用，其余调用原样转发
+     */
+    private static final class TimedStatementHandler implements InvocationHandler {
+        private final PreparedStatement target;
+        private final StatementMetrics metrics;
+        private Object[] parameters = new Object[8];
+        private int parameterCount;
+        private int batchSize;
+
+        private TimedStatementHandler(PreparedStatement target, StatementMetrics metrics) {
+            this.target = target;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return timed(method, args);
+            }
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "clearParameters":
+                    Arrays.fill(parameters, 0, parameterCount, null);
+                    parameterCount = 0;
+                    break;
+                case "addBatch":
+                    batchSize++;
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                default:
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        recordParameter((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+                    }
+                    break;
+            }
+            return forward(method, args);
+        }
+
+        private Object timed(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = forward(method, args);
+                failed = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                metrics.latency.record(elapsed);
+                if (failed) {
+                    metrics.errors.incrementAndGet();
+                }
+                if (elapsed >= SLOW_THRESHOLD_NANOS) {
+                    metrics.slowCalls.incrementAndGet();
+                    logSlowQuery(elapsed, failed);
+                }
+                if (method.getName().endsWith("Batch")) {
+                    batchSize = 0;
+                }
+            }
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void recordParameter(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private void logSlowQuery(long elapsedNanos, boolean failed) {
+            StringBuilder params = new StringBuilder("[");
+            for (int i = 0; i < parameterCount; i++) {
+                if (i > 0) {
+                    params.append(", ");
+                }
+                params.append(describe(parameters[i]));
+            }
+            params.append(']');
+            slowLogger.warn("elapsed={}ms result={}{} sql={} params={}",
+                    String.format("%.1f", elapsedNanos / 1e6), failed ? "FAIL" : "OK",
+                    batchSize > 0 ? " batch=" + batchSize : "", metrics.sql, params);
+        }
+
+        private static String describe(Object value) {
+            if (value == null) {
+                return "null";
+            }
+            if (REDACT_PARAMETERS) {
+                return value.getClass().getSimpleName();
+            }
+            return abbreviate(String.valueOf(value), MAX_LOGGED_VALUE_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.rbac.util;
+
+/**
+ * 单条SQL语句的执行统计快照（只读）
+ *
+ * @author RBAC Team
+ * @see QueryMetrics#snapshot()
+ */
+public class QueryStats {
+
+    private final String sql;
+    private final long calls;
+    private final long errors;
+    private final long slowCalls;
+    private final long totalNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    QueryStats(String sql, long calls, long errors, long slowCalls, LatencyHistogram histogram) {
+        this.sql = sql;
+        this.calls = calls;
+        this.errors = errors;
+        this.slowCalls = slowCalls;
+        this.totalNanos = histogram.getTotalNanos();
+        this.p50Nanos = histogram.percentile(50);
+        this.p99Nanos = histogram.percentile(99);
+        this.p999Nanos = histogram.percentile(99.9);
+        this.maxNanos = histogram.getMaxNanos();
+    }
+
+    /** SQL文本（占位符形式，不含参数值） */
+    public String getSql() {
+        return sql;
+    }
+
+    /** 执行次数（含失败） */
+    public long getCalls() {
+        return calls;
+    }
+
+    /** 执行失败次数 */
+    public long getErrors() {
+        return errors;
+    }
+
+    /** 超过慢查询阈值的次数 */
+    public long getSlowCalls() {
+        return slowCalls;
+    }
+
+    /** 累计耗时（纳秒） */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /** 平均耗时（纳秒） */
+    public long getMeanNanos() {
+        return calls == 0 ? 0 : totalNanos / calls;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("调用=%d 失败=%d 慢=%d 总耗时=%.1fms p50=%.1fus p99=%.1fus p999=%.1fus 最大=%.1fus | %s",
+                calls, errors, slowCalls, totalNanos / 1e6, p50Nanos / 1e3, p99Nanos / 1e3, p999Nanos / 1e3,
+                maxNanos / 1e3, sql);
+    }
+}
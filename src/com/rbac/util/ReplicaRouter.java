@@ -0,0 +1,321 @@
+package com.rbac.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 读写分离路由器 - 将只读查询分发到从库，写操作始终走主库
+ *
+ * <p>授权查询（find*、exists*、hasRole、hasPermission）远多于管理类写操作，
+ * DAO 的只读方法通过 {@link DBUtil#getReadConnection()} 借连接，由本类决定使用哪个数据源：
+ * <ol>
+ *   <li>当前线程处于 {@link #readFromPrimary(Supplier)} 范围内 → 主库</li>
+ *   <li>当前线程在 {@code db.replica.stickyAfterWriteMs} 内借过主库连接（刚执行过写操作）→ 主库，
+ *       保证同一会话"读己之写"（会话与线程绑定，见 {@link SessionContext}）</li>
+ *   <li>否则在健康的从库之间轮询（round-robin）</li>
+ *   <li>从库全部不可用、复制延迟超过 {@code db.replica.maxLagMs} 或借连接失败 → 回退主库</li>
+ * </ol>
+ * 向从库借连接最多等待 {@code db.replica.borrowTimeoutMs}：等待超时只说明该从库的连接池繁忙，
+ * 改用下一个从库或主库，不影响其健康状态；新建或校验连接失败才暂停使用该从库。
+ *
+ * <p><b>健康检查：</b>后台线程每隔 {@code db.replica.healthCheckIntervalMs} 检查一次从库。
+ * 配置了 {@code db.replica.lagQuery} 时执行该查询并把第一列作为延迟秒数；
+ * 否则 MySQL 从库读取 {@code SHOW SLAVE STATUS} 的 Seconds_Behind_Master，嵌入式从库只做连通性检查。
+ *
+ * <p>从库通过 {@code db.replicas=r1,r2} 声明，每个从库的连接参数使用前缀 {@code db.replica.<名称>}，
+ * 与主库的 {@code db.*} 写法相同（type、url、user、password、embedded.url）。
+ *
+ * @author RBAC Team
+ * @see DBUtil#getReadConnection()
+ */
+public class ReplicaRouter {
+
+    private static final Logger logger = LogManager.getLogger(ReplicaRouter.class);
+
+    /** 当前线程最近一次借用主库连接的时间 */
+    private static final ThreadLocal<Long> lastPrimaryAccess = new ThreadLocal<>();
+
+    /** 当前线程处于 {@link #readFromPrimary(Supplier)} 范围内 */
+    private static final ThreadLocal<Boolean> primaryScope = new ThreadLocal<>();
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas;
+    private final long stickyAfterWriteMs;
+    private final long maxLagMs;
+    private final long borrowTimeoutMs;
+    private final String lagQuery;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong stickyReads = new AtomicLong();
+    private final AtomicLong scopedReads = new AtomicLong();
+    private final AtomicLong fallbackReads = new AtomicLong();
+    private final AtomicLong busySkips = new AtomicLong();
+
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * 按配置创建路由器；未配置从库时所有读操作都走主库
+     *
+     * @param primary 主库连接池
+     */
+    public ReplicaRouter(ConnectionPool primary) {
+        this.primary = primary;
+        this.stickyAfterWriteMs = ConfigUtil.getLong("db.replica.stickyAfterWriteMs", 5000);
+        this.maxLagMs = ConfigUtil.getLong("db.replica.maxLagMs", 3000);
+        this.borrowTimeoutMs = ConfigUtil.getLong("db.replica.borrowTimeoutMs", 200);
+        String query = ConfigUtil.getString("db.replica.lagQuery", "").trim();
+        this.lagQuery = query.isEmpty() ? null : query;
+
+        List<Replica> list = new ArrayList<>();
+        for (String name : ConfigUtil.getString("db.replicas", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            DataSourceProvider provider = DataSourceProvider.fromConfig("db.replica." + name);
+            try {
+                provider.initialize();
+            } catch (SQLException e) {
+                throw new RuntimeException("初始化从库失败: " + name, e);
+            }
+            list.add(new Replica(name, new ConnectionPool("replica-" + name, provider)));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+
+        if (replicas.isEmpty()) {
+            this.healthChecker = null;
+        } else {
+            long interval = Math.max(100, ConfigUtil.getLong("db.replica.healthCheckIntervalMs", 5000));
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "rbac-replica-health");
+                t.setDaemon(true);
+                return t;
+            });
+            // 启动时先同步检查一次，避免延迟过大的从库在第一轮检查前就接收读请求
+            checkHealth();
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+            logger.info("已启用读写分离，从库: {}", ConfigUtil.getString("db.replicas"));
+        }
+    }
+
+    /**
+     * 借用主库连接（写操作），并记录当前线程的写入时间以实现读己之写
+     */
+    public Connection getWriteConnection() throws SQLException {
+        if (!replicas.isEmpty()) {
+            lastPrimaryAccess.set(System.currentTimeMillis());
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * 借用主库连接做只读查询：不记录写入时间，当前线程之后的读操作仍按常规路由
+     *
+     * <p>用于不能容忍复制延迟的查询（授权快照、版本号、变更日志等）
+     */
+    public Connection getPrimaryReadConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * 在 action 执行期间，当前线程的读请求都走主库；不记录写入时间，结束后恢复常规路由
+     *
+     * <p>用于读到的数据要与刚取得的 {@link com.rbac.cache.RbacEpoch} 版本号一致的场景：
+     * 版本号可能已由本进程的修改直接推进，从库未必已经复制到该版本
+     *
+     * @param action 执行的查询
+     * @return action 的返回值
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        if (primaryScope.get() != null) {
+            return action.get();
+        }
+        primaryScope.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            primaryScope.remove();
+        }
+    }
+
+    /**
+     * 借用只读连接：按"指定主库 → 读己之写 → 从库轮询 → 回退主库"的顺序选择数据源
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty()) {
+            return primary.getConnection();
+        }
+        if (primaryScope.get() != null) {
+            scopedReads.incrementAndGet();
+            return primary.getConnection();
+        }
+        Long lastWrite = lastPrimaryAccess.get();
+        if (lastWrite != null) {
+            if (System.currentTimeMillis() - lastWrite < stickyAfterWriteMs) {
+                stickyReads.incrementAndGet();
+                return primary.getConnection();
+            }
+            lastPrimaryAccess.remove();
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(nextIndex.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection conn = replica.pool.getConnection(borrowTimeoutMs);
+                replica.reads.incrementAndGet();
+                replicaReads.incrementAndGet();
+                return conn;
+            } catch (SQLTransientConnectionException e) {
+                // 连接池繁忙（或等待被中断），从库本身可用
+                busySkips.incrementAndGet();
+            } catch (SQLException e) {
+                replica.markDown("借用连接失败: " + e.getMessage());
+            }
+        }
+        fallbackReads.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    /**
+     * 后台健康检查：连通性 + 复制延迟
+     */
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection conn = replica.pool.getConnection()) {
+                long lag = measureLagMs(conn);
+                replica.lagMs = lag;
+                if (lag < 0) {
+                    replica.markDown("复制未运行");
+                } else if (lag > maxLagMs) {
+                    replica.markDown("复制延迟 " + lag + "ms 超过阈值 " + maxLagMs + "ms");
+                } else {
+                    replica.markUp();
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.markDown("健康检查失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 测量复制延迟（毫秒），复制未运行时返回 -1
+     */
+    private long measureLagMs(Connection conn) throws SQLException {
+        if (lagQuery != null) {
+            try (PreparedStatement pstmt = conn.prepareStatement(lagQuery);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return -1;
+                }
+                long seconds = rs.getLong(1);
+                return rs.wasNull() ? -1 : seconds * 1000;
+            }
+        }
+        if (!conn.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")) {
+            return conn.isValid(3) ? 0 : -1;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SHOW SLAVE STATUS");
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return -1;
+            }
+            long seconds = rs.getLong("Seconds_Behind_Master");
+            return rs.wasNull() ? -1 : seconds * 1000;
+        }
+    }
+
+    /**
+     * 是否配置了从库
+     */
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * 获取各从库连接池的统计信息
+     */
+    public List<PoolStats> getReplicaPoolStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            stats.add(replica.pool.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * 路由概况：各从库状态及读请求的去向分布
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("读请求 从库=%d 读己之写(主库)=%d 指定主库=%d 回退主库=%d 从库繁忙跳过=%d",
+                replicaReads.get(), stickyReads.get(), scopedReads.get(), fallbackReads.get(), busySkips.get()));
+        for (Replica replica : replicas) {
+            sb.append(String.format("%n  从库[%s] %s 延迟=%dms 读取=%d",
+                    replica.name, replica.healthy ? "正常" : "不可用", replica.lagMs, replica.reads.get()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 关闭所有从库连接池
+     */
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    /**
+     * 单个从库及其健康状态
+     */
+    private static final class Replica {
+        private final String name;
+        private final ConnectionPool pool;
+        private final AtomicLong reads = new AtomicLong();
+        private volatile boolean healthy = true;
+        private volatile long lagMs;
+
+        private Replica(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        private void markDown(String reason) {
+            if (healthy) {
+                logger.warn("从库[{}]暂停使用: {}", name, reason);
+            }
+            healthy = false;
+        }
+
+        private void markUp() {
+            if (!healthy) {
+                logger.info("从库[{}]恢复使用", name);
+            }
+            healthy = true;
+        }
+    }
+}
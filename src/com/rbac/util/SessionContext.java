@@ -2,6 +2,8 @@ package com.rbac.util;
 
 import com.rbac.model.User;
 
+import java.util.function.Supplier;
+
 /**
  * 会话上下文 - 管理当前登录用户的会话信息
  * 
@@ -19,6 +21,8 @@ import com.rbac.model.User;
  * <ul>
  *   <li>用户登出时必须调用 {@link #clear()}，避免内存泄漏</li>
  *   <li>在使用线程池的环境下，需要在任务结束时清理ThreadLocal</li>
+ *   <li>异步调用不依赖调用方线程的会话：调用方显式传入用户，工作线程用 {@link #callAs(User, Supplier)}
+ *       在任务期间临时绑定（见 {@link AsyncExecutor}）</li>
  * </ul>
  * 
  * @author RBAC Team
@@ -67,4 +71,28 @@ public class SessionContext {
     public static void clear() {
         currentUser.remove();
     }
+    
+    /**
+     * 以指定用户的身份执行操作，结束后恢复当前线程原来的会话
+     * 
+     * <p>用于线程池中的任务：会话由调用方显式传入，只在任务执行期间绑定到工作线程，
+     * 任务结束（包括抛出异常）后立即恢复，不会残留到同一线程的下一个任务
+     * 
+     * @param user 执行操作的用户，null 表示以未登录身份执行
+     * @param action 要执行的操作
+     * @return 操作的返回值
+     */
+    public static <T> T callAs(User user, Supplier<T> action) {
+        User previous = currentUser.get();
+        currentUser.set(user);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                currentUser.set(previous);
+            } else {
+                currentUser.remove();
+            }
+        }
+    }
 }
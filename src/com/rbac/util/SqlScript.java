@@ -0,0 +1,96 @@
+package com.rbac.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL脚本工具 - 将 .sql 文件拆分为单条语句并依次执行
+ *
+ * <p>拆分规则与项目中的脚本写法一致：以行尾分号结束一条语句，忽略空行和 {@code --} 注释行。
+ * {@code CREATE DATABASE} 和 {@code USE} 语句会被跳过，因为连接本身已指定了数据库。
+ *
+ * @author RBAC Team
+ */
+public class SqlScript {
+
+    private SqlScript() {
+    }
+
+    /**
+     * 读取并拆分脚本文件
+     *
+     * @param path 脚本路径
+     * @return 语句列表（不含结尾分号）
+     * @throws IOException 当读取文件失败时
+     */
+    public static List<String> parse(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 拆分脚本文本
+     *
+     * @param script 脚本内容
+     * @return 语句列表（不含结尾分号）
+     */
+    public static List<String> parse(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                sql = sql.substring(0, sql.length() - 1).trim();
+                current.setLength(0);
+                if (!isDatabaseSelection(sql)) {
+                    statements.add(sql);
+                }
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    /**
+     * 依次执行语句，任一语句失败即抛出异常（附带失败的语句）
+     *
+     * @param conn 数据库连接
+     * @param statements 语句列表
+     * @throws SQLException 当某条语句执行失败时
+     */
+    public static void execute(Connection conn, List<String> statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    throw new SQLException("执行SQL失败: " + firstLine(sql) + " - " + e.getMessage(),
+                            e.getSQLState(), e.getErrorCode(), e);
+                }
+            }
+        }
+    }
+
+    private static boolean isDatabaseSelection(String sql) {
+        String upper = sql.toUpperCase();
+        return upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ");
+    }
+
+    private static String firstLine(String sql) {
+        int newline = sql.indexOf('\n');
+        return newline < 0 ? sql : sql.substring(0, newline) + " ...";
+    }
+}
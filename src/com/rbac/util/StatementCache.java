@@ -0,0 +1,224 @@
+package com.rbac.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预编译语句缓存 - 绑定在单个物理连接上，按SQL文本复用 {@link PreparedStatement}
+ *
+ * <p>DAO 中的SQL都是静态字符串，每次调用却都会重新 prepare。本缓存拦截
+ * {@code prepareStatement(sql)} 和 {@code prepareStatement(sql, autoGeneratedKeys)}，
+ * 命中时直接返回已编译的语句；DAO 调用 {@code close()} 时只清空参数、标记为可用，
+ * 不真正关闭。配合 MySQL 的服务端预编译（useServerPrepStmts），热点授权查询
+ * 只在第一次使用时由服务器解析和生成执行计划。
+ *
+ * <p><b>设计要点：</b>
+ * <ul>
+ *   <li><b>LRU淘汰</b>：使用访问顺序的 LinkedHashMap，超过容量时关闭最久未用的语句</li>
+ *   <li><b>独占使用</b>：同一条SQL在同一连接上被嵌套打开时，第二次获取的是不缓存的普通语句</li>
+ *   <li><b>线程约束</b>：物理连接同一时刻只借给一个线程，因此本类无需加锁</li>
+ * </ul>
+ *
+ * @author RBAC Team
+ * @see ConnectionPool
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    /**
+     * @param physical 物理连接
+     * @param maxSize 最多缓存的语句数
+     * @param counters 连接池级别的命中统计（所有连接共享）
+     */
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * 获取（或创建并缓存）预编译语句
+     *
+     * @param logicalConnection 当前借用的逻辑连接，作为语句的 getConnection() 返回值
+     * @param sql SQL文本
+     * @param autoGeneratedKeys 是否返回自增主键（{@link Statement#RETURN_GENERATED_KEYS}）
+     * @return 语句代理，close() 时归还缓存
+     */
+    PreparedStatement prepare(Connection logicalConnection, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            counters.hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.newProxy(logicalConnection);
+        }
+        counters.misses.incrementAndGet();
+        PreparedStatement stmt = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // 同一条SQL正在被使用（嵌套查询），新语句不进入缓存
+            return new CachedStatement(key, stmt, false).newProxy(logicalConnection);
+        }
+        CachedStatement created = new CachedStatement(key, stmt, true);
+        created.inUse = true;
+        statements.put(key, created);
+        evictIfNecessary();
+        return created.newProxy(logicalConnection);
+    }
+
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, CachedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            it.remove();
+            counters.evictions.incrementAndGet();
+            eldest.cached = false;
+            if (!eldest.inUse) {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * 连接归还时调用：未关闭的语句一律视为已归还，避免下一个借用者拿到"使用中"的语句
+     */
+    void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            if (cached.inUse) {
+                cached.inUse = false;
+                cached.resetQuietly();
+            }
+        }
+    }
+
+    /**
+     * 连接池级别的缓存统计计数器
+     */
+    static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    /**
+     * 缓存中的一条物理语句
+     */
+    private final class CachedStatement {
+        private final String key;
+        private final PreparedStatement physicalStatement;
+        private boolean cached;
+        private boolean inUse;
+        private boolean batched;
+
+        private CachedStatement(String key, PreparedStatement physicalStatement, boolean cached) {
+            this.key = key;
+            this.physicalStatement = physicalStatement;
+            this.cached = cached;
+        }
+
+        private PreparedStatement newProxy(Connection logicalConnection) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new LogicalStatementHandler(this, logicalConnection));
+        }
+
+        /**
+         * 逻辑关闭：缓存中的语句只重置参数，被淘汰或未缓存的语句真正关闭
+         */
+        private void release() {
+            inUse = false;
+            if (cached) {
+                resetQuietly();
+            } else {
+                closeQuietly();
+            }
+        }
+
+        private void resetQuietly() {
+            try {
+                physicalStatement.clearParameters();
+                if (batched) {
+                    physicalStatement.clearBatch();
+                    batched = false;
+                }
+            } catch (SQLException e) {
+                // 重置失败的语句不再复用
+                statements.remove(key);
+                cached = false;
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                physicalStatement.close();
+            } catch (SQLException ignored) {
+                // 物理连接可能已断开
+            }
+        }
+    }
+
+    /**
+     * 逻辑语句的调用处理器：拦截 close，其余调用转发给物理语句
+     */
+    private static final class LogicalStatementHandler implements InvocationHandler {
+        private final CachedStatement target;
+        private final Connection logicalConnection;
+        private boolean logicallyClosed;
+
+        private LogicalStatementHandler(CachedStatement target, Connection logicalConnection) {
+            this.target = target;
+            this.logicalConnection = logicalConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        target.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || target.physicalStatement.isClosed();
+                case "getConnection":
+                    return logicalConnection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + target.key + "]";
+                case "addBatch":
+                    target.batched = true;
+                    break;
+                default:
+                    break;
+            }
+            if (logicallyClosed) {
+                throw new SQLException("语句已关闭");
+            }
+            try {
+                return method.invoke(target.physicalStatement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
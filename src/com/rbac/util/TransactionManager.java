@@ -0,0 +1,201 @@
+package com.rbac.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 事务管理器 - 把一个主库连接绑定到当前线程的工作单元
+ *
+ * <p>服务层的多步操作（检查用户、检查角色、检查是否已分配、写入）原本每一步都单独借连接并自动提交；
+ * 放进 {@link #execute(Supplier)} 后整个操作只借一次连接、只提交一次：
+ * <pre>
+ * TransactionManager.run(() -&gt; {
+ *     checkUserExists(userId);
+ *     userRoleDao.assignRole(userId, roleId);
+ * });
+ * </pre>
+ *
+ * <p><b>传播行为：</b>相当于 REQUIRED —— 已有事务时直接加入，外层事务负责提交或回滚。
+ * 事务进行中 DAO 通过 {@link DBUtil#getConnection()} 和 {@link DBUtil#getReadConnection()}
+ * 拿到的都是绑定的连接（读操作也走主库，保证读到本事务内的修改），其 {@code close()} 不会归还连接池。
+ *
+ * <p><b>回滚规则：</b>回调抛出任何 RuntimeException 或 Error（包括 BusinessException）都会回滚整个事务。
+ *
+ * @author RBAC Team
+ */
+public class TransactionManager {
+
+    private static final Logger logger = LogManager.getLogger(TransactionManager.class);
+
+    private static final ThreadLocal<TransactionContext> CURRENT = new ThreadLocal<>();
+
+    private TransactionManager() {
+    }
+
+    /**
+     * 在事务中执行回调并返回结果；已有事务时加入该事务
+     *
+     * @param action 事务内的操作
+     * @return 回调的返回值
+     * @throws RuntimeException 回调抛出的异常（事务已回滚），或开启/提交事务失败时
+     */
+    public static <T> T execute(Supplier<T> action) {
+        if (CURRENT.get() != null) {
+            return action.get();
+        }
+
+        Connection conn = null;
+        try {
+            conn = DBUtil.getConnection();
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            // 已借出连接但关闭自动提交失败时归还连接，避免泄漏
+            DBUtil.close(conn);
+            throw new RuntimeException("开启事务失败", e);
+        }
+
+        TransactionContext context = new TransactionContext(conn);
+        CURRENT.set(context);
+        T result;
+        try {
+            result = action.get();
+            conn.commit();
+        } catch (RuntimeException | Error e) {
+            rollbackQuietly(conn, e);
+            throw e;
+        } catch (SQLException e) {
+            rollbackQuietly(conn, e);
+            throw new RuntimeException("提交事务失败", e);
+        } finally {
+            CURRENT.remove();
+            DBUtil.close(conn);
+        }
+
+        context.runAfterCommit();
+        return result;
+    }
+
+    /**
+     * 在事务中执行无返回值的操作；已有事务时加入该事务
+     *
+     * @param action 事务内的操作
+     */
+    public static void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 注册提交后回调（例如发送变更通知）；不在事务中时立即执行。事务回滚时回调不会执行
+     *
+     * @param callback 回调
+     */
+    public static void afterCommit(Runnable callback) {
+        TransactionContext context = CURRENT.get();
+        if (context == null) {
+            callback.run();
+        } else {
+            context.afterCommit.add(callback);
+        }
+    }
+
+    /**
+     * 当前线程是否处于事务中
+     */
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 获取当前事务绑定的连接（供 {@link DBUtil} 使用），不在事务中时返回 null
+     *
+     * <p>返回的连接调用 {@code close()} 不会归还连接池，提交和回滚只能由事务管理器执行。
+     */
+    static Connection currentConnection() {
+        TransactionContext context = CURRENT.get();
+        return context == null ? null : context.handle;
+    }
+
+    private static void rollbackQuietly(Connection conn, Throwable cause) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            logger.error("事务回滚失败", e);
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * 单个事务的状态：绑定的连接及提交后回调
+     */
+    private static final class TransactionContext {
+        private final Connection handle;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+
+        private TransactionContext(Connection conn) {
+            this.handle = (Connection) Proxy.newProxyInstance(TransactionManager.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new BoundConnectionHandler(conn));
+        }
+
+        private void runAfterCommit() {
+            for (Runnable callback : afterCommit) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    logger.error("事务提交后回调执行失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 事务内交给 DAO 的连接：close() 为空操作，禁止 DAO 自行提交、整体回滚或切换自动提交（保存点不受限制）
+     */
+    private static final class BoundConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        private BoundConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "rollback":
+                    if (args != null) {
+                        // 回滚到保存点是允许的（批量写入逐行重试时使用）
+                        break;
+                    }
+                    throw new SQLException("连接由 TransactionManager 管理，不能在事务中调用 rollback");
+                case "commit":
+                case "setAutoCommit":
+                    throw new SQLException("连接由 TransactionManager 管理，不能在事务中调用 " + method.getName());
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}